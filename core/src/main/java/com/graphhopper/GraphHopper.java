@@ -33,6 +33,7 @@ import com.graphhopper.reader.osm.RestrictionTagParser;
 import com.graphhopper.routing.*;
 import com.graphhopper.routing.ch.CHPreparationHandler;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ch.RankOrderedCHGraph;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.lm.LMConfig;
 import com.graphhopper.routing.lm.LMPreparationHandler;
@@ -68,6 +69,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -104,7 +107,13 @@ public class GraphHopper {
     private String ghLocation = "";
     private DAType dataAccessDefaultType = DAType.RAM_STORE;
     private final LinkedHashMap<String, String> dataAccessConfig = new LinkedHashMap<>();
+    private boolean preloadInBackground = false;
+    private volatile boolean preloading = false;
+    private Thread preloadThread;
     private boolean sortGraph = true;
+    private boolean cacheAlignedEdges = false;
+    private boolean csrAdjacency = false;
+    private boolean chRankOrderedLayout = false;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -112,6 +121,9 @@ public class GraphHopper {
     private final OSMReaderConfig osmReaderConfig = new OSMReaderConfig();
     // for routing
     private final RouterConfig routerConfig = new RouterConfig();
+    private RoutingWorkspacePool workspacePool;
+    private SnapCache snapCache;
+    private ExecutorService legExecutor;
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
@@ -130,6 +142,7 @@ public class GraphHopper {
     private final LMPreparationHandler lmPreparationHandler = new LMPreparationHandler();
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
     private Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
+    private Map<String, RankOrderedCHGraph> rankOrderedCHGraphs = Collections.emptyMap();
     private Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
 
     // for data reader
@@ -366,6 +379,16 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Enables the rank ordered copy of the node-based CH graphs, which is used to calculate shortest path trees with
+     * PHAST, see {@link #getRankOrderedCHGraphs()}.
+     */
+    public GraphHopper setCHRankOrderedLayout(boolean chRankOrderedLayout) {
+        ensureNotLoaded();
+        this.chRankOrderedLayout = chRankOrderedLayout;
+        return this;
+    }
+
     /**
      * The underlying graph used in algorithms.
      *
@@ -395,6 +418,14 @@ public class GraphHopper {
         return chGraphs;
     }
 
+    /**
+     * @return a mapping between profile names and the rank ordered copies of their CH graphs. The map is empty unless
+     * graph.ch.rank_ordered_layout is enabled and contains only node-based CH graphs.
+     */
+    public Map<String, RankOrderedCHGraph> getRankOrderedCHGraphs() {
+        return rankOrderedCHGraphs;
+    }
+
     /**
      * @return a mapping between profile names and according landmark preparations. The map will be empty before loading
      * or import.
@@ -512,9 +543,15 @@ public class GraphHopper {
                 dataAccessConfig.put(entry.getKey().substring("graph.dataaccess.type.".length()), entry.getValue().toString());
             if (entry.getKey().startsWith("graph.dataaccess.mmap.preload."))
                 dataAccessConfig.put(entry.getKey().substring("graph.dataaccess.mmap.".length()), entry.getValue().toString());
+            if (entry.getKey().startsWith("graph.dataaccess.compressed.cache."))
+                dataAccessConfig.put(entry.getKey().substring("graph.dataaccess.compressed.".length()), entry.getValue().toString());
         }
 
+        preloadInBackground = ghConfig.getBool("graph.dataaccess.mmap.preload_in_background", preloadInBackground);
         sortGraph = ghConfig.getBool("graph.sort", sortGraph);
+        cacheAlignedEdges = ghConfig.getBool("graph.cache_aligned_edges", cacheAlignedEdges);
+        csrAdjacency = ghConfig.getBool("graph.csr_adjacency", csrAdjacency);
+        chRankOrderedLayout = ghConfig.getBool("graph.ch.rank_ordered_layout", chRankOrderedLayout);
         if (ghConfig.getBool("max_speed_calculator.enabled", false))
             maxSpeedCalculator = new MaxSpeedCalculator(MaxSpeedCalculator.createLegalDefaultSpeeds());
 
@@ -586,6 +623,10 @@ public class GraphHopper {
         osmReaderConfig.setPreferredLanguage(ghConfig.getString("datareader.preferred_language", osmReaderConfig.getPreferredLanguage()));
         osmReaderConfig.setMaxWayPointDistance(ghConfig.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, osmReaderConfig.getMaxWayPointDistance()));
         osmReaderConfig.setWorkerThreads(ghConfig.getInt("datareader.worker_threads", osmReaderConfig.getWorkerThreads()));
+        osmReaderConfig.setParseThreads(ghConfig.getInt("datareader.parse_threads", osmReaderConfig.getParseThreads()));
+        String nodeMapDAType = ghConfig.getString("datareader.node_map_dataaccess", "");
+        if (!nodeMapDAType.isEmpty())
+            osmReaderConfig.setNodeMapDAType(DAType.fromString(nodeMapDAType));
 
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
@@ -604,11 +645,15 @@ public class GraphHopper {
         routerConfig.setMaxRoundTripRetries(ghConfig.getInt(RoundTrip.INIT_MAX_RETRIES, routerConfig.getMaxRoundTripRetries()));
         routerConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, routerConfig.getNonChMaxWaypointDistance()));
         routerConfig.setInstructionsEnabled(ghConfig.getBool(Routing.INIT_INSTRUCTIONS, routerConfig.isInstructionsEnabled()));
+        routerConfig.setWorkspacePoolSize(ghConfig.getInt("routing.workspace_pool_size", routerConfig.getWorkspacePoolSize()));
+        routerConfig.setSnapCacheSize(ghConfig.getInt("routing.snap_cache_size", routerConfig.getSnapCacheSize()));
+        routerConfig.setLegThreads(ghConfig.getInt("routing.leg_threads", routerConfig.getLegThreads()));
         int activeLandmarkCount = ghConfig.getInt(Landmark.ACTIVE_COUNT_DEFAULT, Math.min(8, lmPreparationHandler.getLandmarks()));
         if (activeLandmarkCount > lmPreparationHandler.getLandmarks())
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
                     + " should be less or equal to landmark count of " + lmPreparationHandler.getLandmarks());
         routerConfig.setActiveLandmarkCount(activeLandmarkCount);
+        routerConfig.setReselectActiveLandmarks(ghConfig.getBool(Landmark.RESELECT_ACTIVE_DEFAULT, routerConfig.isReselectActiveLandmarks()));
 
         calcChecksums = ghConfig.getBool("graph.calc_checksums", false);
 
@@ -828,6 +873,8 @@ public class GraphHopper {
                 .set3D(hasElevation())
                 .withTurnCosts(encodingManager.needsTurnCostsSupport())
                 .setSegmentSize(defaultSegmentSize)
+                .setCacheAlignedEdges(cacheAlignedEdges)
+                .setCSRAdjacency(csrAdjacency)
                 .build();
         properties = new StorableProperties(directory);
         checkProfilesConsistency();
@@ -849,6 +896,12 @@ public class GraphHopper {
             properties.put("profiles", getProfilesString());
             writeEncodingManagerToProperties();
 
+            if (chPreparationHandler.getCheckpointInterval() > 0 || lmPreparationHandler.getCheckpointInterval() > 0) {
+                // the preparations can only be resumed from their checkpoints if we do not need to import the graph
+                // again, i.e. importOrLoad needs to be able to load it
+                baseGraph.flush();
+                properties.flush();
+            }
             postProcessing(closeEarly);
             flush();
         } finally {
@@ -983,7 +1036,7 @@ public class GraphHopper {
         final int order = 31; // using 15 would allow us to use ints for sortIndices, but this would result in (marginally) slower routing
         LongArrayList sortIndices = new LongArrayList();
         for (int node = 0; node < graph.getNodes(); node++)
-            sortIndices.add(latLonToHilbertIndex(na.getLat(node), na.getLon(node), order));
+            sortIndices.add(GHUtility.latLonToHilbertIndex(na.getLat(node), na.getLon(node), order));
         int[] nodeOrder = IndirectSort.mergesort(0, graph.getNodes(), (nodeA, nodeB) -> Long.compare(sortIndices.get(nodeA), sortIndices.get(nodeB)));
         EdgeExplorer explorer = graph.createEdgeExplorer();
         int edges = graph.getEdges();
@@ -1018,37 +1071,6 @@ public class GraphHopper {
         logger.info("sorting {} nodes took: {}", Helper.nf(newNodesByOldNodes.size()), sw.stop().getTimeString());
     }
 
-    public static long latLonToHilbertIndex(double lat, double lon, int order) {
-        double nx = (lon + 180) / 360;
-        double ny = (90 - lat) / 180;
-        long size = 1L << order;
-        long x = (long) (nx * size);
-        long y = (long) (ny * size);
-        x = Math.max(0, Math.min(size - 1, x));
-        y = Math.max(0, Math.min(size - 1, y));
-        return xy2d(order, x, y);
-    }
-
-    public static long xy2d(int n, long x, long y) {
-        long d = 0;
-        for (long s = 1L << (n - 1); s > 0; s >>= 1) {
-            int rx = (x & s) > 0 ? 1 : 0;
-            int ry = (y & s) > 0 ? 1 : 0;
-            d += s * s * ((3 * rx) ^ ry);
-            // rotate
-            if (ry == 0) {
-                if (rx == 1) {
-                    x = s - 1 - x;
-                    y = s - 1 - y;
-                }
-                long tmp = x;
-                x = y;
-                y = tmp;
-            }
-        }
-        return d;
-    }
-
     private void calculateUrbanDensity() {
         if (encodingManager.hasEncodedValue(UrbanDensity.KEY)) {
             EnumEncodedValue<UrbanDensity> urbanDensityEnc = encodingManager.getEnumEncodedValue(UrbanDensity.KEY, UrbanDensity.class);
@@ -1150,6 +1172,7 @@ public class GraphHopper {
                     .set3D(hasElevation())
                     .withTurnCosts(encodingManager.needsTurnCostsSupport())
                     .setSegmentSize(defaultSegmentSize)
+                    .setCSRAdjacency(csrAdjacency)
                     .build();
             checkProfilesConsistency();
             baseGraph.loadExisting();
@@ -1162,7 +1185,10 @@ public class GraphHopper {
                         + "\nChange configuration to match the graph or delete " + baseGraph.getDirectory().getLocation());
 
             postProcessing(false);
-            directory.loadMMap();
+            if (preloadInBackground)
+                startPreload(directory);
+            else
+                directory.loadMMap();
             setFullyLoaded();
             return true;
         } finally {
@@ -1171,6 +1197,33 @@ public class GraphHopper {
         }
     }
 
+    private void startPreload(GHDirectory directory) {
+        preloading = true;
+        preloadThread = new Thread(() -> {
+            try {
+                StopWatch sw = new StopWatch().start();
+                if (directory.loadMMap())
+                    logger.info("finished preloading memory mapped files, took: " + sw.stop().getSeconds() + "s");
+                else
+                    logger.info("preloading memory mapped files was interrupted");
+            } catch (Exception ex) {
+                logger.error("preloading memory mapped files failed", ex);
+            } finally {
+                preloading = false;
+            }
+        }, "mmap-preload");
+        preloadThread.setDaemon(true);
+        preloadThread.start();
+    }
+
+    /**
+     * @return true while memory mapped files are loaded into physical memory in the background, see
+     * graph.dataaccess.mmap.preload_in_background. Queries work meanwhile, but they might be considerably slower.
+     */
+    public boolean isPreloading() {
+        return preloading;
+    }
+
     protected int getProfileHash(Profile profile) {
         return profile.getVersion();
     }
@@ -1342,8 +1395,15 @@ public class GraphHopper {
         if (locationIndex == null)
             throw new IllegalStateException("Location index not initialized");
 
-        return doCreateRouter(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
+        Router router = doCreateRouter(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
                 trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks);
+        if (workspacePool != null)
+            router.setWorkspacePool(workspacePool);
+        if (snapCache != null)
+            router.setSnapCache(snapCache);
+        if (legExecutor != null)
+            router.setLegExecutor(legExecutor);
+        return router;
     }
 
     protected Router doCreateRouter(BaseGraph baseGraph, EncodingManager encodingManager, LocationIndex locationIndex, Map<String, Profile> profilesByName,
@@ -1449,6 +1509,16 @@ public class GraphHopper {
             } else
                 throw new IllegalStateException("CH graph should be either loaded or prepared: " + profile.getProfile());
         }
+        if (chRankOrderedLayout) {
+            rankOrderedCHGraphs = new LinkedHashMap<>();
+            for (Map.Entry<String, RoutingCHGraph> entry : chGraphs.entrySet()) {
+                if (entry.getValue().isEdgeBased())
+                    continue;
+                StopWatch sw = new StopWatch().start();
+                rankOrderedCHGraphs.put(entry.getKey(), new RankOrderedCHGraph(entry.getValue()));
+                logger.info("created rank ordered CH graph for " + entry.getKey() + ", took: " + sw.stop().getSeconds() + "s");
+            }
+        }
     }
 
     protected Map<String, PrepareContractionHierarchies.Result> prepareCH(boolean closeEarly, List<CHConfig> configsToPrepare) {
@@ -1535,6 +1605,16 @@ public class GraphHopper {
      * remove the files created in graphhopperLocation you have to call clean().
      */
     public void close() {
+        if (preloadThread != null) {
+            // the mapped files must not be unmapped while they are still being loaded
+            preloadThread.interrupt();
+            try {
+                preloadThread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            preloadThread = null;
+        }
         if (baseGraph != null)
             baseGraph.close();
         if (properties != null)
@@ -1545,6 +1625,12 @@ public class GraphHopper {
 
         if (locationIndex != null)
             locationIndex.close();
+        if (snapCache != null)
+            snapCache.clear();
+        if (legExecutor != null) {
+            legExecutor.shutdownNow();
+            legExecutor = null;
+        }
 
         try {
             lockFactory.forceRemove(fileLockName, true);
@@ -1576,6 +1662,16 @@ public class GraphHopper {
     }
 
     private void setFullyLoaded() {
+        if (routerConfig.getWorkspacePoolSize() > 0)
+            workspacePool = new RoutingWorkspacePool(baseGraph, routerConfig.getWorkspacePoolSize());
+        // the cached snaps refer to the edges of the loaded graph, so we need a new cache whenever the graph is loaded
+        snapCache = routerConfig.getSnapCacheSize() > 0 ? new SnapCache(routerConfig.getSnapCacheSize()) : null;
+        if (routerConfig.getLegThreads() > 1 && legExecutor == null)
+            legExecutor = Executors.newFixedThreadPool(routerConfig.getLegThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "leg-calculation");
+                thread.setDaemon(true);
+                return thread;
+            });
         fullyLoaded = true;
     }
 
@@ -1583,6 +1679,13 @@ public class GraphHopper {
         return fullyLoaded;
     }
 
+    /**
+     * @return the cache for the snaps of the routing requests or null if it is disabled, see routing.snap_cache_size
+     */
+    public SnapCache getSnapCache() {
+        return snapCache;
+    }
+
     public RouterConfig getRouterConfig() {
         return routerConfig;
     }
@@ -0,0 +1,421 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongLongHashMap;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A {@link LongLongMap} that keeps its entries in sorted chunks in a {@link DataAccess}, so depending on the
+ * {@link DAType} the entries are stored off-heap or on disk and only a small index of the chunks stays on the heap.
+ * <p>
+ * Keys that are bigger than all keys inserted so far are appended to the last chunk, which is the common case for OSM
+ * node ids. Chunks whose keys are (almost) consecutive are stored densely, i.e. we only store the values and mark the
+ * missing keys with the empty value, the other chunks store the keys and values. Keys that arrive out of order are
+ * inserted into the last chunk if they fall into its key range and otherwise collected in a hash map on the heap,
+ * which is merged into the chunks once it reaches a fraction of the total size. Existing keys and the gaps of dense
+ * chunks are updated in place.
+ * <p>
+ * Lookups do a binary search over the first keys of the chunks followed by a binary search within the chunk.
+ */
+public class GHLongLongSortedMap implements LongLongMap {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int MIN_BUFFER_SIZE = 1 << 16;
+    // the unsorted entries are merged when there are more than size / BUFFER_FRACTION of them
+    private static final int BUFFER_FRACTION = 8;
+    private final Directory dir;
+    private final String name;
+    private final DAType daType;
+    private final int bytesPerValue;
+    // every value is stored as an int plus the remaining highBytes
+    private final int highBytes;
+    private final long emptyValue;
+    private final long maxValue;
+    private final long minValue;
+
+    private DataAccess da;
+    private int generation;
+    private long daPointer;
+    private LongArrayList chunkFirstKeys;
+    private LongArrayList chunkPointers;
+    // the number of entries of sparse chunks and the key range of dense chunks
+    private IntArrayList chunkLengths;
+    private BitSet denseChunks;
+    // the last chunk is kept on the heap until it is full
+    private final long[] openKeys = new long[CHUNK_SIZE];
+    private final long[] openValues = new long[CHUNK_SIZE];
+    private int openSize;
+    private long lastKey;
+    private final LongLongHashMap buffer = new LongLongHashMap();
+    private long size;
+
+    /**
+     * @param name the name of the {@link DataAccess} (plus a suffix) that is used to store the entries
+     */
+    public GHLongLongSortedMap(Directory dir, String name, DAType daType, int bytesPerValue, long emptyValue) {
+        if (bytesPerValue > 8)
+            throw new IllegalArgumentException("Values can have 8 bytes maximum but requested was " + bytesPerValue);
+        if (bytesPerValue < 1)
+            throw new IllegalArgumentException("Values need at least one byte but requested was " + bytesPerValue);
+        this.dir = dir;
+        this.name = name;
+        this.daType = daType;
+        this.bytesPerValue = bytesPerValue;
+        this.highBytes = Math.max(0, bytesPerValue - 4);
+        this.emptyValue = emptyValue;
+        // reserve one bit for negative values
+        this.maxValue = (1L << (bytesPerValue * 8 - 1)) - 1;
+        this.minValue = -maxValue - 1;
+        clear();
+    }
+
+    @Override
+    public long put(long key, long value) {
+        if (value > maxValue || value < minValue)
+            throw new IllegalArgumentException("Value " + value + " exceeded max value: " + maxValue
+                    + ". Increase bytesPerValue (" + bytesPerValue + ")");
+        if (value == emptyValue)
+            throw new IllegalArgumentException("Value cannot be the 'empty value' " + emptyValue);
+
+        if (key > lastKey) {
+            // all keys in the buffer are smaller than lastKey, so we can simply append the key
+            append(key, value);
+            size++;
+            return emptyValue;
+        }
+        if (openSize > 0 && key >= openKeys[0]) {
+            int index = Arrays.binarySearch(openKeys, 0, openSize, key);
+            if (index >= 0) {
+                long old = openValues[index];
+                openValues[index] = value;
+                return old;
+            }
+            // the key falls into the open chunk, so we insert it there instead of the buffer. otherwise the key would
+            // end up in a gap of the chunk if it becomes dense
+            insertIntoOpenChunk(-index - 1, key, value);
+            size++;
+            return emptyValue;
+        } else {
+            int chunk = findChunk(key);
+            if (chunk >= 0) {
+                long valuesPointer = getValuesPointer(chunk);
+                int index = findInChunk(chunk, key);
+                if (index >= 0) {
+                    long old = readValue(valuesPointer, chunkLengths.get(chunk), index);
+                    writeValue(valuesPointer, chunkLengths.get(chunk), index, value);
+                    if (old == emptyValue) {
+                        // we filled a gap of a dense chunk, the key might still be buffered though
+                        if (buffer.containsKey(key))
+                            return buffer.remove(key);
+                        size++;
+                    }
+                    return old;
+                }
+            }
+        }
+        int bufferIndex = buffer.indexOf(key);
+        if (buffer.indexExists(bufferIndex))
+            return buffer.indexReplace(bufferIndex, value);
+        buffer.indexInsert(bufferIndex, key, value);
+        size++;
+        if (buffer.size() >= Math.max(MIN_BUFFER_SIZE, size / BUFFER_FRACTION))
+            mergeBuffer();
+        return emptyValue;
+    }
+
+    @Override
+    public long get(long key) {
+        if (key > lastKey)
+            return emptyValue;
+        if (openSize > 0 && key >= openKeys[0]) {
+            int index = Arrays.binarySearch(openKeys, 0, openSize, key);
+            if (index >= 0)
+                return openValues[index];
+        } else {
+            int chunk = findChunk(key);
+            if (chunk >= 0) {
+                int index = findInChunk(chunk, key);
+                if (index >= 0) {
+                    long value = readValue(getValuesPointer(chunk), chunkLengths.get(chunk), index);
+                    // for a gap of a dense chunk we still need to check the buffer
+                    if (value != emptyValue)
+                        return value;
+                }
+            }
+        }
+        return buffer.isEmpty() ? emptyValue : buffer.getOrDefault(key, emptyValue);
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Merges the entries that were inserted out of order into the sorted chunks
+     */
+    @Override
+    public void optimize() {
+        if (!buffer.isEmpty())
+            mergeBuffer();
+    }
+
+    /**
+     * @return memory usage in MB, including the chunks stored in the {@link DataAccess}
+     */
+    @Override
+    public int getMemoryUsage() {
+        long heap = (buffer.keys.length + buffer.values.length) * 8L
+                + chunkFirstKeys.buffer.length * 16L + chunkLengths.buffer.length * 4L;
+        return Math.round((heap + (da == null ? 0 : da.getCapacity())) / Helper.MB);
+    }
+
+    @Override
+    public void clear() {
+        if (da != null)
+            dir.remove(da.getName());
+        da = null;
+        daPointer = 0;
+        chunkFirstKeys = new LongArrayList();
+        chunkPointers = new LongArrayList();
+        chunkLengths = new IntArrayList();
+        denseChunks = new BitSet();
+        openSize = 0;
+        lastKey = Long.MIN_VALUE;
+        buffer.release();
+        size = 0;
+    }
+
+    private void append(long key, long value) {
+        openKeys[openSize] = key;
+        openValues[openSize] = value;
+        openSize++;
+        lastKey = key;
+        if (openSize == CHUNK_SIZE)
+            flushOpenChunk();
+    }
+
+    private void insertIntoOpenChunk(int index, long key, long value) {
+        System.arraycopy(openKeys, index, openKeys, index + 1, openSize - index);
+        System.arraycopy(openValues, index, openValues, index + 1, openSize - index);
+        openKeys[index] = key;
+        openValues[index] = value;
+        openSize++;
+        if (openSize == CHUNK_SIZE)
+            flushOpenChunk();
+    }
+
+    private void flushOpenChunk() {
+        int count = openSize;
+        long first = openKeys[0];
+        long diff = openKeys[count - 1] - first;
+        int valueBytes = 4 + highBytes;
+        // a dense chunk needs less memory as long as the gaps do not exceed the memory we would need for the keys
+        boolean dense = diff >= 0 && diff < (long) count * (8 + valueBytes) / valueBytes;
+        int length = dense ? (int) diff + 1 : count;
+        long bytes = (dense ? 0 : 8L * length) + (long) valueBytes * length;
+        // keep the chunks aligned such that the keys and int values do not cross segment boundaries
+        bytes = (bytes + 7) / 8 * 8;
+        if (da == null) {
+            // the directory is only created for storing directories, but memory mapped files also need it
+            if (daType.isMMap())
+                new File(dir.getLocation()).mkdirs();
+            da = dir.create(name + "_" + generation, daType).create(Math.max(bytes, 1 << 20));
+        }
+        da.ensureCapacity(daPointer + bytes);
+
+        int chunk = chunkFirstKeys.size();
+        chunkFirstKeys.add(first);
+        chunkPointers.add(daPointer);
+        chunkLengths.add(length);
+        if (dense)
+            denseChunks.set(chunk);
+        long valuesPointer = getValuesPointer(chunk);
+        if (dense) {
+            for (int i = 0; i < length; i++)
+                writeValue(valuesPointer, length, i, emptyValue);
+            for (int i = 0; i < count; i++)
+                writeValue(valuesPointer, length, (int) (openKeys[i] - first), openValues[i]);
+        } else {
+            for (int i = 0; i < count; i++) {
+                da.setInt(daPointer + 8L * i, (int) (openKeys[i] >>> 32));
+                da.setInt(daPointer + 8L * i + 4, (int) openKeys[i]);
+                writeValue(valuesPointer, length, i, openValues[i]);
+            }
+        }
+        daPointer += bytes;
+        openSize = 0;
+    }
+
+    /**
+     * Rewrites all entries into a new {@link DataAccess} in sorted order, including the buffered ones
+     */
+    private void mergeBuffer() {
+        long[] bufferKeys = buffer.keys().toArray();
+        Arrays.sort(bufferKeys);
+        DataAccess oldDA = da;
+        LongArrayList oldFirstKeys = chunkFirstKeys;
+        LongArrayList oldPointers = chunkPointers;
+        IntArrayList oldLengths = chunkLengths;
+        BitSet oldDense = denseChunks;
+        long[] oldOpenKeys = Arrays.copyOf(openKeys, openSize);
+        long[] oldOpenValues = Arrays.copyOf(openValues, openSize);
+
+        generation = (generation + 1) % 2;
+        da = null;
+        daPointer = 0;
+        chunkFirstKeys = new LongArrayList(oldFirstKeys.size());
+        chunkPointers = new LongArrayList(oldFirstKeys.size());
+        chunkLengths = new IntArrayList(oldFirstKeys.size());
+        denseChunks = new BitSet();
+        openSize = 0;
+        lastKey = Long.MIN_VALUE;
+
+        int bufferIndex = 0;
+        for (int chunk = 0; chunk < oldFirstKeys.size(); chunk++) {
+            long pointer = oldPointers.get(chunk);
+            int length = oldLengths.get(chunk);
+            boolean dense = oldDense.get(chunk);
+            long valuesPointer = dense ? pointer : pointer + 8L * length;
+            for (int i = 0; i < length; i++) {
+                long key = dense ? oldFirstKeys.get(chunk) + i : readKey(oldDA, pointer, i);
+                long value = readValue(oldDA, valuesPointer, length, i);
+                if (value == emptyValue)
+                    continue;
+                bufferIndex = appendBuffered(bufferKeys, bufferIndex, key);
+                append(key, value);
+            }
+        }
+        for (int i = 0; i < oldOpenKeys.length; i++) {
+            bufferIndex = appendBuffered(bufferKeys, bufferIndex, oldOpenKeys[i]);
+            append(oldOpenKeys[i], oldOpenValues[i]);
+        }
+        for (; bufferIndex < bufferKeys.length; bufferIndex++)
+            append(bufferKeys[bufferIndex], buffer.get(bufferKeys[bufferIndex]));
+        buffer.clear();
+        if (oldDA != null)
+            dir.remove(oldDA.getName());
+    }
+
+    /**
+     * Appends all buffered entries with keys smaller than the given key
+     *
+     * @return the index of the first buffered key that was not appended
+     */
+    private int appendBuffered(long[] bufferKeys, int bufferIndex, long key) {
+        while (bufferIndex < bufferKeys.length && bufferKeys[bufferIndex] < key) {
+            append(bufferKeys[bufferIndex], buffer.get(bufferKeys[bufferIndex]));
+            bufferIndex++;
+        }
+        return bufferIndex;
+    }
+
+    /**
+     * @return the last chunk whose first key is not bigger than the given key or -1
+     */
+    private int findChunk(long key) {
+        int low = 0, high = chunkFirstKeys.size() - 1;
+        long[] firstKeys = chunkFirstKeys.buffer;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (firstKeys[mid] <= key)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return high;
+    }
+
+    /**
+     * @return the index of the given key within the given chunk or -1 if the key is not contained in the chunk. For
+     * dense chunks the index might point to an empty value.
+     */
+    private int findInChunk(int chunk, long key) {
+        int length = chunkLengths.get(chunk);
+        if (denseChunks.get(chunk)) {
+            long index = key - chunkFirstKeys.get(chunk);
+            // the difference overflows for chunks that contain very small and very big keys
+            return index >= 0 && index < length ? (int) index : -1;
+        }
+        long pointer = chunkPointers.get(chunk);
+        int low = 0, high = length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = readKey(da, pointer, mid);
+            if (midKey < key)
+                low = mid + 1;
+            else if (midKey > key)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private long getValuesPointer(int chunk) {
+        long pointer = chunkPointers.get(chunk);
+        return denseChunks.get(chunk) ? pointer : pointer + 8L * chunkLengths.get(chunk);
+    }
+
+    private static long readKey(DataAccess da, long pointer, int index) {
+        return ((long) da.getInt(pointer + 8L * index) << 32) | (da.getInt(pointer + 8L * index + 4) & 0xFFFF_FFFFL);
+    }
+
+    private long readValue(long valuesPointer, int length, int index) {
+        return readValue(da, valuesPointer, length, index);
+    }
+
+    private long readValue(DataAccess da, long valuesPointer, int length, int index) {
+        int low = da.getInt(valuesPointer + 4L * index);
+        if (highBytes == 0)
+            return low;
+        long highPointer = valuesPointer + 4L * length + (long) highBytes * index;
+        long high = 0;
+        for (int b = highBytes - 1; b >= 0; b--)
+            high = (high << 8) | (da.getByte(highPointer + b) & 0xFF);
+        // sign extension
+        high = (high << (64 - 8 * highBytes)) >> (64 - 8 * highBytes);
+        return (high << 32) | (low & 0xFFFF_FFFFL);
+    }
+
+    private void writeValue(long valuesPointer, int length, int index, long value) {
+        da.setInt(valuesPointer + 4L * index, (int) value);
+        long highPointer = valuesPointer + 4L * length + (long) highBytes * index;
+        for (int b = 0; b < highBytes; b++)
+            da.setByte(highPointer + b, (byte) (value >>> (32 + 8 * b)));
+    }
+
+    @Override
+    public String toString() {
+        return "chunks: " + chunkFirstKeys.size() + ", dense: " + denseChunks.cardinality() + ", buffered: " + buffer.size();
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.ch.RankOrderedCHGraph;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import static java.util.Comparator.comparingDouble;
+
+/**
+ * Computes the shortest path tree of all nodes with PHAST (Delling et al., "PHAST: Hardware-Accelerated Shortest
+ * Path Trees"): an upward CH search from the source followed by a single sweep over all nodes in the order of
+ * decreasing rank, see {@link RankOrderedCHGraph}. The resulting weights are exact, but unlike {@link ShortestPathTree}
+ * the work does not depend on the limit, so this is faster for large limits, e.g. isochrones of an hour by car.
+ * <p>
+ * Only node-based CH is supported. The labels passed to the consumer use the edges of the query graph just like those
+ * of {@link ShortestPathTree}: for a node that was reached via a shortcut the edge and parent of its label are the last
+ * original edge of the shortcut and the node before it. The search allocates four arrays with an entry per node of
+ * the graph.
+ */
+public class PhastShortestPathTree extends ShortestPathTree {
+    private static final int NOT_REACHED = -1;
+    private static final int UPWARD = -2;
+
+    private final RankOrderedCHGraph rankOrderedCHGraph;
+    private final RoutingCHGraph chGraph;
+    private final QueryGraph queryGraph;
+    private final boolean reverseFlow;
+    private final int baseNodes;
+    private final GHIntObjectHashMap<UpwardLabel> upwardLabels = new GHIntObjectHashMap<>(1000);
+    private RankOrderedCHGraph.DownwardEdges downwardEdges;
+    // indexed by rank
+    private double[] weights;
+    private long[] times;
+    private double[] distances;
+    private int[] parentEdges;
+    private int visitedNodes;
+
+    public PhastShortestPathTree(QueryGraph queryGraph, RankOrderedCHGraph rankOrderedCHGraph, boolean reverseFlow) {
+        super(queryGraph, rankOrderedCHGraph.getCHGraph().getWeighting(), reverseFlow, TraversalMode.NODE_BASED);
+        this.rankOrderedCHGraph = rankOrderedCHGraph;
+        this.chGraph = new QueryRoutingCHGraph(rankOrderedCHGraph.getCHGraph(), queryGraph);
+        this.queryGraph = queryGraph;
+        this.reverseFlow = reverseFlow;
+        this.baseNodes = rankOrderedCHGraph.getNodes();
+    }
+
+    @Override
+    public void search(int from, Consumer<IsoLabel> consumer) {
+        checkAlreadyRun();
+        searchUpward(from);
+        sweep();
+
+        GHIntObjectHashMap<IsoLabel> labels = new GHIntObjectHashMap<>();
+        for (int rank = 0; rank < baseNodes; rank++)
+            if (parentEdges[rank] != NOT_REACHED && getExploreValue(weights[rank], times[rank], distances[rank]) <= limit)
+                labels.put(rankOrderedCHGraph.getNode(rank), createLabel(rankOrderedCHGraph.getNode(rank)));
+        for (ObjectCursor<UpwardLabel> cursor : upwardLabels.values())
+            if (cursor.value.node >= baseNodes && getExploreValue(cursor.value.weight, cursor.value.time, cursor.value.distance) <= limit)
+                labels.put(cursor.value.node, createLabel(cursor.value.node));
+        // link the labels once all of them exist, the parents of the labels at the border are not passed to the consumer
+        ArrayList<IsoLabel> result = new ArrayList<>(labels.size());
+        for (ObjectCursor<IsoLabel> cursor : labels.values())
+            result.add(cursor.value);
+        for (IsoLabel label : result)
+            if (label.parent != null)
+                label.parent = labels.getOrDefault(label.parent.node, label.parent);
+        result.forEach(consumer);
+    }
+
+    private void searchUpward(int from) {
+        PriorityQueue<UpwardLabel> queue = new PriorityQueue<>(1000, comparingDouble(l -> l.weight));
+        UpwardLabel root = new UpwardLabel(from, EdgeIterator.NO_EDGE, 0, 0, 0, null);
+        upwardLabels.put(from, root);
+        queue.add(root);
+        RoutingCHEdgeExplorer explorer = reverseFlow ? chGraph.createInEdgeExplorer() : chGraph.createOutEdgeExplorer();
+        while (!queue.isEmpty()) {
+            UpwardLabel current = queue.poll();
+            if (current.deleted)
+                continue;
+            visitedNodes++;
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(current.node);
+            while (iter.next()) {
+                int adjNode = iter.getAdjNode();
+                if (!isUpward(current.node, adjNode))
+                    continue;
+                double weight = current.weight + iter.getWeight(reverseFlow);
+                if (Double.isInfinite(weight))
+                    continue;
+                UpwardLabel label = upwardLabels.get(adjNode);
+                if (label != null && label.weight <= weight)
+                    continue;
+                if (label != null)
+                    label.deleted = true;
+                int edgeFrom = reverseFlow ? adjNode : current.node;
+                int edgeTo = reverseFlow ? current.node : adjNode;
+                long time;
+                double distance;
+                if (iter.isShortcut()) {
+                    time = rankOrderedCHGraph.getTime(iter.getEdge(), edgeFrom, edgeTo);
+                    distance = rankOrderedCHGraph.getDistance(iter.getEdge(), edgeFrom, edgeTo);
+                } else {
+                    EdgeIteratorState edge = queryGraph.getEdgeIteratorState(iter.getOrigEdge(), edgeTo);
+                    time = weighting.calcEdgeMillis(edge, false);
+                    distance = edge.getDistance();
+                }
+                label = new UpwardLabel(adjNode, iter.getEdge(), weight, current.time + time, current.distance + distance, current);
+                upwardLabels.put(adjNode, label);
+                queue.add(label);
+            }
+        }
+    }
+
+    private boolean isUpward(int node, int adjNode) {
+        // always accept virtual edges like CHLevelEdgeFilter
+        if (node >= baseNodes || adjNode >= baseNodes)
+            return true;
+        return chGraph.getLevel(node) <= chGraph.getLevel(adjNode);
+    }
+
+    private void sweep() {
+        weights = new double[baseNodes];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        times = new long[baseNodes];
+        distances = new double[baseNodes];
+        parentEdges = new int[baseNodes];
+        Arrays.fill(parentEdges, NOT_REACHED);
+        for (ObjectCursor<UpwardLabel> cursor : upwardLabels.values()) {
+            UpwardLabel label = cursor.value;
+            if (label.node >= baseNodes)
+                continue;
+            int rank = rankOrderedCHGraph.getRank(label.node);
+            weights[rank] = label.weight;
+            times[rank] = label.time;
+            distances[rank] = label.distance;
+            parentEdges[rank] = UPWARD;
+        }
+
+        downwardEdges = rankOrderedCHGraph.getDownwardEdges(reverseFlow);
+        for (int rank = 0; rank < baseNodes; rank++) {
+            double bestWeight = weights[rank];
+            int bestEdge = NOT_REACHED;
+            int end = downwardEdges.getFirstEdge(rank + 1);
+            for (int edge = downwardEdges.getFirstEdge(rank); edge < end; edge++) {
+                double weight = weights[downwardEdges.getAdjRank(edge)] + downwardEdges.getWeight(edge);
+                if (weight < bestWeight) {
+                    bestWeight = weight;
+                    bestEdge = edge;
+                }
+            }
+            if (bestEdge != NOT_REACHED) {
+                int adjRank = downwardEdges.getAdjRank(bestEdge);
+                weights[rank] = bestWeight;
+                times[rank] = times[adjRank] + downwardEdges.getTime(bestEdge);
+                distances[rank] = distances[adjRank] + downwardEdges.getDistance(bestEdge);
+                parentEdges[rank] = bestEdge;
+            }
+            if (parentEdges[rank] != NOT_REACHED)
+                visitedNodes++;
+        }
+    }
+
+    /**
+     * Creates the label of the given node. Its parent is a new label without a parent, use the label of the parent
+     * node instead where available.
+     */
+    private IsoLabel createLabel(int node) {
+        int chEdge;
+        IsoLabel label;
+        if (node < baseNodes && parentEdges[rankOrderedCHGraph.getRank(node)] != UPWARD) {
+            int rank = rankOrderedCHGraph.getRank(node);
+            int edge = parentEdges[rank];
+            chEdge = downwardEdges.getCHEdge(edge);
+            label = new IsoLabel(node, EdgeIterator.NO_EDGE, weights[rank], times[rank], distances[rank], null);
+        } else {
+            UpwardLabel upwardLabel = upwardLabels.get(node);
+            label = new IsoLabel(node, EdgeIterator.NO_EDGE, upwardLabel.weight, upwardLabel.time, upwardLabel.distance, null);
+            if (upwardLabel.parent == null)
+                return label;
+            chEdge = upwardLabel.chEdge;
+        }
+        // the original edge of the (shortcut) edge that is attached to the node
+        RoutingCHEdgeIteratorState state = chGraph.getEdgeIteratorState(chEdge, node);
+        while (state.isShortcut()) {
+            RoutingCHEdgeIteratorState skipped = chGraph.getEdgeIteratorState(state.getSkippedEdge2(), node);
+            state = skipped == null ? chGraph.getEdgeIteratorState(state.getSkippedEdge1(), node) : skipped;
+        }
+        label.edge = state.getOrigEdge();
+        label.parent = createParentLabel(state.getBaseNode());
+        return label;
+    }
+
+    private IsoLabel createParentLabel(int node) {
+        if (node < baseNodes) {
+            int rank = rankOrderedCHGraph.getRank(node);
+            if (parentEdges[rank] != NOT_REACHED)
+                return new IsoLabel(node, EdgeIterator.NO_EDGE, weights[rank], times[rank], distances[rank], null);
+        }
+        UpwardLabel upwardLabel = upwardLabels.get(node);
+        if (upwardLabel != null)
+            return new IsoLabel(node, EdgeIterator.NO_EDGE, upwardLabel.weight, upwardLabel.time, upwardLabel.distance, null);
+        // a node in the middle of a shortcut is always reached by the search as well, this cannot happen
+        throw new IllegalStateException("Parent node " + node + " was not reached");
+    }
+
+    @Override
+    public ArrayList<IsoLabel> getIsochroneEdges(double z) {
+        ArrayList<IsoLabel> result = new ArrayList<>();
+        for (int rank = 0; rank < baseNodes; rank++)
+            if (parentEdges[rank] != NOT_REACHED)
+                addIfCrossing(createLabel(rankOrderedCHGraph.getNode(rank)), z, result);
+        for (ObjectCursor<UpwardLabel> cursor : upwardLabels.values())
+            if (cursor.value.node >= baseNodes)
+                addIfCrossing(createLabel(cursor.value.node), z, result);
+        return result;
+    }
+
+    private void addIfCrossing(IsoLabel label, double z, ArrayList<IsoLabel> result) {
+        if (label.parent != null && (getExploreValue(label.weight, label.time, label.distance) > z
+                ^ getExploreValue(label.parent.weight, label.parent.time, label.parent.distance) > z))
+            result.add(label);
+    }
+
+    @Override
+    public String getName() {
+        return "phast";
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private static class UpwardLabel {
+        final int node;
+        final int chEdge;
+        final double weight;
+        final long time;
+        final double distance;
+        final UpwardLabel parent;
+        boolean deleted;
+
+        UpwardLabel(int node, int chEdge, double weight, long time, double distance, UpwardLabel parent) {
+            this.node = node;
+            this.chEdge = chEdge;
+            this.weight = weight;
+            this.time = time;
+            this.distance = distance;
+            this.parent = parent;
+        }
+    }
+}
@@ -89,7 +89,7 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
     private final PriorityQueue<IsoLabel> queueByWeighting; // a.k.a. the Dijkstra queue
     private PriorityQueue<IsoLabel> queueByZ; // so we know when we are finished
     private int visitedNodes;
-    private double limit = -1;
+    protected double limit = -1;
     private ExploreType exploreType = TIME;
     private final boolean reverseFlow;
 
@@ -195,11 +195,15 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
     }
 
     private double getExploreValue(IsoLabel label) {
+        return getExploreValue(label.weight, label.time, label.distance);
+    }
+
+    protected double getExploreValue(double weight, long time, double distance) {
         if (exploreType == TIME)
-            return label.time;
+            return time;
         if (exploreType == WEIGHT)
-            return label.weight;
-        return label.distance;
+            return weight;
+        return distance;
     }
 
     protected boolean finished() {
@@ -18,6 +18,7 @@
 package com.graphhopper.reader.osm;
 
 import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.osm.pbf.PbfNodeBlock;
 import com.graphhopper.reader.osm.pbf.PbfReader;
 import com.graphhopper.reader.osm.pbf.Sink;
 
@@ -31,7 +32,9 @@ import java.util.ArrayDeque;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipInputStream;
 
@@ -43,9 +46,16 @@ import java.util.zip.ZipInputStream;
  */
 public class OSMInputFile implements Sink, OSMInput {
     private static final int MAX_BATCH_SIZE = 1_000;
+    // the nodes of a pbf block are queued as a single item, so we limit the number of queued nodes separately
+    private static final int MAX_QUEUED_NODES = 200_000;
     private final InputStream bis;
-    private final BlockingQueue<ReaderElement> itemQueue;
-    private final Queue<ReaderElement> itemBatch;
+    // contains ReaderElements and PbfNodeBlocks
+    private final BlockingQueue<Object> itemQueue;
+    private final Queue<Object> itemBatch;
+    private final Semaphore queuedNodes = new Semaphore(MAX_QUEUED_NODES);
+    private PbfNodeBlock nodeBlock;
+    private int nodeBlockIndex;
+    private LongPredicate nodeFilter = osmNodeId -> true;
     private boolean eof;
     // for xml parsing
     private XMLStreamReader xmlParser;
@@ -90,6 +100,15 @@ public class OSMInputFile implements Sink, OSMInput {
         return this;
     }
 
+    /**
+     * Use this to skip all nodes that are not accepted by the given filter. For pbf files no {@link ReaderElement}
+     * is created for these nodes at all. The filter is called by the thread that calls {@link #getNext()}.
+     */
+    public OSMInputFile setNodeFilter(LongPredicate nodeFilter) {
+        this.nodeFilter = nodeFilter;
+        return this;
+    }
+
     @SuppressWarnings("unchecked")
     private InputStream decode(File file) throws IOException {
         final String name = file.getName();
@@ -181,7 +200,9 @@ public class OSMInputFile implements Sink, OSMInput {
         if (binary)
             item = getNextPBF();
         else
-            item = getNextXML();
+            do {
+                item = getNextXML();
+            } while (item != null && item.getType() == ReaderElement.Type.NODE && !nodeFilter.test(item.getId()));
 
         if (item != null)
             return item;
@@ -272,6 +293,17 @@ public class OSMInputFile implements Sink, OSMInput {
         }
     }
 
+    @Override
+    public void process(PbfNodeBlock nodes) {
+        try {
+            // blocks if too many nodes are queued already
+            queuedNodes.acquire(Math.min(nodes.size(), MAX_QUEUED_NODES));
+            itemQueue.put(nodes);
+        } catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     public int getUnprocessedElements() {
         return itemQueue.size() + itemBatch.size();
     }
@@ -282,6 +314,29 @@ public class OSMInputFile implements Sink, OSMInput {
     }
 
     private ReaderElement getNextPBF() {
+        while (true) {
+            if (nodeBlock != null) {
+                while (nodeBlockIndex < nodeBlock.size()) {
+                    int index = nodeBlockIndex++;
+                    if (nodeFilter.test(nodeBlock.getId(index)))
+                        return nodeBlock.createNode(index);
+                }
+                nodeBlock = null;
+            }
+            Object item = pollPBFItem();
+            if (item == null)
+                return null;
+            if (item instanceof PbfNodeBlock nodes) {
+                queuedNodes.release(Math.min(nodes.size(), MAX_QUEUED_NODES));
+                nodeBlock = nodes;
+                nodeBlockIndex = 0;
+            } else {
+                return (ReaderElement) item;
+            }
+        }
+    }
+
+    private Object pollPBFItem() {
         while (itemBatch.isEmpty()) {
             if (!hasIncomingData && itemQueue.isEmpty()) {
                 return null; // signal EOF
@@ -289,9 +344,9 @@ public class OSMInputFile implements Sink, OSMInput {
 
             if (itemQueue.drainTo(itemBatch, MAX_BATCH_SIZE) == 0) {
                 try {
-                    ReaderElement element = itemQueue.poll(100, TimeUnit.MILLISECONDS);
-                    if (element != null) {
-                        return element; // short circuit
+                    Object item = itemQueue.poll(100, TimeUnit.MILLISECONDS);
+                    if (item != null) {
+                        return item; // short circuit
                     }
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
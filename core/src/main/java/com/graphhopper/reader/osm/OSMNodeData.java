@@ -21,9 +21,11 @@ package com.graphhopper.reader.osm;
 import com.carrotsearch.hppc.LongScatterSet;
 import com.carrotsearch.hppc.LongSet;
 import com.graphhopper.coll.GHLongLongBTree;
+import com.graphhopper.coll.GHLongLongSortedMap;
 import com.graphhopper.coll.LongLongMap;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.search.KVStorage;
+import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.PointAccess;
 import com.graphhopper.util.PointList;
@@ -80,14 +82,29 @@ class OSMNodeData {
     private long nextArtificialOSMNodeId = -Long.MAX_VALUE;
 
     public OSMNodeData(PointAccess nodeAccess, Directory directory) {
-        // We use a b-tree that can store as many entries as there are longs. A tree is also more
-        // memory efficient, because there is no waste for empty entries, and it also avoids
-        // allocating big arrays when growing the size.
-        idsByOsmNodeIds = new GHLongLongBTree(200, 5, EMPTY_NODE);
+        this(nodeAccess, directory, null);
+    }
+
+    /**
+     * @param nodeMapDAType if not null the OSM node ids are mapped using sorted chunks stored in a DataAccess of this
+     *                      type, see {@link GHLongLongSortedMap}
+     */
+    public OSMNodeData(PointAccess nodeAccess, Directory directory, DAType nodeMapDAType) {
+        if (nodeMapDAType == null) {
+            // We use a b-tree that can store as many entries as there are longs. A tree is also more
+            // memory efficient, because there is no waste for empty entries, and it also avoids
+            // allocating big arrays when growing the size.
+            idsByOsmNodeIds = new GHLongLongBTree(200, 5, EMPTY_NODE);
+            nodeTagIndicesByOsmNodeIds = new GHLongLongBTree(200, 4, -1);
+        } else {
+            // The OSM node ids mostly arrive in increasing order, so we can append them to sorted chunks that do not
+            // need to be kept on the heap.
+            idsByOsmNodeIds = new GHLongLongSortedMap(directory, "tmp_osm_node_ids", nodeMapDAType, 5, EMPTY_NODE);
+            nodeTagIndicesByOsmNodeIds = new GHLongLongSortedMap(directory, "tmp_osm_node_tags", nodeMapDAType, 4, -1);
+        }
         towerNodes = nodeAccess;
         pillarNodes = new PillarInfo(towerNodes.is3D(), directory);
 
-        nodeTagIndicesByOsmNodeIds = new GHLongLongBTree(200, 4, -1);
         nodesToBeSplit = new LongScatterSet();
         nodeKVStorage = new KVStorage(directory, false).create(100);
     }
@@ -30,7 +30,7 @@ import com.graphhopper.reader.dem.EdgeSampling;
 import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.routing.OSMReaderConfig;
 import com.graphhopper.routing.ev.Country;
-import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.routing.ev.IntsRefEdgeIntAccess;
 import com.graphhopper.routing.ev.State;
 import com.graphhopper.routing.util.AreaIndex;
 import com.graphhopper.routing.util.CustomArea;
@@ -53,6 +53,9 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.LongToIntFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -76,10 +79,11 @@ public class OSMReader {
     private static final Logger LOGGER = LoggerFactory.getLogger(OSMReader.class);
 
     private static final Pattern WAY_NAME_PATTERN = Pattern.compile("; *");
+    // the number of edges that are collected before they are processed by the parse threads
+    private static final int PARSE_BATCH_SIZE = 50_000;
 
     private final OSMReaderConfig config;
     private final BaseGraph baseGraph;
-    private final EdgeIntAccess edgeIntAccess;
     private final NodeAccess nodeAccess;
     private final TurnCostStorage turnCostStorage;
     private final OSMParsers osmParsers;
@@ -90,10 +94,11 @@ public class OSMReader {
     private CountryRuleFactory countryRuleFactory = null;
     private File osmFile;
     private final RamerDouglasPeucker simplifyAlgo = new RamerDouglasPeucker();
-    private int bugCounter = 0;
-    private final IntsRef tempRelFlags;
+    private final AtomicInteger bugCounter = new AtomicInteger();
     private Date osmDataDate;
-    private long zeroCounter = 0;
+    private final AtomicLong zeroCounter = new AtomicLong();
+    private ExecutorService parseExecutor;
+    private final List<PendingEdge> pendingEdges = new ArrayList<>();
 
     private GHLongLongHashMap osmWayIdToRelationFlagsMap = new GHLongLongHashMap(200, .5f);
     private WayToEdgesMap restrictedWaysToEdgesMap = new WayToEdgesMap();
@@ -101,7 +106,6 @@ public class OSMReader {
 
     public OSMReader(BaseGraph baseGraph, OSMParsers osmParsers, OSMReaderConfig config) {
         this.baseGraph = baseGraph;
-        this.edgeIntAccess = baseGraph.getEdgeAccess();
         this.config = config;
         this.nodeAccess = baseGraph.getNodeAccess();
         this.osmParsers = osmParsers;
@@ -111,8 +115,7 @@ public class OSMReader {
         simplifyAlgo.setElevationMaxDistance(config.getElevationMaxWayPointDistance());
         turnCostStorage = baseGraph.getTurnCostStorage();
 
-        tempRelFlags = osmParsers.createRelationFlags();
-        if (tempRelFlags.length != 2)
+        if (osmParsers.createRelationFlags().length != 2)
             // we use a long to store relation flags currently, so the relation flags ints ref must have length 2
             throw new IllegalArgumentException("OSMReader cannot use relation flags with != 2 integers");
     }
@@ -162,7 +165,7 @@ public class OSMReader {
         if (!baseGraph.isInitialized())
             throw new IllegalStateException("BaseGraph must be initialize before we can read OSM");
 
-        WaySegmentParser waySegmentParser = new WaySegmentParser.Builder(baseGraph.getNodeAccess(), baseGraph.getDirectory())
+        WaySegmentParser waySegmentParser = new WaySegmentParser.Builder(baseGraph.getNodeAccess(), baseGraph.getDirectory(), config.getNodeMapDAType())
                 .setElevationProvider(this::getElevation)
                 .setWayFilter(this::acceptWay)
                 .setSplitNodeFilter(this::isBarrierNode)
@@ -172,7 +175,17 @@ public class OSMReader {
                 .setEdgeHandler(this::addEdge)
                 .setWorkerThreads(config.getWorkerThreads())
                 .build();
-        waySegmentParser.readOSM(osmFile);
+        if (config.getParseThreads() > 1)
+            parseExecutor = Executors.newFixedThreadPool(config.getParseThreads());
+        try {
+            waySegmentParser.readOSM(osmFile);
+            flushPendingEdges();
+        } finally {
+            if (parseExecutor != null) {
+                parseExecutor.shutdownNow();
+                parseExecutor = null;
+            }
+        }
         osmDataDate = waySegmentParser.getTimestamp();
         if (baseGraph.getNodes() == 0)
             throw new RuntimeException("Graph after reading OSM must not be empty");
@@ -180,7 +193,7 @@ public class OSMReader {
         addRestrictionsToGraph();
         releaseRestrictionData();
         LOGGER.info("Finished reading OSM file: {}, nodes: {}, edges: {}, zero distance edges: {}",
-                osmFile.getAbsolutePath(), nf(baseGraph.getNodes()), nf(baseGraph.getEdges()), nf(zeroCounter));
+                osmFile.getAbsolutePath(), nf(baseGraph.getNodes()), nf(baseGraph.getEdges()), nf(zeroCounter.get()));
     }
 
     /**
@@ -324,6 +337,61 @@ public class OSMReader {
         if (pointList.size() != nodeTags.size())
             throw new AssertionError("there should be as many maps of node tags as there are points. node tags: " + nodeTags.size() + ", points: " + pointList.size());
 
+        PendingEdge pendingEdge = new PendingEdge(fromIndex, toIndex, pointList, way, nodeTags, way.hasTag("gh:barrier_edge"));
+        if (parseExecutor == null) {
+            prepareEdge(pendingEdge, baseGraph.getEdges());
+            insertEdge(pendingEdge);
+        } else {
+            pendingEdges.add(pendingEdge);
+            if (pendingEdges.size() >= PARSE_BATCH_SIZE)
+                flushPendingEdges();
+        }
+    }
+
+    /**
+     * Prepares the pending edges using the parse threads and adds them to the graph afterwards. The edges are added
+     * in the order they were created by {@link WaySegmentParser}, so their IDs are known in advance.
+     */
+    private void flushPendingEdges() {
+        if (pendingEdges.isEmpty())
+            return;
+        final int firstEdge = baseGraph.getEdges();
+        int chunkSize = Math.max(1, pendingEdges.size() / (4 * config.getParseThreads()));
+        List<Callable<Object>> tasks = new ArrayList<>();
+        int start = 0;
+        while (start < pendingEdges.size()) {
+            int end = Math.min(start + chunkSize, pendingEdges.size());
+            // the edges of one way must be prepared by the same thread, because they modify the tags of the same way
+            while (end < pendingEdges.size() && pendingEdges.get(end).way == pendingEdges.get(end - 1).way)
+                end++;
+            final int from = start, to = end;
+            tasks.add(Executors.callable(() -> {
+                for (int i = from; i < to; i++)
+                    prepareEdge(pendingEdges.get(i), firstEdge + i);
+            }));
+            start = end;
+        }
+        try {
+            for (Future<Object> future : parseExecutor.invokeAll(tasks))
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+        }
+        for (PendingEdge pendingEdge : pendingEdges)
+            insertEdge(pendingEdge);
+        pendingEdges.clear();
+    }
+
+    /**
+     * Calculates the geometry and distance of the given edge and runs the tag parsers. This does not modify the graph
+     * and can run concurrently for edges of different ways.
+     */
+    private void prepareEdge(PendingEdge pendingEdge, int edgeId) {
+        ReaderWay way = pendingEdge.way;
+        PointList pointList = pendingEdge.pointList;
         // todo: in principle it should be possible to delay elevation calculation so we do not need to store
         // elevations during import (saves memory in pillar info during import). also note that we already need to
         // to do some kind of elevation processing (bridge+tunnel interpolation in GraphHopper class, maybe this can
@@ -332,7 +400,10 @@ public class OSMReader {
         if (pointList.is3D()) {
             // sample points along long edges
             if (config.getLongEdgeSamplingDistance() < Double.MAX_VALUE)
-                pointList = EdgeSampling.sample(pointList, config.getLongEdgeSamplingDistance(), distCalc, eleProvider);
+                // the elevation providers are not thread-safe
+                synchronized (eleProvider) {
+                    pointList = EdgeSampling.sample(pointList, config.getLongEdgeSamplingDistance(), distCalc, eleProvider);
+                }
 
             // smooth the elevation before calculating the distance because the distance will be incorrect if calculated afterwards
             if (config.getElevationSmoothing().equals("ramer"))
@@ -351,13 +422,13 @@ public class OSMReader {
         if (distance < 0.001) {
             // As investigation shows often two paths should have crossed via one identical point
             // but end up in two very close points.
-            zeroCounter++;
+            zeroCounter.incrementAndGet();
             distance = 0.001;
         }
 
         double maxDistance = (Integer.MAX_VALUE - 1) / 1000d;
         if (Double.isNaN(distance)) {
-            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter++ + "). Illegal tower node distance " + distance + " reset to 1m, osm way " + way.getId());
+            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter.getAndIncrement() + "). Illegal tower node distance " + distance + " reset to 1m, osm way " + way.getId());
             distance = 1;
         }
 
@@ -365,32 +436,46 @@ public class OSMReader {
             // Too large is very rare and often the wrong tagging. See #435
             // so we can avoid the complexity of splitting the way for now (new towernodes would be required, splitting up geometry etc)
             // For example this happens here: https://www.openstreetmap.org/way/672506453 (Cape Town - Tristan da Cunha ferry)
-            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter++ + "). Too big tower node distance " + distance + " reset to large value, osm way " + way.getId());
+            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter.getAndIncrement() + "). Too big tower node distance " + distance + " reset to large value, osm way " + way.getId());
             distance = maxDistance;
         }
 
-        if (bugCounter > 30)
-            throw new IllegalStateException("Too many bugs in OSM or GraphHopper encountered " + bugCounter);
+        if (bugCounter.get() > 30)
+            throw new IllegalStateException("Too many bugs in OSM or GraphHopper encountered " + bugCounter.get());
+
+        // the barrier tag might have been changed for the following edges of this way in the meantime
+        if (pendingEdge.barrierEdge)
+            way.setTag("gh:barrier_edge", true);
+        else
+            way.removeTag("gh:barrier_edge");
+        setArtificialWayTags(pointList, way, distance, pendingEdge.nodeTags);
+        IntsRef edgeFlags = baseGraph.createEdgeFlags();
+        osmParsers.handleWayTags(edgeId, new IntsRefEdgeIntAccess(edgeFlags), way, getRelFlagsMap(way.getId()));
+        pendingEdge.pointList = pointList;
+        pendingEdge.distance = distance;
+        pendingEdge.edgeFlags = edgeFlags;
+        pendingEdge.keyValues = way.getTag("key_values", Collections.emptyMap());
+    }
 
-        setArtificialWayTags(pointList, way, distance, nodeTags);
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
-        EdgeIteratorState edge = baseGraph.edge(fromIndex, toIndex).setDistance(distance);
-        osmParsers.handleWayTags(edge.getEdge(), edgeIntAccess, way, relationFlags);
-        Map<String, KValue> map = way.getTag("key_values", Collections.emptyMap());
-        if (!map.isEmpty())
-            edge.setKeyValues(map);
+    private void insertEdge(PendingEdge pendingEdge) {
+        PointList pointList = pendingEdge.pointList;
+        EdgeIteratorState edge = baseGraph.edge(pendingEdge.from, pendingEdge.to)
+                .setDistance(pendingEdge.distance)
+                .setFlags(pendingEdge.edgeFlags);
+        if (!pendingEdge.keyValues.isEmpty())
+            edge.setKeyValues(pendingEdge.keyValues);
 
         // If the entire way is just the first and last point, do not waste space storing an empty way geometry
         if (pointList.size() > 2) {
             // the geometry consists only of pillar nodes, but we check that the first and last points of the pointList
             // are equal to the tower node coordinates
-            checkCoordinates(fromIndex, pointList.get(0));
-            checkCoordinates(toIndex, pointList.get(pointList.size() - 1));
+            checkCoordinates(pendingEdge.from, pointList.get(0));
+            checkCoordinates(pendingEdge.to, pointList.get(pointList.size() - 1));
             edge.setWayGeometry(pointList.shallowCopy(1, pointList.size() - 1, false));
         }
 
         checkDistance(edge);
-        restrictedWaysToEdgesMap.putIfReserved(way.getId(), edge.getEdge());
+        restrictedWaysToEdgesMap.putIfReserved(pendingEdge.way.getId(), edge.getEdge());
     }
 
     private void checkCoordinates(int nodeIndex, GHPoint point) {
@@ -587,6 +672,8 @@ public class OSMReader {
      * We use it to save the relations and process them afterwards.
      */
     protected void processRelation(ReaderRelation relation, LongToIntFunction getIdForOSMNodeId) {
+        // the relations come after the ways, so we need to add the remaining edges now
+        flushPendingEdges();
         if (turnCostStorage != null)
             if (OSMRestrictionConverter.isTurnRestriction(relation)) {
                 long osmViaNode = OSMRestrictionConverter.getViaNodeIfViaNodeRestriction(relation);
@@ -675,9 +762,11 @@ public class OSMReader {
 
     IntsRef getRelFlagsMap(long osmId) {
         long relFlagsAsLong = osmWayIdToRelationFlagsMap.get(osmId);
-        tempRelFlags.ints[0] = (int) relFlagsAsLong;
-        tempRelFlags.ints[1] = (int) (relFlagsAsLong >> 32);
-        return tempRelFlags;
+        // we create new relation flags for every call, because this is called by the parse threads concurrently
+        IntsRef relFlags = osmParsers.createRelationFlags();
+        relFlags.ints[0] = (int) relFlagsAsLong;
+        relFlags.ints[1] = (int) (relFlagsAsLong >> 32);
+        return relFlags;
     }
 
     void putRelFlagsMap(long osmId, IntsRef relFlags) {
@@ -690,4 +779,28 @@ public class OSMReader {
         return getClass().getSimpleName();
     }
 
+    /**
+     * An edge that was created by {@link WaySegmentParser} but not yet added to the graph
+     */
+    private static class PendingEdge {
+        final int from;
+        final int to;
+        final ReaderWay way;
+        final List<Map<String, Object>> nodeTags;
+        final boolean barrierEdge;
+        PointList pointList;
+        double distance;
+        IntsRef edgeFlags;
+        Map<String, KValue> keyValues;
+
+        PendingEdge(int from, int to, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags, boolean barrierEdge) {
+            this.from = from;
+            this.to = to;
+            this.pointList = pointList;
+            this.way = way;
+            this.nodeTags = nodeTags;
+            this.barrierEdge = barrierEdge;
+        }
+    }
+
 }
@@ -23,6 +23,7 @@ import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
 import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointAccess;
@@ -188,6 +189,12 @@ public class WaySegmentParser {
         private long ignoredSplitNodes = 0;
         private long wayCounter = 0;
 
+        @Override
+        public boolean acceptNode(long osmNodeId) {
+            // nodes that are not used by any of the accepted ways are ignored anyway
+            return nodeData.getId(osmNodeId) != EMPTY_NODE;
+        }
+
         @Override
         public void handleNode(ReaderNode node) {
             if (!handledNodes) {
@@ -392,7 +399,7 @@ public class WaySegmentParser {
     }
 
     private void readOSM(File file, ReaderElementHandler handler, SkipOptions skipOptions) {
-        try (OSMInput osmInput = openOsmInputFile(file, skipOptions)) {
+        try (OSMInput osmInput = openOsmInputFile(file, skipOptions, handler::acceptNode)) {
             ReaderElement elem;
             while ((elem = osmInput.getNext()) != null)
                 handler.handleElement(elem);
@@ -404,8 +411,8 @@ public class WaySegmentParser {
         }
     }
 
-    protected OSMInput openOsmInputFile(File osmFile, SkipOptions skipOptions) throws XMLStreamException, IOException {
-        return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).setSkipOptions(skipOptions).open();
+    protected OSMInput openOsmInputFile(File osmFile, SkipOptions skipOptions, LongPredicate nodeFilter) throws XMLStreamException, IOException {
+        return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).setSkipOptions(skipOptions).setNodeFilter(nodeFilter).open();
     }
 
     public static class Builder {
@@ -416,7 +423,15 @@ public class WaySegmentParser {
          * @param directory   the directory to be used to store temporary data
          */
         public Builder(PointAccess pointAccess, Directory directory) {
-            waySegmentParser = new WaySegmentParser(new OSMNodeData(pointAccess, directory));
+            this(pointAccess, directory, null);
+        }
+
+        /**
+         * @param nodeMapDAType the type of the DataAccess used to map the OSM node ids or null to keep the mapping
+         *                      on the heap
+         */
+        public Builder(PointAccess pointAccess, Directory directory, DAType nodeMapDAType) {
+            waySegmentParser = new WaySegmentParser(new OSMNodeData(pointAccess, directory, nodeMapDAType));
         }
 
         /**
@@ -508,6 +523,14 @@ public class WaySegmentParser {
             }
         }
 
+        /**
+         * @return false if the node with the given OSM ID shall be skipped, this is called before the node is
+         * created so skipping nodes is cheap
+         */
+        default boolean acceptNode(long osmNodeId) {
+            return true;
+        }
+
         default void handleNode(ReaderNode node) {
         }
 
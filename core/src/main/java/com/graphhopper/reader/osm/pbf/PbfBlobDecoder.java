@@ -1,10 +1,13 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package com.graphhopper.reader.osm.pbf;
 
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
 import com.carrotsearch.hppc.LongIndexedContainer;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
 import com.graphhopper.reader.ReaderElement;
-import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.osm.OSMFileHeader;
@@ -24,16 +27,28 @@ import java.util.zip.Inflater;
  * Converts PBF block data into decoded entities ready to be passed into an Osmosis pipeline. This
  * class is designed to be passed into a pool of worker threads to allow multi-threaded decoding.
  * <p>
+ * The primitive blocks are decoded directly from the protobuf stream without creating the intermediate protobuf
+ * objects and the boxed lists of their repeated fields. The nodes are not converted into {@link ReaderElement}s,
+ * but collected in a {@link PbfNodeBlock}.
+ * <p>
  *
  * @author Brett Henderson
  */
 public class PbfBlobDecoder implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(PbfBlobDecoder.class);
-    private final boolean checkData = false;
     private final String blobType;
     private final byte[] rawBlob;
     private final PbfBlobDecoderListener listener;
     private List<ReaderElement> decodedEntities;
+    private PbfNodeBlock nodeBlock;
+    // reused for the repeated fields of the decoded elements
+    private final IntArrayList keys = new IntArrayList();
+    private final IntArrayList values = new IntArrayList();
+    private final IntArrayList ints = new IntArrayList();
+    private final IntArrayList ints2 = new IntArrayList();
+    private final LongArrayList longs1 = new LongArrayList();
+    private final LongArrayList longs2 = new LongArrayList();
+    private final LongArrayList longs3 = new LongArrayList();
     private final SkipOptions skipOptions;
 
     /**
@@ -119,225 +134,266 @@ public class PbfBlobDecoder implements Runnable {
          */
     }
 
-    private Map<String, Object> buildTags(List<Integer> keys, List<Integer> values, PbfFieldDecoder fieldDecoder) {
-
-        // Ensure parallel lists are of equal size.
-        if (checkData) {
-            if (keys.size() != values.size()) {
-                throw new RuntimeException("Number of tag keys (" + keys.size() + ") and tag values ("
-                        + values.size() + ") don't match");
+    private void processOsmPrimitives(byte[] data) throws IOException {
+        // The granularity and offsets of the coordinates are stored after the primitive groups, so we first read
+        // the string table and the block fields and remember where the primitive groups are located.
+        CodedInputStream in = CodedInputStream.newInstance(data);
+        List<String> strings = new ArrayList<>();
+        IntArrayList groupRanges = new IntArrayList();
+        int granularity = 100;
+        long latOffset = 0;
+        long lonOffset = 0;
+        int dateGranularity = 1000;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    int limit = in.pushLimit(in.readRawVarint32());
+                    while ((tag = in.readTag()) != 0) {
+                        if (WireFormat.getTagFieldNumber(tag) == 1)
+                            strings.add(in.readBytes().toStringUtf8());
+                        else
+                            in.skipField(tag);
+                    }
+                    in.popLimit(limit);
+                    break;
+                case 2:
+                    int length = in.readRawVarint32();
+                    groupRanges.add(in.getTotalBytesRead(), length);
+                    in.skipRawBytes(length);
+                    break;
+                case 17:
+                    granularity = in.readInt32();
+                    break;
+                case 18:
+                    dateGranularity = in.readInt32();
+                    break;
+                case 19:
+                    latOffset = in.readInt64();
+                    break;
+                case 20:
+                    lonOffset = in.readInt64();
+                    break;
+                default:
+                    in.skipField(tag);
             }
         }
+        PbfFieldDecoder fieldDecoder = new PbfFieldDecoder(strings.toArray(new String[0]), granularity, latOffset, lonOffset, dateGranularity);
+        for (int i = 0; i < groupRanges.size(); i += 2)
+            processPrimitiveGroup(CodedInputStream.newInstance(data, groupRanges.get(i), groupRanges.get(i + 1)), fieldDecoder);
+    }
 
-        Iterator<Integer> keyIterator = keys.iterator();
-        Iterator<Integer> valueIterator = values.iterator();
-        if (keyIterator.hasNext()) {
-            Map<String, Object> tags = new HashMap<>(keys.size());
-            while (keyIterator.hasNext()) {
-                String key = fieldDecoder.decodeString(keyIterator.next());
-                String value = fieldDecoder.decodeString(valueIterator.next());
-                tags.put(key, value);
+    private void processPrimitiveGroup(CodedInputStream in, PbfFieldDecoder fieldDecoder) throws IOException {
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            boolean skip = field == 1 || field == 2 ? skipOptions.isSkipNodes()
+                    : field == 3 ? skipOptions.isSkipWays()
+                    : field != 4 || skipOptions.isSkipRelations();
+            if (skip) {
+                in.skipField(tag);
+                continue;
+            }
+            // we read the element directly from the group, the limit makes sure we stop at the end of the element
+            int limit = in.pushLimit(in.readRawVarint32());
+            switch (field) {
+                case 1 -> processNode(in, fieldDecoder);
+                case 2 -> processDenseNodes(in, fieldDecoder);
+                case 3 -> processWay(in, fieldDecoder);
+                default -> processRelation(in, fieldDecoder);
             }
-            return tags;
+            in.popLimit(limit);
         }
-        return null;
     }
 
-    private void processNodes(List<Osmformat.Node> nodes, PbfFieldDecoder fieldDecoder) {
-        for (Osmformat.Node node : nodes) {
-            Map<String, Object> tags = buildTags(node.getKeysList(), node.getValsList(), fieldDecoder);
-
-            ReaderNode osmNode = new ReaderNode(node.getId(), fieldDecoder.decodeLatitude(node
-                    .getLat()), fieldDecoder.decodeLatitude(node.getLon()));
-            osmNode.setTags(tags);
+    private PbfNodeBlock getNodeBlock(PbfFieldDecoder fieldDecoder) {
+        if (nodeBlock == null)
+            nodeBlock = new PbfNodeBlock(fieldDecoder.getStrings());
+        return nodeBlock;
+    }
 
-            // Add the bound object to the results.
-            decodedEntities.add(osmNode);
+    private void processNode(CodedInputStream in, PbfFieldDecoder fieldDecoder) throws IOException {
+        long id = 0, lat = 0, lon = 0;
+        keys.clear();
+        values.clear();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> id = in.readSInt64();
+                case 2 -> readInts(in, tag, keys);
+                case 3 -> readInts(in, tag, values);
+                case 8 -> lat = in.readSInt64();
+                case 9 -> lon = in.readSInt64();
+                default -> in.skipField(tag);
+            }
         }
+        checkTags(keys, values);
+        PbfNodeBlock nodes = getNodeBlock(fieldDecoder);
+        nodes.addNode(id, fieldDecoder.decodeLatitude(lat), fieldDecoder.decodeLongitude(lon));
+        for (int i = 0; i < keys.size(); i++)
+            nodes.addTag(keys.get(i), values.get(i));
     }
 
-    private void processNodes(Osmformat.DenseNodes nodes, PbfFieldDecoder fieldDecoder) {
-        List<Long> idList = nodes.getIdList();
-        List<Long> latList = nodes.getLatList();
-        List<Long> lonList = nodes.getLonList();
-
-        // Ensure parallel lists are of equal size.
-        if (checkData) {
-            if ((idList.size() != latList.size()) || (idList.size() != lonList.size())) {
-                throw new RuntimeException("Number of ids (" + idList.size() + "), latitudes (" + latList.size()
-                        + "), and longitudes (" + lonList.size() + ") don't match");
+    private void processDenseNodes(CodedInputStream in, PbfFieldDecoder fieldDecoder) throws IOException {
+        LongArrayList ids = longs1, lats = longs2, lons = longs3;
+        IntArrayList keysVals = ints;
+        ids.clear();
+        lats.clear();
+        lons.clear();
+        keysVals.clear();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> readSInt64s(in, tag, ids);
+                case 8 -> readSInt64s(in, tag, lats);
+                case 9 -> readSInt64s(in, tag, lons);
+                case 10 -> readInts(in, tag, keysVals);
+                default -> in.skipField(tag);
             }
         }
+        if (ids.size() != lats.size() || ids.size() != lons.size())
+            throw new RuntimeException("Number of ids (" + ids.size() + "), latitudes (" + lats.size()
+                    + "), and longitudes (" + lons.size() + ") don't match");
 
-        Iterator<Integer> keysValuesIterator = nodes.getKeysValsList().iterator();
-
-        /*
-         Osmformat.DenseInfo denseInfo;
-         if (nodes.hasDenseinfo()) {
-         denseInfo = nodes.getDenseinfo();
-         } else {
-         denseInfo = null;
-         }
-         */
+        PbfNodeBlock nodes = getNodeBlock(fieldDecoder);
         long nodeId = 0;
         long latitude = 0;
         long longitude = 0;
-//		int userId = 0;
-//		int userSid = 0;
-//		long timestamp = 0;
-//		long changesetId = 0;
-        for (int i = 0; i < idList.size(); i++) {
+        int keyValueIndex = 0;
+        for (int i = 0; i < ids.size(); i++) {
             // Delta decode node fields.
-            nodeId += idList.get(i);
-            latitude += latList.get(i);
-            longitude += lonList.get(i);
-
-            /*
-             if (denseInfo != null) {
-             // Delta decode dense info fields.
-             userId += denseInfo.getUid(i);
-             userSid += denseInfo.getUserSid(i);
-             timestamp += denseInfo.getTimestamp(i);
-             changesetId += denseInfo.getChangeset(i);
-
-             // Build the user, but only if one exists.
-             OsmUser user;
-             if (userId >= 0) {
-             user = new OsmUser(userId, fieldDecoder.decodeString(userSid));
-             } else {
-             user = OsmUser.NONE;
-             }
-
-             entityData = new CommonEntityData(nodeId, denseInfo.getVersion(i),
-             fieldDecoder.decodeTimestamp(timestamp), user, changesetId);
-             } else {
-             entityData = new CommonEntityData(nodeId, EMPTY_VERSION, EMPTY_TIMESTAMP, OsmUser.NONE,
-             EMPTY_CHANGESET);
-             }
-             */
-            // Build the tags. The key and value string indexes are sequential
-            // in the same PBF array. Each set of tags is delimited by an index
-            // with a value of 0.
-            Map<String, Object> tags = null;
-            while (keysValuesIterator.hasNext()) {
-                int keyIndex = keysValuesIterator.next();
-                if (keyIndex == 0) {
+            nodeId += ids.get(i);
+            latitude += lats.get(i);
+            longitude += lons.get(i);
+            nodes.addNode(nodeId, fieldDecoder.decodeLatitude(latitude), fieldDecoder.decodeLongitude(longitude));
+
+            // The key and value string indexes are sequential in the same PBF array. Each set of tags is delimited
+            // by an index with a value of 0. The array is empty if none of the nodes has tags.
+            while (keyValueIndex < keysVals.size()) {
+                int keyIndex = keysVals.get(keyValueIndex++);
+                if (keyIndex == 0)
                     break;
-                }
-                if (checkData) {
-                    if (!keysValuesIterator.hasNext()) {
-                        throw new RuntimeException(
-                                "The PBF DenseInfo keys/values list contains a key with no corresponding value.");
-                    }
-                }
-                int valueIndex = keysValuesIterator.next();
-
-                if (tags == null) {
-                    // divide by 2 as key&value, multiple by 2 because of the better approximation
-                    tags = new HashMap<>(Math.max(3, 2 * (nodes.getKeysValsList().size() / 2) / idList.size()));
-                }
-
-                tags.put(fieldDecoder.decodeString(keyIndex), fieldDecoder.decodeString(valueIndex));
+                if (keyValueIndex == keysVals.size())
+                    throw new RuntimeException("The PBF DenseInfo keys/values list contains a key with no corresponding value.");
+                nodes.addTag(keyIndex, keysVals.get(keyValueIndex++));
             }
-
-            ReaderNode node = new ReaderNode(nodeId, fieldDecoder.decodeLatitude(latitude), fieldDecoder.decodeLongitude(longitude));
-            node.setTags(tags);
-
-            // Add the bound object to the results.
-            decodedEntities.add(node);
         }
     }
 
-    private void processWays(List<Osmformat.Way> ways, PbfFieldDecoder fieldDecoder) {
-        for (Osmformat.Way way : ways) {
-            Map<String, Object> tags = buildTags(way.getKeysList(), way.getValsList(), fieldDecoder);
-            ReaderWay osmWay = new ReaderWay(way.getId());
-            osmWay.setTags(tags);
-
-            // Build up the list of way nodes for the way. The node ids are
-            // delta encoded meaning that each id is stored as a delta against
-            // the previous one.
-            long nodeId = 0;
-            LongIndexedContainer wayNodes = osmWay.getNodes();
-            for (long nodeIdOffset : way.getRefsList()) {
-                nodeId += nodeIdOffset;
-                wayNodes.add(nodeId);
+    private void processWay(CodedInputStream in, PbfFieldDecoder fieldDecoder) throws IOException {
+        long id = 0;
+        LongArrayList refs = longs1;
+        keys.clear();
+        values.clear();
+        refs.clear();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> id = in.readInt64();
+                case 2 -> readInts(in, tag, keys);
+                case 3 -> readInts(in, tag, values);
+                case 8 -> readSInt64s(in, tag, refs);
+                default -> in.skipField(tag);
             }
+        }
+        ReaderWay osmWay = new ReaderWay(id);
+        setTags(osmWay, keys, values, fieldDecoder);
 
-            decodedEntities.add(osmWay);
+        // Build up the list of way nodes for the way. The node ids are
+        // delta encoded meaning that each id is stored as a delta against
+        // the previous one.
+        long nodeId = 0;
+        LongIndexedContainer wayNodes = osmWay.getNodes();
+        for (int i = 0; i < refs.size(); i++) {
+            nodeId += refs.get(i);
+            wayNodes.add(nodeId);
         }
+        decodedEntities.add(osmWay);
     }
 
-    private void buildRelationMembers(ReaderRelation relation,
-                                      List<Long> memberIds, List<Integer> memberRoles, List<Osmformat.Relation.MemberType> memberTypes,
-                                      PbfFieldDecoder fieldDecoder) {
-
-        // Ensure parallel lists are of equal size.
-        if (checkData) {
-            if ((memberIds.size() != memberRoles.size()) || (memberIds.size() != memberTypes.size())) {
-                throw new RuntimeException("Number of member ids (" + memberIds.size() + "), member roles ("
-                        + memberRoles.size() + "), and member types (" + memberTypes.size() + ") don't match");
+    private void processRelation(CodedInputStream in, PbfFieldDecoder fieldDecoder) throws IOException {
+        long id = 0;
+        IntArrayList roles = ints, types = ints2;
+        LongArrayList memberIds = longs1;
+        keys.clear();
+        values.clear();
+        roles.clear();
+        types.clear();
+        memberIds.clear();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> id = in.readInt64();
+                case 2 -> readInts(in, tag, keys);
+                case 3 -> readInts(in, tag, values);
+                case 8 -> readInts(in, tag, roles);
+                case 9 -> readSInt64s(in, tag, memberIds);
+                case 10 -> readInts(in, tag, types);
+                default -> in.skipField(tag);
             }
         }
+        if (memberIds.size() != roles.size() || memberIds.size() != types.size())
+            throw new RuntimeException("Number of member ids (" + memberIds.size() + "), member roles ("
+                    + roles.size() + "), and member types (" + types.size() + ") don't match");
 
-        Iterator<Long> memberIdIterator = memberIds.iterator();
-        Iterator<Integer> memberRoleIterator = memberRoles.iterator();
-        Iterator<Osmformat.Relation.MemberType> memberTypeIterator = memberTypes.iterator();
+        ReaderRelation osmRelation = new ReaderRelation(id);
+        setTags(osmRelation, keys, values, fieldDecoder);
 
         // Build up the list of relation members for the way. The member ids are
         // delta encoded meaning that each id is stored as a delta against
         // the previous one.
         long refId = 0;
-        while (memberIdIterator.hasNext()) {
-            Osmformat.Relation.MemberType memberType = memberTypeIterator.next();
-            refId += memberIdIterator.next();
-
-            ReaderElement.Type entityType = ReaderElement.Type.NODE;
-            if (memberType == Osmformat.Relation.MemberType.WAY) {
-                entityType = ReaderElement.Type.WAY;
-            } else if (memberType == Osmformat.Relation.MemberType.RELATION) {
-                entityType = ReaderElement.Type.RELATION;
-            }
-            if (checkData) {
-                if (entityType == ReaderElement.Type.NODE && memberType != Osmformat.Relation.MemberType.NODE) {
-                    throw new RuntimeException("Member type of " + memberType + " is not supported.");
-                }
-            }
-
-            ReaderRelation.Member member = new ReaderRelation.Member(entityType, refId, fieldDecoder.decodeString(memberRoleIterator.next()));
-            relation.add(member);
+        for (int i = 0; i < memberIds.size(); i++) {
+            refId += memberIds.get(i);
+            ReaderElement.Type entityType = switch (types.get(i)) {
+                case 0 -> ReaderElement.Type.NODE;
+                case 1 -> ReaderElement.Type.WAY;
+                case 2 -> ReaderElement.Type.RELATION;
+                default -> throw new RuntimeException("Member type of " + types.get(i) + " is not supported.");
+            };
+            osmRelation.add(new ReaderRelation.Member(entityType, refId, fieldDecoder.decodeString(roles.get(i))));
         }
+        decodedEntities.add(osmRelation);
     }
 
-    private void processRelations(List<Osmformat.Relation> relations, PbfFieldDecoder fieldDecoder) {
-        for (Osmformat.Relation relation : relations) {
-            Map<String, Object> tags = buildTags(relation.getKeysList(), relation.getValsList(), fieldDecoder);
-
-            ReaderRelation osmRelation = new ReaderRelation(relation.getId());
-            osmRelation.setTags(tags);
+    private static void checkTags(IntArrayList keys, IntArrayList values) {
+        if (keys.size() != values.size())
+            throw new RuntimeException("Number of tag keys (" + keys.size() + ") and tag values ("
+                    + values.size() + ") don't match");
+    }
 
-            buildRelationMembers(osmRelation, relation.getMemidsList(), relation.getRolesSidList(),
-                    relation.getTypesList(), fieldDecoder);
+    private void setTags(ReaderElement element, IntArrayList keys, IntArrayList values, PbfFieldDecoder fieldDecoder) {
+        checkTags(keys, values);
+        for (int i = 0; i < keys.size(); i++)
+            element.setTag(fieldDecoder.decodeString(keys.get(i)), fieldDecoder.decodeString(values.get(i)));
+    }
 
-            // Add the bound object to the results.
-            decodedEntities.add(osmRelation);
+    /**
+     * Reads a repeated (u)int32 or enum field, which can be either packed or not
+     */
+    private static void readInts(CodedInputStream in, int tag, IntArrayList result) throws IOException {
+        if (WireFormat.getTagWireType(tag) != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+            result.add(in.readRawVarint32());
+            return;
         }
+        int limit = in.pushLimit(in.readRawVarint32());
+        while (in.getBytesUntilLimit() > 0)
+            result.add(in.readRawVarint32());
+        in.popLimit(limit);
     }
 
-    private void processOsmPrimitives(byte[] data) throws InvalidProtocolBufferException {
-        Osmformat.PrimitiveBlock block = Osmformat.PrimitiveBlock.parseFrom(data);
-        PbfFieldDecoder fieldDecoder = new PbfFieldDecoder(block);
-
-        for (Osmformat.PrimitiveGroup primitiveGroup : block.getPrimitivegroupList()) {
-            if (!skipOptions.isSkipNodes()) {
-                processNodes(primitiveGroup.getDense(), fieldDecoder);
-                processNodes(primitiveGroup.getNodesList(), fieldDecoder);
-            }
-            if (!skipOptions.isSkipWays())
-                processWays(primitiveGroup.getWaysList(), fieldDecoder);
-            if (!skipOptions.isSkipRelations())
-                processRelations(primitiveGroup.getRelationsList(), fieldDecoder);
+    /**
+     * Reads a repeated sint64 field, which can be either packed or not
+     */
+    private static void readSInt64s(CodedInputStream in, int tag, LongArrayList result) throws IOException {
+        if (WireFormat.getTagWireType(tag) != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+            result.add(in.readSInt64());
+            return;
         }
+        int limit = in.pushLimit(in.readRawVarint32());
+        while (in.getBytesUntilLimit() > 0)
+            result.add(in.readSInt64());
+        in.popLimit(limit);
     }
 
     private void runAndTrapExceptions() {
@@ -360,7 +416,7 @@ public class PbfBlobDecoder implements Runnable {
     public void run() {
         try {
             runAndTrapExceptions();
-            listener.complete(decodedEntities);
+            listener.complete(nodeBlock, decodedEntities);
 
         } catch (RuntimeException e) {
             // exception is properly rethrown in PbfDecoder.sendResultsToSink
@@ -16,9 +16,10 @@ public interface PbfBlobDecoderListener {
      * Provides the listener with the list of decoded entities.
      * <p>
      *
-     * @param decodedEntities The decoded entities.
+     * @param nodes           The decoded nodes or null if the blob contained no nodes.
+     * @param decodedEntities The decoded entities other than nodes.
      */
-    void complete(List<ReaderElement> decodedEntities);
+    void complete(PbfNodeBlock nodes, List<ReaderElement> decodedEntities);
 
     /**
      * Notifies the listener that an error occurred during processing.
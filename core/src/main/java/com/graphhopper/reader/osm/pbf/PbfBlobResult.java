@@ -12,6 +12,7 @@ import java.util.List;
  * @author Brett Henderson
  */
 public class PbfBlobResult {
+    private PbfNodeBlock nodes;
     private List<ReaderElement> entities;
     private boolean complete;
     private boolean success;
@@ -30,9 +31,11 @@ public class PbfBlobResult {
      * Stores the results of a successful blob decoding operation.
      * <p>
      *
+     * @param decodedNodes    The nodes from the blob or null.
      * @param decodedEntities The entities from the blob.
      */
-    public void storeSuccessResult(List<ReaderElement> decodedEntities) {
+    public void storeSuccessResult(PbfNodeBlock decodedNodes, List<ReaderElement> decodedEntities) {
+        nodes = decodedNodes;
         entities = decodedEntities;
         complete = true;
         success = true;
@@ -81,4 +84,12 @@ public class PbfBlobResult {
     public List<ReaderElement> getEntities() {
         return entities;
     }
+
+    /**
+     * Gets the nodes decoded from the blob or null if there were none. This is only valid after complete becomes
+     * true, and if success is true.
+     */
+    public PbfNodeBlock getNodes() {
+        return nodes;
+    }
 }
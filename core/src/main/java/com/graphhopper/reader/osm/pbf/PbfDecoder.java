@@ -93,6 +93,9 @@ public class PbfDecoder {
             // their results.
             lock.unlock();
             try {
+                // a primitive group only contains a single type of elements and the nodes come first in the file
+                if (blobResult.getNodes() != null)
+                    sink.process(blobResult.getNodes());
                 for (ReaderElement entity : blobResult.getEntities()) {
                     sink.process(entity);
                 }
@@ -130,10 +133,10 @@ public class PbfDecoder {
                 }
 
                 @Override
-                public void complete(List<ReaderElement> decodedEntities) {
+                public void complete(PbfNodeBlock decodedNodes, List<ReaderElement> decodedEntities) {
                     lock.lock();
                     try {
-                        blobResult.storeSuccessResult(decodedEntities);
+                        blobResult.storeSuccessResult(decodedNodes, decodedEntities);
                         signalUpdate();
 
                     } finally {
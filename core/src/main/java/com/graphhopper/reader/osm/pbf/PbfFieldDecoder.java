@@ -1,8 +1,6 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package com.graphhopper.reader.osm.pbf;
 
-import org.openstreetmap.osmosis.osmbinary.Osmformat;
-
 import java.util.Date;
 
 /**
@@ -24,19 +22,15 @@ public class PbfFieldDecoder {
      * Creates a new instance.
      * <p>
      *
-     * @param primitiveBlock The primitive block containing the fields to be decoded.
+     * @param strings the string table of the primitive block
      */
-    public PbfFieldDecoder(Osmformat.PrimitiveBlock primitiveBlock) {
-        this.coordGranularity = primitiveBlock.getGranularity();
-        this.coordLatitudeOffset = primitiveBlock.getLatOffset();
-        this.coordLongitudeOffset = primitiveBlock.getLonOffset();
-        this.dateGranularity = primitiveBlock.getDateGranularity();
-
-        Osmformat.StringTable stringTable = primitiveBlock.getStringtable();
-        strings = new String[stringTable.getSCount()];
-        for (int i = 0; i < strings.length; i++) {
-            strings[i] = stringTable.getS(i).toStringUtf8();
-        }
+    public PbfFieldDecoder(String[] strings, int coordGranularity, long coordLatitudeOffset, long coordLongitudeOffset,
+                           int dateGranularity) {
+        this.strings = strings;
+        this.coordGranularity = coordGranularity;
+        this.coordLatitudeOffset = coordLatitudeOffset;
+        this.coordLongitudeOffset = coordLongitudeOffset;
+        this.dateGranularity = dateGranularity;
     }
 
     /**
@@ -82,4 +76,8 @@ public class PbfFieldDecoder {
     public String decodeString(int rawString) {
         return strings[rawString];
     }
+
+    String[] getStrings() {
+        return strings;
+    }
 }
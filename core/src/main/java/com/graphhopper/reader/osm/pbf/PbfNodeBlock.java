@@ -0,0 +1,104 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm.pbf;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.reader.ReaderNode;
+
+/**
+ * The nodes of a single PBF block stored in primitive arrays. Most nodes of an OSM file are not needed for the import,
+ * so instead of creating a {@link ReaderNode} for every node we only create them for the nodes that are actually used,
+ * see {@link #createNode(int)}. The tags are stored as pairs of indices into the string table of the block, so all
+ * nodes of a block share the same key and value strings.
+ */
+public class PbfNodeBlock {
+    private final String[] strings;
+    private final LongArrayList ids = new LongArrayList();
+    private final DoubleArrayList lats = new DoubleArrayList();
+    private final DoubleArrayList lons = new DoubleArrayList();
+    // the tags of node i are stored in keysVals[2 * tagOffsets[i], 2 * tagOffsets[i + 1])
+    private final IntArrayList tagOffsets = new IntArrayList();
+    private final IntArrayList keysVals = new IntArrayList();
+
+    PbfNodeBlock(String[] strings) {
+        this.strings = strings;
+        tagOffsets.add(0);
+    }
+
+    void addNode(long id, double lat, double lon) {
+        ids.add(id);
+        lats.add(lat);
+        lons.add(lon);
+        tagOffsets.add(keysVals.size() / 2);
+    }
+
+    /**
+     * Adds a tag to the node that was added last
+     */
+    void addTag(int keyIndex, int valueIndex) {
+        keysVals.add(keyIndex, valueIndex);
+        tagOffsets.set(tagOffsets.size() - 1, keysVals.size() / 2);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public long getId(int index) {
+        return ids.get(index);
+    }
+
+    public double getLat(int index) {
+        return lats.get(index);
+    }
+
+    public double getLon(int index) {
+        return lons.get(index);
+    }
+
+    public int getTagCount(int index) {
+        return tagOffsets.get(index + 1) - tagOffsets.get(index);
+    }
+
+    /**
+     * @return the index of the key of the given tag of the given node in the string table, see {@link #getString}
+     */
+    public int getTagKey(int index, int tag) {
+        return keysVals.get(2 * (tagOffsets.get(index) + tag));
+    }
+
+    /**
+     * @return the index of the value of the given tag of the given node in the string table, see {@link #getString}
+     */
+    public int getTagValue(int index, int tag) {
+        return keysVals.get(2 * (tagOffsets.get(index) + tag) + 1);
+    }
+
+    public String getString(int stringIndex) {
+        return strings[stringIndex];
+    }
+
+    public ReaderNode createNode(int index) {
+        ReaderNode node = new ReaderNode(getId(index), getLat(index), getLon(index));
+        for (int tag = 0; tag < getTagCount(index); tag++)
+            node.setTag(getString(getTagKey(index, tag)), getString(getTagValue(index, tag)));
+        return node;
+    }
+}
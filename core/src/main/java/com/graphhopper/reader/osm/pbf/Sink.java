@@ -25,5 +25,7 @@ import com.graphhopper.reader.ReaderElement;
 public interface Sink {
     void process(ReaderElement item);
 
+    void process(PbfNodeBlock nodes);
+
     void complete();
 }
@@ -17,7 +17,6 @@
  */
 package com.graphhopper.routing;
 
-import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.BeelineWeightApproximator;
 import com.graphhopper.routing.weighting.WeightApproximator;
@@ -25,8 +24,6 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.*;
 
-import java.util.PriorityQueue;
-
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
 
@@ -40,19 +37,20 @@ import static com.graphhopper.util.EdgeIterator.NO_EDGE;
  * @author Peter Karich
  */
 public class AStar extends AbstractRoutingAlgorithm implements EdgeToEdgeRoutingAlgorithm {
-    private GHIntObjectHashMap<AStarEntry> fromMap;
-    private PriorityQueue<AStarEntry> fromHeap;
-    private AStarEntry currEdge;
+    // the approximation is refined when this many nodes were visited and then whenever this number doubled, so
+    // updating the queue takes time proportional to the number of visited nodes at most
+    static final int FIRST_REFINEMENT = 100;
+    private SPTStore spt;
+    private int currSlot = SPTStore.NO_SLOT;
     private int visitedNodes;
     private int to = -1;
     private WeightApproximator weightApprox;
     private int fromOutEdge;
     private int toInEdge;
+    private int nextRefinement = FIRST_REFINEMENT;
 
     public AStar(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
-        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
-        initCollections(size);
         BeelineWeightApproximator defaultApprox = new BeelineWeightApproximator(nodeAccess, weighting);
         defaultApprox.setDistanceCalc(DistancePlaneProjection.DIST_PLANE);
         setApproximation(defaultApprox);
@@ -66,11 +64,6 @@ public class AStar extends AbstractRoutingAlgorithm implements EdgeToEdgeRouting
         return this;
     }
 
-    protected void initCollections(int size) {
-        fromMap = new GHIntObjectHashMap<>();
-        fromHeap = new PriorityQueue<>(size);
-    }
-
     @Override
     public Path calcPath(int from, int to) {
         return calcPath(from, to, EdgeIterator.ANY_EDGE, EdgeIterator.ANY_EDGE);
@@ -92,74 +85,77 @@ public class AStar extends AbstractRoutingAlgorithm implements EdgeToEdgeRouting
         double weightToGoal = weightApprox.approximate(from);
         if (Double.isInfinite(weightToGoal))
             return extractPath();
-        AStarEntry startEntry = new AStarEntry(EdgeIterator.NO_EDGE, from, 0 + weightToGoal, 0);
-        fromHeap.add(startEntry);
-        if (!traversalMode.isEdgeBased())
-            fromMap.put(from, currEdge);
-        runAlgo();
-        return extractPath();
+        spt = workspace == null ? new SPTStore(Math.min(Math.max(200, graph.getNodes() / 10), 2000)) : workspace.getSPTStore(traversalMode.isEdgeBased());
+        try {
+            spt.push(spt.add(EdgeIterator.NO_EDGE, from, 0 + weightToGoal, 0, SPTStore.NO_SLOT));
+            runAlgo();
+            return extractPath();
+        } finally {
+            spt = null;
+        }
     }
 
     private void runAlgo() {
         double currWeightToGoal, estimationFullWeight;
-        while (!fromHeap.isEmpty()) {
-            currEdge = fromHeap.poll();
-            if (currEdge.isDeleted())
+        while (!spt.isHeapEmpty()) {
+            currSlot = spt.poll();
+            if (spt.isDeleted(currSlot))
                 continue;
             visitedNodes++;
             if (isMaxVisitedNodesExceeded() || finished() || isTimeoutExceeded())
                 break;
 
-            int currNode = currEdge.adjNode;
+            int currNode = spt.getAdjNode(currSlot);
+            if (visitedNodes >= nextRefinement) {
+                nextRefinement *= 2;
+                if (weightApprox.refine(currNode))
+                    spt.updateHeapWeights(weightApprox::approximate);
+            }
+            int currEdge = spt.getEdge(currSlot);
+            double currWeightOfVisitedPath = spt.getWeightOfVisitedPath(currSlot);
             EdgeIterator iter = edgeExplorer.setBaseNode(currNode);
             while (iter.next()) {
-                if (!accept(iter, currEdge.edge) || (currEdge.edge == NO_EDGE && fromOutEdge != ANY_EDGE && iter.getEdge() != fromOutEdge))
+                if (!accept(iter, currEdge) || (currEdge == NO_EDGE && fromOutEdge != ANY_EDGE && iter.getEdge() != fromOutEdge))
                     continue;
 
-                double tmpWeight = GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge.edge) + currEdge.weightOfVisitedPath;
+                double tmpWeight = GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge) + currWeightOfVisitedPath;
                 if (Double.isInfinite(tmpWeight)) {
                     continue;
                 }
                 int traversalId = traversalMode.createTraversalId(iter, false);
 
-                AStarEntry ase = fromMap.get(traversalId);
-                if (ase == null || ase.weightOfVisitedPath > tmpWeight) {
+                int slot = spt.getSlot(traversalId);
+                if (slot == SPTStore.NO_SLOT || spt.getWeightOfVisitedPath(slot) > tmpWeight) {
                     int neighborNode = iter.getAdjNode();
                     currWeightToGoal = weightApprox.approximate(neighborNode);
                     if (Double.isInfinite(currWeightToGoal))
                         continue;
                     estimationFullWeight = tmpWeight + currWeightToGoal;
-                    if (ase == null) {
-                        ase = new AStarEntry(iter.getEdge(), neighborNode, estimationFullWeight, tmpWeight, currEdge);
-                        fromMap.put(traversalId, ase);
-                    } else {
-//                        assert (ase.weight > 0.9999999 * estimationFullWeight) : "Inconsistent distance estimate. It is expected weight >= estimationFullWeight but was "
-//                                + ase.weight + " < " + estimationFullWeight + " (" + ase.weight / estimationFullWeight + "), and weightOfVisitedPath:"
-//                                + ase.weightOfVisitedPath + " vs. alreadyVisitedWeight:" + alreadyVisitedWeight + " (" + ase.weightOfVisitedPath / alreadyVisitedWeight + ")";
-                        ase.setDeleted();
-                        ase = new AStarEntry(iter.getEdge(), neighborNode, estimationFullWeight, tmpWeight, currEdge);
-                        fromMap.put(traversalId, ase);
-                    }
-                    fromHeap.add(ase);
-                    updateBestPath(iter, ase, traversalId);
+                    if (slot != SPTStore.NO_SLOT)
+                        spt.setDeleted(slot);
+                    slot = spt.add(iter.getEdge(), neighborNode, estimationFullWeight, tmpWeight, currSlot);
+                    spt.putSlot(traversalId, slot);
+                    spt.push(slot);
+                    updateBestPath(iter, slot, traversalId);
                 }
             }
         }
     }
 
     private boolean finished() {
-        return currEdge.adjNode == to && (toInEdge == ANY_EDGE || currEdge.edge == toInEdge) && (fromOutEdge == ANY_EDGE || currEdge.edge != NO_EDGE);
+        int currEdge = spt.getEdge(currSlot);
+        return spt.getAdjNode(currSlot) == to && (toInEdge == ANY_EDGE || currEdge == toInEdge) && (fromOutEdge == ANY_EDGE || currEdge != NO_EDGE);
     }
 
     protected Path extractPath() {
-        if (currEdge == null || !finished())
+        if (currSlot == SPTStore.NO_SLOT || !finished())
             return createEmptyPath();
 
-        return PathExtractor.extractPath(graph, weighting, currEdge)
-                // the path extractor uses currEdge.weight to set the weight, but this is the one that includes the
-                // A* approximation, not the weight of the visited path! this is still correct, because the approximation
-                // at the to-node (the end of the route) must be zero. Still it seems clearer to set the weight explicitly.
-                .setWeight(currEdge.getWeightOfVisitedPath());
+        return PathExtractor.extractPath(graph, weighting, spt, currSlot)
+                // the path extractor uses the weight of the entry, but this is the one that includes the A* approximation,
+                // not the weight of the visited path! this is still correct, because the approximation at the to-node
+                // (the end of the route) must be zero. Still it seems clearer to set the weight explicitly.
+                .setWeight(spt.getWeightOfVisitedPath(currSlot));
     }
 
     @Override
@@ -167,7 +163,17 @@ public class AStar extends AbstractRoutingAlgorithm implements EdgeToEdgeRouting
         return visitedNodes;
     }
 
-    protected void updateBestPath(EdgeIteratorState edgeState, SPTEntry bestSPTEntry, int traversalId) {
+    /**
+     * @param slot the slot of the new best entry in the shortest path tree, see {@link #getSPT()}
+     */
+    protected void updateBestPath(EdgeIteratorState edgeState, int slot, int traversalId) {
+    }
+
+    /**
+     * @return the shortest path tree of the currently running search
+     */
+    protected SPTStore getSPT() {
+        return spt;
     }
 
     public static class AStarEntry extends SPTEntry {
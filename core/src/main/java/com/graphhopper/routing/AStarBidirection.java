@@ -17,7 +17,6 @@
  */
 package com.graphhopper.routing;
 
-import com.graphhopper.routing.AStar.AStarEntry;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.BalancedWeightApproximator;
 import com.graphhopper.routing.weighting.BeelineWeightApproximator;
@@ -25,8 +24,6 @@ import com.graphhopper.routing.weighting.WeightApproximator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.DistancePlaneProjection;
-import com.graphhopper.util.EdgeIterator;
-import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.Parameters;
 
 /**
@@ -58,6 +55,11 @@ import com.graphhopper.util.Parameters;
 public class AStarBidirection extends AbstractNonCHBidirAlgo {
     private BalancedWeightApproximator weightApprox;
     double stoppingCriterionOffset;
+    private int nextRefinement = AStar.FIRST_REFINEMENT;
+    // the keys of the last polled entries for the stopping criterion. after a refinement of the approximation they
+    // are lower bounds for the keys of the entries that are still in the queues
+    private double currFromKey;
+    private double currToKey;
 
     public AStarBidirection(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
@@ -74,31 +76,68 @@ public class AStarBidirection extends AbstractNonCHBidirAlgo {
     }
 
     @Override
-    protected boolean finished() {
-        if (finishedFrom || finishedTo)
-            return true;
+    protected void initFrom(int from, double weight) {
+        super.initFrom(from, weight);
+        currFromKey = sptFrom.getWeight(currFrom);
+    }
+
+    @Override
+    protected void initTo(int to, double weight) {
+        super.initTo(to, weight);
+        currToKey = sptTo.getWeight(currTo);
+    }
+
+    @Override
+    boolean fillEdgesFrom() {
+        boolean result = super.fillEdgesFrom();
+        currFromKey = sptFrom.getWeight(currFrom);
+        return result;
+    }
+
+    @Override
+    boolean fillEdgesTo() {
+        boolean result = super.fillEdgesTo();
+        currToKey = sptTo.getWeight(currTo);
+        return result;
+    }
 
-        return currFrom.weight + currTo.weight >= bestWeight + stoppingCriterionOffset;
+    @Override
+    protected double getCurrentFromWeight() {
+        return currFromKey;
     }
 
     @Override
-    protected SPTEntry createStartEntry(int node, double weight, boolean reverse) {
-        double heapWeight = weight + weightApprox.approximate(node, reverse);
-        return new AStarEntry(EdgeIterator.NO_EDGE, node, heapWeight, weight);
+    protected double getCurrentToWeight() {
+        return currToKey;
     }
 
     @Override
-    protected SPTEntry createEntry(EdgeIteratorState edge, double weight, SPTEntry parent, boolean reverse) {
-        int neighborNode = edge.getAdjNode();
-        double heapWeight = weight + weightApprox.approximate(neighborNode, reverse);
-        return new AStarEntry(edge.getEdge(), neighborNode, heapWeight, weight, parent);
+    protected boolean finished() {
+        if (finishedFrom || finishedTo)
+            return true;
+
+        if (visitedCountFrom + visitedCountTo >= nextRefinement) {
+            nextRefinement *= 2;
+            refineApproximation();
+        }
+        return getCurrentFromWeight() + getCurrentToWeight() >= bestWeight + stoppingCriterionOffset;
+    }
+
+    private void refineApproximation() {
+        if (!weightApprox.refine(sptFrom.getAdjNode(currFrom), sptTo.getAdjNode(currTo)))
+            return;
+        stoppingCriterionOffset = weightApprox.approximate(to, true) + weightApprox.getSlack();
+        sptFrom.updateHeapWeights(node -> weightApprox.approximate(node, false));
+        sptTo.updateHeapWeights(node -> weightApprox.approximate(node, true));
+        // the stopping criterion needs lower bounds for the keys of the entries that are still in the queues. an
+        // empty queue means that the search in this direction is exhausted
+        currFromKey = sptFrom.isHeapEmpty() ? Double.POSITIVE_INFINITY : sptFrom.getWeight(sptFrom.peek());
+        currToKey = sptTo.isHeapEmpty() ? Double.POSITIVE_INFINITY : sptTo.getWeight(sptTo.peek());
     }
 
     @Override
-    protected double calcWeight(EdgeIteratorState iter, SPTEntry currEdge, boolean reverse) {
-        // TODO performance: check if the node is already existent in the opposite direction
-        // then we could avoid the approximation as we already know the exact complete path!
-        return super.calcWeight(iter, currEdge, reverse);
+    protected double calcHeapWeight(int node, double weightOfVisitedPath, boolean reverse) {
+        return weightOfVisitedPath + weightApprox.approximate(node, reverse);
     }
 
     public WeightApproximator getApproximation() {
@@ -110,11 +149,6 @@ public class AStarBidirection extends AbstractNonCHBidirAlgo {
         return this;
     }
 
-    @Override
-    void setToDataStructures(AbstractBidirAlgo other) {
-        throw new UnsupportedOperationException();
-    }
-
     @Override
     public String getName() {
         return Parameters.Algorithms.ASTAR_BI + "|" + weightApprox;
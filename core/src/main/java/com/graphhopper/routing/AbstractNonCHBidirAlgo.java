@@ -17,7 +17,6 @@
  */
 package com.graphhopper.routing;
 
-import com.carrotsearch.hppc.IntObjectMap;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
@@ -28,12 +27,14 @@ import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 
-import java.util.PriorityQueue;
-
+import static com.graphhopper.routing.SPTStore.NO_SLOT;
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 
 /**
  * Common subclass for bidirectional algorithms.
+ * <p>
+ * The shortest path trees of the forward and backward search are kept in a {@link SPTStore} each. They are taken from
+ * the {@link RoutingWorkspace} if there is one and are allocated for every search otherwise.
  *
  * @author Peter Karich
  * @author easbar
@@ -45,6 +46,13 @@ public abstract class AbstractNonCHBidirAlgo extends AbstractBidirAlgo implement
     protected final Weighting weighting;
     protected EdgeExplorer edgeExplorer;
     protected EdgeFilter additionalEdgeFilter;
+    protected SPTStore sptFrom;
+    protected SPTStore sptTo;
+    private SPTStore sptOther;
+    protected int currFrom = NO_SLOT;
+    protected int currTo = NO_SLOT;
+    protected int bestFwdSlot = NO_SLOT;
+    protected int bestBwdSlot = NO_SLOT;
 
     public AbstractNonCHBidirAlgo(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(tMode);
@@ -54,25 +62,85 @@ public abstract class AbstractNonCHBidirAlgo extends AbstractBidirAlgo implement
         this.graph = graph;
         this.nodeAccess = graph.getNodeAccess();
         edgeExplorer = graph.createEdgeExplorer();
-        int size = Math.min(Math.max(200, graph.getNodes() / 10), 150_000);
-        initCollections(size);
     }
 
     /**
-     * Creates a new entry of the shortest path tree (a {@link SPTEntry} or one of its subclasses) during a dijkstra
-     * expansion.
-     *
-     * @param edge    the edge that is currently processed for the expansion
-     * @param weight  the weight the shortest path three entry should carry
-     * @param parent  the parent entry of in the shortest path tree
-     * @param reverse true if we are currently looking at the backward search, false otherwise
+     * @param node                the adjacent node of a new shortest path tree entry
+     * @param weightOfVisitedPath the weight of the path from the start (forward) or to the target (backward) to the node
+     * @param reverse             true if we are currently looking at the backward search, false otherwise
+     * @return the weight that is used to order the priority queue
      */
-    protected abstract SPTEntry createEntry(EdgeIteratorState edge, double weight, SPTEntry parent, boolean reverse);
+    protected abstract double calcHeapWeight(int node, double weightOfVisitedPath, boolean reverse);
 
     protected DefaultBidirPathExtractor createPathExtractor(Graph graph, Weighting weighting) {
         return new DefaultBidirPathExtractor(graph, weighting);
     }
 
+    private void ensureStores() {
+        if (sptFrom != null)
+            return;
+        if (workspace != null) {
+            sptFrom = workspace.getSPTStore(traversalMode.isEdgeBased(), false);
+            sptTo = workspace.getSPTStore(traversalMode.isEdgeBased(), true);
+        } else {
+            int capacity = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
+            sptFrom = new SPTStore(capacity);
+            sptTo = new SPTStore(capacity);
+        }
+    }
+
+    @Override
+    protected boolean isSearchStarted() {
+        return sptFrom != null;
+    }
+
+    @Override
+    protected void initFrom(int from, double weight) {
+        ensureStores();
+        this.from = from;
+        currFrom = sptFrom.add(EdgeIterator.NO_EDGE, from, calcHeapWeight(from, weight, false), weight, NO_SLOT);
+        sptFrom.push(currFrom);
+        if (!traversalMode.isEdgeBased()) {
+            sptFrom.putSlot(from, currFrom);
+        }
+    }
+
+    @Override
+    protected void initTo(int to, double weight) {
+        ensureStores();
+        this.to = to;
+        currTo = sptTo.add(EdgeIterator.NO_EDGE, to, calcHeapWeight(to, weight, true), weight, NO_SLOT);
+        sptTo.push(currTo);
+        if (!traversalMode.isEdgeBased()) {
+            sptTo.putSlot(to, currTo);
+        }
+    }
+
+    @Override
+    protected void postInit(int from, int to) {
+        if (!traversalMode.isEdgeBased()) {
+            if (updateBestPath) {
+                // the start entries already meet if from and to are the same
+                sptOther = sptFrom;
+                updateBestPath(Double.POSITIVE_INFINITY, currTo, to, true);
+            }
+        } else if (from == to && fromOutEdge == ANY_EDGE && toInEdge == ANY_EDGE) {
+            // special handling if start and end are the same and no directions are restricted
+            // the resulting weight should be zero
+            if (sptFrom.getWeight(currFrom) != 0 || sptTo.getWeight(currTo) != 0) {
+                throw new IllegalStateException("If from=to, the starting weight must be zero for from and to");
+            }
+            bestFwdSlot = currFrom;
+            bestBwdSlot = currTo;
+            bestWeight = 0;
+            finishedFrom = true;
+            finishedTo = true;
+            return;
+        }
+        postInitFrom();
+        postInitTo();
+    }
+
     protected void postInitFrom() {
         if (fromOutEdge == ANY_EDGE) {
             fillEdgesFrom();
@@ -110,10 +178,10 @@ public abstract class AbstractNonCHBidirAlgo extends AbstractBidirAlgo implement
     @Override
     boolean fillEdgesFrom() {
         while (true) {
-            if (pqOpenSetFrom.isEmpty())
+            if (sptFrom.isHeapEmpty())
                 return false;
-            currFrom = pqOpenSetFrom.poll();
-            if (!currFrom.isDeleted())
+            currFrom = sptFrom.poll();
+            if (!sptFrom.isDeleted(currFrom))
                 break;
         }
         visitedCountFrom++;
@@ -123,18 +191,18 @@ public abstract class AbstractNonCHBidirAlgo extends AbstractBidirAlgo implement
         if (fwdSearchCanBeStopped()) {
             return false;
         }
-        bestWeightMapOther = bestWeightMapTo;
-        fillEdges(currFrom, pqOpenSetFrom, bestWeightMapFrom, false);
+        sptOther = sptTo;
+        fillEdges(sptFrom, currFrom, false);
         return true;
     }
 
     @Override
     boolean fillEdgesTo() {
         while (true) {
-            if (pqOpenSetTo.isEmpty())
+            if (sptTo.isHeapEmpty())
                 return false;
-            currTo = pqOpenSetTo.poll();
-            if (!currTo.isDeleted())
+            currTo = sptTo.poll();
+            if (!sptTo.isDeleted(currTo))
                 break;
         }
         visitedCountTo++;
@@ -144,68 +212,100 @@ public abstract class AbstractNonCHBidirAlgo extends AbstractBidirAlgo implement
         if (bwdSearchCanBeStopped()) {
             return false;
         }
-        bestWeightMapOther = bestWeightMapFrom;
-        fillEdges(currTo, pqOpenSetTo, bestWeightMapTo, true);
+        sptOther = sptFrom;
+        fillEdges(sptTo, currTo, true);
         return true;
     }
 
-    private void fillEdges(SPTEntry currEdge, PriorityQueue<SPTEntry> prioQueue, IntObjectMap<SPTEntry> bestWeightMap, boolean reverse) {
-        EdgeIterator iter = edgeExplorer.setBaseNode(currEdge.adjNode);
+    private void fillEdges(SPTStore spt, int currSlot, boolean reverse) {
+        int currEdge = spt.getEdge(currSlot);
+        EdgeIterator iter = edgeExplorer.setBaseNode(spt.getAdjNode(currSlot));
         while (iter.next()) {
-            if (!accept(iter, currEdge.edge))
+            if (!accept(iter, currEdge))
                 continue;
 
-            final double weight = calcWeight(iter, currEdge, reverse);
+            final double weight = calcWeight(iter, spt, currSlot, reverse);
             if (Double.isInfinite(weight)) {
                 continue;
             }
             final int traversalId = traversalMode.createTraversalId(iter, reverse);
-            SPTEntry entry = bestWeightMap.get(traversalId);
-            if (entry == null) {
-                entry = createEntry(iter, weight, currEdge, reverse);
-                bestWeightMap.put(traversalId, entry);
-                prioQueue.add(entry);
-            } else if (entry.getWeightOfVisitedPath() > weight) {
+            int slot = spt.getSlot(traversalId);
+            boolean isBestEntry = false;
+            if (slot != NO_SLOT) {
+                if (spt.getWeightOfVisitedPath(slot) <= weight)
+                    continue;
                 // flagging this entry, so it will be ignored when it is polled the next time
-                entry.setDeleted();
-                boolean isBestEntry = reverse ? (entry == bestBwdEntry) : (entry == bestFwdEntry);
-                entry = createEntry(iter, weight, currEdge, reverse);
-                bestWeightMap.put(traversalId, entry);
-                prioQueue.add(entry);
-                // if this is the best entry we need to update the best reference as well
-                if (isBestEntry)
-                    if (reverse)
-                        bestBwdEntry = entry;
-                    else
-                        bestFwdEntry = entry;
-            } else
-                continue;
+                spt.setDeleted(slot);
+                isBestEntry = reverse ? (slot == bestBwdSlot) : (slot == bestFwdSlot);
+            }
+            slot = spt.add(iter.getEdge(), iter.getAdjNode(), calcHeapWeight(iter.getAdjNode(), weight, reverse), weight, currSlot);
+            spt.putSlot(traversalId, slot);
+            spt.push(slot);
+            // if this is the best entry we need to update the best reference as well
+            if (isBestEntry)
+                if (reverse)
+                    bestBwdSlot = slot;
+                else
+                    bestFwdSlot = slot;
 
             if (updateBestPath) {
                 // only needed for edge-based -> skip the calculation and use dummy value otherwise
                 double edgeWeight = traversalMode.isEdgeBased() ? weighting.calcEdgeWeight(iter, reverse) : Double.POSITIVE_INFINITY;
-                // todo: performance - if bestWeightMapOther.get(traversalId) == null, updateBestPath will exit early and we might
+                // todo: performance - if sptOther.getSlot(traversalId) == NO_SLOT, updateBestPath will exit early and we might
                 // have calculated the edgeWeight unnecessarily
-                updateBestPath(edgeWeight, entry, EdgeIterator.NO_EDGE, traversalId, reverse);
+                updateBestPath(edgeWeight, slot, traversalId, reverse);
             }
         }
     }
 
-    protected double calcWeight(EdgeIteratorState iter, SPTEntry currEdge, boolean reverse) {
+    /**
+     * @param slot the slot of the new entry in {@link #sptTo} (reverse) or {@link #sptFrom}
+     */
+    protected void updateBestPath(double edgeWeight, int slot, int traversalId, boolean reverse) {
+        assert traversalMode.isEdgeBased() != Double.isInfinite(edgeWeight);
+        int otherSlot = sptOther.getSlot(traversalId);
+        if (otherSlot == NO_SLOT)
+            return;
+
+        // update μ
+        SPTStore spt = reverse ? sptTo : sptFrom;
+        double weight = spt.getWeightOfVisitedPath(slot) + sptOther.getWeightOfVisitedPath(otherSlot);
+        if (traversalMode.isEdgeBased()) {
+            if (sptOther.getEdge(otherSlot) != spt.getEdge(slot))
+                throw new IllegalStateException("cannot happen for edge based execution of " + getName());
+
+            // prevents the path to contain the edge at the meeting point twice and subtracts the weight (excluding turn weight => no previous edge)
+            slot = spt.getParent(slot);
+            weight -= edgeWeight;
+        }
+
+        if (weight < bestWeight) {
+            bestFwdSlot = reverse ? otherSlot : slot;
+            bestBwdSlot = reverse ? slot : otherSlot;
+            bestWeight = weight;
+        }
+    }
+
+    protected double calcWeight(EdgeIteratorState iter, SPTStore spt, int currSlot, boolean reverse) {
         // note that for node-based routing the weights will be wrong in case the weighting is returning non-zero
         // turn weights, see discussion in #1960
-        return GHUtility.calcWeightWithTurnWeight(weighting, iter, reverse, currEdge.edge) + currEdge.getWeightOfVisitedPath();
+        return GHUtility.calcWeightWithTurnWeight(weighting, iter, reverse, spt.getEdge(currSlot)) + spt.getWeightOfVisitedPath(currSlot);
+    }
+
+    @Override
+    protected double getCurrentFromWeight() {
+        return sptFrom.getWeight(currFrom);
     }
 
     @Override
-    protected double getInEdgeWeight(SPTEntry entry) {
-        return weighting.calcEdgeWeight(graph.getEdgeIteratorState(entry.edge, entry.adjNode), false);
+    protected double getCurrentToWeight() {
+        return sptTo.getWeight(currTo);
     }
 
     @Override
     protected Path extractPath() {
         if (finished())
-            return createPathExtractor(graph, weighting).extract(bestFwdEntry, bestBwdEntry, bestWeight);
+            return createPathExtractor(graph, weighting).extract(sptFrom, bestFwdSlot, sptTo, bestBwdSlot, bestWeight);
 
         return createEmptyPath();
     }
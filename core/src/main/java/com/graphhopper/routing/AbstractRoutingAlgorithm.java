@@ -38,6 +38,7 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
     protected final EdgeExplorer edgeExplorer;
     protected int maxVisitedNodes = Integer.MAX_VALUE;
     protected long timeoutMillis = Long.MAX_VALUE;
+    protected RoutingWorkspace workspace;
     private long finishTimeMillis = Long.MAX_VALUE;
     private boolean alreadyRun;
 
@@ -66,6 +67,11 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
         this.timeoutMillis = timeoutMillis;
     }
 
+    @Override
+    public void setWorkspace(RoutingWorkspace workspace) {
+        this.workspace = workspace;
+    }
+
     protected boolean accept(EdgeIteratorState iter, int prevOrNextEdgeId) {
         // for edge-based traversal we leave it for TurnWeighting to decide whether or not a u-turn is acceptable,
         // but for node-based traversal we exclude such a turn for performance reasons already here
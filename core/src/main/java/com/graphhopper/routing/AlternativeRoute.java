@@ -207,11 +207,26 @@ public class AlternativeRoute extends AStarBidirection implements RoutingAlgorit
             return true;
 
         // increase overlap of both searches:
-        return currFrom.weight + currTo.weight > explorationFactor * (bestWeight + stoppingCriterionOffset);
+        return getCurrentFromWeight() + getCurrentToWeight() > explorationFactor * (bestWeight + stoppingCriterionOffset);
         // This is more precise but takes roughly 20% longer: return currFrom.weight > bestWeight && currTo.weight > bestWeight;
         // For bidir A* and AStarEdge.getWeightOfVisitedPath see comment in AStarBidirection.finished
     }
 
+    /**
+     * @return the best entry for every traversal id of the given shortest path tree. The entries are put in the order
+     * they were first found, so the iteration order of the map does not depend on the store.
+     */
+    private GHIntObjectHashMap<SPTEntry> createEntryMap(SPTStore spt, SPTEntry[] entries) {
+        GHIntObjectHashMap<SPTEntry> map = new GHIntObjectHashMap<>(Math.min(Math.max(200, graph.getNodes() / 10), 150_000));
+        for (int slot = 0; slot < spt.size(); slot++) {
+            int traversalId = spt.getTraversalId(slot);
+            if (traversalId == -1 || map.containsKey(traversalId))
+                continue;
+            map.put(traversalId, spt.createEntry(spt.getSlot(traversalId), entries));
+        }
+        return map;
+    }
+
     public Path searchBest(int from, int to) {
         init(from, 0, to, 0);
         // init collections and bestPath.getWeight properly
@@ -228,6 +243,13 @@ public class AlternativeRoute extends AStarBidirection implements RoutingAlgorit
                                                   final double maxShareFactor, final double shareInfluence,
                                                   final double minPlateauFactor, final double plateauInfluence) {
         final double maxWeight = maxWeightFactor * bestWeight;
+        // the alternatives are found by looking at the shortest path tree entries, so we need them as SPTEntry objects
+        final SPTEntry[] fromEntries = new SPTEntry[sptFrom.size()];
+        final SPTEntry[] toEntries = new SPTEntry[sptTo.size()];
+        final GHIntObjectHashMap<SPTEntry> bestWeightMapFrom = createEntryMap(sptFrom, fromEntries);
+        final GHIntObjectHashMap<SPTEntry> bestWeightMapTo = createEntryMap(sptTo, toEntries);
+        final SPTEntry bestFwdEntry = bestFwdSlot == SPTStore.NO_SLOT ? null : sptFrom.createEntry(bestFwdSlot, fromEntries);
+        final SPTEntry bestBwdEntry = bestBwdSlot == SPTStore.NO_SLOT ? null : sptTo.createEntry(bestBwdSlot, toEntries);
         final GHIntObjectHashMap<IntSet> traversalIdMap = new GHIntObjectHashMap<>();
         final AtomicInteger startTID = addToMap(traversalIdMap, bestPath);
 
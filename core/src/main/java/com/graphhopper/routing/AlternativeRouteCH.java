@@ -63,6 +63,12 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
         return currFrom.weight >= bestWeight * maxWeightFactor && currTo.weight >= bestWeight * maxWeightFactor;
     }
 
+    @Override
+    public void setWorkspace(RoutingWorkspace workspace) {
+        // the alternatives are collected by iterating the maps and their order depends on the capacity of the maps,
+        // so reused maps could change the result
+    }
+
     @Override
     public int getVisitedNodes() {
         return visitedCountFrom + visitedCountTo + extraVisitedNodes;
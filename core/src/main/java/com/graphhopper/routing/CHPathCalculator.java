@@ -34,6 +34,7 @@ public class CHPathCalculator implements PathCalculator {
     private final PMap algoOpts;
     private String debug;
     private int visitedNodes;
+    private RoutingWorkspace workspace;
 
     public CHPathCalculator(CHRoutingAlgorithmFactory algoFactory, PMap algoOpts) {
         this.algoFactory = algoFactory;
@@ -51,6 +52,8 @@ public class CHPathCalculator implements PathCalculator {
     private EdgeToEdgeRoutingAlgorithm createAlgo() {
         StopWatch sw = new StopWatch().start();
         EdgeToEdgeRoutingAlgorithm algo = algoFactory.createAlgo(algoOpts);
+        if (workspace != null)
+            algo.setWorkspace(workspace);
         debug = ", algoInit:" + (sw.stop().getNanos() / 1000) + " μs";
         return algo;
     }
@@ -75,6 +78,11 @@ public class CHPathCalculator implements PathCalculator {
         return paths;
     }
 
+    @Override
+    public void setWorkspace(RoutingWorkspace workspace) {
+        this.workspace = workspace;
+    }
+
     @Override
     public String getDebugString() {
         return debug;
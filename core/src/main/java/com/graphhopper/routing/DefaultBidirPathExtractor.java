@@ -62,6 +62,42 @@ public class DefaultBidirPathExtractor implements BidirPathExtractor {
         return path;
     }
 
+    /**
+     * Same as {@link #extract(SPTEntry, SPTEntry, double)}, but for the shortest path trees of a search that keeps its
+     * entries in {@link SPTStore}s.
+     */
+    public Path extract(SPTStore fwdSpt, int fwdSlot, SPTStore bwdSpt, int bwdSlot, double weight) {
+        if (fwdSlot == SPTStore.NO_SLOT || bwdSlot == SPTStore.NO_SLOT) {
+            // path not found
+            return path;
+        }
+        if (fwdSpt.getAdjNode(fwdSlot) != bwdSpt.getAdjNode(bwdSlot))
+            throw new IllegalStateException("forward and backward entries must have same adjacent nodes, fwdNode:"
+                    + fwdSpt.getAdjNode(fwdSlot) + ", bwdNode:" + bwdSpt.getAdjNode(bwdSlot));
+
+        StopWatch sw = new StopWatch().start();
+        onFwdTreeRoot(followParentsUntilRoot(fwdSpt, fwdSlot, false));
+        // since we followed the fwd path in backward direction we need to reverse the edge ids
+        ArrayUtil.reverse(path.getEdges());
+        onMeetingPoint(fwdSpt.getEdge(fwdSlot), fwdSpt.getAdjNode(fwdSlot), bwdSpt.getEdge(bwdSlot));
+        onBwdTreeRoot(followParentsUntilRoot(bwdSpt, bwdSlot, true));
+        setExtractionTime(sw.stop().getNanos());
+        path.setFound(true);
+        path.setWeight(weight);
+        return path;
+    }
+
+    private int followParentsUntilRoot(SPTStore spt, int slot, boolean reverse) {
+        int currSlot = slot;
+        int parentSlot = spt.getParent(currSlot);
+        while (EdgeIterator.Edge.isValid(spt.getEdge(currSlot))) {
+            onEdge(spt.getEdge(currSlot), spt.getAdjNode(currSlot), reverse, spt.getEdge(parentSlot));
+            currSlot = parentSlot;
+            parentSlot = spt.getParent(currSlot);
+        }
+        return spt.getAdjNode(currSlot);
+    }
+
     protected void extractFwdPath(SPTEntry sptEntry) {
         SPTEntry fwdRoot = followParentsUntilRoot(sptEntry, false);
         onFwdTreeRoot(fwdRoot.adjNode);
@@ -17,8 +17,6 @@
  */
 package com.graphhopper.routing;
 
-import com.carrotsearch.hppc.IntObjectMap;
-import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
@@ -27,31 +25,23 @@ import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Parameters;
 
-import java.util.PriorityQueue;
-
 /**
  * Implements a single source shortest path algorithm
  * http://en.wikipedia.org/wiki/Dijkstra's_algorithm
  * <p>
+ * The shortest path tree is kept in a {@link SPTStore} that is reused for the next search of the same thread.
+ * <p>
  *
  * @author Peter Karich
  */
 public class Dijkstra extends AbstractRoutingAlgorithm {
-    protected IntObjectMap<SPTEntry> fromMap;
-    protected PriorityQueue<SPTEntry> fromHeap;
-    protected SPTEntry currEdge;
+    protected SPTStore spt;
+    protected int currSlot = SPTStore.NO_SLOT;
     private int visitedNodes;
     private int to = -1;
 
     public Dijkstra(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
-        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
-        initCollections(size);
-    }
-
-    protected void initCollections(int size) {
-        fromHeap = new PriorityQueue<>(size);
-        fromMap = new GHIntObjectHashMap<>(size);
     }
 
     @Override
@@ -59,62 +49,62 @@ public class Dijkstra extends AbstractRoutingAlgorithm {
         checkAlreadyRun();
         setupFinishTime();
         this.to = to;
-        SPTEntry startEntry = new SPTEntry(from, 0);
-        fromHeap.add(startEntry);
-        if (!traversalMode.isEdgeBased())
-            fromMap.put(from, currEdge);
-        runAlgo();
-        return extractPath();
+        spt = workspace == null ? new SPTStore(Math.min(Math.max(200, graph.getNodes() / 10), 2000)) : workspace.getSPTStore(traversalMode.isEdgeBased());
+        try {
+            spt.push(spt.add(EdgeIterator.NO_EDGE, from, 0, 0, SPTStore.NO_SLOT));
+            runAlgo();
+            return extractPath();
+        } finally {
+            spt = null;
+        }
     }
 
     protected void runAlgo() {
-        while (!fromHeap.isEmpty()) {
-            currEdge = fromHeap.poll();
-            if (currEdge.isDeleted())
+        while (!spt.isHeapEmpty()) {
+            currSlot = spt.poll();
+            if (spt.isDeleted(currSlot))
                 continue;
             visitedNodes++;
             if (isMaxVisitedNodesExceeded() || finished() || isTimeoutExceeded())
                 break;
 
-            int currNode = currEdge.adjNode;
+            int currNode = spt.getAdjNode(currSlot);
+            int currEdge = spt.getEdge(currSlot);
+            double currWeight = spt.getWeight(currSlot);
             EdgeIterator iter = edgeExplorer.setBaseNode(currNode);
             while (iter.next()) {
-                if (!accept(iter, currEdge.edge))
+                if (!accept(iter, currEdge))
                     continue;
 
-                double tmpWeight = GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge.edge) + currEdge.weight;
+                double tmpWeight = GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge) + currWeight;
                 if (Double.isInfinite(tmpWeight)) {
                     continue;
                 }
                 int traversalId = traversalMode.createTraversalId(iter, false);
 
-                SPTEntry nEdge = fromMap.get(traversalId);
-                if (nEdge == null) {
-                    nEdge = new SPTEntry(iter.getEdge(), iter.getAdjNode(), tmpWeight, currEdge);
-                    fromMap.put(traversalId, nEdge);
-                    fromHeap.add(nEdge);
-                } else if (nEdge.weight > tmpWeight) {
-                    nEdge.setDeleted();
-                    nEdge = new SPTEntry(iter.getEdge(), iter.getAdjNode(), tmpWeight, currEdge);
-                    fromMap.put(traversalId, nEdge);
-                    fromHeap.add(nEdge);
-                } else
-                    continue;
-
-                updateBestPath(iter, nEdge, traversalId);
+                int slot = spt.getSlot(traversalId);
+                if (slot != SPTStore.NO_SLOT) {
+                    if (spt.getWeight(slot) <= tmpWeight)
+                        continue;
+                    spt.setDeleted(slot);
+                }
+                slot = spt.add(iter.getEdge(), iter.getAdjNode(), tmpWeight, tmpWeight, currSlot);
+                spt.putSlot(traversalId, slot);
+                spt.push(slot);
+                updateBestPath(iter, slot, traversalId);
             }
         }
     }
 
     protected boolean finished() {
-        return currEdge.adjNode == to;
+        return spt.getAdjNode(currSlot) == to;
     }
 
     private Path extractPath() {
-        if (currEdge == null || !finished())
+        if (currSlot == SPTStore.NO_SLOT || !finished())
             return createEmptyPath();
 
-        return PathExtractor.extractPath(graph, weighting, currEdge);
+        return PathExtractor.extractPath(graph, weighting, spt, currSlot);
     }
 
     @Override
@@ -122,7 +112,10 @@ public class Dijkstra extends AbstractRoutingAlgorithm {
         return visitedNodes;
     }
 
-    protected void updateBestPath(EdgeIteratorState edgeState, SPTEntry bestSPTEntry, int traversalId) {
+    /**
+     * @param slot the slot of the new best entry in {@link #spt}
+     */
+    protected void updateBestPath(EdgeIteratorState edgeState, int slot, int traversalId) {
     }
 
     @Override
@@ -20,7 +20,6 @@ package com.graphhopper.routing;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
-import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.Parameters;
 
 /**
@@ -37,17 +36,8 @@ public class DijkstraBidirectionRef extends AbstractNonCHBidirAlgo {
     }
 
     @Override
-    protected SPTEntry createStartEntry(int node, double weight, boolean reverse) {
-        return new SPTEntry(node, weight);
-    }
-
-    @Override
-    protected SPTEntry createEntry(EdgeIteratorState edge, double weight, SPTEntry parent, boolean reverse) {
-        return new SPTEntry(edge.getEdge(), edge.getAdjNode(), weight, parent);
-    }
-
-    protected SPTEntry getParent(SPTEntry entry) {
-        return entry.getParent();
+    protected double calcHeapWeight(int node, double weightOfVisitedPath, boolean reverse) {
+        return weightOfVisitedPath;
     }
 
     @Override
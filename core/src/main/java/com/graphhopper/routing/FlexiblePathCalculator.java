@@ -37,6 +37,7 @@ public class FlexiblePathCalculator implements PathCalculator {
     private final AlgorithmOptions algoOpts;
     private String debug;
     private int visitedNodes;
+    private RoutingWorkspace workspace;
 
     public FlexiblePathCalculator(QueryGraph queryGraph, RoutingAlgorithmFactory algoFactory, Weighting weighting, AlgorithmOptions algoOpts) {
         this.queryGraph = queryGraph;
@@ -54,6 +55,8 @@ public class FlexiblePathCalculator implements PathCalculator {
     private RoutingAlgorithm createAlgo() {
         StopWatch sw = new StopWatch().start();
         RoutingAlgorithm algo = algoFactory.createAlgo(queryGraph, weighting, algoOpts);
+        if (workspace != null)
+            algo.setWorkspace(workspace);
         debug = ", algoInit:" + (sw.stop().getNanos() / 1000) + " μs";
         return algo;
     }
@@ -91,6 +94,11 @@ public class FlexiblePathCalculator implements PathCalculator {
         return paths;
     }
 
+    @Override
+    public void setWorkspace(RoutingWorkspace workspace) {
+        this.workspace = workspace;
+    }
+
     @Override
     public String getDebugString() {
         return debug;
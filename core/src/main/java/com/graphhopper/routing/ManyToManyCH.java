@@ -0,0 +1,251 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.ch.CHEntry;
+import com.graphhopper.routing.ch.EdgeBasedCHBidirPathExtractor;
+import com.graphhopper.routing.ch.NodeBasedCHBidirPathExtractor;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.CHEdgeFilter;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.GHUtility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Calculates the shortest path weights between many sources and many targets using the bucket-based CH algorithm
+ * described in 'Computing Many-to-Many Shortest Paths Using Highway Hierarchies' by Knopp et al. First an upward
+ * backward search is run for every target and every settled entry is stored in the bucket of its node. Then an upward
+ * forward search is run for every source and the buckets of all settled nodes are scanned to find the best meeting
+ * node for every target. Since both searches only go upwards in the CH hierarchy they are small and the total effort
+ * is much lower than running one bidirectional search for every source/target pair.
+ * <p>
+ * Node- and edge-based CH graphs are supported. For edge-based CH the turn costs at the meeting node are added. The
+ * times and distances are calculated by unpacking the shortcuts of the best paths, which is only done if requested.
+ *
+ * @see DijkstraBidirectionCH for the one-to-one query
+ */
+public class ManyToManyCH {
+    private final RoutingCHGraph graph;
+    private final TraversalMode traversalMode;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final CHEdgeFilter levelEdgeFilter;
+    private int visitedNodes;
+
+    public ManyToManyCH(RoutingCHGraph graph) {
+        this.graph = graph;
+        this.traversalMode = graph.isEdgeBased() ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED;
+        inEdgeExplorer = graph.createInEdgeExplorer();
+        outEdgeExplorer = graph.createOutEdgeExplorer();
+        levelEdgeFilter = new AbstractBidirCHAlgo.CHLevelEdgeFilter(graph);
+    }
+
+    public static class Result {
+        /**
+         * The weights of the shortest paths, or infinity if there is no path.
+         */
+        public final double[][] weights;
+        /**
+         * The times in milliseconds, or Long.MAX_VALUE if there is no path. null if they were not calculated.
+         */
+        public final long[][] times;
+        /**
+         * The distances in meter, or infinity if there is no path. null if they were not calculated.
+         */
+        public final double[][] distances;
+
+        Result(int sources, int targets, boolean withTimesAndDistances) {
+            weights = new double[sources][targets];
+            times = withTimesAndDistances ? new long[sources][targets] : null;
+            distances = withTimesAndDistances ? new double[sources][targets] : null;
+        }
+    }
+
+    /**
+     * @param sources               the source nodes, negative values are skipped, e.g. for points that could not be
+     *                              snapped, and their rows contain no paths
+     * @param targets               the target nodes, negative values are skipped like for the sources
+     * @param withTimesAndDistances if true the times and distances of the paths are calculated as well
+     */
+    public Result calcMatrix(int[] sources, int[] targets, boolean withTimesAndDistances) {
+        Result result = new Result(sources.length, targets.length, withTimesAndDistances);
+        IntObjectMap<Bucket> buckets = new GHIntObjectHashMap<>();
+        for (int t = 0; t < targets.length; t++) {
+            if (targets[t] < 0)
+                continue;
+            for (SPTEntry entry : search(targets[t], true)) {
+                Bucket bucket = buckets.get(entry.adjNode);
+                if (bucket == null) {
+                    bucket = new Bucket();
+                    buckets.put(entry.adjNode, bucket);
+                }
+                bucket.targets.add(t);
+                bucket.entries.add(entry);
+            }
+        }
+
+        SPTEntry[] bestFwdEntries = new SPTEntry[targets.length];
+        SPTEntry[] bestBwdEntries = new SPTEntry[targets.length];
+        for (int s = 0; s < sources.length; s++) {
+            double[] weights = result.weights[s];
+            Arrays.fill(weights, Double.POSITIVE_INFINITY);
+            Arrays.fill(bestFwdEntries, null);
+            Arrays.fill(bestBwdEntries, null);
+            if (sources[s] >= 0) {
+                for (SPTEntry fwdEntry : search(sources[s], false)) {
+                    Bucket bucket = buckets.get(fwdEntry.adjNode);
+                    if (bucket == null)
+                        continue;
+                    for (int i = 0; i < bucket.entries.size(); i++) {
+                        SPTEntry bwdEntry = bucket.entries.get(i);
+                        double weight = fwdEntry.getWeightOfVisitedPath() + bwdEntry.getWeightOfVisitedPath();
+                        if (traversalMode.isEdgeBased())
+                            weight += graph.getTurnWeight(((CHEntry) fwdEntry).incEdge, fwdEntry.adjNode, ((CHEntry) bwdEntry).incEdge);
+                        int t = bucket.targets.get(i);
+                        if (weight < weights[t]) {
+                            weights[t] = weight;
+                            bestFwdEntries[t] = fwdEntry;
+                            bestBwdEntries[t] = bwdEntry;
+                        }
+                    }
+                }
+            }
+            if (withTimesAndDistances) {
+                for (int t = 0; t < targets.length; t++) {
+                    if (Double.isInfinite(weights[t])) {
+                        result.times[s][t] = Long.MAX_VALUE;
+                        result.distances[s][t] = Double.POSITIVE_INFINITY;
+                    } else {
+                        Path path = createPathExtractor().extract(bestFwdEntries[t], bestBwdEntries[t], weights[t]);
+                        result.times[s][t] = path.getTime();
+                        result.distances[s][t] = path.getDistance();
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs an upward search from the given node until the priority queue is empty.
+     *
+     * @return the settled entries of the search
+     */
+    private List<SPTEntry> search(int node, boolean reverse) {
+        IntObjectMap<SPTEntry> bestWeightMap = new GHIntObjectHashMap<>();
+        PriorityQueue<SPTEntry> queue = new PriorityQueue<>();
+        List<SPTEntry> settled = new ArrayList<>();
+        SPTEntry root = traversalMode.isEdgeBased() ? new CHEntry(node, 0) : new SPTEntry(node, 0);
+        if (!traversalMode.isEdgeBased())
+            bestWeightMap.put(node, root);
+        queue.add(root);
+        RoutingCHEdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        while (!queue.isEmpty()) {
+            SPTEntry curr = queue.poll();
+            if (curr.isDeleted())
+                continue;
+            visitedNodes++;
+            if (curr != root && !traversalMode.isEdgeBased() && entryIsStallable(curr, bestWeightMap, reverse))
+                continue;
+            settled.add(curr);
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(curr.adjNode);
+            while (iter.next()) {
+                if (traversalMode.isEdgeBased()) {
+                    // like for the edge-based one-to-one search the level filter is not used for the first step
+                    if (curr != root && !levelEdgeFilter.accept(iter))
+                        continue;
+                } else if (iter.getEdge() == curr.edge || !levelEdgeFilter.accept(iter)) {
+                    continue;
+                }
+                double weight = calcWeight(iter, curr, reverse);
+                if (Double.isInfinite(weight))
+                    continue;
+                int traversalId = traversalMode.createTraversalId(iter, reverse);
+                SPTEntry entry = bestWeightMap.get(traversalId);
+                if (entry != null && entry.getWeightOfVisitedPath() <= weight)
+                    continue;
+                if (entry != null)
+                    entry.setDeleted();
+                if (traversalMode.isEdgeBased()) {
+                    int incEdge = GHUtility.getEdgeFromEdgeKey(reverse ? iter.getOrigEdgeKeyFirst() : iter.getOrigEdgeKeyLast());
+                    entry = new CHEntry(iter.getEdge(), incEdge, iter.getAdjNode(), weight, curr);
+                } else {
+                    entry = new SPTEntry(iter.getEdge(), iter.getAdjNode(), weight, curr);
+                }
+                bestWeightMap.put(traversalId, entry);
+                queue.add(entry);
+            }
+        }
+        return settled;
+    }
+
+    private double calcWeight(RoutingCHEdgeIterator iter, SPTEntry curr, boolean reverse) {
+        double weight = iter.getWeight(reverse);
+        if (traversalMode.isEdgeBased()) {
+            int origEdge = GHUtility.getEdgeFromEdgeKey(reverse ? iter.getOrigEdgeKeyLast() : iter.getOrigEdgeKeyFirst());
+            int incEdge = ((CHEntry) curr).incEdge;
+            weight += reverse
+                    ? graph.getTurnWeight(origEdge, iter.getBaseNode(), incEdge)
+                    : graph.getTurnWeight(incEdge, iter.getBaseNode(), origEdge);
+        }
+        return weight + curr.getWeightOfVisitedPath();
+    }
+
+    /**
+     * Stall-on-demand like in {@link DijkstraBidirectionCH}: nodes that can be reached with a smaller weight via a
+     * higher level node cannot be part of a shortest path and do not need to be expanded or stored in a bucket.
+     */
+    private boolean entryIsStallable(SPTEntry entry, IntObjectMap<SPTEntry> bestWeightMap, boolean reverse) {
+        RoutingCHEdgeIterator iter = (reverse ? outEdgeExplorer : inEdgeExplorer).setBaseNode(entry.adjNode);
+        while (iter.next()) {
+            if (iter.getEdge() == entry.edge)
+                continue;
+            SPTEntry adjEntry = bestWeightMap.get(iter.getAdjNode());
+            // we have to be careful because of rounded shortcut weights in combination with virtual via nodes, see #1574
+            final double precision = 0.001;
+            if (adjEntry != null && adjEntry.weight + iter.getWeight(!reverse) - entry.weight < -precision)
+                return true;
+        }
+        return false;
+    }
+
+    private BidirPathExtractor createPathExtractor() {
+        return traversalMode.isEdgeBased() ? new EdgeBasedCHBidirPathExtractor(graph) : new NodeBasedCHBidirPathExtractor(graph);
+    }
+
+    /**
+     * @return the number of settled entries of all forward and backward searches
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private static class Bucket {
+        final IntArrayList targets = new IntArrayList(4);
+        final List<SPTEntry> entries = new ArrayList<>(4);
+    }
+}
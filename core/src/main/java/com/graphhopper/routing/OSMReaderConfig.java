@@ -18,6 +18,8 @@
 
 package com.graphhopper.routing;
 
+import com.graphhopper.storage.DAType;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,6 +35,8 @@ public class OSMReaderConfig {
     private int ramerElevationSmoothingMax = 5;
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
     private int workerThreads = 2;
+    private int parseThreads = 1;
+    private DAType nodeMapDAType = null;
     private double defaultElevation = 0;
 
     public List<String> getIgnoredHighways() {
@@ -157,6 +161,37 @@ public class OSMReaderConfig {
         return this;
     }
 
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    /**
+     * Sets the number of threads used to process the OSM ways into edges, i.e. to calculate the edge geometries and
+     * distances and to run the tag parsers. The edges are still added to the graph by a single thread, in the same
+     * order as for a single parse thread, so the resulting graph does not depend on this setting. Note that tag
+     * parsers and overridden OSMReader methods need to be thread-safe if this is larger than one.
+     */
+    public OSMReaderConfig setParseThreads(int parseThreads) {
+        if (parseThreads < 1)
+            throw new IllegalArgumentException("parse threads must be positive, but was: " + parseThreads);
+        this.parseThreads = parseThreads;
+        return this;
+    }
+
+    public DAType getNodeMapDAType() {
+        return nodeMapDAType;
+    }
+
+    /**
+     * Sets the {@link DAType} used to store the mapping between OSM node ids and internal node ids during the import.
+     * With MMAP the mapping is kept on disk instead of the heap, which is useful for big imports. If null (the default)
+     * the mapping is stored in a b-tree on the heap.
+     */
+    public OSMReaderConfig setNodeMapDAType(DAType nodeMapDAType) {
+        this.nodeMapDAType = nodeMapDAType;
+        return this;
+    }
+
     public double getDefaultElevation() {
         return defaultElevation;
     }
@@ -30,4 +30,11 @@ public interface PathCalculator {
 
     int getVisitedNodes();
 
+    /**
+     * Lets the algorithms of this calculator reuse the data structures of the given workspace, or allocate their own
+     * ones if it is null
+     */
+    default void setWorkspace(RoutingWorkspace workspace) {
+    }
+
 }
@@ -31,6 +31,10 @@ public class PathExtractor {
         return new PathExtractor(graph, weighting).extract(sptEntry);
     }
 
+    public static Path extractPath(Graph graph, Weighting weighting, SPTStore spt, int slot) {
+        return new PathExtractor(graph, weighting).extract(spt, slot);
+    }
+
     protected PathExtractor(Graph graph, Weighting weighting) {
         this.graph = graph;
         this.weighting = weighting;
@@ -50,6 +54,28 @@ public class PathExtractor {
         return path;
     }
 
+    protected Path extract(SPTStore spt, int slot) {
+        if (slot == SPTStore.NO_SLOT) {
+            // path not found
+            return path;
+        }
+        StopWatch sw = new StopWatch().start();
+        int currSlot = slot;
+        int parentSlot = spt.getParent(currSlot);
+        while (EdgeIterator.Edge.isValid(spt.getEdge(currSlot))) {
+            onEdge(spt.getEdge(currSlot), spt.getAdjNode(currSlot), spt.getEdge(parentSlot));
+            currSlot = parentSlot;
+            parentSlot = spt.getParent(currSlot);
+        }
+        ArrayUtil.reverse(path.getEdges());
+        path.setFromNode(spt.getAdjNode(currSlot));
+        path.setEndNode(spt.getAdjNode(slot));
+        path.setFound(true);
+        path.setWeight(spt.getWeight(slot));
+        setExtractionTime(sw.stop().getNanos());
+        return path;
+    }
+
     private void extractPath(SPTEntry sptEntry) {
         SPTEntry currEdge = followParentsUntilRoot(sptEntry);
         ArrayUtil.reverse(path.getEdges());
@@ -48,6 +48,7 @@ import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
 import static com.graphhopper.util.Parameters.Algorithms.ALT_ROUTE;
@@ -68,6 +69,9 @@ public class Router {
     protected final Map<String, LandmarkStorage> landmarks;
     protected final boolean chEnabled;
     protected final boolean lmEnabled;
+    private RoutingWorkspacePool workspacePool;
+    private SnapCache snapCache;
+    private ExecutorService legExecutor;
 
     public Router(BaseGraph graph, EncodingManager encodingManager, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
@@ -94,7 +98,33 @@ public class Router {
         }
     }
 
+    /**
+     * Lets the requests of this router reuse the data structures of the routing algorithms. Every request leases a
+     * workspace from the given pool and returns it when it is finished.
+     */
+    public Router setWorkspacePool(RoutingWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+        return this;
+    }
+
+    /**
+     * Lets the requests of this router share the given cache for the snaps of their points.
+     */
+    public Router setSnapCache(SnapCache snapCache) {
+        this.snapCache = snapCache;
+        return this;
+    }
+
+    /**
+     * Lets this router calculate the legs of via routes concurrently using the given executor.
+     */
+    public Router setLegExecutor(ExecutorService legExecutor) {
+        this.legExecutor = legExecutor;
+        return this;
+    }
+
     public GHResponse route(GHRequest request) {
+        RoutingWorkspace workspace = workspacePool == null ? null : workspacePool.lease();
         try {
             checkNoLegacyParameters(request);
             checkAtLeastOnePoint(request);
@@ -108,6 +138,7 @@ public class Router {
             Solver solver = createSolver(request);
             solver.checkRequest();
             solver.init();
+            solver.setWorkspace(workspace);
 
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())) {
                 if (!(solver instanceof FlexSolver))
@@ -128,6 +159,9 @@ public class Router {
             GHResponse ghRsp = new GHResponse();
             ghRsp.addError(ex);
             return ghRsp;
+        } finally {
+            if (workspace != null)
+                workspacePool.release(workspace);
         }
     }
 
@@ -245,7 +279,8 @@ public class Router {
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
         List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
-                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
+                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings(),
+                getSnapCache(request), request.getProfile());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
         PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
@@ -278,16 +313,27 @@ public class Router {
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
         List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
-                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
+                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings(),
+                getSnapCache(request), request.getProfile());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
-        PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
         String curbsideStrictness = getCurbsideStrictness(request.getHints());
-        ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
-                pathCalculator, request.getCurbsides(), curbsideStrictness, request.getHeadings(), passThrough);
+        ViaRouting.Result result;
+        if (legExecutor != null && request.getPoints().size() > 2 && ViaRouting.canCalcLegsConcurrently(request.getHeadings(), passThrough)) {
+            // the workspace of the request cannot be shared by the legs that are calculated at the same time
+            result = ViaRouting.calcPathsConcurrently(request.getPoints(), queryGraph, snaps, directedEdgeFilter, () -> {
+                PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
+                pathCalculator.setWorkspace(null);
+                return pathCalculator;
+            }, legExecutor, request.getCurbsides(), curbsideStrictness);
+        } else {
+            PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
+            result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
+                    pathCalculator, request.getCurbsides(), curbsideStrictness, request.getHeadings(), passThrough);
+        }
 
         if (request.getPoints().size() != result.paths.size() + 1)
             throw new RuntimeException("There should be exactly one more point than paths. points:" + request.getPoints().size() + ", paths:" + result.paths.size());
@@ -301,6 +347,11 @@ public class Router {
         return ghRsp;
     }
 
+    private SnapCache getSnapCache(GHRequest request) {
+        // the snap filters depend on the weighting, which is only determined by the profile without a custom model
+        return request.getCustomModel() == null ? snapCache : null;
+    }
+
     private PathMerger createPathMerger(GHRequest request, Weighting weighting, Graph graph) {
         boolean enableInstructions = request.getHints().getBool(Parameters.Routing.INSTRUCTIONS, routerConfig.isInstructionsEnabled());
         boolean calcPoints = request.getHints().getBool(Parameters.Routing.CALC_POINTS, routerConfig.isCalcPoints());
@@ -361,6 +412,7 @@ public class Router {
         protected Profile profile;
         protected Weighting weighting;
         protected final EncodedValueLookup lookup;
+        protected RoutingWorkspace workspace;
 
         public Solver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup) {
             this.request = request;
@@ -413,6 +465,13 @@ public class Router {
 
         protected abstract Weighting createWeighting();
 
+        /**
+         * @param workspace the workspace that the path calculators of this solver should use, or null
+         */
+        public void setWorkspace(RoutingWorkspace workspace) {
+            this.workspace = workspace;
+        }
+
         protected EdgeFilter createSnapFilter() {
             return new DefaultSnapFilter(weighting, lookup.getBooleanEncodedValue(Subnetwork.key(profile.getName())));
         }
@@ -486,7 +545,9 @@ public class Router {
             opts.putObject(ALGORITHM, request.getAlgorithm());
             opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
             opts.putObject(TIMEOUT_MS, getTimeoutMillis(request.getHints()));
-            return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts);
+            CHPathCalculator pathCalculator = new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts);
+            pathCalculator.setWorkspace(workspace);
+            return pathCalculator;
         }
 
         private RoutingCHGraph getRoutingCHGraph(String profileName) {
@@ -530,7 +591,9 @@ public class Router {
         @Override
         protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
             RoutingAlgorithmFactory algorithmFactory = new RoutingAlgorithmFactorySimple();
-            return new FlexiblePathCalculator(queryGraph, algorithmFactory, weighting, getAlgoOpts());
+            FlexiblePathCalculator pathCalculator = new FlexiblePathCalculator(queryGraph, algorithmFactory, weighting, getAlgoOpts());
+            pathCalculator.setWorkspace(workspace);
+            return pathCalculator;
         }
 
         protected AlgorithmOptions getAlgoOpts() {
@@ -589,8 +652,12 @@ public class Router {
                         "\navailable LM profiles: " + landmarks.keySet());
             if (request.getCustomModel() != null)
                 FindMinMax.checkLMConstraints(profile.getCustomModel(), request.getCustomModel(), lookup);
-            RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount());
-            return new FlexiblePathCalculator(queryGraph, routingAlgorithmFactory, weighting, getAlgoOpts());
+            RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage)
+                    .setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount())
+                    .setDefaultReselectActiveLandmarks(routerConfig.isReselectActiveLandmarks());
+            FlexiblePathCalculator pathCalculator = new FlexiblePathCalculator(queryGraph, routingAlgorithmFactory, weighting, getAlgoOpts());
+            pathCalculator.setWorkspace(workspace);
+            return pathCalculator;
         }
     }
 }
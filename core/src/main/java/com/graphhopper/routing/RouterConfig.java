@@ -31,6 +31,10 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private boolean reselectActiveLandmarks = false;
+    private int workspacePoolSize = 0;
+    private int snapCacheSize = 0;
+    private int legThreads = 1;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -112,6 +116,14 @@ public class RouterConfig {
         this.activeLandmarkCount = activeLandmarkCount;
     }
 
+    public boolean isReselectActiveLandmarks() {
+        return reselectActiveLandmarks;
+    }
+
+    public void setReselectActiveLandmarks(boolean reselectActiveLandmarks) {
+        this.reselectActiveLandmarks = reselectActiveLandmarks;
+    }
+
     public double getElevationWayPointMaxDistance() {
         return elevationWayPointMaxDistance;
     }
@@ -119,4 +131,42 @@ public class RouterConfig {
     public void setElevationWayPointMaxDistance(double elevationWayPointMaxDistance) {
         this.elevationWayPointMaxDistance = elevationWayPointMaxDistance;
     }
+
+    public int getWorkspacePoolSize() {
+        return workspacePoolSize;
+    }
+
+    /**
+     * Keeps up to the given number of idle {@link com.graphhopper.routing.RoutingWorkspace}s so that the data
+     * structures of the routing algorithms can be reused by later requests. The non-CH algorithms keep their shortest
+     * path trees in arrays of the workspace, the CH algorithms only reuse their queues and hash maps. Every workspace
+     * requires 16 bytes per node or, for profiles with turn costs, 32 bytes per edge of the graph. 0 disables the pooling.
+     */
+    public void setWorkspacePoolSize(int workspacePoolSize) {
+        this.workspacePoolSize = workspacePoolSize;
+    }
+
+    public int getSnapCacheSize() {
+        return snapCacheSize;
+    }
+
+    /**
+     * Caches the snaps of up to the given number of points, so that points that are requested again do not need a
+     * location index lookup, see {@link com.graphhopper.routing.SnapCache}. 0 disables the cache.
+     */
+    public void setSnapCacheSize(int snapCacheSize) {
+        this.snapCacheSize = snapCacheSize;
+    }
+
+    public int getLegThreads() {
+        return legThreads;
+    }
+
+    /**
+     * Calculates the legs of via routes with up to the given number of threads, which are shared by all requests.
+     * Routes with headings or pass_through are still calculated leg by leg. 1 disables the concurrent calculation.
+     */
+    public void setLegThreads(int legThreads) {
+        this.legThreads = legThreads;
+    }
 }
@@ -50,6 +50,13 @@ public interface RoutingAlgorithm {
      */
     void setTimeoutMillis(long timeoutMillis);
 
+    /**
+     * Reuse the data structures of the given workspace instead of allocating new ones. The workspace must not be
+     * used by another search at the same time. Algorithms that cannot reuse the data structures ignore the workspace.
+     */
+    default void setWorkspace(RoutingWorkspace workspace) {
+    }
+
     /**
      * @return name of this algorithm
      */
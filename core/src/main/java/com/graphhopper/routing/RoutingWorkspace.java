@@ -0,0 +1,90 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+
+import java.util.PriorityQueue;
+
+/**
+ * Holds the data structures of a routing algorithm so that they can be reused by the next search instead of being
+ * allocated again for every request. A workspace is used by one search at a time: every call of one of the getters
+ * clears the returned data structure, so a new search must not start before the previous one is finished. Use
+ * {@link RoutingWorkspacePool} to share workspaces between the requests of a {@link Router}.
+ * <p>
+ * {@link Dijkstra}, {@link AStar} and the non-CH bidirectional algorithms look up the shortest path tree entries of the
+ * traversal ids of the base graph in epoch-versioned arrays, see {@link SPTStore#setDenseTraversalIds(int)}. Clearing
+ * them is just an increment of the epoch. These arrays require 8 bytes per node (node-based) or per edge key
+ * (edge-based) of the base graph and search direction.
+ * <p>
+ * The CH algorithms are not ported to these arrays yet. They still create an {@link SPTEntry} object for every
+ * settled entry and only reuse their priority queues and hash maps, see {@link #getQueue(boolean)} and
+ * {@link #getMap(boolean)}.
+ */
+public class RoutingWorkspace {
+    private final int nodes;
+    private final int edges;
+    private final SPTStore sptStore = new SPTStore(1000);
+    private final SPTStore sptStoreTo = new SPTStore(1000);
+    private final PriorityQueue<SPTEntry> queueFrom = new PriorityQueue<>(1000);
+    private final PriorityQueue<SPTEntry> queueTo = new PriorityQueue<>(1000);
+    private final GHIntObjectHashMap<SPTEntry> mapFrom = new GHIntObjectHashMap<>(1000);
+    private final GHIntObjectHashMap<SPTEntry> mapTo = new GHIntObjectHashMap<>(1000);
+
+    /**
+     * @param nodes the number of nodes of the base graph
+     * @param edges the number of edges of the base graph
+     */
+    public RoutingWorkspace(int nodes, int edges) {
+        this.nodes = nodes;
+        this.edges = edges;
+    }
+
+    /**
+     * @return the cleared shortest path tree store, with dense lookup arrays for the traversal ids of the base graph
+     */
+    public SPTStore getSPTStore(boolean edgeBased) {
+        return getSPTStore(edgeBased, false);
+    }
+
+    /**
+     * @param reverse true for the store of the backward search of a bidirectional algorithm
+     * @see #getSPTStore(boolean)
+     */
+    public SPTStore getSPTStore(boolean edgeBased, boolean reverse) {
+        SPTStore store = reverse ? sptStoreTo : sptStore;
+        store.clear();
+        store.setDenseTraversalIds(edgeBased ? 2 * edges : nodes);
+        return store;
+    }
+
+    public PriorityQueue<SPTEntry> getQueue(boolean reverse) {
+        PriorityQueue<SPTEntry> queue = reverse ? queueTo : queueFrom;
+        queue.clear();
+        return queue;
+    }
+
+    public IntObjectMap<SPTEntry> getMap(boolean reverse) {
+        GHIntObjectHashMap<SPTEntry> map = reverse ? mapTo : mapFrom;
+        // clearing an empty map would still fill its buffers
+        if (!map.isEmpty())
+            map.clear();
+        return map;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.storage.BaseGraph;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of {@link RoutingWorkspace}s for a graph that is shared by concurrent requests. Leasing never blocks:
+ * if all workspaces are in use a new one is created and if the pool is full when it is released it is left to the
+ * garbage collector. So at most maxSize idle workspaces are kept.
+ */
+public class RoutingWorkspacePool {
+    private final BaseGraph graph;
+    private final BlockingQueue<RoutingWorkspace> idle;
+
+    public RoutingWorkspacePool(BaseGraph graph, int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("maxSize must be positive, was: " + maxSize);
+        this.graph = graph;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    public RoutingWorkspace lease() {
+        RoutingWorkspace workspace = idle.poll();
+        return workspace == null ? new RoutingWorkspace(graph.getNodes(), graph.getEdges()) : workspace;
+    }
+
+    public void release(RoutingWorkspace workspace) {
+        idle.offer(workspace);
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntIntHashMap;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Stores the entries of a shortest path tree in parallel primitive arrays instead of {@link SPTEntry} objects. Every
+ * entry is identified by a slot that is assigned in insertion order. The store also contains the priority queue of
+ * the search, a binary heap of slots ordered by {@link #getWeight(int)}, and the mapping from traversal ids to the
+ * slot of the current best entry.
+ * <p>
+ * Like for SPTEntry an improved entry does not replace the old one: a new slot is added and the old slot is marked as
+ * deleted so that it will be skipped when it is polled. The heap sifts entries exactly like the PriorityQueue that
+ * was used before, so the order in which entries with equal weights are polled stays the same.
+ * <p>
+ * Instances are not thread-safe. Use a {@link RoutingWorkspace} to reuse the arrays of a previous search.
+ */
+public final class SPTStore {
+    public static final int NO_SLOT = -1;
+
+    private int[] edges;
+    private int[] adjNodes;
+    private int[] parents;
+    private int[] traversalIds;
+    private double[] weights;
+    private double[] weightsOfVisitedPath;
+    private boolean[] deleted;
+    private int size;
+    private int[] heap;
+    private int heapSize;
+    private final GHIntIntHashMap slots;
+    // optional dense lookup for the traversal ids [0, denseSlots.length), an entry is only valid if its epoch matches
+    private int[] denseSlots = new int[0];
+    private int[] denseEpochs = new int[0];
+    private int denseSize;
+    private int epoch = 1;
+
+    public SPTStore(int capacity) {
+        capacity = Math.max(16, capacity);
+        edges = new int[capacity];
+        adjNodes = new int[capacity];
+        parents = new int[capacity];
+        traversalIds = new int[capacity];
+        weights = new double[capacity];
+        weightsOfVisitedPath = new double[capacity];
+        deleted = new boolean[capacity];
+        heap = new int[capacity];
+        slots = new GHIntIntHashMap(capacity);
+    }
+
+    public void clear() {
+        size = 0;
+        heapSize = 0;
+        if (!slots.isEmpty())
+            slots.clear();
+        if (denseSize > 0 && ++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(denseEpochs, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * Looks up the slots of the traversal ids [0, traversalIds) in arrays instead of the hash map. Clearing these
+     * arrays only increments an epoch counter, which makes this useful for stores that are reused by many searches on
+     * the same graph, see {@link RoutingWorkspace}. Other traversal ids, e.g. of virtual nodes, still use the hash map.
+     * This must be called on an empty store.
+     */
+    public void setDenseTraversalIds(int traversalIds) {
+        if (size > 0)
+            throw new IllegalStateException("store must be empty");
+        if (traversalIds > denseSlots.length) {
+            denseSlots = new int[traversalIds];
+            denseEpochs = new int[traversalIds];
+        } else if (traversalIds < denseSize) {
+            // entries of the ids that are no longer dense must not show up if they become dense again
+            Arrays.fill(denseEpochs, traversalIds, denseSize, 0);
+        }
+        denseSize = traversalIds;
+    }
+
+    /**
+     * Adds a new entry and returns its slot. The entry is not added to the heap, see {@link #push(int)}.
+     */
+    public int add(int edge, int adjNode, double weight, double weightOfVisitedPath, int parentSlot) {
+        if (size == edges.length)
+            grow();
+        int slot = size++;
+        edges[slot] = edge;
+        adjNodes[slot] = adjNode;
+        parents[slot] = parentSlot;
+        traversalIds[slot] = -1;
+        weights[slot] = weight;
+        weightsOfVisitedPath[slot] = weightOfVisitedPath;
+        deleted[slot] = false;
+        return slot;
+    }
+
+    private void grow() {
+        int newCapacity = edges.length + (edges.length >> 1);
+        edges = Arrays.copyOf(edges, newCapacity);
+        adjNodes = Arrays.copyOf(adjNodes, newCapacity);
+        parents = Arrays.copyOf(parents, newCapacity);
+        traversalIds = Arrays.copyOf(traversalIds, newCapacity);
+        weights = Arrays.copyOf(weights, newCapacity);
+        weightsOfVisitedPath = Arrays.copyOf(weightsOfVisitedPath, newCapacity);
+        deleted = Arrays.copyOf(deleted, newCapacity);
+        // every slot is pushed at most once, so the heap never needs more space than there are slots
+        heap = Arrays.copyOf(heap, newCapacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getEdge(int slot) {
+        return edges[slot];
+    }
+
+    public int getAdjNode(int slot) {
+        return adjNodes[slot];
+    }
+
+    public int getParent(int slot) {
+        return parents[slot];
+    }
+
+    /**
+     * @return the traversal id the entry was stored for with {@link #putSlot(int, int)} or -1
+     */
+    public int getTraversalId(int slot) {
+        return traversalIds[slot];
+    }
+
+    /**
+     * @return the weight that is used to order the heap
+     */
+    public double getWeight(int slot) {
+        return weights[slot];
+    }
+
+    /**
+     * @see SPTEntry#getWeightOfVisitedPath()
+     */
+    public double getWeightOfVisitedPath(int slot) {
+        return weightsOfVisitedPath[slot];
+    }
+
+    public void setDeleted(int slot) {
+        deleted[slot] = true;
+    }
+
+    public boolean isDeleted(int slot) {
+        return deleted[slot];
+    }
+
+    /**
+     * @return the slot of the best entry for the given traversal id or {@link #NO_SLOT}
+     */
+    public int getSlot(int traversalId) {
+        if (traversalId >= 0 && traversalId < denseSize)
+            return denseEpochs[traversalId] == epoch ? denseSlots[traversalId] : NO_SLOT;
+        return slots.getOrDefault(traversalId, NO_SLOT);
+    }
+
+    public void putSlot(int traversalId, int slot) {
+        traversalIds[slot] = traversalId;
+        if (traversalId >= 0 && traversalId < denseSize) {
+            denseSlots[traversalId] = slot;
+            denseEpochs[traversalId] = epoch;
+        } else {
+            slots.put(traversalId, slot);
+        }
+    }
+
+    public boolean isHeapEmpty() {
+        return heapSize == 0;
+    }
+
+    public void push(int slot) {
+        int k = heapSize++;
+        double weight = weights[slot];
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            int e = heap[parent];
+            if (weight >= weights[e])
+                break;
+            heap[k] = e;
+            k = parent;
+        }
+        heap[k] = slot;
+    }
+
+    /**
+     * @return the slot with the smallest weight without removing it from the heap
+     */
+    public int peek() {
+        if (heapSize == 0)
+            throw new IllegalStateException("heap is empty");
+        return heap[0];
+    }
+
+    public int poll() {
+        if (heapSize == 0)
+            throw new IllegalStateException("heap is empty");
+        int result = heap[0];
+        int n = --heapSize;
+        if (n > 0)
+            siftDown(0, heap[n], n);
+        return result;
+    }
+
+    /**
+     * Sets the weight of every entry in the heap to the weight of its visited path plus the given remaining weight
+     * of its node and restores the heap order, e.g. after the approximation of an A* search changed. Deleted entries
+     * are removed from the heap.
+     */
+    public void updateHeapWeights(IntToDoubleFunction remainingWeight) {
+        int n = 0;
+        for (int i = 0; i < heapSize; i++) {
+            int slot = heap[i];
+            if (deleted[slot])
+                continue;
+            weights[slot] = weightsOfVisitedPath[slot] + remainingWeight.applyAsDouble(adjNodes[slot]);
+            heap[n++] = slot;
+        }
+        heapSize = n;
+        for (int k = (n >>> 1) - 1; k >= 0; k--)
+            siftDown(k, heap[k], n);
+    }
+
+    /**
+     * Creates an {@link SPTEntry} for the given slot including all its parents for code that still works with entry
+     * objects, e.g. {@link AlternativeRoute}. The entries are of type {@link AStar.AStarEntry}, so they keep the weight
+     * of the visited path.
+     *
+     * @param entries the entries that were already created for the slots of this store. They are reused for the
+     *                parents, so the same slot is always represented by the same entry.
+     */
+    public SPTEntry createEntry(int slot, SPTEntry[] entries) {
+        if (entries[slot] != null)
+            return entries[slot];
+        // find the first ancestor that already has an entry and create the missing ones top-down
+        int root = slot;
+        int depth = 0;
+        while (parents[root] != NO_SLOT && entries[parents[root]] == null) {
+            root = parents[root];
+            depth++;
+        }
+        int[] path = new int[depth + 1];
+        for (int i = depth, s = slot; i >= 0; i--, s = parents[s])
+            path[i] = s;
+        for (int s : path) {
+            SPTEntry parent = parents[s] == NO_SLOT ? null : entries[parents[s]];
+            entries[s] = new AStar.AStarEntry(edges[s], adjNodes[s], weights[s], weightsOfVisitedPath[s], parent);
+            if (deleted[s])
+                entries[s].setDeleted();
+        }
+        return entries[slot];
+    }
+
+    private void siftDown(int k, int slot, int n) {
+        double weight = weights[slot];
+        int half = n >>> 1;
+        while (k < half) {
+            int child = (k << 1) + 1;
+            int c = heap[child];
+            int right = child + 1;
+            if (right < n && weights[c] > weights[heap[right]])
+                c = heap[child = right];
+            if (weight <= weights[c])
+                break;
+            heap[k] = c;
+            k = child;
+        }
+        heap[k] = slot;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
+
+/**
+ * A bounded cache for the snaps of {@link ViaRouting#lookup} that is shared by concurrent requests of the same graph,
+ * so coordinates that are requested over and over again (depots, airports, ...) do not need a location index lookup.
+ * The coordinates are rounded to six decimal places (about 0.1m) and the snaps are cached per profile, heading, point
+ * hint and snap preventions.
+ * <p>
+ * The entries are stored in two generations: new entries go into the current generation and once it is full it
+ * replaces the previous generation, which is dropped. Entries of the previous generation that are requested again are
+ * moved to the current generation, so frequently used snaps stay in the cache and at most maxSize entries are kept.
+ * <p>
+ * The cached snaps refer to the edges of the graph, so a cache must not be used for another graph, i.e. after the graph
+ * was reloaded a new cache is required.
+ */
+public class SnapCache {
+    private static final double PRECISION = 1e6;
+    private final int generationSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile ConcurrentHashMap<Key, Snap> current = new ConcurrentHashMap<>();
+    private volatile ConcurrentHashMap<Key, Snap> previous = new ConcurrentHashMap<>();
+
+    public SnapCache(int maxSize) {
+        if (maxSize < 2)
+            throw new IllegalArgumentException("maxSize must be at least 2, was: " + maxSize);
+        this.generationSize = maxSize / 2;
+    }
+
+    /**
+     * @param heading the heading of the point or NaN
+     * @param hint    the point hint or an empty string
+     * @return a copy of the cached snap for the given point or null if there is none
+     */
+    public Snap get(String profile, GHPoint point, double heading, String hint, List<String> snapPreventions) {
+        Key key = new Key(profile, point, heading, hint, snapPreventions);
+        Snap snap = current.get(key);
+        if (snap == null) {
+            snap = previous.get(key);
+            if (snap != null)
+                insert(key, snap);
+        }
+        if (snap == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(snap, point);
+    }
+
+    /**
+     * Adds the given snap to the cache. The snap must not be modified by the caller before it is added, which happens
+     * when a {@link com.graphhopper.routing.querygraph.QueryGraph} is created for it.
+     */
+    public void put(String profile, GHPoint point, double heading, String hint, List<String> snapPreventions, Snap snap) {
+        if (!snap.isValid())
+            throw new IllegalArgumentException("Only valid snaps can be cached, point: " + point);
+        insert(new Key(profile, point, heading, hint, List.copyOf(snapPreventions)), copy(snap, snap.getQueryPoint()));
+    }
+
+    private void insert(Key key, Snap snap) {
+        ConcurrentHashMap<Key, Snap> map = current;
+        map.put(key, snap);
+        if (map.size() >= generationSize)
+            rotate(map);
+    }
+
+    private synchronized void rotate(ConcurrentHashMap<Key, Snap> full) {
+        // another thread might have rotated the generations already
+        if (current != full)
+            return;
+        previous = full;
+        current = new ConcurrentHashMap<>();
+    }
+
+    private static Snap copy(Snap snap, GHPoint queryPoint) {
+        Snap copy = new Snap(queryPoint.lat, queryPoint.lon);
+        copy.setClosestNode(snap.getClosestNode());
+        copy.setClosestEdge(snap.getClosestEdge());
+        copy.setWayIndex(snap.getWayIndex());
+        copy.setSnappedPosition(snap.getSnappedPosition());
+        copy.setSnappedPoint(snap.getSnappedPoint());
+        // the query point might differ from the one of the cached snap by the rounding of the coordinates
+        copy.setQueryDistance(queryPoint.equals(snap.getQueryPoint()) ? snap.getQueryDistance()
+                : DIST_PLANE.calcDist(queryPoint.lat, queryPoint.lon, snap.getSnappedPoint().lat, snap.getSnappedPoint().lon));
+        return copy;
+    }
+
+    public void clear() {
+        current = new ConcurrentHashMap<>();
+        previous = new ConcurrentHashMap<>();
+        hits.reset();
+        misses.reset();
+    }
+
+    public int getSize() {
+        return current.size() + previous.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the fraction of the lookups that were answered from the cache, or 0 if there were none
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "size: " + getSize() + ", hits: " + getHits() + ", misses: " + getMisses();
+    }
+
+    private static final class Key {
+        private final String profile;
+        private final long lat;
+        private final long lon;
+        private final long heading;
+        private final String hint;
+        private final List<String> snapPreventions;
+
+        Key(String profile, GHPoint point, double heading, String hint, List<String> snapPreventions) {
+            this.profile = profile;
+            this.lat = Math.round(point.lat * PRECISION);
+            this.lon = Math.round(point.lon * PRECISION);
+            // doubleToLongBits maps all NaN values to the same bits
+            this.heading = Double.doubleToLongBits(heading);
+            this.hint = hint;
+            this.snapPreventions = snapPreventions;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return lat == key.lat && lon == key.lon && heading == key.heading && profile.equals(key.profile)
+                    && hint.equals(key.hint) && snapPreventions.equals(key.snapPreventions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(profile, lat, lon, heading, hint, snapPreventions);
+        }
+    }
+}
@@ -33,7 +33,12 @@ import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -55,6 +60,18 @@ public class ViaRouting {
     public static List<Snap> lookup(EncodedValueLookup lookup, List<GHPoint> points, EdgeFilter snapFilter,
                                     LocationIndex locationIndex, List<String> snapPreventions, List<String> pointHints,
                                     DirectedEdgeFilter directedSnapFilter, List<Double> headings) {
+        return lookup(lookup, points, snapFilter, locationIndex, snapPreventions, pointHints, directedSnapFilter, headings, null, null);
+    }
+
+    /**
+     * @param snapCache the cache for the snaps or null. The cached snaps are only valid for the given profile, so
+     *                  the snap filters must not depend on anything else than the profile.
+     * @throws MultiplePointsNotFoundException in case one or more points could not be resolved
+     */
+    public static List<Snap> lookup(EncodedValueLookup lookup, List<GHPoint> points, EdgeFilter snapFilter,
+                                    LocationIndex locationIndex, List<String> snapPreventions, List<String> pointHints,
+                                    DirectedEdgeFilter directedSnapFilter, List<Double> headings,
+                                    SnapCache snapCache, String profile) {
         if (points.size() < 2)
             throw new IllegalArgumentException("At least 2 points have to be specified, but was:" + points.size());
 
@@ -67,12 +84,22 @@ public class ViaRouting {
         IntArrayList pointsNotFound = new IntArrayList();
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
             GHPoint point = points.get(placeIndex);
+            double heading = placeIndex < headings.size() ? headings.get(placeIndex) : Double.NaN;
+            String pointHint = pointHints.isEmpty() || pointHints.get(placeIndex) == null ? "" : pointHints.get(placeIndex);
+            if (!Double.isNaN(heading) && !pointHint.isEmpty())
+                throw new IllegalArgumentException("Cannot specify heading and point_hint at the same time. " +
+                        "Make sure you specify either an empty point_hint (String) or a NaN heading (double) for point " + placeIndex);
+            if (snapCache != null) {
+                Snap cached = snapCache.get(profile, point, heading, pointHint, snapPreventions);
+                if (cached != null) {
+                    snaps.add(cached);
+                    continue;
+                }
+            }
+
             Snap snap = null;
-            if (placeIndex < headings.size() && !Double.isNaN(headings.get(placeIndex))) {
-                if (!pointHints.isEmpty() && !Helper.isEmpty(pointHints.get(placeIndex)))
-                    throw new IllegalArgumentException("Cannot specify heading and point_hint at the same time. " +
-                            "Make sure you specify either an empty point_hint (String) or a NaN heading (double) for point " + placeIndex);
-                snap = locationIndex.findClosest(point.lat, point.lon, new HeadingEdgeFilter(directedSnapFilter, headings.get(placeIndex), point));
+            if (!Double.isNaN(heading)) {
+                snap = locationIndex.findClosest(point.lat, point.lon, new HeadingEdgeFilter(directedSnapFilter, heading, point));
             } else if (!pointHints.isEmpty()) {
                 snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
                         pointHints.get(placeIndex), point, 170));
@@ -84,6 +111,8 @@ public class ViaRouting {
                 snap = locationIndex.findClosest(point.lat, point.lon, snapFilter);
             if (!snap.isValid())
                 pointsNotFound.add(placeIndex);
+            else if (snapCache != null)
+                snapCache.put(profile, point, heading, pointHint, snapPreventions, snap);
 
             snaps.add(snap);
         }
@@ -97,17 +126,10 @@ public class ViaRouting {
     public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps,
                                    DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator,
                                    List<String> curbsides, String curbsideStrictness, List<Double> headings, boolean passThrough) {
-        if (!curbsides.isEmpty() && curbsides.size() != points.size())
-            throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
-        if (!curbsides.isEmpty() && !headings.isEmpty())
-            throw new IllegalArgumentException("You cannot use curbsides and headings or pass_through at the same time");
-
+        checkCurbsides(points, curbsides, headings);
         final int legs = snaps.size() - 1;
         Result result = new Result(legs);
         for (int leg = 0; leg < legs; ++leg) {
-            Snap fromSnap = snaps.get(leg);
-            Snap toSnap = snaps.get(leg + 1);
-
             // enforce headings
             // at via-nodes and the target node the heading parameter is interpreted as the direction we want
             // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
@@ -125,38 +147,117 @@ public class ViaRouting {
                     incomingEdge = prevRoute.getFinalEdge().getEdge();
             }
 
-            // enforce curbsides
-            final String fromCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
-            final String toCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
+            addLeg(result, calcLeg(queryGraph, snaps, leg, fromHeading, toHeading, incomingEdge, passThrough,
+                    curbsides, curbsideStrictness, directedEdgeFilter, pathCalculator));
+        }
+
+        return result;
+    }
+
+    /**
+     * @return true if the legs of a route with the given headings and pass_through parameter do not depend on each
+     * other and can be calculated with {@link #calcPathsConcurrently}
+     */
+    public static boolean canCalcLegsConcurrently(List<Double> headings, boolean passThrough) {
+        // with pass_through a leg depends on the final edge of the previous leg and headings are enforced by marking
+        // edges of the query graph as unfavored, which is shared by all legs
+        return !passThrough && headings.stream().allMatch(heading -> Double.isNaN(heading));
+    }
+
+    /**
+     * Same as {@link #calcPaths}, but the legs are calculated concurrently by the given executor, each with its own
+     * {@link PathCalculator} created by the given supplier. Only use this if {@link #canCalcLegsConcurrently} is true.
+     */
+    public static Result calcPathsConcurrently(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps,
+                                               DirectedEdgeFilter directedEdgeFilter, Supplier<PathCalculator> pathCalculatorSupplier,
+                                               ExecutorService executor, List<String> curbsides, String curbsideStrictness) {
+        checkCurbsides(points, curbsides, Collections.emptyList());
+        final int legs = snaps.size() - 1;
+        List<Future<Leg>> futures = new ArrayList<>(legs);
+        try {
+            for (int leg = 0; leg < legs; ++leg) {
+                final int l = leg;
+                futures.add(executor.submit(() -> calcLeg(queryGraph, snaps, l, Double.NaN, Double.NaN, NO_EDGE, false,
+                        curbsides, curbsideStrictness, directedEdgeFilter, pathCalculatorSupplier.get())));
+            }
+            Result result = new Result(legs);
+            for (Future<Leg> future : futures)
+                addLeg(result, future.get());
+            return result;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error)
+                throw (Error) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            // this does nothing for the legs that are finished already, but stops the others if one of them failed
+            for (Future<Leg> future : futures)
+                future.cancel(true);
+        }
+    }
+
+    private static void checkCurbsides(List<GHPoint> points, List<String> curbsides, List<Double> headings) {
+        if (!curbsides.isEmpty() && curbsides.size() != points.size())
+            throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
+        if (!curbsides.isEmpty() && !headings.isEmpty())
+            throw new IllegalArgumentException("You cannot use curbsides and headings or pass_through at the same time");
+    }
 
-            EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(queryGraph, fromSnap, toSnap,
-                    fromHeading, toHeading, incomingEdge, passThrough,
-                    fromCurbside, toCurbside, directedEdgeFilter);
+    private static Leg calcLeg(QueryGraph queryGraph, List<Snap> snaps, int leg, double fromHeading, double toHeading,
+                               int incomingEdge, boolean passThrough, List<String> curbsides, String curbsideStrictness,
+                               DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator) {
+        Snap fromSnap = snaps.get(leg);
+        Snap toSnap = snaps.get(leg + 1);
 
-            edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, curbsideStrictness));
-            edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, curbsideStrictness));
+        // enforce curbsides
+        final String fromCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
+        final String toCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
 
-            // calculate paths
-            List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
-            result.debug += pathCalculator.getDebugString();
+        EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(queryGraph, fromSnap, toSnap,
+                fromHeading, toHeading, incomingEdge, passThrough,
+                fromCurbside, toCurbside, directedEdgeFilter);
 
-            // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
-            // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
-            // a good method to decide how to combine the different legs
-            for (int i = 0; i < paths.size(); i++) {
-                Path path = paths.get(i);
-                if (path.getTime() < 0)
-                    throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
+        edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, curbsideStrictness));
+        edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, curbsideStrictness));
 
-                result.paths.add(path);
-                result.debug += ", " + path.getDebugInfo();
-            }
+        // calculate paths
+        List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
+        return new Leg(paths, pathCalculator.getVisitedNodes(), pathCalculator.getDebugString());
+    }
+
+    private static void addLeg(Result result, Leg leg) {
+        result.debug += leg.debug;
+
+        // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
+        // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
+        // a good method to decide how to combine the different legs
+        for (int i = 0; i < leg.paths.size(); i++) {
+            Path path = leg.paths.get(i);
+            if (path.getTime() < 0)
+                throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
 
-            result.visitedNodes += pathCalculator.getVisitedNodes();
-            result.debug += ", visited nodes sum: " + result.visitedNodes;
+            result.paths.add(path);
+            result.debug += ", " + path.getDebugInfo();
         }
 
-        return result;
+        result.visitedNodes += leg.visitedNodes;
+        result.debug += ", visited nodes sum: " + result.visitedNodes;
+    }
+
+    private static class Leg {
+        final List<Path> paths;
+        final int visitedNodes;
+        final String debug;
+
+        Leg(List<Path> paths, int visitedNodes, String debug) {
+            this.paths = paths;
+            this.visitedNodes = visitedNodes;
+            this.debug = debug;
+        }
     }
 
     public static class Result {
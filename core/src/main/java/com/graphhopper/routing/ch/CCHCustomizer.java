@@ -0,0 +1,205 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.CHStorage;
+import com.graphhopper.storage.CHStorageBuilder;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+import static com.graphhopper.util.Helper.getMemInfo;
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * The customization phase of a customizable contraction hierarchy: calculates the shortcut weights for the
+ * {@link CCHTopology} and a given weighting. The arcs are processed bottom-up and for every arc u-w we take the
+ * minimum of the base graph edges between u and w and all paths u-v-w where v has a lower level than u and w. There
+ * are no witness searches, so this is much faster than a full CH preparation. It also means every shortcut of the
+ * topology is stored, even if a base graph edge is shorter. These shortcuts get an infinite weight.
+ * <p>
+ * Every CH created from the same topology has the same levels and shortcuts (only weights and skipped edges differ),
+ * so the shortcut weights of an existing CH can also be updated in place for a new weighting, see
+ * {@link #customize(CHStorage, Weighting)}. Only node-based CHs are supported.
+ */
+public class CCHCustomizer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CCHCustomizer.class);
+    private static final int NO_EDGE = -1;
+    private final CCHTopology topology;
+    private final BaseGraph graph;
+
+    public CCHCustomizer(CCHTopology topology) {
+        this.topology = topology;
+        this.graph = topology.getGraph();
+    }
+
+    /**
+     * Creates a new CH for the given config. This is the equivalent of {@link PrepareContractionHierarchies#doWork()}
+     */
+    public PrepareContractionHierarchies.Result prepare(CHConfig chConfig) {
+        if (chConfig.isEdgeBased())
+            throw new IllegalArgumentException("Customizable CH is only supported for node-based CH, profile: " + chConfig.getName());
+        StopWatch sw = new StopWatch().start();
+        CHStorage chStorage = CHStorage.fromGraph(graph, chConfig);
+        CHStorageBuilder chBuilder = new CHStorageBuilder(chStorage);
+        for (int node = 0; node < topology.getNodes(); node++)
+            chBuilder.setLevel(node, topology.getLevel(node));
+        Customization customization = customize(chConfig.getWeighting());
+        for (int level = 0; level < topology.getNodes(); level++) {
+            int nodeA = topology.getNode(level);
+            for (int arc = topology.getFirstArc(level); arc < topology.getFirstArc(level + 1); arc++) {
+                if (topology.getShortcutPair(arc) < 0)
+                    continue;
+                int nodeB = topology.getNode(topology.getHeadLevel(arc));
+                for (int dir = 0; dir < 2; dir++) {
+                    int shortcut = chBuilder.addShortcutNodeBased(nodeA, nodeB, dir == 0 ? PrepareEncoder.getScFwdDir() : PrepareEncoder.getScBwdDir(),
+                            customization.getShortcutWeight(arc, dir), customization.getSkippedEdge1(level, arc, dir), customization.getSkippedEdge2(arc, dir));
+                    assert shortcut == 2 * topology.getShortcutPair(arc) + dir;
+                }
+            }
+        }
+        sw.stop();
+        LOGGER.info("Customized CH '{}', took: {}s, shortcuts: {}, {}", chConfig.getName(), sw.getSeconds(), nf(chStorage.getShortcuts()), getMemInfo());
+        return new PrepareContractionHierarchies.Result(chConfig, chStorage, chStorage.getShortcuts(), 0, 0, 0, sw.getMillis());
+    }
+
+    /**
+     * Updates the shortcut weights (and skipped edges) of an existing CH that was created with {@link #prepare} from
+     * the same topology such that it can be used with the given weighting. Note that the RoutingCHGraph must use the
+     * same weighting, because the weights of the base graph edges are not stored in the CH.
+     */
+    public void customize(CHStorage chStorage, Weighting weighting) {
+        if (chStorage.isEdgeBased())
+            throw new IllegalArgumentException("Customizable CH is only supported for node-based CH");
+        if (chStorage.getNodes() != topology.getNodes() || chStorage.getShortcuts() != topology.getShortcuts())
+            throw new IllegalArgumentException("The given CH was not created from this topology, nodes: " + chStorage.getNodes()
+                    + " vs. " + topology.getNodes() + ", shortcuts: " + chStorage.getShortcuts() + " vs. " + topology.getShortcuts());
+        Customization customization = customize(weighting);
+        for (int level = 0; level < topology.getNodes(); level++) {
+            for (int arc = topology.getFirstArc(level); arc < topology.getFirstArc(level + 1); arc++) {
+                int pair = topology.getShortcutPair(arc);
+                if (pair < 0)
+                    continue;
+                for (int dir = 0; dir < 2; dir++) {
+                    long pointer = chStorage.toShortcutPointer(2 * pair + dir);
+                    chStorage.setWeight(pointer, customization.getShortcutWeight(arc, dir));
+                    chStorage.setSkippedEdges(pointer, customization.getSkippedEdge1(level, arc, dir), customization.getSkippedEdge2(arc, dir));
+                }
+            }
+        }
+    }
+
+    private Customization customize(Weighting weighting) {
+        Customization c = new Customization();
+        // initialize the arcs with the weights of the base graph edges
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            int levelBase = topology.getLevel(iter.getBaseNode());
+            int levelAdj = topology.getLevel(iter.getAdjNode());
+            if (levelBase == levelAdj)
+                // loops are never part of a shortest path
+                continue;
+            boolean baseIsLower = levelBase < levelAdj;
+            int arc = baseIsLower ? topology.findArc(levelBase, levelAdj) : topology.findArc(levelAdj, levelBase);
+            double weightFwd = weighting.calcEdgeWeight(iter, false);
+            double weightBwd = weighting.calcEdgeWeight(iter, true);
+            c.improve(arc, 0, baseIsLower ? weightFwd : weightBwd, iter.getEdge());
+            c.improve(arc, 1, baseIsLower ? weightBwd : weightFwd, iter.getEdge());
+        }
+        // every pair of arcs v-u and v-w of the node v forms a lower triangle of the arc u-w. we process the nodes
+        // bottom-up, so the arcs v-u and v-w are final once we reach v.
+        for (int level = 0; level < topology.getNodes(); level++) {
+            int end = topology.getFirstArc(level + 1);
+            for (int arcU = topology.getFirstArc(level); arcU < end; arcU++) {
+                for (int arcW = arcU + 1; arcW < end; arcW++) {
+                    int arc = topology.findArc(topology.getHeadLevel(arcU), topology.getHeadLevel(arcW));
+                    // u->v->w and w->v->u
+                    c.improveVia(arc, 0, c.weights[2 * arcU + 1] + c.weights[2 * arcW], level);
+                    c.improveVia(arc, 1, c.weights[2 * arcW + 1] + c.weights[2 * arcU], level);
+                }
+            }
+        }
+        return c;
+    }
+
+    /**
+     * The weights of both directions of all arcs. Direction 0 goes from the lower to the higher level node and
+     * direction 1 the other way.
+     */
+    private class Customization {
+        private final double[] weights = new double[2 * topology.getArcs()];
+        // the base graph edge with the arc weight, or the level of the middle node if the weight is that of a triangle
+        private final int[] edges = new int[2 * topology.getArcs()];
+        private final boolean[] viaTriangle = new boolean[2 * topology.getArcs()];
+
+        Customization() {
+            Arrays.fill(weights, Double.POSITIVE_INFINITY);
+            Arrays.fill(edges, NO_EDGE);
+        }
+
+        void improve(int arc, int dir, double weight, int edge) {
+            if (weight < weights[2 * arc + dir]) {
+                weights[2 * arc + dir] = weight;
+                edges[2 * arc + dir] = edge;
+            }
+        }
+
+        void improveVia(int arc, int dir, double weight, int viaLevel) {
+            if (weight < weights[2 * arc + dir]) {
+                weights[2 * arc + dir] = weight;
+                edges[2 * arc + dir] = viaLevel;
+                viaTriangle[2 * arc + dir] = true;
+            }
+        }
+
+        double getShortcutWeight(int arc, int dir) {
+            // if there is no shorter path via a lower level node the base graph edge is used instead of the shortcut
+            return viaTriangle[2 * arc + dir] ? weights[2 * arc + dir] : Double.POSITIVE_INFINITY;
+        }
+
+        int getSkippedEdge1(int level, int arc, int dir) {
+            if (!viaTriangle[2 * arc + dir])
+                return NO_EDGE;
+            // the edge between the middle node and the lower level node of the arc
+            int via = edges[2 * arc + dir];
+            int lowerArc = topology.findArc(via, level);
+            return getCHEdge(lowerArc, dir == 0 ? 1 : 0);
+        }
+
+        int getSkippedEdge2(int arc, int dir) {
+            if (!viaTriangle[2 * arc + dir])
+                return NO_EDGE;
+            // the edge between the middle node and the higher level node of the arc
+            int via = edges[2 * arc + dir];
+            int upperArc = topology.findArc(via, topology.getHeadLevel(arc));
+            return getCHEdge(upperArc, dir);
+        }
+
+        private int getCHEdge(int arc, int dir) {
+            if (viaTriangle[2 * arc + dir])
+                return graph.getEdges() + 2 * topology.getShortcutPair(arc) + dir;
+            return edges[2 * arc + dir];
+        }
+    }
+}
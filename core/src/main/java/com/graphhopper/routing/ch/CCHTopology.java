@@ -0,0 +1,195 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHStorage;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+/**
+ * The metric-independent part of a customizable contraction hierarchy (CCH): a node ordering and the shortcut
+ * topology that results from contracting the nodes in this order without any witness searches. When a node is
+ * contracted all its higher level neighbors are connected with each other, so the resulting 'arcs' (the edges of the
+ * base graph and the shortcuts) form a chordal graph. Since the topology does not depend on the weighting it is
+ * calculated only once and can then be used to create CHs for many weightings in a fast customization step, see
+ * {@link CCHCustomizer}.
+ * <p>
+ * The arcs are stored by their lower level node and sorted by the level of their higher level node. Every arc that is
+ * the upper side of at least one triangle with a lower level node might need a shortcut and gets one for each
+ * direction. All other arcs are just base graph edges.
+ */
+public class CCHTopology {
+    private final BaseGraph graph;
+    private final int[] levels;
+    private final int[] nodesByLevel;
+    // the arcs of the node with level l are stored at the indices [firstArcs[l], firstArcs[l + 1])
+    private final int[] firstArcs;
+    private final int[] arcHeadLevels;
+    // the index of the shortcut pair of each arc or -1 if the arc never needs a shortcut
+    private final int[] arcShortcuts;
+    private final int shortcutPairs;
+
+    public static CCHTopology fromGraph(BaseGraph graph) {
+        return fromNodeOrdering(graph, NestedDissectionOrdering.fromGraph(graph));
+    }
+
+    /**
+     * Uses the node ordering (the levels) of an existing CH. If this CH was created by {@link CCHCustomizer} the
+     * resulting topology is the one that was used to create it.
+     */
+    public static CCHTopology fromCHStorage(BaseGraph graph, CHStorage chStorage) {
+        return fromNodeOrdering(graph, chStorage.getNodeOrderingProvider());
+    }
+
+    public static CCHTopology fromNodeOrdering(BaseGraph graph, NodeOrderingProvider nodeOrdering) {
+        if (nodeOrdering.getNumNodes() != graph.getNodes())
+            throw new IllegalArgumentException("contraction order size (" + nodeOrdering.getNumNodes() + ")" +
+                    " must be equal to number of nodes in graph (" + graph.getNodes() + ").");
+        return new CCHTopology(graph, nodeOrdering);
+    }
+
+    private CCHTopology(BaseGraph graph, NodeOrderingProvider nodeOrdering) {
+        this.graph = graph;
+        int nodes = graph.getNodes();
+        levels = new int[nodes];
+        Arrays.fill(levels, -1);
+        nodesByLevel = new int[nodes];
+        for (int level = 0; level < nodes; level++) {
+            int node = nodeOrdering.getNodeIdForLevel(level);
+            if (levels[node] >= 0)
+                throw new IllegalArgumentException("Node " + node + " appears more than once in the node ordering");
+            levels[node] = level;
+            nodesByLevel[level] = node;
+        }
+
+        // the higher level neighbors of each node (by level) in the base graph
+        int[] firstNeighbors = new int[nodes + 1];
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (int level = 0; level < nodes; level++) {
+            EdgeIterator iter = explorer.setBaseNode(nodesByLevel[level]);
+            while (iter.next())
+                if (levels[iter.getAdjNode()] > level)
+                    firstNeighbors[level + 1]++;
+        }
+        for (int level = 0; level < nodes; level++)
+            firstNeighbors[level + 1] += firstNeighbors[level];
+        int[] neighbors = new int[firstNeighbors[nodes]];
+        for (int level = 0; level < nodes; level++) {
+            int index = firstNeighbors[level];
+            EdgeIterator iter = explorer.setBaseNode(nodesByLevel[level]);
+            while (iter.next())
+                if (levels[iter.getAdjNode()] > level)
+                    neighbors[index++] = levels[iter.getAdjNode()];
+        }
+        // the higher level neighbors each node gets from the contraction of lower level nodes, created on demand
+        IntArrayList[] addedNeighbors = new IntArrayList[nodes];
+        // contract the nodes in the given order. connecting all higher level neighbors with each other is equivalent
+        // to only connecting the lowest of them with all others, because the lowest one is contracted next
+        firstArcs = new int[nodes + 1];
+        IntArrayList heads = new IntArrayList(2 * graph.getEdges());
+        for (int level = 0; level < nodes; level++) {
+            IntArrayList added = addedNeighbors[level];
+            addedNeighbors[level] = null;
+            int baseCount = firstNeighbors[level + 1] - firstNeighbors[level];
+            int[] sorted = new int[baseCount + (added == null ? 0 : added.size())];
+            System.arraycopy(neighbors, firstNeighbors[level], sorted, 0, baseCount);
+            if (added != null)
+                System.arraycopy(added.buffer, 0, sorted, baseCount, added.size());
+            Arrays.sort(sorted);
+            firstArcs[level] = heads.size();
+            for (int i = 0; i < sorted.length; i++)
+                if (i == 0 || sorted[i] != sorted[i - 1])
+                    heads.add(sorted[i]);
+            if (heads.size() - firstArcs[level] > 1) {
+                int lowest = heads.get(firstArcs[level]);
+                if (addedNeighbors[lowest] == null)
+                    addedNeighbors[lowest] = new IntArrayList();
+                for (int i = firstArcs[level] + 1; i < heads.size(); i++)
+                    addedNeighbors[lowest].add(heads.get(i));
+            }
+        }
+        firstArcs[nodes] = heads.size();
+        arcHeadLevels = heads.toArray();
+
+        // every pair of upper neighbors of a node forms a triangle with it
+        arcShortcuts = new int[arcHeadLevels.length];
+        Arrays.fill(arcShortcuts, -1);
+        for (int level = 0; level < nodes; level++)
+            for (int i = firstArcs[level]; i < firstArcs[level + 1]; i++)
+                for (int j = i + 1; j < firstArcs[level + 1]; j++)
+                    arcShortcuts[findArc(arcHeadLevels[i], arcHeadLevels[j])] = 0;
+        int count = 0;
+        for (int arc = 0; arc < arcShortcuts.length; arc++)
+            if (arcShortcuts[arc] == 0)
+                arcShortcuts[arc] = count++;
+        shortcutPairs = count;
+    }
+
+    /**
+     * @return the index of the arc between the nodes with the given levels, lowerLevel must be smaller than upperLevel
+     */
+    int findArc(int lowerLevel, int upperLevel) {
+        int arc = Arrays.binarySearch(arcHeadLevels, firstArcs[lowerLevel], firstArcs[lowerLevel + 1], upperLevel);
+        if (arc < 0)
+            throw new IllegalStateException("There is no arc between the nodes with levels " + lowerLevel + " and " + upperLevel);
+        return arc;
+    }
+
+    BaseGraph getGraph() {
+        return graph;
+    }
+
+    public int getNodes() {
+        return levels.length;
+    }
+
+    public int getLevel(int node) {
+        return levels[node];
+    }
+
+    public int getNode(int level) {
+        return nodesByLevel[level];
+    }
+
+    int getFirstArc(int level) {
+        return firstArcs[level];
+    }
+
+    int getHeadLevel(int arc) {
+        return arcHeadLevels[arc];
+    }
+
+    int getShortcutPair(int arc) {
+        return arcShortcuts[arc];
+    }
+
+    public int getArcs() {
+        return arcHeadLevels.length;
+    }
+
+    /**
+     * @return the number of shortcuts of every CH that is customized from this topology
+     */
+    public int getShortcuts() {
+        return 2 * shortcutPairs;
+    }
+}
@@ -10,6 +10,9 @@ public final class CHParameters {
     public static final String NEIGHBOR_UPDATES_MAX = Parameters.CH.PREPARE + "updates.neighbor_max";
     public static final String CONTRACTED_NODES = Parameters.CH.PREPARE + "contracted_nodes";
     public static final String LOG_MESSAGES = Parameters.CH.PREPARE + "log_messages";
+    public static final String CONTRACTION_THREADS = Parameters.CH.PREPARE + "contraction_threads";
+    public static final String CUSTOMIZABLE = Parameters.CH.PREPARE + "customizable";
+    public static final String CHECKPOINT_INTERVAL = Parameters.CH.PREPARE + "checkpoint_interval_ms";
     // node contraction, node-based
     public static final String EDGE_DIFFERENCE_WEIGHT = Parameters.CH.PREPARE + "node.edge_difference_weight";
     public static final String ORIGINAL_EDGE_COUNT_WEIGHT = Parameters.CH.PREPARE + "node.original_edge_count_weight";
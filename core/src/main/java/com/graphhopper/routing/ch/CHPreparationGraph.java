@@ -26,23 +26,43 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.GHUtility;
 
+import java.util.Arrays;
+
 import static com.graphhopper.util.ArrayUtil.zero;
 
 /**
  * Graph data structure used for CH preparation. It allows caching weights, and edges that are not needed anymore
  * (those adjacent to contracted nodes) can be removed (see {@link #disconnect}.
+ * <p>
+ * The edges and shortcuts are not stored as objects, but as fixed size records of ints in segmented arrays that are
+ * indexed by the prepare edge id, which saves the object headers and uses ints instead of references for the links
+ * between them.
  *
  * @author easbar
  */
 public class CHPreparationGraph {
+    // each edge between nodes a/b is stored as a single record and we maintain two linked lists of such records for
+    // every node (one for outgoing edges and one for incoming edges). the links point to the next edge of the list
+    // for node a and node b respectively.
+    private static final int E_NODE_A = 0, E_NODE_B = 1, E_WEIGHT_AB = 2, E_WEIGHT_BA = 3,
+            E_NEXT_OUT_A = 4, E_NEXT_OUT_B = 5, E_NEXT_IN_A = 6, E_NEXT_IN_B = 7;
+    private static final int EDGE_RECORD_SIZE = 8;
+    // shortcuts go from node a to node b, so they only need a single link for each list. the double weight uses two
+    // ints and the orig edge keys are only stored for edge-based
+    private static final int S_NODE_A = 0, S_NODE_B = 1, S_WEIGHT = 2, S_SKIPPED1 = 4, S_SKIPPED2 = 5,
+            S_ORIG_EDGE_COUNT = 6, S_NEXT_OUT = 7, S_NEXT_IN = 8, S_ORIG_KEY_FIRST = 9, S_ORIG_KEY_LAST = 10;
+    private static final int NODE_BASED_SHORTCUT_RECORD_SIZE = 9;
+    private static final int EDGE_BASED_SHORTCUT_RECORD_SIZE = 11;
+    private static final int NO_EDGE = -1;
     private final int nodes;
     private final int edges;
     private final boolean edgeBased;
     private final TurnCostFunction turnCostFunction;
-    // each edge/shortcut between nodes a/b is represented as a single object and we maintain two linked lists of such
-    // objects for every node (one for outgoing edges and one for incoming edges).
-    private PrepareEdge[] prepareEdgesOut;
-    private PrepareEdge[] prepareEdgesIn;
+    private RecordStore edgeStore;
+    // the shortcut records are indexed by prepareEdge - edges
+    private RecordStore shortcutStore;
+    private int[] firstOut;
+    private int[] firstIn;
     // todo: it should be possible to store the 'skipped node' for each shortcut instead of storing the shortcut for
     //       each prepare edge. but this is a bit tricky for edge-based, because of our bidir shortcuts for node-based,
     //       and because basegraph has multi-edges. the advantage of storing the skipped node is that we could just write
@@ -75,8 +95,13 @@ public class CHPreparationGraph {
         this.nodes = nodes;
         this.edges = edges;
         this.edgeBased = edgeBased;
-        prepareEdgesOut = new PrepareEdge[nodes];
-        prepareEdgesIn = new PrepareEdge[nodes];
+        edgeStore = new RecordStore(EDGE_RECORD_SIZE);
+        edgeStore.ensureCapacity(edges);
+        shortcutStore = new RecordStore(edgeBased ? EDGE_BASED_SHORTCUT_RECORD_SIZE : NODE_BASED_SHORTCUT_RECORD_SIZE);
+        firstOut = new int[nodes];
+        firstIn = new int[nodes];
+        Arrays.fill(firstOut, NO_EDGE);
+        Arrays.fill(firstIn, NO_EDGE);
         shortcutsByPrepareEdges = new IntArrayList();
         degrees = new int[nodes];
         origGraphBuilder = edgeBased ? new OrigGraph.Builder() : null;
@@ -127,14 +152,17 @@ public class CHPreparationGraph {
         boolean bwd = Double.isFinite(weightBwd);
         if (!fwd && !bwd)
             return;
-        PrepareBaseEdge prepareEdge = new PrepareBaseEdge(edge, from, to, (float) weightFwd, (float) weightBwd);
+        edgeStore.set(edge, E_NODE_A, from);
+        edgeStore.set(edge, E_NODE_B, to);
+        edgeStore.set(edge, E_WEIGHT_AB, Float.floatToRawIntBits((float) weightFwd));
+        edgeStore.set(edge, E_WEIGHT_BA, Float.floatToRawIntBits((float) weightBwd));
         if (fwd) {
-            addOutEdge(from, prepareEdge);
-            addInEdge(to, prepareEdge);
+            addOutEdge(from, edge);
+            addInEdge(to, edge);
         }
         if (bwd && from != to) {
-            addOutEdge(to, prepareEdge);
-            addInEdge(from, prepareEdge);
+            addOutEdge(to, edge);
+            addInEdge(from, edge);
         }
         if (edgeBased)
             origGraphBuilder.addEdge(from, to, edge, fwd, bwd);
@@ -143,12 +171,22 @@ public class CHPreparationGraph {
     public int addShortcut(int from, int to, int origEdgeKeyFirst, int origEdgeKeyLast, int skipped1,
                            int skipped2, double weight, int origEdgeCount) {
         checkReady();
-        PrepareEdge prepareEdge = edgeBased
-                ? new EdgeBasedPrepareShortcut(nextShortcutId, from, to, origEdgeKeyFirst, origEdgeKeyLast, weight, skipped1, skipped2, origEdgeCount)
-                : new PrepareShortcut(nextShortcutId, from, to, weight, skipped1, skipped2, origEdgeCount);
-        addOutEdge(from, prepareEdge);
+        assert Double.isFinite(weight);
+        int shortcut = nextShortcutId - edges;
+        shortcutStore.ensureCapacity(shortcut + 1);
+        shortcutStore.set(shortcut, S_NODE_A, from);
+        shortcutStore.set(shortcut, S_NODE_B, to);
+        setShortcutWeight(shortcut, weight);
+        shortcutStore.set(shortcut, S_SKIPPED1, skipped1);
+        shortcutStore.set(shortcut, S_SKIPPED2, skipped2);
+        shortcutStore.set(shortcut, S_ORIG_EDGE_COUNT, origEdgeCount);
+        if (edgeBased) {
+            shortcutStore.set(shortcut, S_ORIG_KEY_FIRST, origEdgeKeyFirst);
+            shortcutStore.set(shortcut, S_ORIG_KEY_LAST, origEdgeKeyLast);
+        }
+        addOutEdge(from, nextShortcutId);
         if (from != to)
-            addInEdge(to, prepareEdge);
+            addInEdge(to, nextShortcutId);
         return nextShortcutId++;
     }
 
@@ -175,12 +213,12 @@ public class CHPreparationGraph {
 
     public PrepareGraphEdgeExplorer createOutEdgeExplorer() {
         checkReady();
-        return new PrepareGraphEdgeExplorerImpl(prepareEdgesOut, false);
+        return new PrepareGraphEdgeExplorerImpl(false);
     }
 
     public PrepareGraphEdgeExplorer createInEdgeExplorer() {
         checkReady();
-        return new PrepareGraphEdgeExplorerImpl(prepareEdgesIn, true);
+        return new PrepareGraphEdgeExplorerImpl(true);
     }
 
     public PrepareGraphOrigEdgeExplorer createOutOrigEdgeExplorer() {
@@ -206,80 +244,75 @@ public class CHPreparationGraph {
         // we use this neighbor set to guarantee a deterministic order of the returned
         // node ids
         neighborSet.clear();
-        PrepareEdge currOut = prepareEdgesOut[node];
-        while (currOut != null) {
-            int adjNode = currOut.getNodeB();
-            if (adjNode == node)
-                adjNode = currOut.getNodeA();
-            if (adjNode == node) {
-                // this is a loop
-                currOut = currOut.getNextOut(node);
-                continue;
+        int currOut = firstOut[node];
+        while (currOut != NO_EDGE) {
+            int adjNode = getOtherNode(currOut, node);
+            if (adjNode != node) {
+                removeInEdge(adjNode, currOut);
+                neighborSet.add(adjNode);
             }
-            removeInEdge(adjNode, currOut);
-            neighborSet.add(adjNode);
-            currOut = currOut.getNextOut(node);
-        }
-        PrepareEdge currIn = prepareEdgesIn[node];
-        while (currIn != null) {
-            int adjNode = currIn.getNodeB();
-            if (adjNode == node)
-                adjNode = currIn.getNodeA();
-            if (adjNode == node) {
-                // this is a loop
-                currIn = currIn.getNextIn(node);
-                continue;
+            // else this is a loop
+            currOut = getNextOut(currOut, node);
+        }
+        int currIn = firstIn[node];
+        while (currIn != NO_EDGE) {
+            int adjNode = getOtherNode(currIn, node);
+            if (adjNode != node) {
+                removeOutEdge(adjNode, currIn);
+                neighborSet.add(adjNode);
             }
-            removeOutEdge(adjNode, currIn);
-            neighborSet.add(adjNode);
-            currIn = currIn.getNextIn(node);
+            currIn = getNextIn(currIn, node);
         }
-        prepareEdgesOut[node] = null;
-        prepareEdgesIn[node] = null;
+        firstOut[node] = NO_EDGE;
+        firstIn[node] = NO_EDGE;
         degrees[node] = 0;
         return neighborSet;
     }
 
-    private void removeOutEdge(int node, PrepareEdge prepareEdge) {
-        PrepareEdge prevOut = null;
-        PrepareEdge currOut = prepareEdgesOut[node];
-        while (currOut != null) {
+    private void removeOutEdge(int node, int prepareEdge) {
+        int prevOut = NO_EDGE;
+        int currOut = firstOut[node];
+        while (currOut != NO_EDGE) {
+            int nextOut = getNextOut(currOut, node);
             if (currOut == prepareEdge) {
-                if (prevOut == null) {
-                    prepareEdgesOut[node] = currOut.getNextOut(node);
+                if (prevOut == NO_EDGE) {
+                    firstOut[node] = nextOut;
                 } else {
-                    prevOut.setNextOut(node, currOut.getNextOut(node));
+                    setNextOut(prevOut, node, nextOut);
                 }
                 degrees[node]--;
             } else {
                 prevOut = currOut;
             }
-            currOut = currOut.getNextOut(node);
+            currOut = nextOut;
         }
     }
 
-    private void removeInEdge(int node, PrepareEdge prepareEdge) {
-        PrepareEdge prevIn = null;
-        PrepareEdge currIn = prepareEdgesIn[node];
-        while (currIn != null) {
+    private void removeInEdge(int node, int prepareEdge) {
+        int prevIn = NO_EDGE;
+        int currIn = firstIn[node];
+        while (currIn != NO_EDGE) {
+            int nextIn = getNextIn(currIn, node);
             if (currIn == prepareEdge) {
-                if (prevIn == null) {
-                    prepareEdgesIn[node] = currIn.getNextIn(node);
+                if (prevIn == NO_EDGE) {
+                    firstIn[node] = nextIn;
                 } else {
-                    prevIn.setNextIn(node, currIn.getNextIn(node));
+                    setNextIn(prevIn, node, nextIn);
                 }
                 degrees[node]--;
             } else {
                 prevIn = currIn;
             }
-            currIn = currIn.getNextIn(node);
+            currIn = nextIn;
         }
     }
 
     public void close() {
         checkReady();
-        prepareEdgesOut = null;
-        prepareEdgesIn = null;
+        edgeStore = null;
+        shortcutStore = null;
+        firstOut = null;
+        firstIn = null;
         shortcutsByPrepareEdges = null;
         degrees = null;
         neighborSet = null;
@@ -287,18 +320,85 @@ public class CHPreparationGraph {
             origGraph = null;
     }
 
-    private void addOutEdge(int node, PrepareEdge prepareEdge) {
-        prepareEdge.setNextOut(node, prepareEdgesOut[node]);
-        prepareEdgesOut[node] = prepareEdge;
+    private void addOutEdge(int node, int prepareEdge) {
+        setNextOut(prepareEdge, node, firstOut[node]);
+        firstOut[node] = prepareEdge;
         degrees[node]++;
     }
 
-    private void addInEdge(int node, PrepareEdge prepareEdge) {
-        prepareEdge.setNextIn(node, prepareEdgesIn[node]);
-        prepareEdgesIn[node] = prepareEdge;
+    private void addInEdge(int node, int prepareEdge) {
+        setNextIn(prepareEdge, node, firstIn[node]);
+        firstIn[node] = prepareEdge;
         degrees[node]++;
     }
 
+    private boolean isShortcut(int prepareEdge) {
+        return prepareEdge >= edges;
+    }
+
+    private int getNodeA(int prepareEdge) {
+        return isShortcut(prepareEdge)
+                ? shortcutStore.get(prepareEdge - edges, S_NODE_A)
+                : edgeStore.get(prepareEdge, E_NODE_A);
+    }
+
+    private int getNodeB(int prepareEdge) {
+        return isShortcut(prepareEdge)
+                ? shortcutStore.get(prepareEdge - edges, S_NODE_B)
+                : edgeStore.get(prepareEdge, E_NODE_B);
+    }
+
+    private int getOtherNode(int prepareEdge, int node) {
+        int nodeB = getNodeB(prepareEdge);
+        return nodeB == node ? getNodeA(prepareEdge) : nodeB;
+    }
+
+    private double getShortcutWeight(int shortcut) {
+        long bits = ((long) shortcutStore.get(shortcut, S_WEIGHT + 1) << 32) | (shortcutStore.get(shortcut, S_WEIGHT) & 0xFFFF_FFFFL);
+        return Double.longBitsToDouble(bits);
+    }
+
+    private void setShortcutWeight(int shortcut, double weight) {
+        long bits = Double.doubleToRawLongBits(weight);
+        shortcutStore.set(shortcut, S_WEIGHT, (int) bits);
+        shortcutStore.set(shortcut, S_WEIGHT + 1, (int) (bits >>> 32));
+    }
+
+    private int getNextOut(int prepareEdge, int base) {
+        if (isShortcut(prepareEdge))
+            return shortcutStore.get(prepareEdge - edges, S_NEXT_OUT);
+        return edgeStore.get(prepareEdge, getEdgeLinkField(prepareEdge, base, E_NEXT_OUT_A, E_NEXT_OUT_B, "get next out"));
+    }
+
+    private void setNextOut(int prepareEdge, int base, int nextOut) {
+        if (isShortcut(prepareEdge))
+            shortcutStore.set(prepareEdge - edges, S_NEXT_OUT, nextOut);
+        else
+            edgeStore.set(prepareEdge, getEdgeLinkField(prepareEdge, base, E_NEXT_OUT_A, E_NEXT_OUT_B, "set next out"), nextOut);
+    }
+
+    private int getNextIn(int prepareEdge, int base) {
+        if (isShortcut(prepareEdge))
+            return shortcutStore.get(prepareEdge - edges, S_NEXT_IN);
+        return edgeStore.get(prepareEdge, getEdgeLinkField(prepareEdge, base, E_NEXT_IN_A, E_NEXT_IN_B, "get next in"));
+    }
+
+    private void setNextIn(int prepareEdge, int base, int nextIn) {
+        if (isShortcut(prepareEdge))
+            shortcutStore.set(prepareEdge - edges, S_NEXT_IN, nextIn);
+        else
+            edgeStore.set(prepareEdge, getEdgeLinkField(prepareEdge, base, E_NEXT_IN_A, E_NEXT_IN_B, "set next in"), nextIn);
+    }
+
+    private int getEdgeLinkField(int edge, int base, int fieldA, int fieldB, String action) {
+        if (base == edgeStore.get(edge, E_NODE_A))
+            return fieldA;
+        else if (base == edgeStore.get(edge, E_NODE_B))
+            return fieldB;
+        else
+            throw new IllegalStateException("Cannot " + action + " edge as the given base " + base + " is not adjacent to the current edge");
+    }
+
     private void checkReady() {
         if (!ready)
             throw new IllegalStateException("You need to call prepareForContraction() before calling this method");
@@ -314,32 +414,65 @@ public class CHPreparationGraph {
         double getTurnWeight(int inEdge, int viaNode, int outEdge);
     }
 
-    private static class PrepareGraphEdgeExplorerImpl implements PrepareGraphEdgeExplorer, PrepareGraphEdgeIterator {
-        private final PrepareEdge[] prepareEdges;
+    /**
+     * Stores records of a fixed number of ints. The records are kept in segments, so the storage can grow without
+     * copying and the total number of ints is not limited by the maximum array size.
+     */
+    private static class RecordStore {
+        private static final int SEGMENT_BITS = 12;
+        private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+        private final int recordSize;
+        private int[][] segments = new int[0][];
+
+        RecordStore(int recordSize) {
+            this.recordSize = recordSize;
+        }
+
+        void ensureCapacity(int records) {
+            int segmentCount = (records + SEGMENT_MASK) >>> SEGMENT_BITS;
+            if (segmentCount <= segments.length)
+                return;
+            int oldCount = segments.length;
+            // grow the (small) segment list by 50% at least to amortize copying it
+            int[][] newSegments = Arrays.copyOf(segments, Math.max(segmentCount, oldCount + (oldCount >> 1)));
+            for (int i = oldCount; i < newSegments.length; i++)
+                newSegments[i] = new int[(SEGMENT_MASK + 1) * recordSize];
+            segments = newSegments;
+        }
+
+        int get(int record, int field) {
+            return segments[record >>> SEGMENT_BITS][(record & SEGMENT_MASK) * recordSize + field];
+        }
+
+        void set(int record, int field, int value) {
+            segments[record >>> SEGMENT_BITS][(record & SEGMENT_MASK) * recordSize + field] = value;
+        }
+    }
+
+    private class PrepareGraphEdgeExplorerImpl implements PrepareGraphEdgeExplorer, PrepareGraphEdgeIterator {
         private final boolean reverse;
         private int node = -1;
-        private PrepareEdge currEdge;
-        private PrepareEdge nextEdge;
+        private int currEdge = NO_EDGE;
+        private int nextEdge = NO_EDGE;
 
-        PrepareGraphEdgeExplorerImpl(PrepareEdge[] prepareEdges, boolean reverse) {
-            this.prepareEdges = prepareEdges;
+        PrepareGraphEdgeExplorerImpl(boolean reverse) {
             this.reverse = reverse;
         }
 
         @Override
         public PrepareGraphEdgeIterator setBaseNode(int node) {
             this.node = node;
-            currEdge = null;
-            nextEdge = prepareEdges[node];
+            currEdge = NO_EDGE;
+            nextEdge = reverse ? firstIn[node] : firstOut[node];
             return this;
         }
 
         @Override
         public boolean next() {
             currEdge = nextEdge;
-            if (currEdge == null)
+            if (currEdge == NO_EDGE)
                 return false;
-            nextEdge = reverse ? currEdge.getNextIn(node) : currEdge.getNextOut(node);
+            nextEdge = reverse ? getNextIn(currEdge, node) : getNextOut(currEdge, node);
             return true;
         }
 
@@ -350,444 +483,108 @@ public class CHPreparationGraph {
 
         @Override
         public int getAdjNode() {
-            return nodeAisBase() ? currEdge.getNodeB() : currEdge.getNodeA();
+            return nodeAisBase() ? getNodeB(currEdge) : getNodeA(currEdge);
         }
 
         @Override
         public int getPrepareEdge() {
-            return currEdge.getPrepareEdge();
+            return currEdge;
         }
 
         @Override
         public boolean isShortcut() {
-            return currEdge.isShortcut();
+            return CHPreparationGraph.this.isShortcut(currEdge);
         }
 
         @Override
         public int getOrigEdgeKeyFirst() {
-            return nodeAisBase() ? currEdge.getOrigEdgeKeyFirstAB() : currEdge.getOrigEdgeKeyFirstBA();
+            return getOrigEdgeKey(S_ORIG_KEY_FIRST);
         }
 
         @Override
         public int getOrigEdgeKeyLast() {
-            return nodeAisBase() ? currEdge.getOrigEdgeKeyLastAB() : currEdge.getOrigEdgeKeyLastBA();
+            return getOrigEdgeKey(S_ORIG_KEY_LAST);
+        }
+
+        private int getOrigEdgeKey(int field) {
+            if (!isShortcut())
+                return GHUtility.createEdgeKey(currEdge, !nodeAisBase());
+            if (!edgeBased)
+                throw new IllegalStateException("Not supported for node-based shortcuts");
+            return shortcutStore.get(currEdge - edges, field);
         }
 
         @Override
         public int getSkipped1() {
-            return currEdge.getSkipped1();
+            return getShortcutField(S_SKIPPED1);
         }
 
         @Override
         public int getSkipped2() {
-            return currEdge.getSkipped2();
+            return getShortcutField(S_SKIPPED2);
         }
 
         @Override
         public double getWeight() {
-            if (nodeAisBase()) {
-                return reverse ? currEdge.getWeightBA() : currEdge.getWeightAB();
-            } else {
-                return reverse ? currEdge.getWeightAB() : currEdge.getWeightBA();
-            }
+            if (isShortcut())
+                return getShortcutWeight(currEdge - edges);
+            boolean ab = nodeAisBase() != reverse;
+            return Float.intBitsToFloat(edgeStore.get(currEdge, ab ? E_WEIGHT_AB : E_WEIGHT_BA));
         }
 
         @Override
         public int getOrigEdgeCount() {
-            return currEdge.getOrigEdgeCount();
+            return isShortcut() ? shortcutStore.get(currEdge - edges, S_ORIG_EDGE_COUNT) : 1;
         }
 
         @Override
         public void setSkippedEdges(int skipped1, int skipped2) {
-            currEdge.setSkipped1(skipped1);
-            currEdge.setSkipped2(skipped2);
-        }
-
-        @Override
-        public void setWeight(double weight) {
-            assert Double.isFinite(weight);
-            currEdge.setWeight(weight);
-        }
-
-        @Override
-        public void setOrigEdgeCount(int origEdgeCount) {
-            currEdge.setOrigEdgeCount(origEdgeCount);
-        }
-
-        @Override
-        public String toString() {
-            return currEdge == null ? "not_started" : currEdge.toString();
-        }
-
-        private boolean nodeAisBase() {
-            // in some cases we need to determine which direction of the (bidirectional) edge we want
-            return currEdge.getNodeA() == node;
-        }
-    }
-
-    interface PrepareEdge {
-        boolean isShortcut();
-
-        int getPrepareEdge();
-
-        int getNodeA();
-
-        int getNodeB();
-
-        double getWeightAB();
-
-        double getWeightBA();
-
-        int getOrigEdgeKeyFirstAB();
-
-        int getOrigEdgeKeyFirstBA();
-
-        int getOrigEdgeKeyLastAB();
-
-        int getOrigEdgeKeyLastBA();
-
-        int getSkipped1();
-
-        int getSkipped2();
-
-        int getOrigEdgeCount();
-
-        void setSkipped1(int skipped1);
-
-        void setSkipped2(int skipped2);
-
-        void setWeight(double weight);
-
-        void setOrigEdgeCount(int origEdgeCount);
-
-        PrepareEdge getNextOut(int base);
-
-        void setNextOut(int base, PrepareEdge prepareEdge);
-
-        PrepareEdge getNextIn(int base);
-
-        void setNextIn(int base, PrepareEdge prepareEdge);
-
-    }
-
-    public static class PrepareBaseEdge implements PrepareEdge {
-        private final int prepareEdge;
-        private final int nodeA;
-        private final int nodeB;
-        private final float weightAB;
-        private final float weightBA;
-        private PrepareEdge nextOutA;
-        private PrepareEdge nextOutB;
-        private PrepareEdge nextInA;
-        private PrepareEdge nextInB;
-
-        public PrepareBaseEdge(int prepareEdge, int nodeA, int nodeB, float weightAB, float weightBA) {
-            this.prepareEdge = prepareEdge;
-            this.nodeA = nodeA;
-            this.nodeB = nodeB;
-            this.weightAB = weightAB;
-            this.weightBA = weightBA;
-        }
-
-        @Override
-        public boolean isShortcut() {
-            return false;
-        }
-
-        @Override
-        public int getPrepareEdge() {
-            return prepareEdge;
-        }
-
-        @Override
-        public int getNodeA() {
-            return nodeA;
-        }
-
-        @Override
-        public int getNodeB() {
-            return nodeB;
-        }
-
-        @Override
-        public double getWeightAB() {
-            return weightAB;
-        }
-
-        @Override
-        public double getWeightBA() {
-            return weightBA;
-        }
-
-        @Override
-        public int getOrigEdgeKeyFirstAB() {
-            return GHUtility.createEdgeKey(prepareEdge, false);
-        }
-
-        @Override
-        public int getOrigEdgeKeyFirstBA() {
-            return GHUtility.createEdgeKey(prepareEdge, true);
-        }
-
-        @Override
-        public int getOrigEdgeKeyLastAB() {
-            return getOrigEdgeKeyFirstAB();
-        }
-
-        @Override
-        public int getOrigEdgeKeyLastBA() {
-            return getOrigEdgeKeyFirstBA();
-        }
-
-        @Override
-        public int getSkipped1() {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public int getSkipped2() {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public int getOrigEdgeCount() {
-            return 1;
-        }
-
-        @Override
-        public void setSkipped1(int skipped1) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public void setSkipped2(int skipped2) {
-            throw new UnsupportedOperationException();
+            setShortcutField(S_SKIPPED1, skipped1);
+            setShortcutField(S_SKIPPED2, skipped2);
         }
 
         @Override
         public void setWeight(double weight) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public void setOrigEdgeCount(int origEdgeCount) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public PrepareEdge getNextOut(int base) {
-            if (base == nodeA)
-                return nextOutA;
-            else if (base == nodeB)
-                return nextOutB;
-            else
-                throw new IllegalStateException("Cannot get next out edge as the given base " + base + " is not adjacent to the current edge");
-        }
-
-        @Override
-        public void setNextOut(int base, PrepareEdge prepareEdge) {
-            if (base == nodeA)
-                nextOutA = prepareEdge;
-            else if (base == nodeB)
-                nextOutB = prepareEdge;
-            else
-                throw new IllegalStateException("Cannot set next out edge as the given base " + base + " is not adjacent to the current edge");
-        }
-
-        @Override
-        public PrepareEdge getNextIn(int base) {
-            if (base == nodeA)
-                return nextInA;
-            else if (base == nodeB)
-                return nextInB;
-            else
-                throw new IllegalStateException("Cannot get next in edge as the given base " + base + " is not adjacent to the current edge");
-        }
-
-        @Override
-        public void setNextIn(int base, PrepareEdge prepareEdge) {
-            if (base == nodeA)
-                nextInA = prepareEdge;
-            else if (base == nodeB)
-                nextInB = prepareEdge;
-            else
-                throw new IllegalStateException("Cannot set next in edge as the given base " + base + " is not adjacent to the current edge");
-        }
-
-        @Override
-        public String toString() {
-            return nodeA + "-" + nodeB + " (" + prepareEdge + ") " + weightAB + " " + weightBA;
-        }
-    }
-
-    private static class PrepareShortcut implements PrepareEdge {
-        private final int prepareEdge;
-        private final int from;
-        private final int to;
-        private double weight;
-        private int skipped1;
-        private int skipped2;
-        private int origEdgeCount;
-        private PrepareEdge nextOut;
-        private PrepareEdge nextIn;
-
-        private PrepareShortcut(int prepareEdge, int from, int to, double weight, int skipped1, int skipped2, int origEdgeCount) {
-            this.prepareEdge = prepareEdge;
-            this.from = from;
-            this.to = to;
             assert Double.isFinite(weight);
-            this.weight = weight;
-            this.skipped1 = skipped1;
-            this.skipped2 = skipped2;
-            this.origEdgeCount = origEdgeCount;
-        }
-
-        @Override
-        public boolean isShortcut() {
-            return true;
-        }
-
-        @Override
-        public int getPrepareEdge() {
-            return prepareEdge;
-        }
-
-        @Override
-        public int getNodeA() {
-            return from;
-        }
-
-        @Override
-        public int getNodeB() {
-            return to;
-        }
-
-        @Override
-        public double getWeightAB() {
-            return weight;
-        }
-
-        @Override
-        public double getWeightBA() {
-            return weight;
-        }
-
-        @Override
-        public int getOrigEdgeKeyFirstAB() {
-            throw new IllegalStateException("Not supported for node-based shortcuts");
-        }
-
-        @Override
-        public int getOrigEdgeKeyFirstBA() {
-            throw new IllegalStateException("Not supported for node-based shortcuts");
-        }
-
-        @Override
-        public int getOrigEdgeKeyLastAB() {
-            throw new IllegalStateException("Not supported for node-based shortcuts");
-        }
-
-        @Override
-        public int getOrigEdgeKeyLastBA() {
-            throw new IllegalStateException("Not supported for node-based shortcuts");
-        }
-
-        @Override
-        public int getSkipped1() {
-            return skipped1;
-        }
-
-        @Override
-        public int getSkipped2() {
-            return skipped2;
-        }
-
-        @Override
-        public int getOrigEdgeCount() {
-            return origEdgeCount;
-        }
-
-        @Override
-        public void setSkipped1(int skipped1) {
-            this.skipped1 = skipped1;
-        }
-
-        @Override
-        public void setSkipped2(int skipped2) {
-            this.skipped2 = skipped2;
-        }
-
-        @Override
-        public void setWeight(double weight) {
-            this.weight = weight;
+            if (!isShortcut())
+                throw new UnsupportedOperationException();
+            setShortcutWeight(currEdge - edges, weight);
         }
 
         @Override
         public void setOrigEdgeCount(int origEdgeCount) {
-            this.origEdgeCount = origEdgeCount;
-        }
-
-        @Override
-        public PrepareEdge getNextOut(int base) {
-            return nextOut;
+            setShortcutField(S_ORIG_EDGE_COUNT, origEdgeCount);
         }
 
-        @Override
-        public void setNextOut(int base, PrepareEdge prepareEdge) {
-            this.nextOut = prepareEdge;
+        private int getShortcutField(int field) {
+            if (!isShortcut())
+                throw new UnsupportedOperationException();
+            return shortcutStore.get(currEdge - edges, field);
         }
 
-        @Override
-        public PrepareEdge getNextIn(int base) {
-            return nextIn;
-        }
-
-        @Override
-        public void setNextIn(int base, PrepareEdge prepareEdge) {
-            this.nextIn = prepareEdge;
+        private void setShortcutField(int field, int value) {
+            if (!isShortcut())
+                throw new UnsupportedOperationException();
+            shortcutStore.set(currEdge - edges, field, value);
         }
 
         @Override
         public String toString() {
-            return from + "-" + to + " " + weight;
-        }
-    }
-
-    private static class EdgeBasedPrepareShortcut extends PrepareShortcut {
-        // we use this subclass to save some memory for node-based where these are not needed
-        private final int origEdgeKeyFirst;
-        private final int origEdgeKeyLast;
-
-        public EdgeBasedPrepareShortcut(int prepareEdge, int from, int to, int origEdgeKeyFirst, int origEdgeKeyLast,
-                                        double weight, int skipped1, int skipped2, int origEdgeCount) {
-            super(prepareEdge, from, to, weight, skipped1, skipped2, origEdgeCount);
-            this.origEdgeKeyFirst = origEdgeKeyFirst;
-            this.origEdgeKeyLast = origEdgeKeyLast;
-        }
-
-        @Override
-        public int getOrigEdgeKeyFirstAB() {
-            return origEdgeKeyFirst;
-        }
-
-        @Override
-        public int getOrigEdgeKeyFirstBA() {
-            return origEdgeKeyFirst;
-        }
-
-        @Override
-        public int getOrigEdgeKeyLastAB() {
-            return origEdgeKeyLast;
+            if (currEdge == NO_EDGE)
+                return "not_started";
+            if (!isShortcut())
+                return getNodeA(currEdge) + "-" + getNodeB(currEdge) + " (" + currEdge + ") "
+                        + Float.intBitsToFloat(edgeStore.get(currEdge, E_WEIGHT_AB)) + " "
+                        + Float.intBitsToFloat(edgeStore.get(currEdge, E_WEIGHT_BA));
+            int shortcut = currEdge - edges;
+            return getNodeA(currEdge) + "-" + getNodeB(currEdge)
+                    + (edgeBased ? " (" + shortcutStore.get(shortcut, S_ORIG_KEY_FIRST) + ", " + shortcutStore.get(shortcut, S_ORIG_KEY_LAST) + ")" : "")
+                    + " " + getShortcutWeight(shortcut);
         }
 
-        @Override
-        public int getOrigEdgeKeyLastBA() {
-            return origEdgeKeyLast;
-        }
-
-        @Override
-        public String toString() {
-            return getNodeA() + "-" + getNodeB() + " (" + origEdgeKeyFirst + ", " + origEdgeKeyLast + ") " + getWeightAB();
+        private boolean nodeAisBase() {
+            // in some cases we need to determine which direction of the (bidirectional) edge we want
+            return getNodeA(currEdge) == node;
         }
     }
 
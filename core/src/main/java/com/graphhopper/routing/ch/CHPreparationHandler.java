@@ -23,6 +23,7 @@ import com.graphhopper.storage.*;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.Parameters.CH;
+import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,6 +65,15 @@ public class CHPreparationHandler {
         pMap = ghConfig.asPMap();
     }
 
+    /**
+     * @return the minimum time in milliseconds between two checkpoints of a CH preparation, 0 if there are no
+     * checkpoints
+     * @see CHParameters#CHECKPOINT_INTERVAL
+     */
+    public long getCheckpointInterval() {
+        return pMap.getLong(CHParameters.CHECKPOINT_INTERVAL, 0);
+    }
+
     public final boolean isEnabled() {
         return !chProfiles.isEmpty();
     }
@@ -119,6 +129,7 @@ public class CHPreparationHandler {
         }
         LOGGER.info("Creating CH preparations, {}", getMemInfo());
         Map<String, PrepareContractionHierarchies.Result> results = Collections.synchronizedMap(new LinkedHashMap<>());
+        CCHCustomizer customizer = createCustomizer(baseGraph, chConfigs);
         List<Runnable> runnables = new ArrayList<>(chConfigs.size());
         for (int i = 0; i < chConfigs.size(); ++i) {
             CHConfig chConfig = chConfigs.get(i);
@@ -128,13 +139,18 @@ public class CHPreparationHandler {
                 final String name = chConfig.getName();
                 // toString is not taken into account so we need to cheat, see http://stackoverflow.com/q/6113746/194609 for other options
                 Thread.currentThread().setName(name);
-                PrepareContractionHierarchies prepare = PrepareContractionHierarchies.fromGraph(baseGraph, chConfig);
-                prepare.setParams(pMap);
-                PrepareContractionHierarchies.Result result = prepare.doWork();
+                PrepareContractionHierarchies.Result result;
+                if (customizer != null && !chConfig.isEdgeBased()) {
+                    result = customizer.prepare(chConfig);
+                } else {
+                    PrepareContractionHierarchies prepare = PrepareContractionHierarchies.fromGraph(baseGraph, chConfig);
+                    prepare.setParams(pMap);
+                    result = prepare.doWork();
+                }
                 results.put(name, result);
-                prepare.flush();
+                result.getCHStorage().flush();
                 if (closeEarly)
-                    prepare.close();
+                    result.getCHStorage().close();
                 properties.put(CH.PREPARE + "date." + name, createFormatter().format(new Date()));
             });
         }
@@ -143,6 +159,21 @@ public class CHPreparationHandler {
         return results;
     }
 
+    /**
+     * With prepare.ch.customizable all node-based CHs are created from a single metric-independent topology, which
+     * is much faster than preparing each of them from scratch. Edge-based CHs are always prepared as usual.
+     */
+    private CCHCustomizer createCustomizer(BaseGraph baseGraph, List<CHConfig> chConfigs) {
+        if (!pMap.getBool(CHParameters.CUSTOMIZABLE, false) || chConfigs.stream().allMatch(CHConfig::isEdgeBased))
+            return null;
+        LOGGER.info("Creating customizable CH topology, {}", getMemInfo());
+        StopWatch sw = new StopWatch().start();
+        CCHTopology topology = CCHTopology.fromGraph(baseGraph);
+        LOGGER.info("Finished customizable CH topology, took: {}s, arcs: {}, shortcuts: {}, {}", sw.stop().getSeconds(),
+                topology.getArcs(), topology.getShortcuts(), getMemInfo());
+        return new CCHCustomizer(topology);
+    }
+
     private PrepareContractionHierarchies createCHPreparation(BaseGraph graph, CHConfig chConfig) {
         PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(graph, chConfig);
         pch.setParams(pMap);
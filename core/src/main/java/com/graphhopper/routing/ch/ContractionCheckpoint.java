@@ -0,0 +1,115 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the nodes that were contracted so far by an (unfinished) CH preparation, such that it can be resumed after
+ * it was interrupted, see {@link CHParameters#CHECKPOINT_INTERVAL}. We do not store the prepare graph or the
+ * shortcuts. Instead, we contract the same nodes in the same order again when we resume. This still requires the
+ * witness searches, but not the much more expensive priority updates that determined the node ordering. Since the
+ * shortcuts are calculated again the resulting CH is always correct, even if the checkpoint is outdated.
+ */
+class ContractionCheckpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContractionCheckpoint.class);
+    private static final int VERSION = 1;
+    private final Directory dir;
+    private final String name;
+    private final DataAccess da;
+    private final long intervalMillis;
+    private final int nodes;
+    private final int edges;
+    private int contractedNodes;
+    private long lastFlush;
+
+    ContractionCheckpoint(Directory dir, String chName, long intervalMillis, int nodes, int edges) {
+        this.dir = dir;
+        this.name = "ch_checkpoint_" + chName;
+        // the checkpoint is written to disk continuously, so there is no need to keep it on the heap
+        this.da = dir.create(name, DAType.MMAP);
+        this.intervalMillis = intervalMillis;
+        this.nodes = nodes;
+        this.edges = edges;
+    }
+
+    /**
+     * @return the nodes contracted by a previous preparation in the order of their contraction or an empty array if
+     * there is no (usable) checkpoint. The caller is expected to contract these nodes again and {@link #add} them.
+     */
+    int[] loadExisting() {
+        if (!da.loadExisting()) {
+            da.create(1000);
+            lastFlush = System.currentTimeMillis();
+            return new int[0];
+        }
+        lastFlush = System.currentTimeMillis();
+        if (da.getHeader(0) != VERSION || da.getHeader(4) != nodes || da.getHeader(2 * 4) != edges) {
+            LOGGER.warn("Ignoring checkpoint {}, it was written for a different graph or version", name);
+            return new int[0];
+        }
+        int[] contracted = new int[da.getHeader(3 * 4)];
+        for (int i = 0; i < contracted.length; i++) {
+            contracted[i] = da.getInt(4L * i);
+            if (contracted[i] < 0 || contracted[i] >= nodes)
+                throw new IllegalStateException("Invalid node " + contracted[i] + " in checkpoint " + name);
+        }
+        return contracted;
+    }
+
+    /**
+     * @return the number of checked nodes of the heuristic node ordering that was stored together with the nodes
+     */
+    int getCheckCounter() {
+        return da.getHeader(4 * 4);
+    }
+
+    void add(int node) {
+        long pointer = 4L * contractedNodes;
+        da.ensureCapacity(pointer + 4);
+        da.setInt(pointer, node);
+        contractedNodes++;
+    }
+
+    /**
+     * Writes the checkpoint to disk if the checkpoint interval has elapsed since it was written the last time
+     */
+    void flushIfDue(int checkCounter) {
+        if (System.currentTimeMillis() - lastFlush < intervalMillis)
+            return;
+        da.setHeader(0, VERSION);
+        da.setHeader(4, nodes);
+        da.setHeader(2 * 4, edges);
+        da.setHeader(3 * 4, contractedNodes);
+        da.setHeader(4 * 4, checkCounter);
+        da.flush();
+        lastFlush = System.currentTimeMillis();
+        LOGGER.info("Wrote checkpoint {}, contracted nodes: {}", name, contractedNodes);
+    }
+
+    /**
+     * Removes the checkpoint once the preparation is finished
+     */
+    void remove() {
+        dir.remove(name);
+    }
+}
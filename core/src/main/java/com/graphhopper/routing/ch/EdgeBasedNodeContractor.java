@@ -28,7 +28,10 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.function.IntPredicate;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.GHUtility.reverseEdgeKey;
@@ -54,7 +57,9 @@ class EdgeBasedNodeContractor implements NodeContractor {
     private PrepareGraphEdgeExplorer existingShortcutExplorer;
     private PrepareGraphOrigEdgeExplorer sourceNodeOrigInEdgeExplorer;
     private CHStorageBuilder chBuilder;
-    private final Params params = new Params();
+    private final Params params;
+    // the contractor that created this worker or this contractor itself
+    private final EdgeBasedNodeContractor main;
     private final StopWatch dijkstraSW = new StopWatch();
     // temporary data used during node contraction
     private final IntSet sourceNodes = new IntHashSet(10);
@@ -85,7 +90,23 @@ class EdgeBasedNodeContractor implements NodeContractor {
     public EdgeBasedNodeContractor(CHPreparationGraph prepareGraph, CHStorageBuilder chBuilder, PMap pMap) {
         this.prepareGraph = prepareGraph;
         this.chBuilder = chBuilder;
+        params = new Params();
         extractParams(pMap);
+        main = this;
+    }
+
+    private EdgeBasedNodeContractor(EdgeBasedNodeContractor main) {
+        prepareGraph = main.prepareGraph;
+        params = main.params;
+        this.main = main;
+        inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        existingShortcutExplorer = prepareGraph.createOutEdgeExplorer();
+        sourceNodeOrigInEdgeExplorer = prepareGraph.createInOrigEdgeExplorer();
+        // the hierarchy depths are only read by workers
+        hierarchyDepths = main.hierarchyDepths;
+        witnessPathSearcher = new EdgeBasedWitnessPathSearcher(prepareGraph);
+        bridgePathFinder = new BridgePathFinder(prepareGraph);
     }
 
     private void extractParams(PMap pMap) {
@@ -118,7 +139,7 @@ class EdgeBasedNodeContractor implements NodeContractor {
             // no shortcuts will be introduced
             return Float.NEGATIVE_INFINITY;
         stats().stopWatch.start();
-        findAndHandlePrepareShortcuts(node, this::countShortcuts, (int) (meanDegree * params.maxPollFactorHeuristic), wpsStatsHeur);
+        findAndHandlePrepareShortcuts(node, this::countShortcuts, (int) (main.meanDegree * params.maxPollFactorHeuristic), wpsStatsHeur);
         stats().stopWatch.stop();
         // the higher the priority the later (!) this node will be contracted
         float edgeQuotient = numShortcuts / (float) (prepareGraph.getDegree(node));
@@ -141,13 +162,47 @@ class EdgeBasedNodeContractor implements NodeContractor {
         activeStats = addingStats;
         stats().stopWatch.start();
         findAndHandlePrepareShortcuts(node, this::addShortcutsToPrepareGraph, (int) (meanDegree * params.maxPollFactorContraction), wpsStatsContr);
+        IntContainer neighbors = disconnect(node);
+        stats().stopWatch.stop();
+        return neighbors;
+    }
+
+    @Override
+    public NodeContractor createWorker() {
+        return new EdgeBasedNodeContractor(this);
+    }
+
+    @Override
+    public PendingContraction findShortcuts(int node, IntPredicate contractedNodes) {
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        PendingShortcuts result = new PendingShortcuts(node);
+        witnessPathSearcher.setIgnoredNodes(contractedNodes);
+        findAndHandlePrepareShortcuts(node, result::add, (int) (main.meanDegree * params.maxPollFactorContraction), wpsStatsContr);
+        witnessPathSearcher.setIgnoredNodes(null);
+        stats().stopWatch.stop();
+        return result;
+    }
+
+    @Override
+    public IntContainer contractNode(PendingContraction contraction) {
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        PendingShortcuts pending = (PendingShortcuts) contraction;
+        for (int i = 0; i < pending.edgesFrom.size(); i++)
+            addShortcutsToPrepareGraph(pending.edgesFrom.get(i), pending.edgesTo.get(i), pending.origEdgeCounts.get(i));
+        IntContainer neighbors = disconnect(pending.node);
+        stats().stopWatch.stop();
+        return neighbors;
+    }
+
+    private IntContainer disconnect(int node) {
         insertShortcuts(node);
         IntContainer neighbors = prepareGraph.disconnect(node);
         // We maintain an approximation of the mean degree which we update after every contracted node.
         // We do it the same way as for node-based CH for now.
         meanDegree = (meanDegree * 2 + neighbors.size()) / 3;
         updateHierarchyDepthsOfNeighbors(node, neighbors);
-        stats().stopWatch.stop();
         return neighbors;
     }
 
@@ -389,6 +444,31 @@ class EdgeBasedNodeContractor implements NodeContractor {
         void handleShortcut(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount);
     }
 
+    /**
+     * The shortcuts found by a worker. The entries are not changed after the shortcut handler was called for them.
+     */
+    private static class PendingShortcuts implements PendingContraction {
+        final int node;
+        final List<PrepareCHEntry> edgesFrom = new ArrayList<>();
+        final List<PrepareCHEntry> edgesTo = new ArrayList<>();
+        final IntArrayList origEdgeCounts = new IntArrayList();
+
+        PendingShortcuts(int node) {
+            this.node = node;
+        }
+
+        void add(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount) {
+            edgesFrom.add(edgeFrom);
+            edgesTo.add(edgeTo);
+            origEdgeCounts.add(origEdgeCount);
+        }
+
+        @Override
+        public int getNode() {
+            return node;
+        }
+    }
+
     private void countShortcuts(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount) {
         int fromNode = edgeFrom.parent.adjNode;
         int toNode = edgeTo.adjNode;
@@ -23,6 +23,7 @@ import com.graphhopper.util.GHUtility;
 
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.function.IntPredicate;
 
 import static com.graphhopper.util.Helper.nf;
 
@@ -59,6 +60,7 @@ public class EdgeBasedWitnessPathSearcher {
 
     private int sourceNode;
     private int centerNode;
+    private IntPredicate ignoredNodes;
 
     // various counters
     private int numPolls;
@@ -107,6 +109,14 @@ public class EdgeBasedWitnessPathSearcher {
         dijkstraHeap.insert(0, sourceEdgeKey);
     }
 
+    /**
+     * Sets nodes that are not used for witness paths by all following searches, e.g. because they are about to be
+     * contracted as well. Use null to not ignore any nodes.
+     */
+    public void setIgnoredNodes(IntPredicate ignoredNodes) {
+        this.ignoredNodes = ignoredNodes;
+    }
+
     /**
      * Runs a witness path search for a given target edge key. Results of previous searches (the shortest path tree) are
      * reused and the previous search is extended if necessary. Note that you need to call
@@ -151,6 +161,8 @@ public class EdgeBasedWitnessPathSearcher {
                 // being recognized as witnesses when there are double zero weight loops at the source node
                 if (currNode == sourceNode && iter.getAdjNode() == sourceNode && iter.getWeight() < MAX_ZERO_WEIGHT_LOOP)
                     continue;
+                if (ignoredNodes != null && ignoredNodes.test(iter.getAdjNode()))
+                    continue;
                 final double weight = weights[currKey] + calcTurnWeight(currKey, currNode, iter.getOrigEdgeKeyFirst()) + iter.getWeight();
                 if (Double.isInfinite(weight))
                     continue;
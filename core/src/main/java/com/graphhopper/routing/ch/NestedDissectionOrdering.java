@@ -0,0 +1,201 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+/**
+ * Calculates a node ordering for a customizable CH (see {@link CCHTopology}) using geometric nested dissection: the
+ * nodes are split at the median of their coordinates along the longer side of their bounding box and the nodes on one
+ * side of the cut that are adjacent to the other side form a separator. The separator nodes get the highest levels
+ * and both halves are ordered recursively. The ordering only depends on the graph topology and the node coordinates,
+ * not on any weighting.
+ */
+public class NestedDissectionOrdering {
+    // cells with at most this many nodes are not split any further
+    private static final int MAX_CELL_SIZE = 256;
+    private static final int SEPARATED = -1;
+    private final NodeAccess nodeAccess;
+    private final EdgeExplorer explorer;
+    private final int[] cells;
+    private final int[] nodeOrdering;
+    private int nextLevel;
+    private int cellCount;
+
+    public static NodeOrderingProvider fromGraph(Graph graph) {
+        return new NestedDissectionOrdering(graph).calcOrdering();
+    }
+
+    private NestedDissectionOrdering(Graph graph) {
+        nodeAccess = graph.getNodeAccess();
+        explorer = graph.createEdgeExplorer();
+        cells = new int[graph.getNodes()];
+        nodeOrdering = new int[graph.getNodes()];
+    }
+
+    private NodeOrderingProvider calcOrdering() {
+        int[] nodes = new int[cells.length];
+        for (int i = 0; i < nodes.length; i++)
+            nodes[i] = i;
+        nextLevel = nodes.length;
+        cellCount = 1;
+        dissect(nodes, 0, nodes.length, 0);
+        if (nextLevel != 0)
+            throw new IllegalStateException("Not all nodes were assigned a level, remaining: " + nextLevel);
+        return NodeOrderingProvider.fromArray(nodeOrdering);
+    }
+
+    /**
+     * Assigns the highest free levels to the nodes nodes[from..to), which all belong to the given cell.
+     */
+    private void dissect(int[] nodes, int from, int to, int cell) {
+        if (to - from <= MAX_CELL_SIZE) {
+            orderByMinimumDegree(nodes, from, to);
+            return;
+        }
+        sortAlongLongerSide(nodes, from, to);
+        int mid = from + (to - from) / 2;
+        int leftCell = cellCount++;
+        int rightCell = cellCount++;
+        for (int i = from; i < to; i++)
+            cells[nodes[i]] = i < mid ? leftCell : rightCell;
+        int leftBoundary = countBoundaryNodes(nodes, from, mid, rightCell);
+        int rightBoundary = countBoundaryNodes(nodes, mid, to, leftCell);
+        // the boundary nodes of either side cover all edges between the two sides, so we use the smaller one
+        if (leftBoundary <= rightBoundary)
+            separate(nodes, from, mid, rightCell);
+        else
+            separate(nodes, mid, to, leftCell);
+        int leftEnd = compact(nodes, from, mid);
+        int rightEnd = compact(nodes, mid, to);
+        dissect(nodes, from, leftEnd, leftCell);
+        dissect(nodes, mid, rightEnd, rightCell);
+    }
+
+    /**
+     * Orders the nodes of a small cell using the minimum degree heuristic: we repeatedly contract the node with the
+     * fewest neighbors and connect all its neighbors with each other. Nodes outside the cell belong to separators
+     * and are contracted later anyway.
+     */
+    private void orderByMinimumDegree(int[] nodes, int from, int to) {
+        int size = to - from;
+        IntHashSet[] neighbors = new IntHashSet[size];
+        IntIntHashMap indices = new IntIntHashMap(size);
+        for (int i = 0; i < size; i++)
+            indices.put(nodes[from + i], i);
+        for (int i = 0; i < size; i++) {
+            neighbors[i] = new IntHashSet();
+            EdgeIterator iter = explorer.setBaseNode(nodes[from + i]);
+            while (iter.next())
+                if (iter.getAdjNode() != nodes[from + i])
+                    neighbors[i].add(iter.getAdjNode());
+        }
+        boolean[] contracted = new boolean[size];
+        int[] ordering = new int[size];
+        for (int k = 0; k < size; k++) {
+            int best = -1;
+            for (int i = 0; i < size; i++)
+                if (!contracted[i] && (best < 0 || neighbors[i].size() < neighbors[best].size()))
+                    best = i;
+            contracted[best] = true;
+            ordering[k] = nodes[from + best];
+            int node = nodes[from + best];
+            for (IntCursor c : neighbors[best]) {
+                int index = indices.getOrDefault(c.value, -1);
+                if (index < 0 || contracted[index])
+                    continue;
+                neighbors[index].remove(node);
+                for (IntCursor d : neighbors[best])
+                    if (d.value != c.value)
+                        neighbors[index].add(d.value);
+            }
+        }
+        // the last contracted node gets the highest level
+        for (int k = size - 1; k >= 0; k--)
+            assignLevel(ordering[k]);
+    }
+
+    private void sortAlongLongerSide(int[] nodes, int from, int to) {
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            double lat = nodeAccess.getLat(nodes[i]);
+            double lon = nodeAccess.getLon(nodes[i]);
+            minLat = Math.min(minLat, lat);
+            maxLat = Math.max(maxLat, lat);
+            minLon = Math.min(minLon, lon);
+            maxLon = Math.max(maxLon, lon);
+        }
+        double lonFactor = Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        boolean useLat = maxLat - minLat >= (maxLon - minLon) * lonFactor;
+        // we sort the nodes by their (rounded) coordinate and node id, both fit into a single long
+        long[] keys = new long[to - from];
+        for (int i = from; i < to; i++) {
+            double coord = useLat ? nodeAccess.getLat(nodes[i]) : nodeAccess.getLon(nodes[i]);
+            keys[i - from] = ((long) (int) Math.round(coord * 1e6) << 32) | nodes[i];
+        }
+        Arrays.sort(keys);
+        for (int i = from; i < to; i++)
+            nodes[i] = (int) keys[i - from];
+    }
+
+    private int countBoundaryNodes(int[] nodes, int from, int to, int otherCell) {
+        int count = 0;
+        for (int i = from; i < to; i++)
+            if (isAdjacentToCell(nodes[i], otherCell))
+                count++;
+        return count;
+    }
+
+    private void separate(int[] nodes, int from, int to, int otherCell) {
+        for (int i = from; i < to; i++) {
+            if (isAdjacentToCell(nodes[i], otherCell)) {
+                // the separator nodes are contracted after all nodes of both sides
+                cells[nodes[i]] = SEPARATED;
+                assignLevel(nodes[i]);
+            }
+        }
+    }
+
+    private int compact(int[] nodes, int from, int to) {
+        int end = from;
+        for (int i = from; i < to; i++)
+            if (cells[nodes[i]] != SEPARATED)
+                nodes[end++] = nodes[i];
+        return end;
+    }
+
+    private boolean isAdjacentToCell(int node, int cell) {
+        EdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next())
+            if (cells[iter.getAdjNode()] == cell)
+                return true;
+        return false;
+    }
+
+    private void assignLevel(int node) {
+        nodeOrdering[--nextLevel] = node;
+    }
+}
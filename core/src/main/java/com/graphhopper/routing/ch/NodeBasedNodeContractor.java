@@ -17,6 +17,8 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.graphhopper.storage.CHStorageBuilder;
 import com.graphhopper.util.PMap;
@@ -25,13 +27,16 @@ import com.graphhopper.util.StopWatch;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.IntPredicate;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
 
 class NodeBasedNodeContractor implements NodeContractor {
     private final CHPreparationGraph prepareGraph;
-    private final Params params = new Params();
+    private final Params params;
+    // the contractor that created this worker or this contractor itself
+    private final NodeBasedNodeContractor main;
     // todo: maybe use a set to prevent duplicates instead?
     private List<Shortcut> shortcuts = new ArrayList<>();
     private CHStorageBuilder chBuilder;
@@ -51,8 +56,17 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     NodeBasedNodeContractor(CHPreparationGraph prepareGraph, CHStorageBuilder chBuilder, PMap pMap) {
         this.prepareGraph = prepareGraph;
+        params = new Params();
         extractParams(pMap);
         this.chBuilder = chBuilder;
+        main = this;
+    }
+
+    private NodeBasedNodeContractor(NodeBasedNodeContractor main) {
+        prepareGraph = main.prepareGraph;
+        params = main.params;
+        this.main = main;
+        initFromGraph();
     }
 
     private void extractParams(PMap pMap) {
@@ -97,7 +111,7 @@ class NodeBasedNodeContractor implements NodeContractor {
         // originalEdgesCount = σ(v) := sum_{ (u,w) ∈ shortcuts(v) } of r(u, w)
         shortcutsCount = 0;
         originalEdgesCount = 0;
-        findAndHandleShortcuts(node, this::countShortcuts, (int) (meanDegree * params.maxPollFactorHeuristic));
+        findAndHandleShortcuts(node, this::countShortcuts, (int) (main.meanDegree * params.maxPollFactorHeuristic));
 
         // from shortcuts we can compute the edgeDifference
         // # low influence: with it the shortcut creation is slightly faster
@@ -117,6 +131,36 @@ class NodeBasedNodeContractor implements NodeContractor {
     @Override
     public IntContainer contractNode(int node) {
         long degree = findAndHandleShortcuts(node, this::addOrUpdateShortcut, (int) (meanDegree * params.maxPollFactorContraction));
+        return disconnect(node, degree);
+    }
+
+    @Override
+    public NodeContractor createWorker() {
+        return new NodeBasedNodeContractor(this);
+    }
+
+    @Override
+    public PendingContraction findShortcuts(int node, IntPredicate contractedNodes) {
+        PendingShortcuts result = new PendingShortcuts(node);
+        witnessPathSearcher.setIgnoredNodes(contractedNodes);
+        result.degree = findAndHandleShortcuts(node, result::add, (int) (main.meanDegree * params.maxPollFactorContraction));
+        witnessPathSearcher.setIgnoredNodes(null);
+        return result;
+    }
+
+    @Override
+    public IntContainer contractNode(PendingContraction contraction) {
+        PendingShortcuts pending = (PendingShortcuts) contraction;
+        for (int i = 0; i < pending.weights.size(); i++) {
+            int j = 6 * i;
+            addOrUpdateShortcut(pending.ints.get(j), pending.ints.get(j + 1), pending.weights.get(i),
+                    pending.ints.get(j + 2), pending.ints.get(j + 3),
+                    pending.ints.get(j + 4), pending.ints.get(j + 5));
+        }
+        return disconnect(pending.node, pending.degree);
+    }
+
+    private IntContainer disconnect(int node, long degree) {
         insertShortcuts(node);
         // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
         meanDegree = (meanDegree * 2 + degree) / 3;
@@ -310,6 +354,33 @@ class NodeBasedNodeContractor implements NodeContractor {
         private double maxPollFactorContraction = 200;
     }
 
+    /**
+     * The shortcuts found by a worker, i.e. the arguments of each call of the shortcut handler.
+     */
+    private static class PendingShortcuts implements PendingContraction {
+        final int node;
+        final IntArrayList ints = new IntArrayList();
+        final DoubleArrayList weights = new DoubleArrayList();
+        long degree;
+
+        PendingShortcuts(int node) {
+            this.node = node;
+        }
+
+        void add(int fromNode, int toNode, double weight, int outgoingEdge, int outOrigEdgeCount,
+                 int incomingEdge, int inOrigEdgeCount) {
+            ints.add(fromNode, toNode);
+            ints.add(outgoingEdge, outOrigEdgeCount);
+            ints.add(incomingEdge, inOrigEdgeCount);
+            weights.add(weight);
+        }
+
+        @Override
+        public int getNode() {
+            return node;
+        }
+    }
+
     private static class Shortcut {
         int prepareEdgeFwd;
         int prepareEdgeBwd;
@@ -20,6 +20,8 @@ package com.graphhopper.routing.ch;
 
 import com.carrotsearch.hppc.IntContainer;
 
+import java.util.function.IntPredicate;
+
 public interface NodeContractor {
     void initFromGraph();
 
@@ -37,6 +39,30 @@ public interface NodeContractor {
      */
     IntContainer contractNode(int node);
 
+    /**
+     * Creates a contractor for the same graph that uses its own data structures for the local searches. Workers can
+     * call {@link #calculatePriority} and {@link #findShortcuts} from other threads as long as the graph is not
+     * changed at the same time.
+     */
+    NodeContractor createWorker();
+
+    /**
+     * Searches the shortcuts that are required to contract the given node, but unlike {@link #contractNode(int)}
+     * this does not change the graph. The shortcuts are added once the result is passed to
+     * {@link #contractNode(PendingContraction)} of the contractor that created this worker.
+     *
+     * @param contractedNodes nodes that are still part of the graph, but are treated as if they were contracted
+     *                        already, i.e. they are not used for witness paths
+     */
+    PendingContraction findShortcuts(int node, IntPredicate contractedNodes);
+
+    /**
+     * Adds the shortcuts that were found by {@link #findShortcuts} and removes the node from the graph.
+     *
+     * @return the set of nodes adjacent to this node (before contraction)
+     */
+    IntContainer contractNode(PendingContraction contraction);
+
     void finishContraction();
 
     long getAddedShortcutsCount();
@@ -45,4 +71,7 @@ public interface NodeContractor {
 
     float getDijkstraSeconds();
 
+    interface PendingContraction {
+        int getNode();
+    }
 }
@@ -17,6 +17,8 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.FloatArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.coll.MinHeapWithUpdate;
@@ -28,8 +30,14 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.getMemInfo;
@@ -45,10 +53,23 @@ import static com.graphhopper.util.Helper.nf;
  * The only difference is that we use two skipped edges instead of one skipped node for faster
  * unpacking.
  * <p>
+ * With {@link CHParameters#CONTRACTION_THREADS} greater than one the nodes are contracted in batches: every batch is
+ * an independent set of nodes that have the smallest priority among all nodes within two hops, so no two nodes of a
+ * batch are adjacent or have common neighbors. The witness searches of a batch run concurrently and the shortcuts are
+ * added afterwards in a fixed order, so the result does not depend on the number of threads. The hierarchy is
+ * correct, but it is not identical to the one of a sequential contraction: the other nodes of a batch cannot be used
+ * as witnesses, so the parallel contraction can add shortcuts that the sequential contraction would have avoided.
+ * <p>
+ * With {@link CHParameters#CHECKPOINT_INTERVAL} the contracted nodes are periodically written to the graph directory
+ * and an interrupted preparation continues where it left off, see {@link ContractionCheckpoint}.
+ * <p>
  *
  * @author Peter Karich
  */
 public class PrepareContractionHierarchies {
+    // the minimum number of nodes that are polled from the queue to find the nodes of a batch for the parallel
+    // contraction. this must not depend on the number of threads to keep the result independent of it.
+    private static final int MIN_BATCH_CANDIDATES = 1000;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final CHConfig chConfig;
     private final CHStorage chStore;
@@ -62,6 +83,7 @@ public class PrepareContractionHierarchies {
     private final Params params;
     private final BaseGraph graph;
     private NodeContractor nodeContractor;
+    private CHPreparationGraph prepareGraph;
     private final int nodes;
     private NodeOrderingProvider nodeOrderingProvider;
     private int maxLevel;
@@ -70,6 +92,10 @@ public class PrepareContractionHierarchies {
     private PMap pMap = new PMap();
     private int checkCounter;
     private boolean prepared = false;
+    // only used for the parallel contraction
+    private ExecutorService executor;
+    private List<NodeContractor> workers;
+    private ContractionCheckpoint checkpoint;
 
     public static PrepareContractionHierarchies fromGraph(BaseGraph graph, CHConfig chConfig) {
         return new PrepareContractionHierarchies(graph.getBaseGraph(), chConfig);
@@ -100,6 +126,8 @@ public class PrepareContractionHierarchies {
         params.setMaxNeighborUpdates(pMap.getInt(NEIGHBOR_UPDATES_MAX, params.getMaxNeighborUpdates()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        params.setContractionThreads(pMap.getInt(CONTRACTION_THREADS, params.getContractionThreads()));
+        params.setCheckpointInterval(pMap.getLong(CHECKPOINT_INTERVAL, params.getCheckpointInterval()));
         return this;
     }
 
@@ -131,6 +159,8 @@ public class PrepareContractionHierarchies {
         allSW.start();
         initFromGraph();
         runGraphContraction();
+        if (checkpoint != null)
+            checkpoint.remove();
         allSW.stop();
         logFinalGraphStats();
         return new Result(
@@ -159,9 +189,45 @@ public class PrepareContractionHierarchies {
         setMaxLevelOnAllNodes();
         if (nodeOrderingProvider != null) {
             contractNodesUsingFixedNodeOrdering();
+            return;
+        }
+        int contractedNodes = resumeFromCheckpoint();
+        if (params.getContractionThreads() > 1) {
+            contractNodesInParallel(contractedNodes);
         } else {
-            contractNodesUsingHeuristicNodeOrdering();
+            contractNodesUsingHeuristicNodeOrdering(contractedNodes);
+        }
+    }
+
+    /**
+     * Contracts the nodes that were contracted by a previous, interrupted preparation again (if there is a
+     * checkpoint).
+     *
+     * @return the number of contracted nodes
+     */
+    private int resumeFromCheckpoint() {
+        checkCounter = 0;
+        if (params.getCheckpointInterval() <= 0)
+            return 0;
+        Directory dir = graph.getDirectory();
+        if (!dir.getDefaultType().isStoring()) {
+            logger.warn("Checkpoints are disabled, because the graph directory is not stored on disk");
+            return 0;
+        }
+        checkpoint = new ContractionCheckpoint(dir, chConfig.getName(), params.getCheckpointInterval(), nodes, graph.getEdges());
+        int[] contracted = checkpoint.loadExisting();
+        if (contracted.length == 0)
+            return 0;
+        logger.info("Resuming from checkpoint, contracting {} nodes again, {}", nf(contracted.length), getMemInfo());
+        StopWatch sw = new StopWatch().start();
+        for (int level = 0; level < contracted.length; level++) {
+            stopIfInterrupted();
+            contractNode(contracted[level], level);
         }
+        checkCounter = checkpoint.getCheckCounter();
+        logger.info("Finished contracting nodes from checkpoint, took: {}s, shortcuts: {}, {}", sw.stop().getSeconds(),
+                nf(nodeContractor.getAddedShortcutsCount()), getMemInfo());
+        return contracted.length;
     }
 
     private boolean isEdgeBased() {
@@ -170,7 +236,6 @@ public class PrepareContractionHierarchies {
 
     private void initFromGraph() {
         logger.info("Creating CH prepare graph, {}", getMemInfo());
-        CHPreparationGraph prepareGraph;
         if (chConfig.getTraversalMode().isEdgeBased()) {
             TurnCostStorage turnCostStorage = graph.getTurnCostStorage();
             if (turnCostStorage == null)
@@ -201,25 +266,35 @@ public class PrepareContractionHierarchies {
     private void updatePrioritiesOfRemainingNodes() {
         periodicUpdateSW.start();
         sortedNodes.clear();
-        for (int node = 0; node < nodes; node++) {
-            if (isContracted(node))
-                continue;
-            float priority = calculatePriority(node);
-            sortedNodes.push(node, priority);
+        if (workers == null) {
+            for (int node = 0; node < nodes; node++) {
+                if (isContracted(node))
+                    continue;
+                float priority = calculatePriority(node);
+                sortedNodes.push(node, priority);
+            }
+        } else {
+            IntArrayList remainingNodes = new IntArrayList();
+            for (int node = 0; node < nodes; node++)
+                if (!isContracted(node))
+                    remainingNodes.add(node);
+            float[] priorities = calculatePrioritiesInParallel(remainingNodes);
+            for (int i = 0; i < remainingNodes.size(); i++)
+                sortedNodes.push(remainingNodes.get(i), priorities[i]);
         }
         periodicUpdateSW.stop();
     }
 
-    private void contractNodesUsingHeuristicNodeOrdering() {
+    private void contractNodesUsingHeuristicNodeOrdering(int contractedNodes) {
         StopWatch sw = new StopWatch().start();
         logger.info("Building initial queue of nodes to be contracted: {} nodes, {}", nodes, getMemInfo());
         // note that we update the priorities before preparing the node contractor. this does not make much sense,
         // but has always been like that and changing it would possibly require retuning the contraction parameters
         updatePrioritiesOfRemainingNodes();
         logger.info("Finished building queue, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
-        final int initSize = sortedNodes.size();
-        int level = 0;
-        checkCounter = 0;
+        // when we resume from a checkpoint the queue does not contain the nodes that were contracted already
+        final int initSize = sortedNodes.size() + contractedNodes;
+        int level = contractedNodes;
         final long logSize = params.getLogMessagesPercentage() == 0
                 ? Long.MAX_VALUE
                 : Math.round(Math.max(10, initSize * (params.getLogMessagesPercentage() / 100d)));
@@ -248,6 +323,8 @@ public class PrepareContractionHierarchies {
 
         while (!sortedNodes.isEmpty()) {
             stopIfInterrupted();
+            if (checkpoint != null)
+                checkpoint.flushIfDue(checkCounter);
             // periodically update priorities of ALL nodes
             if (checkCounter > 0 && checkCounter % periodicUpdatesCount == 0) {
                 updatePrioritiesOfRemainingNodes();
@@ -316,6 +393,193 @@ public class PrepareContractionHierarchies {
         _close();
     }
 
+    /**
+     * Like {@link #contractNodesUsingHeuristicNodeOrdering()}, but contracts batches of independent nodes and runs the
+     * local searches using multiple threads. Instead of lazy updates and random neighbor updates we update the
+     * priorities of all neighbors of the contracted nodes, because the batches are chosen based on the priorities.
+     */
+    private void contractNodesInParallel(int contractedNodes) {
+        int threads = params.getContractionThreads();
+        executor = Executors.newFixedThreadPool(threads);
+        workers = new ArrayList<>(threads);
+        try {
+            for (int i = 0; i < threads; i++)
+                workers.add(nodeContractor.createWorker());
+            StopWatch sw = new StopWatch().start();
+            logger.info("Building initial queue of nodes to be contracted: {} nodes, threads: {}, {}", nodes, threads, getMemInfo());
+            updatePrioritiesOfRemainingNodes();
+            logger.info("Finished building queue, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
+            final int initSize = sortedNodes.size() + contractedNodes;
+            final long logSize = params.getLogMessagesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, initSize * (params.getLogMessagesPercentage() / 100d)));
+            final long periodicUpdatesCount = params.getPeriodicUpdatesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, initSize * (params.getPeriodicUpdatesPercentage() / 100d)));
+            final long nodesToAvoidContract = Math.round(initSize * ((100 - params.getNodesContractedPercentage()) / 100d));
+            int updateCounter = 0;
+            int batches = 0;
+            int level = contractedNodes;
+            long nextPeriodicUpdate = periodicUpdatesCount == Long.MAX_VALUE ? Long.MAX_VALUE : (level / periodicUpdatesCount + 1) * periodicUpdatesCount;
+            long nextLog = logSize == Long.MAX_VALUE ? 0 : (level + logSize - 1) / logSize * logSize;
+
+            // the batch number of the last batch a node was considered for, used to find independent nodes
+            int[] marks = new int[nodes];
+            // the positions of the nodes in the current batch
+            int[] batchPositions = new int[nodes];
+            Arrays.fill(batchPositions, Integer.MAX_VALUE);
+            IntArrayList batch = new IntArrayList();
+            IntArrayList skippedNodes = new IntArrayList();
+            FloatArrayList skippedPriorities = new FloatArrayList();
+            IntArrayList neighbors = new IntArrayList();
+            PrepareGraphEdgeExplorer outExplorer = prepareGraph.createOutEdgeExplorer();
+            PrepareGraphEdgeExplorer inExplorer = prepareGraph.createInEdgeExplorer();
+            while (!sortedNodes.isEmpty() && sortedNodes.size() >= nodesToAvoidContract) {
+                stopIfInterrupted();
+                if (checkpoint != null)
+                    checkpoint.flushIfDue(checkCounter);
+                if (level >= nextPeriodicUpdate) {
+                    updatePrioritiesOfRemainingNodes();
+                    updateCounter++;
+                    nextPeriodicUpdate += periodicUpdatesCount;
+                }
+                if (level >= nextLog) {
+                    logHeuristicStats(updateCounter);
+                    nextLog += logSize;
+                }
+
+                // A node is added to the batch if no node within two hops was polled before. The skipped nodes
+                // are marked as well, so every node of the batch has the smallest priority within two hops.
+                batches++;
+                batch.clear();
+                skippedNodes.clear();
+                skippedPriorities.clear();
+                int maxCandidates = Math.max(MIN_BATCH_CANDIDATES, sortedNodes.size() / 100);
+                for (int candidates = 0; candidates < maxCandidates && !sortedNodes.isEmpty(); candidates++) {
+                    float priority = sortedNodes.peekValue();
+                    int node = sortedNodes.poll();
+                    checkCounter++;
+                    if (markNeighborhood(node, marks, batches, outExplorer, inExplorer)) {
+                        batchPositions[node] = batch.size();
+                        batch.add(node);
+                    } else {
+                        skippedNodes.add(node);
+                        skippedPriorities.add(priority);
+                    }
+                }
+                for (int i = 0; i < skippedNodes.size(); i++)
+                    sortedNodes.push(skippedNodes.get(i), skippedPriorities.get(i));
+
+                // the shortcuts are searched as if the nodes were contracted in the order of the batch, so nodes
+                // that come earlier in the batch must not be used for witness paths
+                contractionSW.start();
+                NodeContractor.PendingContraction[] contractions = new NodeContractor.PendingContraction[batch.size()];
+                runInParallel(batch.size(), (worker, i) ->
+                        contractions[i] = worker.findShortcuts(batch.get(i), n -> batchPositions[n] < i));
+                neighbors.clear();
+                for (NodeContractor.PendingContraction contraction : contractions) {
+                    int node = contraction.getNode();
+                    if (isContracted(node))
+                        throw new IllegalArgumentException("Node " + node + " was contracted already");
+                    chBuilder.setLevel(node, level++);
+                    if (checkpoint != null)
+                        checkpoint.add(node);
+                    // the neighborhoods of the batch nodes are disjoint, so we collect each neighbor only once
+                    for (IntCursor neighbor : nodeContractor.contractNode(contraction))
+                        neighbors.add(neighbor.value);
+                    batchPositions[node] = Integer.MAX_VALUE;
+                }
+                contractionSW.stop();
+
+                if (params.getNeighborUpdatePercentage() != 0 && !neighbors.isEmpty()) {
+                    neighborUpdateSW.start();
+                    float[] priorities = calculatePrioritiesInParallel(neighbors);
+                    for (int i = 0; i < neighbors.size(); i++)
+                        sortedNodes.update(neighbors.get(i), priorities[i]);
+                    neighborUpdateSW.stop();
+                }
+            }
+
+            nodeContractor.finishContraction();
+
+            logHeuristicStats(updateCounter);
+
+            logger.info(
+                    "new shortcuts: " + nf(nodeContractor.getAddedShortcutsCount())
+                            + ", initSize:" + nf(initSize)
+                            + ", " + chConfig.getWeighting()
+                            + ", threads:" + threads
+                            + ", batches:" + nf(batches)
+                            + ", periodic:" + params.getPeriodicUpdatesPercentage()
+                            + ", neighbor:" + params.getNeighborUpdatePercentage()
+                            + ", " + getTimesAsString()
+                            + ", " + Helper.getMemInfo());
+        } finally {
+            executor.shutdownNow();
+            executor = null;
+            workers = null;
+        }
+        _close();
+    }
+
+    /**
+     * Marks the given node and its neighbors.
+     *
+     * @return true if none of them was marked for the given batch before
+     */
+    private static boolean markNeighborhood(int node, int[] marks, int batch, PrepareGraphEdgeExplorer outExplorer, PrepareGraphEdgeExplorer inExplorer) {
+        boolean independent = marks[node] != batch;
+        PrepareGraphEdgeIterator iter = outExplorer.setBaseNode(node);
+        while (independent && iter.next())
+            independent = marks[iter.getAdjNode()] != batch;
+        iter = inExplorer.setBaseNode(node);
+        while (independent && iter.next())
+            independent = marks[iter.getAdjNode()] != batch;
+
+        marks[node] = batch;
+        iter = outExplorer.setBaseNode(node);
+        while (iter.next())
+            marks[iter.getAdjNode()] = batch;
+        iter = inExplorer.setBaseNode(node);
+        while (iter.next())
+            marks[iter.getAdjNode()] = batch;
+        return independent;
+    }
+
+    private float[] calculatePrioritiesInParallel(IntArrayList nodes) {
+        float[] priorities = new float[nodes.size()];
+        runInParallel(nodes.size(), (worker, i) -> priorities[i] = worker.calculatePriority(nodes.get(i)));
+        return priorities;
+    }
+
+    /**
+     * Calls the given task for all indices in [0, count) using the worker contractors. The graph must not be changed
+     * while this method is running.
+     */
+    private void runInParallel(int count, ObjIntConsumer<NodeContractor> task) {
+        if (count < 2) {
+            for (int i = 0; i < count; i++)
+                task.accept(workers.get(0), i);
+            return;
+        }
+        AtomicInteger nextIndex = new AtomicInteger();
+        List<Callable<Object>> callables = new ArrayList<>(workers.size());
+        for (NodeContractor worker : workers)
+            callables.add(Executors.callable(() -> {
+                for (int i = nextIndex.getAndIncrement(); i < count; i = nextIndex.getAndIncrement())
+                    task.accept(worker, i);
+            }));
+        try {
+            for (Future<Object> future : executor.invokeAll(callables))
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
         final int logSize = Math.max(10, (int) (params.getLogMessagesPercentage() / 100.0 * nodesToContract));
@@ -345,6 +609,8 @@ public class PrepareContractionHierarchies {
             throw new IllegalArgumentException("Node " + node + " was contracted already");
         contractionSW.start();
         chBuilder.setLevel(node, level);
+        if (checkpoint != null)
+            checkpoint.add(node);
         IntContainer neighbors = nodeContractor.contractNode(node);
         contractionSW.stop();
         return neighbors;
@@ -415,17 +681,10 @@ public class PrepareContractionHierarchies {
 
     private void _close() {
         nodeContractor.close();
+        prepareGraph = null;
         sortedNodes = null;
     }
 
-    void flush() {
-        chStore.flush();
-    }
-
-    void close() {
-        chStore.close();
-    }
-
     public static class Result {
         private final CHConfig chConfig;
         private final CHStorage chStorage;
@@ -435,7 +694,7 @@ public class PrepareContractionHierarchies {
         private final double neighborTime;
         private final long totalPrepareTime;
 
-        private Result(CHConfig chConfig, CHStorage chStorage, long shortcuts, double lazyTime, double periodTime, double neighborTime, long totalPrepareTime) {
+        Result(CHConfig chConfig, CHStorage chStorage, long shortcuts, double lazyTime, double periodTime, double neighborTime, long totalPrepareTime) {
             this.chStorage = chStorage;
             this.shortcuts = shortcuts;
             this.lazyTime = lazyTime;
@@ -514,6 +773,16 @@ public class PrepareContractionHierarchies {
          * @see #periodicUpdatesPercentage
          */
         private int logMessagesPercentage;
+        /**
+         * The number of threads used to contract the nodes of a single CH. With more than one thread the nodes are
+         * contracted in batches of independent nodes, which can lead to a slightly different number of shortcuts.
+         */
+        private int contractionThreads = 1;
+        /**
+         * The minimum time in milliseconds between two checkpoints of the contraction, 0 means no checkpoints are
+         * written.
+         */
+        private long checkpointInterval;
 
         static Params forTraversalMode(TraversalMode traversalMode) {
             // Lower values for the neighbor update percentage (and/or max neighbor updates) yield a slower
@@ -588,6 +857,26 @@ public class PrepareContractionHierarchies {
             this.logMessagesPercentage = logMessagesPercentage;
         }
 
+        int getContractionThreads() {
+            return contractionThreads;
+        }
+
+        void setContractionThreads(int contractionThreads) {
+            if (contractionThreads < 1)
+                throw new IllegalArgumentException(CONTRACTION_THREADS + " has to be at least 1");
+            this.contractionThreads = contractionThreads;
+        }
+
+        long getCheckpointInterval() {
+            return checkpointInterval;
+        }
+
+        void setCheckpointInterval(long checkpointInterval) {
+            if (checkpointInterval < 0)
+                throw new IllegalArgumentException(CHECKPOINT_INTERVAL + " has to be at least 0, to disable it use 0");
+            this.checkpointInterval = checkpointInterval;
+        }
+
         private void checkPercentage(String name, int value) {
             if (value < 0 || value > 100) {
                 throw new IllegalArgumentException(name + " has to be in [0, 100], to disable it use 0");
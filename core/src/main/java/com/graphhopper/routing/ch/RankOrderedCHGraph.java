@@ -0,0 +1,258 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.FloatArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+
+import java.util.Arrays;
+
+/**
+ * A copy of the downward edges of a node-based CH graph where the nodes are laid out by decreasing rank (contraction
+ * level). This is the data layout of PHAST: after an upward search from the source all other nodes are settled by a
+ * single sweep over the nodes in this order, which reads the edge arrays strictly sequentially and only looks up
+ * the already settled higher ranked nodes. See {@link com.graphhopper.isochrone.algorithm.PhastShortestPathTree}.
+ * <p>
+ * Besides the weight every downward edge stores its time and distance, so the sweep does not need to unpack shortcuts.
+ * The times and distances of all shortcuts are calculated once when this object is created. The downward edges of
+ * both flow directions are created on first use. Everything is kept on the heap and is not persisted, the downward
+ * edges of one direction take about 20 bytes per edge and shortcut.
+ */
+public class RankOrderedCHGraph {
+    private final RoutingCHGraph chGraph;
+    private final Graph baseGraph;
+    private final Weighting weighting;
+    private final int baseEdges;
+    private final int[] nodesByRank;
+    private final int[] ranks;
+    // two entries per shortcut, the time towards the node with the larger id is stored at the odd index
+    private final long[] shortcutTimes;
+    private final double[] shortcutDistances;
+    private volatile DownwardEdges downwardEdgesFwd;
+    private volatile DownwardEdges downwardEdgesBwd;
+
+    public RankOrderedCHGraph(RoutingCHGraph chGraph) {
+        if (chGraph.isEdgeBased())
+            throw new IllegalArgumentException("The rank ordered layout is only supported for node-based CH");
+        this.chGraph = chGraph;
+        this.baseGraph = chGraph.getBaseGraph();
+        this.weighting = chGraph.getWeighting();
+        this.baseEdges = baseGraph.getEdges();
+        int nodes = chGraph.getNodes();
+        ranks = new int[nodes];
+        nodesByRank = sortByDecreasingLevel(chGraph, ranks);
+
+        shortcutTimes = new long[2 * chGraph.getShortcuts()];
+        Arrays.fill(shortcutTimes, -1);
+        shortcutDistances = new double[chGraph.getShortcuts()];
+        RoutingCHEdgeExplorer outExplorer = chGraph.createOutEdgeExplorer();
+        RoutingCHEdgeExplorer inExplorer = chGraph.createInEdgeExplorer();
+        for (int node = 0; node < nodes; node++) {
+            // shortcuts are only stored at their lower level node, so this finds every shortcut and accessible direction
+            RoutingCHEdgeIterator iter = outExplorer.setBaseNode(node);
+            while (iter.next())
+                if (iter.isShortcut())
+                    calcShortcut(iter.getEdge(), node, iter.getAdjNode());
+            iter = inExplorer.setBaseNode(node);
+            while (iter.next())
+                if (iter.isShortcut())
+                    calcShortcut(iter.getEdge(), iter.getAdjNode(), node);
+        }
+    }
+
+    private static int[] sortByDecreasingLevel(RoutingCHGraph chGraph, int[] ranks) {
+        int nodes = ranks.length;
+        int maxLevel = 0;
+        for (int node = 0; node < nodes; node++)
+            maxLevel = Math.max(maxLevel, chGraph.getLevel(node));
+        // counting sort, nodes with the same level keep the order of their ids
+        int[] offsets = new int[maxLevel + 2];
+        for (int node = 0; node < nodes; node++)
+            offsets[maxLevel - chGraph.getLevel(node) + 1]++;
+        for (int i = 1; i < offsets.length; i++)
+            offsets[i] += offsets[i - 1];
+        int[] nodesByRank = new int[nodes];
+        for (int node = 0; node < nodes; node++) {
+            int rank = offsets[maxLevel - chGraph.getLevel(node)]++;
+            nodesByRank[rank] = node;
+            ranks[node] = rank;
+        }
+        return nodesByRank;
+    }
+
+    private void calcShortcut(int chEdge, int from, int to) {
+        int shortcut = chEdge - baseEdges;
+        int index = 2 * shortcut + (to > from ? 1 : 0);
+        if (shortcutTimes[index] >= 0)
+            return;
+        // see ShortcutUnpacker: one of the skipped edges is attached to the adjacent node, the other one to the base node
+        RoutingCHEdgeIteratorState state = chGraph.getEdgeIteratorState(chEdge, to);
+        int firstEdge = state.getSkippedEdge1();
+        RoutingCHEdgeIteratorState second = chGraph.getEdgeIteratorState(state.getSkippedEdge2(), to);
+        if (second == null) {
+            firstEdge = state.getSkippedEdge2();
+            second = chGraph.getEdgeIteratorState(state.getSkippedEdge1(), to);
+        }
+        int via = second.getBaseNode();
+        shortcutTimes[index] = getTime(firstEdge, from, via) + getTime(second.getEdge(), via, to);
+        shortcutDistances[shortcut] = getDistance(firstEdge, from, via) + getDistance(second.getEdge(), via, to);
+    }
+
+    /**
+     * @return the time in milliseconds to travel from the given node to the other one along the given edge or shortcut
+     */
+    public long getTime(int chEdge, int from, int to) {
+        if (chEdge < baseEdges)
+            return weighting.calcEdgeMillis(baseGraph.getEdgeIteratorState(chEdge, to), false);
+        calcShortcut(chEdge, from, to);
+        return shortcutTimes[2 * (chEdge - baseEdges) + (to > from ? 1 : 0)];
+    }
+
+    /**
+     * @return the distance in meters of the given edge or shortcut
+     */
+    public double getDistance(int chEdge, int from, int to) {
+        if (chEdge < baseEdges)
+            return baseGraph.getEdgeIteratorState(chEdge, to).getDistance();
+        calcShortcut(chEdge, from, to);
+        return shortcutDistances[chEdge - baseEdges];
+    }
+
+    public RoutingCHGraph getCHGraph() {
+        return chGraph;
+    }
+
+    public int getNodes() {
+        return nodesByRank.length;
+    }
+
+    /**
+     * @return the node with the given rank, the node with the highest level has rank 0
+     */
+    public int getNode(int rank) {
+        return nodesByRank[rank];
+    }
+
+    public int getRank(int node) {
+        return ranks[node];
+    }
+
+    /**
+     * @param reverse if false the downward edges point towards the nodes, i.e. they are the incoming edges from
+     *                higher ranked nodes. Otherwise they are the outgoing edges to higher ranked nodes.
+     */
+    public DownwardEdges getDownwardEdges(boolean reverse) {
+        DownwardEdges result = reverse ? downwardEdgesBwd : downwardEdgesFwd;
+        if (result == null) {
+            synchronized (this) {
+                result = reverse ? downwardEdgesBwd : downwardEdgesFwd;
+                if (result == null) {
+                    result = new DownwardEdges(reverse);
+                    if (reverse)
+                        downwardEdgesBwd = result;
+                    else
+                        downwardEdgesFwd = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The downward edges of all nodes in rank order. The edges of the node with rank r are stored at the indices
+     * [getFirstEdge(r), getFirstEdge(r + 1)) and always lead to nodes with a smaller rank.
+     */
+    public class DownwardEdges {
+        private final int[] firstEdges;
+        private final int[] adjRanks;
+        private final int[] chEdges;
+        private final double[] weights;
+        private final int[] times;
+        private final float[] distances;
+
+        private DownwardEdges(boolean reverse) {
+            int nodes = nodesByRank.length;
+            firstEdges = new int[nodes + 1];
+            IntArrayList adjRankList = new IntArrayList(nodes * 2);
+            IntArrayList chEdgeList = new IntArrayList(nodes * 2);
+            DoubleArrayList weightList = new DoubleArrayList(nodes * 2);
+            IntArrayList timeList = new IntArrayList(nodes * 2);
+            FloatArrayList distanceList = new FloatArrayList(nodes * 2);
+            RoutingCHEdgeExplorer explorer = reverse ? chGraph.createOutEdgeExplorer() : chGraph.createInEdgeExplorer();
+            for (int rank = 0; rank < nodes; rank++) {
+                firstEdges[rank] = adjRankList.size();
+                int node = nodesByRank[rank];
+                RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+                while (iter.next()) {
+                    if (chGraph.getLevel(iter.getAdjNode()) <= chGraph.getLevel(node))
+                        continue;
+                    double weight = iter.getWeight(!reverse);
+                    if (Double.isInfinite(weight))
+                        continue;
+                    int from = reverse ? node : iter.getAdjNode();
+                    int to = reverse ? iter.getAdjNode() : node;
+                    adjRankList.add(ranks[iter.getAdjNode()]);
+                    chEdgeList.add(iter.getEdge());
+                    weightList.add(weight);
+                    timeList.add(Math.toIntExact(RankOrderedCHGraph.this.getTime(iter.getEdge(), from, to)));
+                    distanceList.add((float) RankOrderedCHGraph.this.getDistance(iter.getEdge(), from, to));
+                }
+            }
+            firstEdges[nodes] = adjRankList.size();
+            adjRanks = adjRankList.toArray();
+            chEdges = chEdgeList.toArray();
+            weights = weightList.toArray();
+            times = timeList.toArray();
+            distances = distanceList.toArray();
+        }
+
+        public int getFirstEdge(int rank) {
+            return firstEdges[rank];
+        }
+
+        /**
+         * @return the rank of the higher ranked node of the given downward edge
+         */
+        public int getAdjRank(int edge) {
+            return adjRanks[edge];
+        }
+
+        public int getCHEdge(int edge) {
+            return chEdges[edge];
+        }
+
+        public double getWeight(int edge) {
+            return weights[edge];
+        }
+
+        public int getTime(int edge) {
+            return times[edge];
+        }
+
+        public double getDistance(int edge) {
+            return distances[edge];
+        }
+    }
+}
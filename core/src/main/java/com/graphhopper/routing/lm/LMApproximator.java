@@ -38,9 +38,11 @@ public class LMApproximator implements WeightApproximator {
     private final Weighting lmWeighting;
     // the weighting used for the current path calculation
     private final Weighting routingWeighting;
-    private final int[] activeLandmarkIndices;
-    private final int[] weightsFromActiveLandmarksToT;
-    private final int[] weightsFromTToActiveLandmarks;
+    // the number of landmarks that are chosen at the start of the search
+    private final int activeCount;
+    private int[] activeLandmarkIndices;
+    private int[] weightsFromActiveLandmarksToT;
+    private int[] weightsFromTToActiveLandmarks;
     private double epsilon = 1;
     private int towerNodeNextToT = -1;
     private double weightFromTToTowerNode;
@@ -52,6 +54,9 @@ public class LMApproximator implements WeightApproximator {
     private final WeightApproximator fallBackApproximation;
     private final WeightApproximator beelineApproximation;
     private boolean fallback = false;
+    private boolean reselectActiveLandmarks = false;
+    // buffer to read all landmark weights of a node at once, null if the landmark storage does not support this
+    private final byte[] rowBuffer;
 
     /**
      * @param weighting the weighting used for the current path calculation, not necessarily the same that we used for the LM preparation.
@@ -70,6 +75,7 @@ public class LMApproximator implements WeightApproximator {
             throw new IllegalArgumentException("Active landmarks " + activeCount
                     + " should be lower or equals to landmark count " + lms.getLandmarkCount());
 
+        this.activeCount = activeCount;
         activeLandmarkIndices = new int[activeCount];
         Arrays.fill(activeLandmarkIndices, -1);
         weightsFromActiveLandmarksToT = new int[activeCount];
@@ -81,6 +87,7 @@ public class LMApproximator implements WeightApproximator {
         this.fallBackApproximation = new BeelineWeightApproximator(graph.getNodeAccess(), lmWeighting);
         this.beelineApproximation = new BeelineWeightApproximator(graph.getNodeAccess(), routingWeighting);
         this.maxBaseNodes = maxBaseNodes;
+        this.rowBuffer = lms.supportsRowAccess() ? new byte[lms.getLandmarkCount() * 4] : null;
     }
 
     /**
@@ -91,6 +98,16 @@ public class LMApproximator implements WeightApproximator {
         return this;
     }
 
+    /**
+     * By default the active landmarks are chosen once, for the start node of the search. With this option the search
+     * adds another landmark whenever it calls {@link #refine(int)} and this landmark yields a clearly better lower
+     * bound for the node the search is currently at. At most twice the initial number of landmarks become active.
+     */
+    public LMApproximator setReselectActiveLandmarks(boolean reselectActiveLandmarks) {
+        this.reselectActiveLandmarks = reselectActiveLandmarks;
+        return this;
+    }
+
     @Override
     public double approximate(final int v) {
         if (!recalculateActiveLandmarks && fallback || lms.isEmpty())
@@ -128,9 +145,18 @@ public class LMApproximator implements WeightApproximator {
 
     private double getRemainingWeightUnderestimationUpToTowerNode(int v) {
         int maxWeightInt = 0;
-        for (int i = 0; i < activeLandmarkIndices.length; i++) {
-            int resultInt = approximateForLandmark(i, v);
-            maxWeightInt = Math.max(maxWeightInt, resultInt);
+        if (rowBuffer != null) {
+            lms.getRow(v, rowBuffer);
+            for (int i = 0; i < activeLandmarkIndices.length; i++) {
+                int rhs1Int = lms.getToWeight(rowBuffer, activeLandmarkIndices[i]) - weightsFromTToActiveLandmarks[i];
+                int rhs2Int = weightsFromActiveLandmarksToT[i] - lms.getFromWeight(rowBuffer, activeLandmarkIndices[i]);
+                maxWeightInt = Math.max(maxWeightInt, reverse ? Math.max(-rhs1Int, -rhs2Int) : Math.max(rhs1Int, rhs2Int));
+            }
+        } else {
+            for (int i = 0; i < activeLandmarkIndices.length; i++) {
+                int resultInt = approximateForLandmark(i, v);
+                maxWeightInt = Math.max(maxWeightInt, resultInt);
+            }
         }
         // Round down, we need to be an underestimator.
         return (maxWeightInt - 1) * factor;
@@ -167,8 +193,12 @@ public class LMApproximator implements WeightApproximator {
         //
         // ...and we can get the right-hand sides of III) and IV) by multiplying those of II) and I) by -1.
 
-        int rhs1Int = lms.getToWeight(activeLandmarkIndices[i], v) - weightsFromTToActiveLandmarks[i];
-        int rhs2Int = weightsFromActiveLandmarksToT[i] - lms.getFromWeight(activeLandmarkIndices[i], v);
+        return approximateForLandmark(activeLandmarkIndices[i], v, weightsFromActiveLandmarksToT[i], weightsFromTToActiveLandmarks[i]);
+    }
+
+    private int approximateForLandmark(int lmIdx, int v, int weightFromLandmarkToT, int weightFromTToLandmark) {
+        int rhs1Int = lms.getToWeight(lmIdx, v) - weightFromTToLandmark;
+        int rhs2Int = weightFromLandmarkToT - lms.getFromWeight(lmIdx, v);
 
         if (reverse) {
             rhs1Int *= -1;
@@ -177,6 +207,49 @@ public class LMApproximator implements WeightApproximator {
         return Math.max(rhs1Int, rhs2Int);
     }
 
+    /**
+     * Adds the landmark with the best lower bound for the given node to the active landmarks if
+     * {@link #setReselectActiveLandmarks(boolean)} is enabled and this bound is at least 1% better than the current
+     * one. The approximation stays consistent, because it is still the maximum over the lower bounds of some
+     * landmarks, and it can only increase.
+     */
+    @Override
+    public boolean refine(int currentNode) {
+        if (!reselectActiveLandmarks || recalculateActiveLandmarks || fallback || currentNode >= maxBaseNodes
+                || currentNode == towerNodeNextToT || activeLandmarkIndices.length >= Math.min(lms.getLandmarkCount(), 2 * activeCount)
+                || !lms.isInSameSubnetwork(currentNode, towerNodeNextToT))
+            return false;
+        int currentWeight = 0;
+        for (int i = 0; i < activeLandmarkIndices.length; i++)
+            currentWeight = Math.max(currentWeight, approximateForLandmark(i, currentNode));
+        int bestIdx = -1;
+        int bestWeight = currentWeight + Math.max(1, currentWeight / 100);
+        for (int lmIdx = 0; lmIdx < lms.getLandmarkCount(); lmIdx++) {
+            int weight = approximateForLandmark(lmIdx, currentNode, lms.getFromWeight(lmIdx, towerNodeNextToT), lms.getToWeight(lmIdx, towerNodeNextToT));
+            if (weight >= bestWeight && !isActive(lmIdx)) {
+                bestIdx = lmIdx;
+                bestWeight = weight;
+            }
+        }
+        if (bestIdx < 0)
+            return false;
+        int count = activeLandmarkIndices.length;
+        activeLandmarkIndices = Arrays.copyOf(activeLandmarkIndices, count + 1);
+        weightsFromActiveLandmarksToT = Arrays.copyOf(weightsFromActiveLandmarksToT, count + 1);
+        weightsFromTToActiveLandmarks = Arrays.copyOf(weightsFromTToActiveLandmarks, count + 1);
+        activeLandmarkIndices[count] = bestIdx;
+        weightsFromActiveLandmarksToT[count] = lms.getFromWeight(bestIdx, towerNodeNextToT);
+        weightsFromTToActiveLandmarks[count] = lms.getToWeight(bestIdx, towerNodeNextToT);
+        return true;
+    }
+
+    private boolean isActive(int lmIdx) {
+        for (int activeIdx : activeLandmarkIndices)
+            if (activeIdx == lmIdx)
+                return true;
+        return false;
+    }
+
     @Override
     public void setTo(int t) {
         this.fallBackApproximation.setTo(t);
@@ -188,15 +261,9 @@ public class LMApproximator implements WeightApproximator {
         Dijkstra dijkstra = new Dijkstra(graph, lmWeighting, TraversalMode.NODE_BASED) {
             @Override
             protected boolean finished() {
-                towerNodeNextToT = currEdge.adjNode;
-                weightFromTToTowerNode = currEdge.weight;
-                return currEdge.adjNode < maxBaseNodes;
-            }
-
-            // We only expect a very short search
-            @Override
-            protected void initCollections(int size) {
-                super.initCollections(2);
+                towerNodeNextToT = spt.getAdjNode(currSlot);
+                weightFromTToTowerNode = spt.getWeight(currSlot);
+                return towerNodeNextToT < maxBaseNodes;
             }
         };
         dijkstra.calcPath(t, -1);
@@ -204,7 +271,8 @@ public class LMApproximator implements WeightApproximator {
 
     @Override
     public WeightApproximator reverse() {
-        return new LMApproximator(graph, lmWeighting, routingWeighting, maxBaseNodes, lms, activeLandmarkIndices.length, factor, !reverse);
+        return new LMApproximator(graph, lmWeighting, routingWeighting, maxBaseNodes, lms, activeCount, factor, !reverse)
+                .setReselectActiveLandmarks(reselectActiveLandmarks);
     }
 
     @Override
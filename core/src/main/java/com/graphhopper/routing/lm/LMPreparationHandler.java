@@ -59,6 +59,10 @@ public class LMPreparationHandler {
     private final List<String> lmSuggestionsLocations = new ArrayList<>(5);
     private int preparationThreads;
     private boolean logDetails = false;
+    private long checkpointInterval;
+    private int landmarkThreads = 1;
+    private boolean splitRows;
+    private int weightBits = 16;
     private AreaIndex<SplitArea> areaIndex;
 
     public LMPreparationHandler() {
@@ -77,6 +81,10 @@ public class LMPreparationHandler {
         landmarkCount = ghConfig.getInt(Parameters.Landmark.COUNT, landmarkCount);
         logDetails = ghConfig.getBool(Landmark.PREPARE + "log_details", false);
         minNodes = ghConfig.getInt(Landmark.PREPARE + "min_network_size", -1);
+        checkpointInterval = ghConfig.getLong(Landmark.PREPARE + "checkpoint_interval_ms", checkpointInterval);
+        landmarkThreads = ghConfig.getInt(Landmark.PREPARE + "landmark_threads", landmarkThreads);
+        splitRows = ghConfig.getBool(Landmark.PREPARE + "split_rows", splitRows);
+        weightBits = ghConfig.getInt(Landmark.PREPARE + "weight_bits", weightBits);
 
         for (String loc : ghConfig.getString(Landmark.PREPARE + "suggestions_location", "").split(",")) {
             if (!loc.trim().isEmpty())
@@ -100,6 +108,49 @@ public class LMPreparationHandler {
         return landmarkCount;
     }
 
+    /**
+     * @return the minimum time in milliseconds between two checkpoints of a landmark preparation, 0 if there are no
+     * checkpoints
+     * @see LandmarkStorage#setCheckpointInterval(long)
+     */
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public LMPreparationHandler setCheckpointInterval(long checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+        return this;
+    }
+
+    /**
+     * @return the number of threads used to calculate the landmarks of a single LM profile
+     * @see LandmarkStorage#setLandmarkThreads(int)
+     */
+    public int getLandmarkThreads() {
+        return landmarkThreads;
+    }
+
+    public LMPreparationHandler setLandmarkThreads(int landmarkThreads) {
+        this.landmarkThreads = landmarkThreads;
+        return this;
+    }
+
+    /**
+     * @see LandmarkStorage#setSplitRows(boolean)
+     */
+    public LMPreparationHandler setSplitRows(boolean splitRows) {
+        this.splitRows = splitRows;
+        return this;
+    }
+
+    /**
+     * @see LandmarkStorage#setWeightBits(int)
+     */
+    public LMPreparationHandler setWeightBits(int weightBits) {
+        this.weightBits = weightBits;
+        return this;
+    }
+
     public final boolean isEnabled() {
         return !lmProfiles.isEmpty();
     }
@@ -224,7 +275,11 @@ public class LMPreparationHandler {
                     lmConfig, landmarkCount).
                     setLandmarkSuggestions(lmSuggestions).
                     setMaximumWeight(maximumWeight).
-                    setLogDetails(logDetails);
+                    setLogDetails(logDetails).
+                    setCheckpointInterval(checkpointInterval).
+                    setLandmarkThreads(landmarkThreads).
+                    setSplitRows(splitRows).
+                    setWeightBits(weightBits);
             if (minNodes > 1)
                 prepareLandmarks.setMinimumNodes(minNodes);
             // using the area index we separate certain areas from each other but we do not change the base graph for this
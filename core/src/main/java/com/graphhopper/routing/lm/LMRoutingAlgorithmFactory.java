@@ -30,6 +30,7 @@ import static com.graphhopper.util.Parameters.Algorithms.*;
 public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     private final LandmarkStorage lms;
     private int defaultActiveLandmarks;
+    private boolean defaultReselectActiveLandmarks;
 
     public LMRoutingAlgorithmFactory(LandmarkStorage lms) {
         this.lms = lms;
@@ -41,31 +42,40 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         return this;
     }
 
+    /**
+     * @see LMApproximator#setReselectActiveLandmarks(boolean)
+     */
+    public LMRoutingAlgorithmFactory setDefaultReselectActiveLandmarks(boolean defaultReselectActiveLandmarks) {
+        this.defaultReselectActiveLandmarks = defaultReselectActiveLandmarks;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
         if (!lms.isInitialized())
             throw new IllegalStateException("Initialize landmark storage before creating algorithms");
         int activeLM = Math.max(1, opts.getHints().getInt(Parameters.Landmark.ACTIVE_COUNT, defaultActiveLandmarks));
+        boolean reselect = opts.getHints().getBool(Parameters.Landmark.RESELECT_ACTIVE, defaultReselectActiveLandmarks);
         final String algoStr = opts.getAlgorithm();
         final Weighting weighting = g.wrapWeighting(w);
         if (ASTAR.equalsIgnoreCase(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStar.EPSILON, 1);
             AStar algo = new AStar(g, weighting, opts.getTraversalMode());
-            algo.setApproximation(getApproximator(g, weighting, activeLM, epsilon));
+            algo.setApproximation(getApproximator(g, weighting, activeLM, reselect, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             algo.setTimeoutMillis(opts.getTimeoutMillis());
             return algo;
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
             AStarBidirection algo = new AStarBidirection(g, weighting, opts.getTraversalMode());
-            algo.setApproximation(getApproximator(g, weighting, activeLM, epsilon));
+            algo.setApproximation(getApproximator(g, weighting, activeLM, reselect, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             algo.setTimeoutMillis(opts.getTimeoutMillis());
             return algo;
         } else if (ALT_ROUTE.equalsIgnoreCase(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
             AlternativeRoute algo = new AlternativeRoute(g, weighting, opts.getTraversalMode(), opts.getHints());
-            algo.setApproximation(getApproximator(g, weighting, activeLM, epsilon));
+            algo.setApproximation(getApproximator(g, weighting, activeLM, reselect, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             algo.setTimeoutMillis(opts.getTimeoutMillis());
             return algo;
@@ -75,7 +85,7 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         }
     }
 
-    private LMApproximator getApproximator(Graph g, Weighting weighting, int activeLM, double epsilon) {
-        return LMApproximator.forLandmarks(g, weighting, lms, activeLM).setEpsilon(epsilon);
+    private LMApproximator getApproximator(Graph g, Weighting weighting, int activeLM, boolean reselect, double epsilon) {
+        return LMApproximator.forLandmarks(g, weighting, lms, activeLM).setReselectActiveLandmarks(reselect).setEpsilon(epsilon);
     }
 }
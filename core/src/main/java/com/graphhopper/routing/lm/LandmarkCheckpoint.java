@@ -0,0 +1,202 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.lm;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the progress of an (unfinished) landmark preparation such that it can be resumed after it was interrupted:
+ * the landmark weights of all subnetworks that were (partially) calculated so far, the subnetwork of every node, the
+ * landmarks of the finished subnetworks and the landmarks of the current subnetwork together with the number of
+ * landmarks whose weights were calculated already. The landmark weights are written incrementally, i.e. only the
+ * weights of the subnetworks that changed since the last checkpoint are written.
+ * <p>
+ * Layout: the landmark weights (in the same layout as in {@link LandmarkStorage}), followed by one byte per node for
+ * the subnetworks, followed by the landmark node IDs of all subnetworks.
+ */
+class LandmarkCheckpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LandmarkCheckpoint.class);
+    private static final int VERSION = 1;
+    private static final int UNSET_SUBNETWORK = -1;
+    private static final int UNCLEAR_SUBNETWORK = 0;
+    private final Directory dir;
+    private final String name;
+    private final DataAccess da;
+    private final long intervalMillis;
+    private final int nodes;
+    private final int landmarks;
+    private final long rowLength;
+    private final int layout;
+    private final IntHashSet changedSubnetworks = new IntHashSet();
+    private long lastFlush;
+
+    /**
+     * @param rowLength the number of bytes of the landmark weights of a single node
+     * @param layout    the row layout of the landmark weights, the checkpoint is ignored if it was written for another
+     */
+    LandmarkCheckpoint(Directory dir, String lmName, long intervalMillis, int nodes, long rowLength, int landmarks, int layout) {
+        this.dir = dir;
+        this.name = "landmarks_checkpoint_" + lmName;
+        // the checkpoint is written to disk directly, so there is no need to keep a second copy of the weights on the heap
+        this.da = dir.create(name, DAType.MMAP);
+        this.intervalMillis = intervalMillis;
+        this.nodes = nodes;
+        this.landmarks = landmarks;
+        this.rowLength = rowLength;
+        this.layout = layout;
+    }
+
+    /**
+     * @return true if there is a checkpoint that was written for the same graph, number of landmarks and row layout
+     */
+    boolean loadExisting() {
+        lastFlush = System.currentTimeMillis();
+        if (!da.loadExisting()) {
+            da.create(1000);
+            return false;
+        }
+        if (da.getHeader(0) != VERSION || da.getHeader(4) != nodes || da.getHeader(2 * 4) != landmarks
+                || da.getHeader(7 * 4) != layout) {
+            LOGGER.warn("Ignoring checkpoint {}, it was written for a different graph or version", name);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the factor of the landmark weights (as stored in the header of the landmark weights)
+     */
+    int getFactor() {
+        return da.getHeader(3 * 4);
+    }
+
+    /**
+     * @return the index of the subnetwork component that was processed when the checkpoint was written
+     */
+    int getComponent() {
+        return da.getHeader(4 * 4);
+    }
+
+    /**
+     * @return the number of landmarks of the current subnetwork whose weights were calculated already, zero if there
+     * is no current subnetwork
+     */
+    int getFinishedLandmarks() {
+        return da.getHeader(6 * 4);
+    }
+
+    /**
+     * Copies the stored weights and subnetworks into the given arrays.
+     *
+     * @return the landmarks of all subnetworks, including the current one if {@link #getFinishedLandmarks()} is not
+     * zero
+     */
+    List<int[]> restore(DataAccess weights, byte[] subnetworks) {
+        long pointer = nodes * rowLength;
+        for (int node = 0; node < nodes; node++)
+            subnetworks[node] = da.getByte(pointer + node);
+        for (int node = 0; node < nodes; node++) {
+            if (subnetworks[node] == UNSET_SUBNETWORK || subnetworks[node] == UNCLEAR_SUBNETWORK)
+                continue;
+            for (long p = node * rowLength; p < (node + 1) * rowLength; p += 2)
+                weights.setShort(p, da.getShort(p));
+        }
+        int count = da.getHeader(5 * 4) + (getFinishedLandmarks() > 0 ? 1 : 0);
+        List<int[]> landmarkIDs = new ArrayList<>(count);
+        pointer += nodes;
+        for (int i = 0; i < count; i++) {
+            int[] ids = new int[landmarks];
+            for (int j = 0; j < landmarks; j++) {
+                ids[j] = da.getInt(pointer);
+                pointer += 4;
+            }
+            landmarkIDs.add(ids);
+        }
+        return landmarkIDs;
+    }
+
+    /**
+     * Marks the weights of the given subnetwork as changed
+     */
+    void setChanged(int subnetwork) {
+        changedSubnetworks.add(subnetwork);
+    }
+
+    boolean isDue() {
+        return System.currentTimeMillis() - lastFlush >= intervalMillis;
+    }
+
+    /**
+     * Writes the checkpoint to disk.
+     *
+     * @param landmarkIDs       the landmarks of the finished subnetworks
+     * @param landmarks         the landmarks of the current subnetwork or null
+     * @param finishedLandmarks the number of landmarks of the current subnetwork that were calculated already
+     */
+    void write(DataAccess weights, byte[] subnetworks, int factor, int component, List<int[]> landmarkIDs, int[] landmarks, int finishedLandmarks) {
+        long pointer = nodes * rowLength;
+        da.ensureCapacity(pointer + nodes + (landmarkIDs.size() + 1) * this.landmarks * 4L);
+        if (!changedSubnetworks.isEmpty()) {
+            for (int node = 0; node < nodes; node++) {
+                if (!changedSubnetworks.contains(subnetworks[node]))
+                    continue;
+                for (long p = node * rowLength; p < (node + 1) * rowLength; p += 2)
+                    da.setShort(p, weights.getShort(p));
+            }
+            changedSubnetworks.clear();
+        }
+        for (int node = 0; node < nodes; node++)
+            da.setByte(pointer + node, subnetworks[node]);
+        pointer += nodes;
+        List<int[]> allLandmarks = new ArrayList<>(landmarkIDs);
+        if (finishedLandmarks > 0)
+            allLandmarks.add(landmarks);
+        for (int[] ids : allLandmarks) {
+            for (int id : ids) {
+                da.setInt(pointer, id);
+                pointer += 4;
+            }
+        }
+        da.setHeader(0, VERSION);
+        da.setHeader(4, nodes);
+        da.setHeader(2 * 4, this.landmarks);
+        da.setHeader(3 * 4, factor);
+        da.setHeader(4 * 4, component);
+        da.setHeader(5 * 4, landmarkIDs.size());
+        da.setHeader(6 * 4, finishedLandmarks);
+        da.setHeader(7 * 4, layout);
+        da.flush();
+        lastFlush = System.currentTimeMillis();
+        LOGGER.info("Wrote checkpoint {}, subnetworks: {}, landmarks of current subnetwork: {}", name, landmarkIDs.size() - 1, finishedLandmarks);
+    }
+
+    /**
+     * Removes the checkpoint once the preparation is finished
+     */
+    void remove() {
+        dir.remove(name);
+    }
+}
@@ -19,12 +19,11 @@ package com.graphhopper.routing.lm;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntObjectHashMap;
 import com.carrotsearch.hppc.IntObjectMap;
-import com.carrotsearch.hppc.predicates.IntObjectPredicate;
-import com.carrotsearch.hppc.procedures.IntObjectProcedure;
 import com.graphhopper.coll.MapEntry;
 import com.graphhopper.routing.DijkstraBidirectionRef;
-import com.graphhopper.routing.SPTEntry;
+import com.graphhopper.routing.SPTStore;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.ev.Subnetwork;
@@ -48,8 +47,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.*;
 
 /**
  * This class stores the landmark nodes and the weights from and to all other nodes in every
@@ -65,6 +63,11 @@ public class LandmarkStorage {
     private static final int SHORT_INFINITY = Short.MAX_VALUE * 2 + 1;
     // We have large values that do not fit into a short, use a specific maximum value
     static final int SHORT_MAX = SHORT_INFINITY - 1;
+    // the same for weights that are stored in a single (unsigned) byte
+    private static final int BYTE_INFINITY = 0xFF;
+    static final int BYTE_MAX = BYTE_INFINITY - 1;
+    // the flags of the row layout that is stored in the header
+    private static final int SPLIT_ROWS = 1, BYTE_WEIGHTS = 2;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LandmarkStorage.class);
     // This value is used to identify nodes where no subnetwork is associated
@@ -74,8 +77,12 @@ public class LandmarkStorage {
     // one node has an associated landmark information ('one landmark row'): the forward and backward weight
     private long LM_ROW_LENGTH;
     private int landmarks;
-    private final int FROM_OFFSET;
-    private final int TO_OFFSET;
+    // with split rows all 'from' weights of a node are followed by all its 'to' weights, otherwise they alternate
+    private boolean splitRows;
+    // 1 if the weights are stored in a single byte, otherwise 2
+    private int weightBytes = 2;
+    private int weightInfinity = SHORT_INFINITY;
+    private int weightMax = SHORT_MAX;
     private final DataAccess landmarkWeightDA;
     // every subnetwork has its own landmark mapping but the count of landmarks is always the same
     private final List<int[]> landmarkIDs;
@@ -94,6 +101,11 @@ public class LandmarkStorage {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private AreaIndex<SplitArea> areaIndex;
     private boolean logDetails = false;
+    private final Directory dir;
+    private long checkpointInterval;
+    private LandmarkCheckpoint checkpoint;
+    private int landmarkThreads = 1;
+    private ExecutorService executor;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -101,6 +113,7 @@ public class LandmarkStorage {
 
     public LandmarkStorage(BaseGraph graph, EncodedValueLookup encodedValueLookup, Directory dir, final LMConfig lmConfig, int landmarks) {
         this.graph = graph;
+        this.dir = dir;
         this.encodedValueLookup = encodedValueLookup;
         this.na = graph.getNodeAccess();
         this.minimumNodes = Math.min(graph.getNodes() / 2, 500_000);
@@ -137,8 +150,6 @@ public class LandmarkStorage {
         this.landmarks = landmarks;
         // one short per landmark and two directions => 2*2 byte
         this.LM_ROW_LENGTH = landmarks * 4;
-        this.FROM_OFFSET = 0;
-        this.TO_OFFSET = 2;
         this.landmarkIDs = new ArrayList<>();
         this.subnetworkStorage = new SubnetworkStorage(dir.create("landmarks_subnetwork_" + lmConfig.getName()));
     }
@@ -155,7 +166,7 @@ public class LandmarkStorage {
      */
     public LandmarkStorage setMaximumWeight(double maxWeight) {
         if (maxWeight > 0) {
-            this.factor = maxWeight / PRECISION;
+            this.factor = maxWeight / getPrecision();
             if (Double.isInfinite(factor) || Double.isNaN(factor))
                 throw new IllegalStateException("Illegal factor " + factor + " calculated from maximum weight " + maxWeight);
         }
@@ -169,6 +180,83 @@ public class LandmarkStorage {
         this.logDetails = logDetails;
     }
 
+    /**
+     * Periodically stores the progress of the landmark creation in the graph directory, such that it continues where
+     * it left off if it gets interrupted and is started again, see {@link LandmarkCheckpoint}.
+     *
+     * @param checkpointInterval the minimum time in milliseconds between two checkpoints, 0 disables checkpoints
+     */
+    public void setCheckpointInterval(long checkpointInterval) {
+        if (checkpointInterval < 0)
+            throw new IllegalArgumentException("checkpoint interval has to be at least 0, to disable it use 0");
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Stores the weights of every node such that all 'from' weights are followed by all 'to' weights, instead of
+     * alternating 'from' and 'to' weights for every landmark. Then the weights of all landmarks can be read as two
+     * contiguous arrays, see {@link #getRow}. The layout is stored together with the landmark weights.
+     */
+    public void setSplitRows(boolean splitRows) {
+        if (isInitialized())
+            throw new IllegalStateException("The row layout cannot be changed after the landmarks were created");
+        this.splitRows = splitRows;
+    }
+
+    public boolean hasSplitRows() {
+        return splitRows;
+    }
+
+    /**
+     * Stores every weight in 8 instead of 16 bits, which halves the memory of the landmark weights. The weights are
+     * rounded down with a 256 times bigger factor, so they are still lower bounds but the approximation gets less
+     * precise and the searches visit more nodes. The number of bits is stored together with the landmark weights.
+     *
+     * @param weightBits either 8 or 16 (the default)
+     */
+    public void setWeightBits(int weightBits) {
+        if (isInitialized())
+            throw new IllegalStateException("The weight bits cannot be changed after the landmarks were created");
+        if (weightBits != 8 && weightBits != 16)
+            throw new IllegalArgumentException("weight bits have to be 8 or 16, but was " + weightBits);
+        // a maximum weight that was set already has to be converted to the new precision
+        double maxWeight = factor * getPrecision();
+        initWeightBytes(weightBits / 8);
+        if (factor > 0)
+            factor = maxWeight / getPrecision();
+    }
+
+    public int getWeightBits() {
+        return weightBytes * 8;
+    }
+
+    private void initWeightBytes(int weightBytes) {
+        this.weightBytes = weightBytes;
+        this.weightInfinity = weightBytes == 1 ? BYTE_INFINITY : SHORT_INFINITY;
+        this.weightMax = weightBytes == 1 ? BYTE_MAX : SHORT_MAX;
+        // one weight per landmark and two directions
+        this.LM_ROW_LENGTH = landmarks * 2L * weightBytes;
+    }
+
+    private long getPrecision() {
+        return weightBytes == 1 ? 1 << 8 : PRECISION;
+    }
+
+    private int getLayout() {
+        return (splitRows ? SPLIT_ROWS : 0) | (weightBytes == 1 ? BYTE_WEIGHTS : 0);
+    }
+
+    /**
+     * Calculates the landmark weights of a subnetwork with multiple threads. Every thread runs its own explorations, so
+     * it needs additional memory in the order of the subnetwork size. The node IDs of the landmarks and their weights do
+     * not depend on the number of threads.
+     */
+    public void setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("landmark threads has to be at least 1");
+        this.landmarkThreads = landmarkThreads;
+    }
+
     /**
      * This method forces the landmark preparation to skip the landmark search and uses the specified landmark list instead.
      * Useful for manual tuning of larger areas to safe import time or improve quality.
@@ -230,13 +318,27 @@ public class LandmarkStorage {
         if (isInitialized())
             throw new IllegalStateException("Initialize the landmark storage only once!");
 
+        if (landmarkThreads > 1)
+            executor = Executors.newFixedThreadPool(landmarkThreads);
+        try {
+            doCreateLandmarks();
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+        initialized = true;
+    }
+
+    private void doCreateLandmarks() {
         // fill 'from' and 'to' weights with maximum value
         long maxBytes = (long) graph.getNodes() * LM_ROW_LENGTH;
         this.landmarkWeightDA.create(2000);
         this.landmarkWeightDA.ensureCapacity(maxBytes);
 
-        for (long pointer = 0; pointer < maxBytes; pointer += 2) {
-            landmarkWeightDA.setShort(pointer, (short) SHORT_INFINITY);
+        for (long pointer = 0; pointer < maxBytes; pointer += weightBytes) {
+            setRawWeight(pointer, weightInfinity);
         }
 
         int[] empty = new int[landmarks];
@@ -276,6 +378,29 @@ public class LandmarkStorage {
         if (logDetails)
             LOGGER.info("Calculated " + graphComponents.getComponents().size() + " subnetworks via tarjan in " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
 
+        // the components are always the same for the same graph, so we can continue with the component and the
+        // landmark where a previous preparation was interrupted
+        int firstComponent = 0;
+        int[] interruptedLandmarks = null;
+        int finishedLandmarks = 0;
+        if (checkpointInterval > 0 && !dir.getDefaultType().isStoring()) {
+            LOGGER.warn("Checkpoints are disabled, because the graph directory is not stored on disk");
+        } else if (checkpointInterval > 0) {
+            checkpoint = new LandmarkCheckpoint(dir, lmConfig.getName(), checkpointInterval, graph.getNodes(), LM_ROW_LENGTH, landmarks, getLayout());
+            if (checkpoint.loadExisting()) {
+                List<int[]> restored = checkpoint.restore(landmarkWeightDA, subnetworks);
+                finishedLandmarks = checkpoint.getFinishedLandmarks();
+                if (finishedLandmarks > 0)
+                    interruptedLandmarks = restored.remove(restored.size() - 1);
+                landmarkIDs.clear();
+                landmarkIDs.addAll(restored);
+                factor = checkpoint.getFactor() / DOUBLE_MLTPL;
+                firstComponent = checkpoint.getComponent();
+                LOGGER.info("Resuming landmark creation from checkpoint, subnetworks: " + (landmarkIDs.size() - 1)
+                        + ", landmarks of current subnetwork: " + finishedLandmarks + ", " + Helper.getMemInfo());
+            }
+        }
+
         String additionalInfo = "";
         // guess the factor
         if (factor <= 0) {
@@ -287,19 +412,33 @@ public class LandmarkStorage {
             double maxWeight = estimateMaxWeight(graphComponents.getComponents(), accessFilter);
             setMaximumWeight(maxWeight);
             additionalInfo = ", maxWeight:" + maxWeight + " from quick estimation";
+            // a resumed preparation continues with the factor stored in the checkpoint, so we use the same precision
+            // right away to get the same weights no matter if the preparation was interrupted or not
+            if (checkpoint != null)
+                factor = Math.round(factor * DOUBLE_MLTPL) / DOUBLE_MLTPL;
         }
 
         if (logDetails)
             LOGGER.info("init landmarks for subnetworks with node count greater than " + minimumNodes + " with factor:" + factor + additionalInfo);
 
+        List<IntArrayList> components = graphComponents.getComponents();
+        IntObjectMap<int[]> selectedLandmarks = selectLandmarksInParallel(components, interruptedLandmarks == null ? firstComponent : firstComponent + 1, accessFilter);
         int nodes = 0;
-        for (IntArrayList subnetworkIds : graphComponents.getComponents()) {
+        for (int component = 0; component < components.size(); component++) {
+            IntArrayList subnetworkIds = components.get(component);
             nodes += subnetworkIds.size();
-            if (subnetworkIds.size() < minimumNodes)
+            if (component < firstComponent || subnetworkIds.size() < minimumNodes)
                 continue;
             if (factor <= 0)
                 throw new IllegalStateException("factor wasn't initialized " + factor + ", subnetworks:"
                         + graphComponents.getComponents().size() + ", minimumNodes:" + minimumNodes + ", current size:" + subnetworkIds.size());
+            if (interruptedLandmarks != null) {
+                // the subnetwork of this component was found already, so we only need to calculate the remaining weights
+                calcLandmarkWeights(component, interruptedLandmarks, finishedLandmarks, subnetworks, accessFilter);
+                interruptedLandmarks = null;
+                checkpointIfDue(component + 1, null, 0, subnetworks);
+                continue;
+            }
 
             int index = subnetworkIds.size() - 1;
             // ensure start node is reachable from both sides and no subnetwork is associated
@@ -312,12 +451,13 @@ public class LandmarkStorage {
                                 + ", " + Helper.getMemInfo() + ((areaIndex == null) ? "" : " area:" + areaIndex.query(p.lat, p.lon)));
                     }
 
-                    if (createLandmarksForSubnetwork(nextStartNode, subnetworks, accessFilter))
+                    if (createLandmarksForSubnetwork(component, nextStartNode, selectedLandmarks.get(nextStartNode), subnetworks, accessFilter))
                         break;
                 }
             }
             if (index < 0)
                 LOGGER.warn("next start node not found in big enough network of size " + subnetworkIds.size() + ", first element is " + subnetworkIds.get(0) + ", " + createPoint(graph, subnetworkIds.get(0)));
+            checkpointIfDue(component + 1, null, 0, subnetworks);
         }
 
         int subnetworkCount = landmarkIDs.size();
@@ -339,6 +479,7 @@ public class LandmarkStorage {
         if (factor * DOUBLE_MLTPL > Integer.MAX_VALUE)
             throw new UnsupportedOperationException("landmark weight factor cannot be bigger than Integer.MAX_VALUE " + factor * DOUBLE_MLTPL);
         landmarkWeightDA.setHeader(3 * 4, (int) Math.round(factor * DOUBLE_MLTPL));
+        landmarkWeightDA.setHeader(4 * 4, getLayout());
 
         // serialize fast byte[] into DataAccess
         subnetworkStorage.create(graph.getNodes());
@@ -348,65 +489,140 @@ public class LandmarkStorage {
 
         if (logDetails)
             LOGGER.info("Finished landmark creation. Subnetwork node count sum " + nodes + " vs. nodes " + graph.getNodes());
-        initialized = true;
+        if (checkpoint != null) {
+            checkpoint.remove();
+            checkpoint = null;
+        }
+    }
+
+    private void checkpointIfDue(int component, int[] landmarkNodeIds, int finishedLandmarks, byte[] subnetworks) {
+        if (checkpoint != null && checkpoint.isDue())
+            checkpoint.write(landmarkWeightDA, subnetworks, (int) Math.round(factor * DOUBLE_MLTPL), component,
+                    landmarkIDs, landmarkNodeIds, finishedLandmarks);
     }
 
     /**
      * This method returns the maximum weight for the graph starting from the landmarks
      */
     private double estimateMaxWeight(List<IntArrayList> graphComponents, EdgeFilter accessFilter) {
+        List<Callable<Double>> tasks = new ArrayList<>();
+        for (IntArrayList subnetworkIds : graphComponents) {
+            if (subnetworkIds.size() < minimumNodes)
+                continue;
+            // every subnetwork uses its own random generator, so the result does not depend on the number of threads
+            Random random = new Random(tasks.size());
+            tasks.add(() -> estimateMaxWeight(subnetworkIds, random, accessFilter));
+        }
+        double maxWeight = 0;
+        for (double weight : runInParallel(tasks))
+            maxWeight = Math.max(maxWeight, weight);
+
+        if (maxWeight <= 0 && !tasks.isEmpty())
+            throw new IllegalStateException("max weight wasn't set although " + tasks.size() + " subnetworks were searched (total " + graphComponents.size() + "), minimumNodes:" + minimumNodes);
+
+        // we have to increase maxWeight slightly as it is only an approximation towards the maximum weight,
+        // especially when external landmarks are provided, but also because we do not traverse all landmarks
+        return maxWeight * 1.008;
+    }
+
+    private double estimateMaxWeight(IntArrayList subnetworkIds, Random random, EdgeFilter accessFilter) {
         double maxWeight = 0;
-        int searchedSubnetworks = 0;
-        Random random = new Random(0);
         // the maximum weight can only be an approximation so there is only a tiny improvement when we would do this for
         // all landmarks. See #2027 (1st commit) where only 1 landmark was sufficient when multiplied with 1.01 at the end
         // TODO instead of calculating the landmarks again here we could store them in landmarkIDs and do this for all here
         int[] tmpLandmarkNodeIds = new int[3];
-        for (IntArrayList subnetworkIds : graphComponents) {
-            if (subnetworkIds.size() < minimumNodes)
+        int maxRetries = Math.max(subnetworkIds.size(), 100);
+        for (int retry = 0; retry < maxRetries; retry++) {
+            int index = random.nextInt(subnetworkIds.size());
+            int nextStartNode = subnetworkIds.get(index);
+            LandmarkExplorer explorer = findLandmarks(tmpLandmarkNodeIds, nextStartNode, accessFilter, "estimate " + index);
+            if (explorer.getFromCount() < minimumNodes) {
+                LOGGER.error("method findLandmarks for " + createPoint(graph, nextStartNode) + " (" + nextStartNode + ")"
+                        + " resulted in too few visited nodes: " + explorer.getFromCount() + " vs expected minimum " + minimumNodes + ", see #2256");
                 continue;
+            }
 
-            searchedSubnetworks++;
-            int maxRetries = Math.max(subnetworkIds.size(), 100);
-            for (int retry = 0; retry < maxRetries; retry++) {
-                int index = random.nextInt(subnetworkIds.size());
-                int nextStartNode = subnetworkIds.get(index);
-                LandmarkExplorer explorer = findLandmarks(tmpLandmarkNodeIds, nextStartNode, accessFilter, "estimate " + index);
-                if (explorer.getFromCount() < minimumNodes) {
-                    LOGGER.error("method findLandmarks for " + createPoint(graph, nextStartNode) + " (" + nextStartNode + ")"
-                            + " resulted in too few visited nodes: " + explorer.getFromCount() + " vs expected minimum " + minimumNodes + ", see #2256");
-                    continue;
-                }
-
-                // starting
-                for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-                    int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-                    explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
-                    explorer.setStartNode(lmNodeId);
-                    explorer.runAlgo();
-                    maxWeight = Math.max(maxWeight, explorer.getLastEntry().weight);
-                }
-                break;
+            // starting
+            for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                int lmNodeId = tmpLandmarkNodeIds[lmIdx];
+                explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
+                explorer.setStartNode(lmNodeId);
+                explorer.runAlgo();
+                maxWeight = Math.max(maxWeight, explorer.getLastWeight());
             }
+            break;
         }
+        return maxWeight;
+    }
 
-        if (maxWeight <= 0 && searchedSubnetworks > 0)
-            throw new IllegalStateException("max weight wasn't set although " + searchedSubnetworks + " subnetworks were searched (total " + graphComponents.size() + "), minimumNodes:" + minimumNodes);
+    /**
+     * Finds the landmarks of all subnetworks in parallel, starting from the same node that {@link #createLandmarks}
+     * tries first. The selection is a chain of explorations within every subnetwork, so we can only run the
+     * subnetworks in parallel. The landmark weights are calculated afterwards, in the order of the subnetworks.
+     *
+     * @return the landmarks by their start node, or an empty map if there is only one thread
+     */
+    private IntObjectMap<int[]> selectLandmarksInParallel(List<IntArrayList> components, int firstComponent, EdgeFilter accessFilter) {
+        IntObjectMap<int[]> result = new IntObjectHashMap<>();
+        if (executor == null || !landmarkSuggestions.isEmpty())
+            return result;
+        IntArrayList startNodes = new IntArrayList();
+        List<Callable<int[]>> tasks = new ArrayList<>();
+        for (int component = firstComponent; component < components.size(); component++) {
+            IntArrayList subnetworkIds = components.get(component);
+            if (subnetworkIds.size() < minimumNodes)
+                continue;
+            int startNode = subnetworkIds.get(subnetworkIds.size() - 1);
+            startNodes.add(startNode);
+            tasks.add(() -> {
+                int[] landmarkNodeIds = new int[landmarks];
+                LandmarkExplorer explorer = findLandmarks(landmarkNodeIds, startNode, accessFilter, "create");
+                // too small subnetworks are handled when we create the landmarks
+                return explorer.getFromCount() < minimumNodes ? null : landmarkNodeIds;
+            });
+        }
+        List<int[]> selected = runInParallel(tasks);
+        for (int i = 0; i < selected.size(); i++)
+            if (selected.get(i) != null)
+                result.put(startNodes.get(i), selected.get(i));
+        return result;
+    }
 
-        // we have to increase maxWeight slightly as it is only an approximation towards the maximum weight,
-        // especially when external landmarks are provided, but also because we do not traverse all landmarks
-        return maxWeight * 1.008;
+    /**
+     * Runs the given tasks using the landmark threads and returns their results in the same order
+     */
+    private <T> List<T> runInParallel(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            if (executor == null) {
+                for (Callable<T> task : tasks)
+                    results.add(task.call());
+            } else {
+                for (Future<T> future : executor.invokeAll(tasks))
+                    results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return results;
     }
 
     /**
      * This method creates landmarks for the specified subnetwork (integer list)
      *
+     * @param selectedLandmarks the landmarks found for the start node already or null
      * @return landmark mapping
      */
-    private boolean createLandmarksForSubnetwork(final int startNode, final byte[] subnetworks, EdgeFilter accessFilter) {
+    private boolean createLandmarksForSubnetwork(int component, final int startNode, int[] selectedLandmarks, final byte[] subnetworks, EdgeFilter accessFilter) {
         final int subnetworkId = landmarkIDs.size();
         int[] tmpLandmarkNodeIds = new int[landmarks];
-        int logOffset = Math.max(1, landmarks / 2);
         boolean pickedPrecalculatedLandmarks = false;
 
         if (!landmarkSuggestions.isEmpty()) {
@@ -433,6 +649,8 @@ public class LandmarkStorage {
 
         if (pickedPrecalculatedLandmarks) {
             LOGGER.info("Picked " + tmpLandmarkNodeIds.length + " landmark suggestions, skip finding landmarks");
+        } else if (selectedLandmarks != null) {
+            tmpLandmarkNodeIds = selectedLandmarks;
         } else {
             LandmarkExplorer explorer = findLandmarks(tmpLandmarkNodeIds, startNode, accessFilter, "create");
             if (explorer.getFromCount() < minimumNodes) {
@@ -444,36 +662,55 @@ public class LandmarkStorage {
                 LOGGER.info("Finished searching landmarks for subnetwork " + subnetworkId + " of size " + explorer.getVisitedNodes());
         }
 
-        // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
+        return calcLandmarkWeights(component, tmpLandmarkNodeIds, 0, subnetworks, accessFilter);
+    }
 
+    /**
+     * Calculates the 'from' and 'to' weights of the given landmarks, starting with the landmark with the given index.
+     * The subnetwork is determined using the first landmark. The explorations of all other landmarks are independent
+     * and write different columns of the landmark weights, so we run them using the landmark threads.
+     */
+    private boolean calcLandmarkWeights(int component, int[] tmpLandmarkNodeIds, int firstLandmark, final byte[] subnetworks, EdgeFilter accessFilter) {
+        final int subnetworkId = landmarkIDs.size();
+        int logOffset = Math.max(1, landmarks / 2);
+        // 2) calculate weights for all landmarks -> 'from' and 'to' weight
+        if (firstLandmark == 0) {
+            int lmNodeId = tmpLandmarkNodeIds[0];
             // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
+            if (exploreLandmark(0, lmNodeId, false, accessFilter).setSubnetworks(subnetworks, subnetworkId))
+                return false;
+            if (exploreLandmark(0, lmNodeId, true, accessFilter).setSubnetworks(subnetworks, subnetworkId))
+                return false;
+        }
 
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+        // with a single thread the tasks are run one after the other when we wait for them below
+        List<FutureTask<Object>> tasks = new ArrayList<>();
+        for (int lmIdx = Math.max(1, firstLandmark); lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+            int index = lmIdx;
+            tasks.add(new FutureTask<>(() -> exploreLandmark(index, tmpLandmarkNodeIds[index], false, accessFilter), null));
+            tasks.add(new FutureTask<>(() -> exploreLandmark(index, tmpLandmarkNodeIds[index], true, accessFilter), null));
+        }
+        if (executor != null)
+            tasks.forEach(executor::execute);
 
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+        for (int lmIdx = firstLandmark; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+            }
+            if (lmIdx > 0) {
+                int taskIdx = 2 * (lmIdx - Math.max(1, firstLandmark));
+                await(tasks.get(taskIdx));
+                await(tasks.get(taskIdx + 1));
             }
 
             if (logDetails && lmIdx % logOffset == 0)
                 LOGGER.info("Set landmarks weights [" + weighting + "]. "
                         + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+            // the weights of all landmarks up to this one are complete, even if other threads are still working
+            if (checkpoint != null) {
+                checkpoint.setChanged(subnetworkId);
+                checkpointIfDue(component, tmpLandmarkNodeIds, lmIdx + 1, subnetworks);
+            }
         }
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
@@ -481,6 +718,27 @@ public class LandmarkStorage {
         return true;
     }
 
+    private LandmarkExplorer exploreLandmark(int lmIdx, int lmNodeId, boolean reverse, EdgeFilter accessFilter) {
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, reverse);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId);
+        return explorer;
+    }
+
+    private static void await(FutureTask<Object> task) {
+        // runs the task in the current thread unless it was started already
+        task.run();
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
@@ -523,13 +781,12 @@ public class LandmarkStorage {
      * a node ID but the internal index of the landmark array.
      */
     int getFromWeight(int landmarkIndex, int node) {
-        int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4L + FROM_OFFSET)
-                & 0x0000FFFF;
-        if (res == SHORT_INFINITY)
+        int res = getRawWeight(toFromPointer(landmarkIndex, node));
+        if (res == weightInfinity)
             // TODO can happen if endstanding oneway
             // we should set a 'from' value to SHORT_MAX if the 'to' value was already set to find real bugs
             // and what to return? Integer.MAX_VALUE i.e. convert to Double.pos_infinity upstream?
-            return SHORT_MAX;
+            return weightMax;
         // throw new IllegalStateException("Do not call getFromWeight for wrong landmark[" + landmarkIndex + "]=" + landmarkIDs[landmarkIndex] + " and node " + node);
         // TODO if(res == MAX) fallback to beeline approximation!?
 
@@ -540,33 +797,89 @@ public class LandmarkStorage {
      * @return the weight from the specified node to the landmark (specified *as index*)
      */
     int getToWeight(int landmarkIndex, int node) {
-        int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4 + TO_OFFSET)
-                & 0x0000FFFF;
-        if (res == SHORT_INFINITY)
-            return SHORT_MAX;
+        int res = getRawWeight(toToPointer(landmarkIndex, node));
+        if (res == weightInfinity)
+            return weightMax;
 
         return res;
     }
 
+    private int getRawWeight(long pointer) {
+        return weightBytes == 1
+                ? (int) landmarkWeightDA.getByte(pointer) & 0xFF
+                : (int) landmarkWeightDA.getShort(pointer) & 0x0000FFFF;
+    }
+
+    private void setRawWeight(long pointer, int weight) {
+        if (weightBytes == 1)
+            landmarkWeightDA.setByte(pointer, (byte) weight);
+        else
+            landmarkWeightDA.setShort(pointer, (short) weight);
+    }
+
+    private long toFromPointer(int landmarkIndex, int node) {
+        return node * LM_ROW_LENGTH + (long) weightBytes * (splitRows ? landmarkIndex : landmarkIndex * 2);
+    }
+
+    private long toToPointer(int landmarkIndex, int node) {
+        return node * LM_ROW_LENGTH + (long) weightBytes * (splitRows ? landmarks + landmarkIndex : landmarkIndex * 2 + 1);
+    }
+
     /**
-     * @return false if the value capacity was reached and instead of the real value the SHORT_MAX was stored.
+     * Reads the weights from and to all landmarks for the given node at once, which requires split rows and a
+     * {@link DataAccess} that supports byte based access. Use {@link #getFromWeight(byte[], int)} and
+     * {@link #getToWeight(byte[], int)} to read the weights from the buffer.
+     */
+    void getRow(int node, byte[] buffer) {
+        landmarkWeightDA.getBytes(node * LM_ROW_LENGTH, buffer, (int) LM_ROW_LENGTH);
+    }
+
+    /**
+     * @see #getFromWeight(int, int)
+     */
+    int getFromWeight(byte[] row, int landmarkIndex) {
+        return toWeight(row, landmarkIndex * weightBytes);
+    }
+
+    /**
+     * @see #getToWeight(int, int)
+     */
+    int getToWeight(byte[] row, int landmarkIndex) {
+        return toWeight(row, (landmarks + landmarkIndex) * weightBytes);
+    }
+
+    private int toWeight(byte[] buffer, int index) {
+        int res = weightBytes == 1 ? buffer[index] & 0xFF : (buffer[index] & 0xFF) | (buffer[index + 1] & 0xFF) << 8;
+        return res == weightInfinity ? weightMax : res;
+    }
+
+    /**
+     * @return true if {@link #getRow} can be used
+     */
+    boolean supportsRowAccess() {
+        return splitRows && !landmarkWeightDA.getType().isInteg();
+    }
+
+    /**
+     * @return false if the value capacity was reached and instead of the real value the SHORT_MAX (or BYTE_MAX) was
+     * stored.
      */
     final boolean setWeight(long pointer, double value) {
         double tmpVal = value / factor;
         if (tmpVal > Integer.MAX_VALUE)
             throw new UnsupportedOperationException("Cannot store infinity explicitly, pointer=" + pointer + ", value=" + value + ", factor=" + factor);
 
-        if (tmpVal >= SHORT_MAX) {
-            landmarkWeightDA.setShort(pointer, (short) SHORT_MAX);
+        if (tmpVal >= weightMax) {
+            setRawWeight(pointer, weightMax);
             return false;
         } else {
-            landmarkWeightDA.setShort(pointer, (short) tmpVal);
+            setRawWeight(pointer, (int) tmpVal);
             return true;
         }
     }
 
     boolean isInfinity(long pointer) {
-        return ((int) landmarkWeightDA.getShort(pointer) & 0x0000FFFF) == SHORT_INFINITY;
+        return getRawWeight(pointer) == weightInfinity;
     }
 
     // From all available landmarks pick just a few active ones
@@ -622,6 +935,14 @@ public class LandmarkStorage {
         return true;
     }
 
+    /**
+     * @return true if both nodes belong to the same subnetwork that has landmarks
+     */
+    boolean isInSameSubnetwork(int node1, int node2) {
+        int subnetwork = subnetworkStorage.getSubnetwork(node1);
+        return subnetwork > UNCLEAR_SUBNETWORK && subnetwork == subnetworkStorage.getSubnetwork(node2);
+    }
+
     public int getLandmarkCount() {
         return landmarks;
     }
@@ -689,7 +1010,9 @@ public class LandmarkStorage {
             landmarks = landmarkWeightDA.getHeader(1 * 4);
             int subnetworks = landmarkWeightDA.getHeader(2 * 4);
             factor = landmarkWeightDA.getHeader(3 * 4) / DOUBLE_MLTPL;
-            LM_ROW_LENGTH = landmarks * 4;
+            int layout = landmarkWeightDA.getHeader(4 * 4);
+            splitRows = (layout & SPLIT_ROWS) != 0;
+            initWeightBytes((layout & BYTE_WEIGHTS) != 0 ? 1 : 2);
             long maxBytes = LM_ROW_LENGTH * nodes;
             long bytePos = maxBytes;
 
@@ -741,7 +1064,7 @@ public class LandmarkStorage {
 
         if (explorer.getFromCount() >= minimumNodes) {
             // 1b) we have one landmark, now determine the other landmarks
-            landmarkNodeIdsToReturn[0] = explorer.getLastEntry().adjNode;
+            landmarkNodeIdsToReturn[0] = explorer.getLastNode();
             for (int lmIdx = 0; lmIdx < landmarkNodeIdsToReturn.length - 1; lmIdx++) {
                 explorer = new LandmarkExplorer(graph, this, initWeighting, traversalMode, accessFilter, false);
                 // set all current landmarks as start so that the next getLastNode is hopefully a "far away" node
@@ -749,7 +1072,7 @@ public class LandmarkStorage {
                     explorer.setStartNode(landmarkNodeIdsToReturn[j]);
                 }
                 explorer.runAlgo();
-                landmarkNodeIdsToReturn[lmIdx + 1] = explorer.getLastEntry().adjNode;
+                landmarkNodeIdsToReturn[lmIdx + 1] = explorer.getLastNode();
                 if (logDetails && lmIdx % logOffset == 0)
                     LOGGER.info("Finding landmarks [" + lmConfig + "] in network [" + explorer.getVisitedNodes() + "] for " + info + ". "
                             + "Start node:" + startNode + " (" + createPoint(graph, startNode) + ")"
@@ -774,7 +1097,7 @@ public class LandmarkStorage {
         private EdgeFilter accessFilter;
         private final boolean reverse;
         private final LandmarkStorage lms;
-        private SPTEntry lastEntry;
+        private int lastSlot = SPTStore.NO_SLOT;
 
         public LandmarkExplorer(Graph g, LandmarkStorage lms, Weighting weighting, TraversalMode tMode, EdgeFilter accessFilter, boolean reverse) {
             super(g, weighting, tMode);
@@ -799,84 +1122,103 @@ public class LandmarkStorage {
         }
 
         @Override
-        protected double calcWeight(EdgeIteratorState iter, SPTEntry currEdge, boolean reverse) {
+        protected double calcWeight(EdgeIteratorState iter, SPTStore spt, int currSlot, boolean reverse) {
             if (!accessFilter.accept(iter))
                 return Double.POSITIVE_INFINITY;
-            return GHUtility.calcWeightWithTurnWeight(weighting, iter, reverse, currEdge.edge) + currEdge.getWeightOfVisitedPath();
+            return GHUtility.calcWeightWithTurnWeight(weighting, iter, reverse, spt.getEdge(currSlot)) + spt.getWeightOfVisitedPath(currSlot);
         }
 
         int getFromCount() {
-            return bestWeightMapFrom.size();
+            int count = 0;
+            for (int slot = 0; slot < sptFrom.size(); slot++) {
+                if (isBestSlot(sptFrom, slot))
+                    count++;
+            }
+            return count;
         }
 
         public void runAlgo() {
             super.runAlgo();
         }
 
-        SPTEntry getLastEntry() {
+        int getLastNode() {
+            if (!finished())
+                throw new IllegalStateException("Cannot get last node if not yet finished");
+            return getSPT().getAdjNode(lastSlot);
+        }
+
+        double getLastWeight() {
             if (!finished())
                 throw new IllegalStateException("Cannot get max weight if not yet finished");
-            return lastEntry;
+            return getSPT().getWeight(lastSlot);
         }
 
         @Override
         public boolean finished() {
             if (reverse) {
-                lastEntry = currTo;
+                lastSlot = currTo;
                 return finishedTo;
             } else {
-                lastEntry = currFrom;
+                lastSlot = currFrom;
                 return finishedFrom;
             }
         }
 
+        private SPTStore getSPT() {
+            return reverse ? sptTo : sptFrom;
+        }
+
+        private static boolean isBestSlot(SPTStore spt, int slot) {
+            int nodeId = spt.getTraversalId(slot);
+            return nodeId != -1 && spt.getSlot(nodeId) == slot;
+        }
+
         public boolean setSubnetworks(final byte[] subnetworks, final int subnetworkId) {
             if (subnetworkId > 127)
                 throw new IllegalStateException("Too many subnetworks " + subnetworkId);
 
-            final AtomicBoolean failed = new AtomicBoolean(false);
-            IntObjectMap<SPTEntry> map = reverse ? bestWeightMapTo : bestWeightMapFrom;
-            map.forEach(new IntObjectPredicate<SPTEntry>() {
-                @Override
-                public boolean apply(int nodeId, SPTEntry value) {
-                    int sn = subnetworks[nodeId];
-                    if (sn != subnetworkId) {
-                        if (sn != UNSET_SUBNETWORK && sn != UNCLEAR_SUBNETWORK) {
-                            // this is ugly but can happen in real world, see testWithOnewaySubnetworks
-                            LOGGER.error("subnetworkId for node " + nodeId
-                                    + " (" + createPoint(graph, nodeId) + ") already set (" + sn + "). " + "Cannot change to " + subnetworkId);
-
-                            failed.set(true);
-                            return false;
-                        }
-
-                        subnetworks[nodeId] = (byte) subnetworkId;
+            SPTStore spt = getSPT();
+            for (int slot = 0; slot < spt.size(); slot++) {
+                if (!isBestSlot(spt, slot))
+                    continue;
+                int nodeId = spt.getTraversalId(slot);
+                int sn = subnetworks[nodeId];
+                if (sn != subnetworkId) {
+                    if (sn != UNSET_SUBNETWORK && sn != UNCLEAR_SUBNETWORK) {
+                        // this is ugly but can happen in real world, see testWithOnewaySubnetworks
+                        LOGGER.error("subnetworkId for node " + nodeId
+                                + " (" + createPoint(graph, nodeId) + ") already set (" + sn + "). " + "Cannot change to " + subnetworkId);
+                        return true;
                     }
-                    return true;
+
+                    subnetworks[nodeId] = (byte) subnetworkId;
                 }
-            });
-            return failed.get();
+            }
+            return false;
         }
 
-        public void initLandmarkWeights(final int lmIdx, int lmNodeId, final long rowSize, final int offset) {
-            IntObjectMap<SPTEntry> map = reverse ? bestWeightMapTo : bestWeightMapFrom;
-            final AtomicInteger maxedout = new AtomicInteger(0);
-            final Map.Entry<Double, Double> finalMaxWeight = new MapEntry<>(0d, 0d);
-
-            map.forEach(new IntObjectProcedure<SPTEntry>() {
-                @Override
-                public void apply(int nodeId, SPTEntry b) {
-                    if (!lms.setWeight(nodeId * rowSize + lmIdx * 4 + offset, b.weight)) {
-                        maxedout.incrementAndGet();
-                        finalMaxWeight.setValue(Math.max(b.weight, finalMaxWeight.getValue()));
-                    }
+        public void initLandmarkWeights(final int lmIdx, int lmNodeId) {
+            SPTStore spt = getSPT();
+            int maxedout = 0;
+            int count = 0;
+            double maxWeight = 0;
+            for (int slot = 0; slot < spt.size(); slot++) {
+                if (!isBestSlot(spt, slot))
+                    continue;
+                count++;
+                int nodeId = spt.getTraversalId(slot);
+                double weight = spt.getWeight(slot);
+                long pointer = reverse ? lms.toToPointer(lmIdx, nodeId) : lms.toFromPointer(lmIdx, nodeId);
+                if (!lms.setWeight(pointer, weight)) {
+                    maxedout++;
+                    maxWeight = Math.max(weight, maxWeight);
                 }
-            });
+            }
 
-            if ((double) maxedout.get() / map.size() > 0.1) {
+            if ((double) maxedout / count > 0.1) {
                 LOGGER.warn("landmark " + lmIdx + " (" + nodeAccess.getLat(lmNodeId) + "," + nodeAccess.getLon(lmNodeId) + "): " +
-                        "too many weights were maxed out (" + maxedout.get() + "/" + map.size() + "). Use a bigger factor than " + lms.factor
-                        + ". For example use maximum_lm_weight: " + finalMaxWeight.getValue() * 1.2 + " in your LM profile definition");
+                        "too many weights were maxed out (" + maxedout + "/" + count + "). Use a bigger factor than " + lms.factor
+                        + ". For example use maximum_lm_weight: " + maxWeight * 1.2 + " in your LM profile definition");
             }
         }
     }
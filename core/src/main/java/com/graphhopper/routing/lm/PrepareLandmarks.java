@@ -96,6 +96,38 @@ public class PrepareLandmarks {
         return this;
     }
 
+    /**
+     * @see LandmarkStorage#setCheckpointInterval(long)
+     */
+    public PrepareLandmarks setCheckpointInterval(long checkpointInterval) {
+        lms.setCheckpointInterval(checkpointInterval);
+        return this;
+    }
+
+    /**
+     * @see LandmarkStorage#setSplitRows(boolean)
+     */
+    public PrepareLandmarks setSplitRows(boolean splitRows) {
+        lms.setSplitRows(splitRows);
+        return this;
+    }
+
+    /**
+     * @see LandmarkStorage#setWeightBits(int)
+     */
+    public PrepareLandmarks setWeightBits(int weightBits) {
+        lms.setWeightBits(weightBits);
+        return this;
+    }
+
+    /**
+     * @see LandmarkStorage#setLandmarkThreads(int)
+     */
+    public PrepareLandmarks setLandmarkThreads(int landmarkThreads) {
+        lms.setLandmarkThreads(landmarkThreads);
+        return this;
+    }
+
     public LandmarkStorage getLandmarkStorage() {
         return lms;
     }
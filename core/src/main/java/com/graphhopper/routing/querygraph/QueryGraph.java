@@ -18,6 +18,7 @@
 package com.graphhopper.routing.querygraph;
 
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.procedures.IntObjectProcedure;
@@ -33,6 +34,7 @@ import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint3D;
 
 import java.util.*;
 
@@ -46,6 +48,12 @@ import java.util.*;
  * to each adjacent nodes via 2 virtual edges with opposite base node / adjacent node encoding.
  * However, the edge explorer returned by {@link #createEdgeExplorer()} only returns two
  * virtual edges per virtual node (the ones with correct base node).
+ * <p>
+ * A query graph created with {@link #createIncremental} can be reused for many searches: snaps can be added and
+ * removed later, see {@link #addSnaps} and {@link #removeSnaps}. Such a modification only rebuilds the virtual nodes
+ * and edges of the closest edges of the added or removed snaps, but it changes the virtual node ids of the snaps
+ * that are on these edges. The virtual nodes of the other snaps keep their ids. The replaced virtual nodes stay
+ * unused until {@link #compact} is called, which renumbers the virtual nodes of all snaps.
  *
  * @author Peter Karich
  */
@@ -62,6 +70,12 @@ public class QueryGraph implements Graph {
     private final Set<VirtualEdgeIteratorState> unfavoredEdges = new LinkedHashSet<>(5);
     private final IntObjectMap<List<EdgeIteratorState>> virtualEdgesAtRealNodes;
     private final List<List<EdgeIteratorState>> virtualEdgesAtVirtualNodes;
+    // only used for incremental query graphs: the original state of the added snaps, which is needed to rebuild the
+    // virtual nodes of their closest edges, the snaps and virtual nodes for every closest edge and the number of
+    // virtual nodes that were replaced by newer ones
+    private final Map<Snap, SnapState> snapStates;
+    private final IntObjectMap<EdgeSnaps> snapsAtEdges;
+    private int unusedVirtualNodes;
 
     public static QueryGraph create(BaseGraph graph, Snap snap) {
         return QueryGraph.create(graph, Collections.singletonList(snap));
@@ -72,15 +86,30 @@ public class QueryGraph implements Graph {
     }
 
     public static QueryGraph create(BaseGraph graph, List<Snap> snaps) {
-        return new QueryGraph(graph, snaps);
+        return new QueryGraph(graph, snaps, false);
+    }
+
+    /**
+     * Creates a query graph that supports adding and removing snaps, see {@link #addSnaps} and {@link #removeSnaps}
+     */
+    public static QueryGraph createIncremental(BaseGraph graph, List<Snap> snaps) {
+        return new QueryGraph(graph, snaps, true);
     }
 
-    private QueryGraph(BaseGraph graph, List<Snap> snaps) {
+    private QueryGraph(BaseGraph graph, List<Snap> snaps, boolean incremental) {
         baseGraph = graph;
         baseNodes = graph.getNodes();
         baseEdges = graph.getEdges();
 
-        queryOverlay = QueryOverlayBuilder.build(graph, snaps);
+        if (incremental) {
+            queryOverlay = new QueryOverlay(snaps.size(), graph.getNodeAccess().is3D());
+            snapStates = new IdentityHashMap<>(snaps.size());
+            snapsAtEdges = new GHIntObjectHashMap<>(snaps.size());
+        } else {
+            queryOverlay = QueryOverlayBuilder.build(graph, snaps);
+            snapStates = null;
+            snapsAtEdges = null;
+        }
         nodeAccess = new ExtendedNodeAccess(graph.getNodeAccess(), queryOverlay.getVirtualNodes(), baseNodes);
         turnCostStorage = baseGraph.getTurnCostStorage();
 
@@ -89,6 +118,8 @@ public class QueryGraph implements Graph {
         final EdgeExplorer mainExplorer = baseGraph.createEdgeExplorer();
         virtualEdgesAtRealNodes = buildVirtualEdgesAtRealNodes(mainExplorer);
         virtualEdgesAtVirtualNodes = buildVirtualEdgesAtVirtualNodes();
+        if (incremental)
+            addSnaps(snaps);
     }
 
     public QueryOverlay getQueryOverlay() {
@@ -238,29 +269,206 @@ public class QueryGraph implements Graph {
         queryOverlay.getEdgeChangesAtRealNodes().forEach(new IntObjectProcedure<QueryOverlay.EdgeChanges>() {
             @Override
             public void apply(int node, QueryOverlay.EdgeChanges edgeChanges) {
-                List<EdgeIteratorState> virtualEdges = new ArrayList<>(edgeChanges.getAdditionalEdges());
-                EdgeIterator mainIter = mainExplorer.setBaseNode(node);
-                while (mainIter.next()) {
-                    if (!edgeChanges.getRemovedEdges().contains(mainIter.getEdge())) {
-                        virtualEdges.add(mainIter.detach(false));
-                    }
-                }
-                virtualEdgesAtRealNodes.put(node, virtualEdges);
+                virtualEdgesAtRealNodes.put(node, buildVirtualEdgesAtRealNode(mainExplorer, node, edgeChanges));
             }
         });
         return virtualEdgesAtRealNodes;
     }
 
+    private static List<EdgeIteratorState> buildVirtualEdgesAtRealNode(EdgeExplorer mainExplorer, int node, QueryOverlay.EdgeChanges edgeChanges) {
+        List<EdgeIteratorState> virtualEdges = new ArrayList<>(edgeChanges.getAdditionalEdges());
+        EdgeIterator mainIter = mainExplorer.setBaseNode(node);
+        while (mainIter.next()) {
+            if (!edgeChanges.getRemovedEdges().contains(mainIter.getEdge())) {
+                virtualEdges.add(mainIter.detach(false));
+            }
+        }
+        return virtualEdges;
+    }
+
     private List<List<EdgeIteratorState>> buildVirtualEdgesAtVirtualNodes() {
         final List<List<EdgeIteratorState>> virtualEdgesAtVirtualNodes = new ArrayList<>();
-        for (int i = 0; i < queryOverlay.getVirtualNodes().size(); i++) {
+        addVirtualEdgesAtVirtualNodes(virtualEdgesAtVirtualNodes);
+        return virtualEdgesAtVirtualNodes;
+    }
+
+    private void addVirtualEdgesAtVirtualNodes(List<List<EdgeIteratorState>> virtualEdgesAtVirtualNodes) {
+        for (int i = virtualEdgesAtVirtualNodes.size(); i < queryOverlay.getVirtualNodes().size(); i++) {
             List<EdgeIteratorState> virtualEdges = Arrays.<EdgeIteratorState>asList(
                     queryOverlay.getVirtualEdge(i * 4 + SNAP_BASE),
                     queryOverlay.getVirtualEdge(i * 4 + SNAP_ADJ)
             );
             virtualEdgesAtVirtualNodes.add(virtualEdges);
         }
-        return virtualEdgesAtVirtualNodes;
+    }
+
+    /**
+     * Adds virtual nodes and edges for the given snaps, which are modified like for {@link #create}. The virtual nodes
+     * of all snaps that were added before and are on the same edges as the given ones are rebuilt, which changes the
+     * closest nodes of these snaps. The closest nodes of the snaps on other edges do not change. Afterwards new edge
+     * explorers, weightings etc. need to be created for this graph.
+     */
+    public void addSnaps(List<Snap> snaps) {
+        checkIncremental();
+        IntHashSet changedEdges = new IntHashSet();
+        for (Snap snap : snaps) {
+            // like for create there are no virtual nodes for snaps on tower nodes
+            if (snap.getSnappedPosition() == Snap.Position.TOWER)
+                continue;
+            if (snap.getClosestEdge() == null)
+                throw new IllegalArgumentException("Do not add an invalid snap: " + snap);
+            if (snapStates.containsKey(snap))
+                throw new IllegalArgumentException("The snap was added already: " + snap);
+            SnapState state = new SnapState(snap);
+            snapStates.put(snap, state);
+            EdgeSnaps edgeSnaps = snapsAtEdges.get(state.getEdge());
+            if (edgeSnaps == null) {
+                edgeSnaps = new EdgeSnaps();
+                snapsAtEdges.put(state.getEdge(), edgeSnaps);
+            }
+            edgeSnaps.snaps.add(snap);
+            changedEdges.add(state.getEdge());
+        }
+        rebuildVirtualNodes(changedEdges);
+    }
+
+    /**
+     * Removes the virtual nodes and edges of the given snaps and restores the snaps to the state they had before they
+     * were added. Like {@link #addSnaps} this changes the closest nodes of the remaining snaps on the same edges, but
+     * not the closest nodes of the snaps on other edges.
+     */
+    public void removeSnaps(List<Snap> snaps) {
+        checkIncremental();
+        IntHashSet changedEdges = new IntHashSet();
+        for (Snap snap : snaps) {
+            SnapState state = snapStates.remove(snap);
+            // snaps on tower nodes have no virtual nodes
+            if (state == null)
+                continue;
+            state.restore(snap);
+            snapsAtEdges.get(state.getEdge()).snaps.remove(snap);
+            changedEdges.add(state.getEdge());
+        }
+        rebuildVirtualNodes(changedEdges);
+    }
+
+    private void checkIncremental() {
+        if (snapStates == null)
+            throw new IllegalStateException("Snaps can only be added or removed for query graphs created with createIncremental");
+    }
+
+    private void rebuildVirtualNodes(IntHashSet changedEdges) {
+        if (changedEdges.isEmpty())
+            return;
+        clearUnfavoredStatus();
+        List<Snap> snaps = new ArrayList<>();
+        IntHashSet changedRealNodes = new IntHashSet();
+        for (IntCursor edge : changedEdges) {
+            EdgeSnaps edgeSnaps = snapsAtEdges.get(edge.value);
+            // the existing virtual nodes of the edge are no longer used, new ones are added at the end
+            unusedVirtualNodes += edgeSnaps.virtualNodes;
+            edgeSnaps.virtualNodes = 0;
+            for (Snap snap : edgeSnaps.snaps) {
+                snapStates.get(snap).restore(snap);
+                snaps.add(snap);
+            }
+            if (edgeSnaps.snaps.isEmpty())
+                snapsAtEdges.remove(edge.value);
+            EdgeIteratorState edgeState = baseGraph.getEdgeIteratorState(edge.value, Integer.MIN_VALUE);
+            changedRealNodes.add(edgeState.getBaseNode());
+            changedRealNodes.add(edgeState.getAdjNode());
+        }
+
+        appendVirtualNodes(snaps, changedRealNodes);
+    }
+
+    /**
+     * @return the number of virtual nodes that were replaced by {@link #addSnaps} or {@link #removeSnaps} and are no
+     * longer used, see {@link #compact}
+     */
+    public int getUnusedVirtualNodes() {
+        return unusedVirtualNodes;
+    }
+
+    /**
+     * Removes the unused virtual nodes and edges by rebuilding the virtual nodes of all snaps. Unlike {@link #addSnaps}
+     * and {@link #removeSnaps} this changes the closest nodes of all snaps, so virtual node ids that were obtained
+     * before must not be used afterwards. Afterwards new edge explorers, weightings etc. need to be created for this
+     * graph.
+     */
+    public void compact() {
+        checkIncremental();
+        if (unusedVirtualNodes == 0)
+            return;
+        clearUnfavoredStatus();
+        queryOverlay.clear();
+        virtualEdgesAtRealNodes.clear();
+        virtualEdgesAtVirtualNodes.clear();
+        unusedVirtualNodes = 0;
+        List<Snap> snaps = new ArrayList<>();
+        IntHashSet changedRealNodes = new IntHashSet();
+        snapsAtEdges.forEach((IntObjectProcedure<EdgeSnaps>) (edge, edgeSnaps) -> {
+            edgeSnaps.virtualNodes = 0;
+            for (Snap snap : edgeSnaps.snaps) {
+                snapStates.get(snap).restore(snap);
+                snaps.add(snap);
+            }
+            EdgeIteratorState edgeState = baseGraph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            changedRealNodes.add(edgeState.getBaseNode());
+            changedRealNodes.add(edgeState.getAdjNode());
+        });
+        appendVirtualNodes(snaps, changedRealNodes);
+    }
+
+    private void appendVirtualNodes(List<Snap> snaps, IntHashSet changedRealNodes) {
+        int firstNewVirtualNode = queryOverlay.getVirtualNodes().size();
+        QueryOverlayBuilder.append(queryOverlay, baseNodes, baseEdges, baseGraph.getNodeAccess().is3D(), snaps);
+        for (int i = firstNewVirtualNode; i < queryOverlay.getVirtualNodes().size(); i++) {
+            // the virtual nodes of every edge were added in one block
+            EdgeSnaps edgeSnaps = snapsAtEdges.get(queryOverlay.getClosestEdges().get(i));
+            if (edgeSnaps.virtualNodes == 0)
+                edgeSnaps.firstVirtualNode = i;
+            edgeSnaps.virtualNodes++;
+        }
+        addVirtualEdgesAtVirtualNodes(virtualEdgesAtVirtualNodes);
+        EdgeExplorer mainExplorer = baseGraph.createEdgeExplorer();
+        for (IntCursor node : changedRealNodes)
+            updateVirtualEdgesAtRealNode(mainExplorer, node.value);
+    }
+
+    /**
+     * Rebuilds the edge changes at the given real node from the virtual nodes of all its adjacent edges in the same
+     * order as {@link EdgeChangeBuilder}, i.e. ordered by the virtual nodes.
+     */
+    private void updateVirtualEdgesAtRealNode(EdgeExplorer mainExplorer, int node) {
+        // the indices of the virtual edges (in the query overlay) that are adjacent to the real node
+        IntArrayList virtualEdges = new IntArrayList();
+        IntHashSet edges = new IntHashSet();
+        EdgeIterator iter = mainExplorer.setBaseNode(node);
+        while (iter.next()) {
+            EdgeSnaps edgeSnaps = snapsAtEdges.get(iter.getEdge());
+            if (!edges.add(iter.getEdge()) || edgeSnaps == null || edgeSnaps.virtualNodes == 0)
+                continue;
+            int first = edgeSnaps.firstVirtualNode;
+            int last = first + edgeSnaps.virtualNodes - 1;
+            if (queryOverlay.getVirtualEdge(first * 4 + SNAP_BASE).getAdjNode() == node)
+                virtualEdges.add(first * 4 + BASE_SNAP);
+            if (queryOverlay.getVirtualEdge(last * 4 + SNAP_ADJ).getAdjNode() == node)
+                virtualEdges.add(last * 4 + ADJ_SNAP);
+        }
+        if (virtualEdges.isEmpty()) {
+            queryOverlay.getEdgeChangesAtRealNodes().remove(node);
+            virtualEdgesAtRealNodes.remove(node);
+            return;
+        }
+        Arrays.sort(virtualEdges.buffer, 0, virtualEdges.size());
+        QueryOverlay.EdgeChanges edgeChanges = new QueryOverlay.EdgeChanges(virtualEdges.size(), virtualEdges.size());
+        for (IntCursor virtualEdge : virtualEdges) {
+            edgeChanges.getAdditionalEdges().add(queryOverlay.getVirtualEdge(virtualEdge.value));
+            edgeChanges.getRemovedEdges().add(queryOverlay.getClosestEdges().get(virtualEdge.value / 4));
+        }
+        queryOverlay.getEdgeChangesAtRealNodes().put(node, edgeChanges);
+        virtualEdgesAtRealNodes.put(node, buildVirtualEdgesAtRealNode(mainExplorer, node, edgeChanges));
     }
 
     @Override
@@ -308,4 +516,47 @@ public class QueryGraph implements Graph {
         return new UnsupportedOperationException("QueryGraph cannot be modified.");
     }
 
+    /**
+     * The snaps that were added for a closest edge and the block of virtual nodes that was created for them
+     */
+    private static class EdgeSnaps {
+        final List<Snap> snaps = new ArrayList<>(2);
+        int firstVirtualNode;
+        int virtualNodes;
+    }
+
+    /**
+     * The state of a snap before it was modified by {@link QueryOverlayBuilder}
+     */
+    private static class SnapState {
+        private final int closestNode;
+        private final EdgeIteratorState closestEdge;
+        private final int wayIndex;
+        private final Snap.Position snappedPosition;
+        private final GHPoint3D snappedPoint;
+        private final double queryDistance;
+
+        SnapState(Snap snap) {
+            closestNode = snap.getClosestNode();
+            closestEdge = snap.getClosestEdge();
+            wayIndex = snap.getWayIndex();
+            snappedPosition = snap.getSnappedPosition();
+            snappedPoint = snap.getSnappedPoint();
+            queryDistance = snap.getQueryDistance();
+        }
+
+        int getEdge() {
+            return closestEdge.getEdge();
+        }
+
+        void restore(Snap snap) {
+            snap.setClosestNode(closestNode);
+            snap.setClosestEdge(closestEdge);
+            snap.setWayIndex(wayIndex);
+            snap.setSnappedPosition(snappedPosition);
+            snap.setSnappedPoint(snappedPoint);
+            snap.setQueryDistance(queryDistance);
+        }
+    }
+
 }
@@ -76,6 +76,16 @@ class QueryOverlay {
         return closestEdges;
     }
 
+    /**
+     * Removes all virtual nodes and edges
+     */
+    void clear() {
+        virtualNodes.clear();
+        closestEdges.clear();
+        virtualEdges.clear();
+        edgeChangesAtRealNodes.clear();
+    }
+
     static class EdgeChanges {
         private final List<EdgeIteratorState> additionalEdges;
         private final IntArrayList removedEdges;
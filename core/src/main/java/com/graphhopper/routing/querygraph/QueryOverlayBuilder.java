@@ -46,6 +46,16 @@ class QueryOverlayBuilder {
         return new QueryOverlayBuilder(firstVirtualNodeId, firstVirtualEdgeId, is3D).build(snaps);
     }
 
+    /**
+     * Adds the virtual nodes and edges for the given snaps to an existing overlay, but does not update its edge changes
+     * at the real nodes. The virtual nodes of every closest edge are added in one block of consecutive ids.
+     */
+    static void append(QueryOverlay queryOverlay, int firstVirtualNodeId, int firstVirtualEdgeId, boolean is3D, List<Snap> snaps) {
+        QueryOverlayBuilder builder = new QueryOverlayBuilder(firstVirtualNodeId, firstVirtualEdgeId, is3D);
+        builder.queryOverlay = queryOverlay;
+        builder.buildVirtualEdges(snaps);
+    }
+
     private QueryOverlayBuilder(int firstVirtualNodeId, int firstVirtualEdgeId, boolean is3D) {
         this.firstVirtualNodeId = firstVirtualNodeId;
         this.firstVirtualEdgeId = firstVirtualEdgeId;
@@ -29,8 +29,11 @@ public class DefaultMaxSpeedParser implements TagParser {
         this.externalAccess = externalAccess;
     }
 
+    /**
+     * This method is synchronized, because the cache and the external access are not thread-safe
+     */
     @Override
-    public void handleWayTags(int edgeId, EdgeIntAccess _ignoreAccess, ReaderWay way, IntsRef relationFlags) {
+    public synchronized void handleWayTags(int edgeId, EdgeIntAccess _ignoreAccess, ReaderWay way, IntsRef relationFlags) {
         if (externalAccess == null)
             throw new IllegalArgumentException("Call init before using " + getClass().getName());
         double maxSpeed = Math.max(OSMMaxSpeedParser.parseMaxSpeed(way, false), OSMMaxSpeedParser.parseMaxSpeed(way, true));
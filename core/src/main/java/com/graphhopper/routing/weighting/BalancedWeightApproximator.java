@@ -45,6 +45,7 @@ public class BalancedWeightApproximator {
 
     // Constants to shift the estimate (reverse estimate) so that it is actually 0 at the destination (source).
     double fromOffset, toOffset;
+    private int from, to;
 
     public BalancedWeightApproximator(WeightApproximator weightApprox) {
         if (weightApprox == null)
@@ -59,12 +60,32 @@ public class BalancedWeightApproximator {
     }
 
     public void setFromTo(int from, int to) {
+        this.from = from;
+        this.to = to;
         uniDirApproximatorReverse.setTo(from);
         uniDirApproximatorForward.setTo(to);
+        updateOffsets();
+    }
+
+    private void updateOffsets() {
         fromOffset = 0.5 * uniDirApproximatorForward.approximate(from);
         toOffset = 0.5 * uniDirApproximatorReverse.approximate(to);
     }
 
+    /**
+     * @param fromNode the node the forward search is currently at
+     * @param toNode   the node the backward search is currently at
+     * @return true if the approximation changed, see {@link WeightApproximator#refine(int)}
+     */
+    public boolean refine(int fromNode, int toNode) {
+        // we have to refine both directions, because both are used for the approximation in either direction
+        boolean changed = uniDirApproximatorForward.refine(fromNode);
+        changed |= uniDirApproximatorReverse.refine(toNode);
+        if (changed)
+            updateOffsets();
+        return changed;
+    }
+
     public double approximate(int node, boolean reverse) {
         double weightApproximation = 0.5 * (uniDirApproximatorForward.approximate(node) - uniDirApproximatorReverse.approximate(node));
         if (reverse) {
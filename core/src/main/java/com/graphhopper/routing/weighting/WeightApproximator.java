@@ -41,4 +41,16 @@ public interface WeightApproximator {
     WeightApproximator reverse();
 
     double getSlack();
+
+    /**
+     * Gives the approximation the chance to adapt itself to the current state of the search, e.g. by choosing
+     * additional landmarks for the given node. The approximation must stay consistent.
+     *
+     * @param currentNode the node the search is currently at
+     * @return true if the approximation changed. In this case the search has to recalculate the weights of the
+     * entries in its queue.
+     */
+    default boolean refine(int currentNode) {
+        return false;
+    }
 }
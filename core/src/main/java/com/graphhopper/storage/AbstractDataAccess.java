@@ -90,7 +90,7 @@ public abstract class AbstractDataAccess implements DataAccess {
      */
     protected void writeHeader(RandomAccessFile file, long length, int segmentSize) throws IOException {
         file.seek(0);
-        file.writeUTF("GH");
+        file.writeUTF(getFileMarker());
         file.writeLong(length);
         file.writeInt(segmentSize);
         for (int i = 0; i < header.length; i++) {
@@ -104,8 +104,8 @@ public abstract class AbstractDataAccess implements DataAccess {
             return -1;
 
         String versionHint = raFile.readUTF();
-        if (!"GH".equals(versionHint))
-            throw new IllegalArgumentException("Not a GraphHopper file " + getFullName() + "! Expected 'GH' as file marker but was " + versionHint);
+        if (!getFileMarker().equals(versionHint))
+            throw new IllegalArgumentException("Not a GraphHopper file " + getFullName() + "! Expected '" + getFileMarker() + "' as file marker but was " + versionHint);
 
         long bytes = raFile.readLong();
         setSegmentSize(raFile.readInt());
@@ -115,6 +115,14 @@ public abstract class AbstractDataAccess implements DataAccess {
         return bytes;
     }
 
+    /**
+     * The marker at the very beginning of every file. Implementations with an incompatible file format need to use
+     * a different marker so that they cannot be loaded by accident.
+     */
+    protected String getFileMarker() {
+        return "GH";
+    }
+
     protected void copyHeader(DataAccess da) {
         for (int h = 0; h < header.length * 4; h += 4) {
             da.setHeader(h, getHeader(h));
@@ -62,13 +62,21 @@ public class BaseGraph implements Graph, Closeable {
     private long minGeoRef;
     private long maxGeoRef;
     private final int eleBytesPerCoord;
+    private boolean csrAdjacencyEnabled = false;
+    // only available for a frozen graph and if enabled
+    private CSRAdjacency csrAdjacency;
 
     public BaseGraph(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags) {
+        this(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, false);
+    }
+
+    public BaseGraph(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags,
+                     boolean cacheAlignedEdges) {
         this.dir = dir;
         this.bitUtil = BitUtil.LITTLE;
         this.wayGeometry = dir.create("geometry", segmentSize);
         this.edgeKVStorage = new KVStorage(dir, true);
-        this.store = new BaseGraphNodesAndEdges(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags);
+        this.store = new BaseGraphNodesAndEdges(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, cacheAlignedEdges);
         this.nodeAccess = new GHNodeAccess(store);
         this.segmentSize = segmentSize;
         this.turnCostStorage = withTurnCosts ? new TurnCostStorage(this, dir.create("turn_costs", dir.getDefaultType("turn_costs", true), segmentSize)) : null;
@@ -152,6 +160,14 @@ public class BaseGraph implements Graph, Closeable {
         return store.getEdges();
     }
 
+    /**
+     * @return empty edge flags of the size used by this graph, e.g. to be filled and then set via
+     * {@link EdgeIteratorState#setFlags}
+     */
+    public IntsRef createEdgeFlags() {
+        return store.createEdgeFlags();
+    }
+
     @Override
     public NodeAccess getNodeAccess() {
         return nodeAccess;
@@ -166,6 +182,26 @@ public class BaseGraph implements Graph, Closeable {
         if (isFrozen())
             throw new IllegalStateException("base graph already frozen");
         store.setFrozen(true);
+        if (csrAdjacencyEnabled)
+            csrAdjacency = CSRAdjacency.build(store);
+    }
+
+    /**
+     * Enables the CSR adjacency index that is built when the graph is frozen or a frozen graph is loaded. The edge
+     * explorers of a frozen graph then read the neighbours of a node from contiguous arrays on the heap instead of
+     * following the linked lists of the edges storage. This costs roughly 16 bytes per edge.
+     */
+    public BaseGraph setCSRAdjacency(boolean enabled) {
+        checkNotInitialized();
+        this.csrAdjacencyEnabled = enabled;
+        return this;
+    }
+
+    /**
+     * @return true if the edge explorers of this graph use the CSR adjacency index
+     */
+    public boolean hasCSRAdjacency() {
+        return csrAdjacency != null;
     }
 
     public synchronized boolean isFrozen() {
@@ -234,11 +270,13 @@ public class BaseGraph implements Graph, Closeable {
         if (supportsTurnCosts()) {
             turnCostStorage.close();
         }
+        csrAdjacency = null;
     }
 
     public long getCapacity() {
         return store.getCapacity() + edgeKVStorage.getCapacity()
-                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0);
+                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0)
+                + (csrAdjacency == null ? 0 : csrAdjacency.getCapacity());
     }
 
     long getMaxGeoRef() {
@@ -262,6 +300,8 @@ public class BaseGraph implements Graph, Closeable {
 
         setInitialized();
         loadWayGeometryHeader();
+        if (csrAdjacencyEnabled && isFrozen())
+            csrAdjacency = CSRAdjacency.build(store);
         return true;
     }
 
@@ -408,6 +448,8 @@ public class BaseGraph implements Graph, Closeable {
 
     @Override
     public EdgeExplorer createEdgeExplorer(EdgeFilter filter) {
+        if (csrAdjacency != null)
+            return new CSREdgeIteratorImpl(this, csrAdjacency, filter);
         return new EdgeIteratorImpl(this, filter);
     }
 
@@ -615,6 +657,8 @@ public class BaseGraph implements Graph, Closeable {
         private boolean withTurnCosts = false;
         private long bytes = 100;
         private int segmentSize = -1;
+        private boolean cacheAlignedEdges = false;
+        private boolean csrAdjacency = false;
 
         public Builder(EncodingManager em) {
             this(em.getBytesForFlags());
@@ -653,8 +697,26 @@ public class BaseGraph implements Graph, Closeable {
             return this;
         }
 
+        /**
+         * Use the cache-aligned memory layout for edges. This is only relevant for new graphs, when a graph is loaded
+         * its stored layout is used.
+         */
+        public Builder setCacheAlignedEdges(boolean cacheAlignedEdges) {
+            this.cacheAlignedEdges = cacheAlignedEdges;
+            return this;
+        }
+
+        /**
+         * @see BaseGraph#setCSRAdjacency(boolean)
+         */
+        public Builder setCSRAdjacency(boolean csrAdjacency) {
+            this.csrAdjacency = csrAdjacency;
+            return this;
+        }
+
         public BaseGraph build() {
-            return new BaseGraph(directory, withElevation, withTurnCosts, segmentSize, bytesForFlags);
+            return new BaseGraph(directory, withElevation, withTurnCosts, segmentSize, bytesForFlags, cacheAlignedEdges)
+                    .setCSRAdjacency(csrAdjacency);
         }
 
         public BaseGraph create() {
@@ -714,6 +776,49 @@ public class BaseGraph implements Graph, Closeable {
         }
     }
 
+    /**
+     * Iterates the edges of a node using the {@link CSRAdjacency} of a frozen graph. The edges are returned in the
+     * same order and with the same state as for {@link EdgeIteratorImpl}.
+     */
+    protected static class CSREdgeIteratorImpl extends EdgeIteratorStateImpl implements EdgeExplorer, EdgeIterator {
+        final EdgeFilter filter;
+        final CSRAdjacency adjacency;
+        int index;
+        int end;
+
+        public CSREdgeIteratorImpl(BaseGraph baseGraph, CSRAdjacency adjacency, EdgeFilter filter) {
+            super(baseGraph);
+            if (filter == null)
+                throw new IllegalArgumentException("Instead null filter use EdgeFilter.ALL_EDGES");
+            this.filter = filter;
+            this.adjacency = adjacency;
+        }
+
+        @Override
+        public EdgeIterator setBaseNode(int baseNode) {
+            index = adjacency.getStart(baseNode);
+            end = adjacency.getEnd(baseNode);
+            this.baseNode = baseNode;
+            edgeId = EdgeIterator.NO_EDGE;
+            return this;
+        }
+
+        @Override
+        public final boolean next() {
+            while (index < end) {
+                int edgeKey = adjacency.getEdgeKey(index);
+                edgeId = GHUtility.getEdgeFromEdgeKey(edgeKey);
+                edgePointer = store.toEdgePointer(edgeId);
+                reverse = (edgeKey & 1) == 1;
+                adjNode = adjacency.getAdjNode(index);
+                index++;
+                if (filter.accept(this))
+                    return true;
+            }
+            return false;
+        }
+    }
+
     /**
      * Include all edges of this storage in the iterator.
      */
@@ -32,6 +32,9 @@ import static com.graphhopper.util.Helper.nf;
 /**
  * Underlying storage for nodes and edges of {@link BaseGraph}. Nodes and edges are stored using two {@link DataAccess}
  * instances. Nodes and edges are simply stored sequentially, see the memory layout in the constructor.
+ * <p>
+ * Optionally the edges can use a cache-aligned layout, see {@link #setEdgeLayout(boolean)}. The layout is stored in
+ * the header of the edges so that loadExisting restores it regardless of the configuration.
  */
 class BaseGraphNodesAndEdges implements EdgeIntAccess {
     // Currently distances are stored as 4 byte integers. using a conversion factor of 1000 the minimum distance
@@ -48,8 +51,9 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
 
     // edges
     private final DataAccess edges;
-    private final int E_NODEA, E_NODEB, E_LINKA, E_LINKB, E_DIST, E_KV, E_FLAGS, E_GEO;
+    private int E_NODEA, E_NODEB, E_LINKA, E_LINKB, E_DIST, E_KV, E_FLAGS, E_GEO;
     private final int bytesForFlags;
+    private boolean cacheAlignedEdges;
     private int edgeEntryBytes;
     private int edgeCount;
 
@@ -63,6 +67,11 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     private boolean frozen;
 
     public BaseGraphNodesAndEdges(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags) {
+        this(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, false);
+    }
+
+    public BaseGraphNodesAndEdges(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags,
+                                  boolean cacheAlignedEdges) {
         nodes = dir.create("nodes", dir.getDefaultType("nodes", true), segmentSize);
         edges = dir.create("edges", dir.getDefaultType("edges", false), segmentSize);
         this.bytesForFlags = bytesForFlags;
@@ -78,16 +87,41 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         N_TC = N_ELE + (withTurnCosts ? 4 : 0);
         nodeEntryBytes = N_TC + 4;
 
-        // memory layout for edges
+        setEdgeLayout(cacheAlignedEdges);
+    }
+
+    /**
+     * Sets the memory layout for edges. The default layout stores the distance and the key value reference before the
+     * flags. The cache-aligned layout puts the flags directly behind the nodes and the links, because these are read
+     * for every explored edge, followed by the distance. Additionally, every edge entry is padded to 32 or a multiple
+     * of 64 bytes so that (if the storage is aligned) an edge entry does not span two cache lines. This needs more
+     * memory but usually reduces the cache misses per edge when the graph is explored.
+     */
+    private void setEdgeLayout(boolean cacheAlignedEdges) {
+        this.cacheAlignedEdges = cacheAlignedEdges;
         E_NODEA = 0;
         E_NODEB = 4;
         E_LINKA = 8;
         E_LINKB = 12;
-        E_DIST = 16;
-        E_KV = 20;
-        E_FLAGS = 24;
-        E_GEO = E_FLAGS + bytesForFlags;
-        edgeEntryBytes = E_GEO + 5;
+        if (cacheAlignedEdges) {
+            E_FLAGS = 16;
+            E_DIST = E_FLAGS + bytesForFlags;
+            E_KV = E_DIST + 4;
+            E_GEO = E_KV + 4;
+            edgeEntryBytes = alignToCacheLine(E_GEO + 5);
+        } else {
+            E_DIST = 16;
+            E_KV = 20;
+            E_FLAGS = 24;
+            E_GEO = E_FLAGS + bytesForFlags;
+            edgeEntryBytes = E_GEO + 5;
+        }
+    }
+
+    static int alignToCacheLine(int bytes) {
+        if (bytes <= 32)
+            return 32;
+        return (bytes + 63) / 64 * 64;
     }
 
     public void create(long initSize) {
@@ -121,6 +155,7 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
 
         final int edgesVersion = edges.getHeader(0 * 4);
         GHUtility.checkDAVersion("edges", Constants.VERSION_EDGE, edgesVersion);
+        setEdgeLayout(edges.getHeader(3 * 4) == 1);
         edgeEntryBytes = edges.getHeader(1 * 4);
         edgeCount = edges.getHeader(2 * 4);
         return true;
@@ -144,6 +179,7 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         edges.setHeader(0 * 4, Constants.VERSION_EDGE);
         edges.setHeader(1 * 4, edgeEntryBytes);
         edges.setHeader(2 * 4, edgeCount);
+        edges.setHeader(3 * 4, cacheAlignedEdges ? 1 : 0);
 
         edges.flush();
         nodes.flush();
@@ -178,6 +214,10 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         return withTurnCosts;
     }
 
+    public boolean isCacheAlignedEdges() {
+        return cacheAlignedEdges;
+    }
+
     public BBox getBounds() {
         return bounds;
     }
@@ -0,0 +1,94 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+/**
+ * A compressed sparse row (CSR) representation of the adjacency lists of a frozen {@link BaseGraph}. The edges of
+ * node n are stored in the contiguous range [offsets[n], offsets[n+1]) of the edgeKeys and adjNodes arrays, so
+ * iterating the neighbours of a node reads sequential memory instead of following the linkA/linkB lists through the
+ * edges DataAccess. The order of the edges is the same as for the linked lists, so both traversals are exchangeable.
+ * <p>
+ * This index is kept on the heap and requires 4 bytes per node and 16 bytes per edge. It is built from the linked
+ * lists and is not stored, because it can only be used as long as the topology of the graph does not change.
+ */
+final class CSRAdjacency {
+    private final int[] offsets;
+    private final int[] edgeKeys;
+    private final int[] adjNodes;
+
+    private CSRAdjacency(int[] offsets, int[] edgeKeys, int[] adjNodes) {
+        this.offsets = offsets;
+        this.edgeKeys = edgeKeys;
+        this.adjNodes = adjNodes;
+    }
+
+    static CSRAdjacency build(BaseGraphNodesAndEdges store) {
+        int nodes = store.getNodes();
+        long entries = 2L * store.getEdges();
+        if (entries > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Too many edges for the CSR adjacency: " + store.getEdges());
+        int[] offsets = new int[nodes + 1];
+        int[] edgeKeys = new int[(int) entries];
+        int[] adjNodes = new int[(int) entries];
+        int index = 0;
+        for (int node = 0; node < nodes; node++) {
+            offsets[node] = index;
+            int edge = store.getEdgeRef(store.toNodePointer(node));
+            while (EdgeIterator.Edge.isValid(edge)) {
+                long edgePointer = store.toEdgePointer(edge);
+                int nodeA = store.getNodeA(edgePointer);
+                boolean baseNodeIsNodeA = node == nodeA;
+                edgeKeys[index] = GHUtility.createEdgeKey(edge, !baseNodeIsNodeA);
+                adjNodes[index] = baseNodeIsNodeA ? store.getNodeB(edgePointer) : nodeA;
+                index++;
+                edge = baseNodeIsNodeA ? store.getLinkA(edgePointer) : store.getLinkB(edgePointer);
+            }
+        }
+        offsets[nodes] = index;
+        if (index != entries)
+            throw new IllegalStateException("Adjacency lists do not contain every edge twice, expected " + entries + " entries but was " + index);
+        return new CSRAdjacency(offsets, edgeKeys, adjNodes);
+    }
+
+    int getNodes() {
+        return offsets.length - 1;
+    }
+
+    int getStart(int node) {
+        return offsets[node];
+    }
+
+    int getEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    int getEdgeKey(int index) {
+        return edgeKeys[index];
+    }
+
+    int getAdjNode(int index) {
+        return adjNodes[index];
+    }
+
+    long getCapacity() {
+        return 4L * (offsets.length + edgeKeys.length + adjNodes.length);
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A DataAccess that stores every segment deflate-compressed on disk. After loadExisting the segments are read from
+ * disk and decompressed only when they are accessed, and at most cacheSegments of them are kept in memory. Evicting
+ * follows the CLOCK algorithm, i.e. an approximation of LRU where a cache hit only sets a flag and needs no locking.
+ * This is useful for big files that are rarely read like the geometry or the KVStorage.
+ * <p>
+ * Segments that were created or modified after the last flush stay in memory until the next flush. Flushing rewrites
+ * the whole file and only compresses the modified segments again. The file format is not compatible with the other
+ * DataAccess implementations, that is why it uses its own file marker. Read thread-safe.
+ */
+public final class CompressedDataAccess extends AbstractDataAccess {
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN).withInvokeExactBehavior();
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN).withInvokeExactBehavior();
+    private final int cacheSegments;
+    // the decompressed segments or null if not in memory
+    private AtomicReferenceArray<byte[]> segments = new AtomicReferenceArray<>(0);
+    // the position and length of the compressed segments on disk, the length is -1 if the segment is not on disk yet
+    private long[] blockPositions = new long[0];
+    private int[] blockLengths = new int[0];
+    // modified segments cannot be evicted before they are flushed
+    private boolean[] dirty = new boolean[0];
+    private boolean[] referenced = new boolean[0];
+    private int residentSegments;
+    private int clockHand;
+    private RandomAccessFile raFile;
+
+    CompressedDataAccess(String name, String location, int cacheSegments, int segmentSize) {
+        super(name, location, segmentSize);
+        if (cacheSegments < 1)
+            throw new IllegalArgumentException("cacheSegments must be positive but was " + cacheSegments + " for " + name);
+        this.cacheSegments = cacheSegments;
+    }
+
+    @Override
+    protected String getFileMarker() {
+        return "GHZ";
+    }
+
+    @Override
+    public CompressedDataAccess create(long bytes) {
+        if (segments.length() > 0)
+            throw new IllegalThreadStateException("already created");
+
+        ensureCapacity(Math.max(10 * 4, bytes));
+        return this;
+    }
+
+    @Override
+    public boolean ensureCapacity(long bytes) {
+        if (bytes < 0)
+            throw new IllegalArgumentException("new capacity has to be strictly positive");
+
+        long cap = getCapacity();
+        long newBytes = bytes - cap;
+        if (newBytes <= 0)
+            return false;
+
+        int segmentsToCreate = (int) (newBytes / segmentSizeInBytes);
+        if (newBytes % segmentSizeInBytes != 0)
+            segmentsToCreate++;
+
+        int oldCount = segments.length();
+        int newCount = oldCount + segmentsToCreate;
+        try {
+            AtomicReferenceArray<byte[]> newSegs = new AtomicReferenceArray<>(newCount);
+            for (int i = 0; i < oldCount; i++) {
+                newSegs.set(i, segments.get(i));
+            }
+            for (int i = oldCount; i < newCount; i++) {
+                newSegs.set(i, new byte[segmentSizeInBytes]);
+            }
+            blockPositions = Arrays.copyOf(blockPositions, newCount);
+            blockLengths = Arrays.copyOf(blockLengths, newCount);
+            Arrays.fill(blockLengths, oldCount, newCount, -1);
+            dirty = Arrays.copyOf(dirty, newCount);
+            Arrays.fill(dirty, oldCount, newCount, true);
+            referenced = Arrays.copyOf(referenced, newCount);
+            residentSegments += segmentsToCreate;
+            segments = newSegs;
+        } catch (OutOfMemoryError err) {
+            throw new OutOfMemoryError(err.getMessage() + " - problem when allocating new memory. Old capacity: "
+                    + cap + ", new bytes:" + newBytes + ", segmentSizeIntsPower:" + segmentSizePower
+                    + ", new segments:" + segmentsToCreate + ", existing:" + oldCount);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (segments.length() > 0)
+            throw new IllegalStateException("already initialized");
+
+        if (isClosed())
+            throw new IllegalStateException("already closed");
+
+        File file = new File(getFullName());
+        if (!file.exists() || file.length() == 0)
+            return false;
+
+        try {
+            raFile = new RandomAccessFile(file, "r");
+            if (readHeader(raFile) < 0)
+                return false;
+
+            readBlockIndex();
+            return true;
+        } catch (IOException ex) {
+            throw new RuntimeException("Problem while loading " + getFullName(), ex);
+        }
+    }
+
+    private void readBlockIndex() throws IOException {
+        raFile.seek(HEADER_OFFSET);
+        int count = raFile.readInt();
+        ByteBuffer index = ByteBuffer.allocate(4 * count).order(byteOrder);
+        readFully(raFile.getChannel(), index, HEADER_OFFSET + 4);
+        index.flip();
+        segments = new AtomicReferenceArray<>(count);
+        blockPositions = new long[count];
+        blockLengths = new int[count];
+        dirty = new boolean[count];
+        referenced = new boolean[count];
+        residentSegments = 0;
+        clockHand = 0;
+        long position = HEADER_OFFSET + 4 + 4L * count;
+        for (int i = 0; i < count; i++) {
+            blockPositions[i] = position;
+            blockLengths[i] = index.getInt();
+            position += blockLengths[i];
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (closed)
+            throw new IllegalStateException("already closed");
+
+        File tmpFile = new File(getFullName() + ".tmp");
+        int count = segments.length();
+        long[] newPositions = new long[count];
+        int[] newLengths = new int[count];
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            try (RandomAccessFile out = new RandomAccessFile(tmpFile, "rw")) {
+                out.setLength(0);
+                writeHeader(out, getCapacity(), segmentSizeInBytes);
+                out.seek(HEADER_OFFSET);
+                out.writeInt(count);
+                FileChannel channel = out.getChannel();
+                ByteBuffer index = ByteBuffer.allocate(4 * count).order(byteOrder);
+                long position = HEADER_OFFSET + 4 + 4L * count;
+                for (int i = 0; i < count; i++) {
+                    byte[] segment = segments.get(i);
+                    // unmodified segments are copied without decompressing and compressing them again
+                    byte[] block = segment != null && (dirty[i] || blockLengths[i] < 0)
+                            ? deflate(deflater, segment) : readBlock(i);
+                    writeFully(channel, ByteBuffer.wrap(block), position);
+                    newPositions[i] = position;
+                    newLengths[i] = block.length;
+                    index.putInt(block.length);
+                    position += block.length;
+                }
+                index.flip();
+                writeFully(channel, index, HEADER_OFFSET + 4);
+            }
+            Helper.close(raFile);
+            Files.move(tmpFile.toPath(), new File(getFullName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            raFile = new RandomAccessFile(getFullName(), "r");
+        } catch (IOException ex) {
+            throw new RuntimeException("Couldn't store bytes to " + toString(), ex);
+        } finally {
+            deflater.end();
+        }
+
+        synchronized (this) {
+            blockPositions = newPositions;
+            blockLengths = newLengths;
+            Arrays.fill(dirty, false);
+        }
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] segment) {
+        deflater.reset();
+        deflater.setInput(segment);
+        deflater.finish();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(segment.length / 4);
+        byte[] buffer = new byte[Math.min(segment.length, 64 * 1024)];
+        while (!deflater.finished()) {
+            int len = deflater.deflate(buffer);
+            bos.write(buffer, 0, len);
+        }
+        return bos.toByteArray();
+    }
+
+    private byte[] readBlock(int index) throws IOException {
+        byte[] block = new byte[blockLengths[index]];
+        readFully(raFile.getChannel(), ByteBuffer.wrap(block), blockPositions[index]);
+        return block;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer bb, long position) throws IOException {
+        while (bb.hasRemaining()) {
+            int read = channel.read(bb, position);
+            if (read < 0)
+                throw new IOException("Unexpected end of file at " + position);
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bb, long position) throws IOException {
+        while (bb.hasRemaining()) {
+            position += channel.write(bb, position);
+        }
+    }
+
+    /**
+     * Returns the decompressed segment for reading. The fast path is a single volatile read.
+     */
+    private byte[] segment(int index) {
+        byte[] segment = segments.get(index);
+        if (segment == null)
+            return loadSegment(index);
+        referenced[index] = true;
+        return segment;
+    }
+
+    /**
+     * Returns the decompressed segment for writing, i.e. it cannot be evicted until the next flush.
+     */
+    private byte[] writableSegment(int index) {
+        if (dirty[index])
+            return segments.get(index);
+        synchronized (this) {
+            byte[] segment = segment(index);
+            dirty[index] = true;
+            return segment;
+        }
+    }
+
+    private synchronized byte[] loadSegment(int index) {
+        byte[] segment = segments.get(index);
+        if (segment != null)
+            return segment;
+
+        segment = new byte[segmentSizeInBytes];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(readBlock(index));
+            int length = 0;
+            while (length < segment.length && !inflater.finished()) {
+                length += inflater.inflate(segment, length, segment.length - length);
+            }
+        } catch (IOException | DataFormatException ex) {
+            throw new RuntimeException("Couldn't decompress segment " + index + " of " + toString(), ex);
+        } finally {
+            inflater.end();
+        }
+
+        if (residentSegments >= cacheSegments)
+            evictSegment();
+        referenced[index] = true;
+        segments.set(index, segment);
+        residentSegments++;
+        return segment;
+    }
+
+    private void evictSegment() {
+        int count = segments.length();
+        // the first round clears the referenced flags so the second round finds a candidate if there is any
+        for (int i = 0; i < 2 * count; i++) {
+            int candidate = clockHand;
+            clockHand = (clockHand + 1) % count;
+            if (dirty[candidate] || blockLengths[candidate] < 0 || segments.get(candidate) == null)
+                continue;
+            if (referenced[candidate]) {
+                referenced[candidate] = false;
+                continue;
+            }
+            segments.set(candidate, null);
+            residentSegments--;
+            return;
+        }
+    }
+
+    @Override
+    public void setInt(long bytePos, int value) {
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 3 >= segmentSizeInBytes) {
+            // seldom and special case if int has to be written into two separate segments
+            byte[] b1 = writableSegment(bufferIndex), b2 = writableSegment(bufferIndex + 1);
+            if (index + 1 >= segmentSizeInBytes) {
+                bitUtil.fromUInt3(b2, value >>> 8, 0);
+                b1[index] = (byte) value;
+            } else if (index + 2 >= segmentSizeInBytes) {
+                bitUtil.fromShort(b2, (short) (value >>> 16), 0);
+                bitUtil.fromShort(b1, (short) value, index);
+            } else {
+                // index + 3 >= segmentSizeInBytes
+                b2[0] = (byte) (value >>> 24);
+                bitUtil.fromUInt3(b1, value, index);
+            }
+        } else {
+            INT.set(writableSegment(bufferIndex), index, value);
+        }
+    }
+
+    @Override
+    public int getInt(long bytePos) {
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 3 >= segmentSizeInBytes) {
+            byte[] b1 = segment(bufferIndex), b2 = segment(bufferIndex + 1);
+            if (index + 1 >= segmentSizeInBytes)
+                return (b2[2] & 0xFF) << 24 | (b2[1] & 0xFF) << 16 | (b2[0] & 0xFF) << 8 | (b1[index] & 0xFF);
+            if (index + 2 >= segmentSizeInBytes)
+                return (b2[1] & 0xFF) << 24 | (b2[0] & 0xFF) << 16 | (b1[index + 1] & 0xFF) << 8 | (b1[index] & 0xFF);
+            // index + 3 >= segmentSizeInBytes
+            return (b2[0] & 0xFF) << 24 | (b1[index + 2] & 0xFF) << 16 | (b1[index + 1] & 0xFF) << 8 | (b1[index] & 0xFF);
+        }
+        return (int) INT.get(segment(bufferIndex), index);
+    }
+
+    @Override
+    public void setShort(long bytePos, short value) {
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 1 >= segmentSizeInBytes) {
+            // seldom and special case if short has to be written into two separate segments
+            writableSegment(bufferIndex)[index] = (byte) (value);
+            writableSegment(bufferIndex + 1)[0] = (byte) (value >>> 8);
+        } else {
+            SHORT.set(writableSegment(bufferIndex), index, value);
+        }
+    }
+
+    @Override
+    public short getShort(long bytePos) {
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 1 >= segmentSizeInBytes)
+            return (short) ((segment(bufferIndex + 1)[0] & 0xFF) << 8 | (segment(bufferIndex)[index] & 0xFF));
+
+        return (short) SHORT.get(segment(bufferIndex), index);
+    }
+
+    @Override
+    public void setBytes(long bytePos, byte[] values, int length) {
+        assert length <= segmentSizeInBytes : "the length has to be smaller or equal to the segment size: " + length + " vs. " + segmentSizeInBytes;
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        int delta = index + length - segmentSizeInBytes;
+        if (delta > 0) {
+            length -= delta;
+            System.arraycopy(values, 0, writableSegment(bufferIndex), index, length);
+            System.arraycopy(values, length, writableSegment(bufferIndex + 1), 0, delta);
+        } else {
+            System.arraycopy(values, 0, writableSegment(bufferIndex), index, length);
+        }
+    }
+
+    @Override
+    public void getBytes(long bytePos, byte[] values, int length) {
+        assert length <= segmentSizeInBytes : "the length has to be smaller or equal to the segment size: " + length + " vs. " + segmentSizeInBytes;
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        int delta = index + length - segmentSizeInBytes;
+        if (delta > 0) {
+            length -= delta;
+            System.arraycopy(segment(bufferIndex), index, values, 0, length);
+            System.arraycopy(segment(bufferIndex + 1), 0, values, length, delta);
+        } else {
+            System.arraycopy(segment(bufferIndex), index, values, 0, length);
+        }
+    }
+
+    @Override
+    public void setByte(long bytePos, byte value) {
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        writableSegment(bufferIndex)[index] = value;
+    }
+
+    @Override
+    public byte getByte(long bytePos) {
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        return segment(bufferIndex)[index];
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        segments = new AtomicReferenceArray<>(0);
+        Helper.close(raFile);
+        raFile = null;
+    }
+
+    @Override
+    public long getCapacity() {
+        return (long) getSegments() * segmentSizeInBytes;
+    }
+
+    @Override
+    public int getSegments() {
+        return segments.length();
+    }
+
+    /**
+     * @return the number of decompressed segments that are currently kept in memory
+     */
+    int getResidentSegments() {
+        return residentSegments;
+    }
+
+    @Override
+    public DAType getType() {
+        return DAType.COMPRESSED_STORE;
+    }
+}
@@ -53,6 +53,21 @@ public class DAType {
      * embedded data stores.
      */
     public static final DAType MMAP_RO = new DAType(MemRef.MMAP, true, false, false);
+    /**
+     * The DA object is hold entirely in memory but outside of the JVM heap. Loading and flushing is a no-op. See
+     * OffHeapDataAccess.
+     */
+    public static final DAType OFF_HEAP = new DAType(MemRef.OFF_HEAP, false, false, true);
+    /**
+     * The DA object is hold entirely in memory but outside of the JVM heap. It uses the same file format as
+     * RAM_STORE and MMAP. See OffHeapDataAccess.
+     */
+    public static final DAType OFF_HEAP_STORE = new DAType(MemRef.OFF_HEAP, true, false, true);
+    /**
+     * The DA object is stored compressed on disk and segments are decompressed on demand into a bounded cache. Useful
+     * for big files that are rarely read. See CompressedDataAccess.
+     */
+    public static final DAType COMPRESSED_STORE = new DAType(MemRef.COMPRESSED, true, false, true);
     private final MemRef memRef;
     private final boolean storing;
     private final boolean integ;
@@ -78,6 +93,12 @@ public class DAType {
             type = DAType.MMAP_RO;
         else if (dataAccess.contains("MMAP"))
             type = DAType.MMAP;
+        else if (dataAccess.contains("COMPRESSED"))
+            type = DAType.COMPRESSED_STORE;
+        else if (dataAccess.equals("OFF_HEAP"))
+            type = DAType.OFF_HEAP;
+        else if (dataAccess.contains("OFF_HEAP"))
+            type = DAType.OFF_HEAP_STORE;
         else if (dataAccess.contains("UNSAFE"))
             throw new IllegalArgumentException("UNSAFE option is no longer supported, see #1620");
         else if (dataAccess.equals("RAM"))
@@ -109,6 +130,20 @@ public class DAType {
         return memRef == MemRef.MMAP;
     }
 
+    /**
+     * @return true if data resides in memory but outside of the JVM heap.
+     */
+    public boolean isOffHeap() {
+        return memRef == MemRef.OFF_HEAP;
+    }
+
+    /**
+     * @return true if data is stored compressed and only partially decompressed into memory.
+     */
+    public boolean isCompressed() {
+        return memRef == MemRef.COMPRESSED;
+    }
+
     /**
      * Temporary data or store (with loading and storing)? default is false
      */
@@ -128,6 +163,10 @@ public class DAType {
         String str;
         if (getMemRef() == MemRef.MMAP)
             str = "MMAP";
+        else if (getMemRef() == MemRef.OFF_HEAP)
+            str = "OFF_HEAP";
+        else if (getMemRef() == MemRef.COMPRESSED)
+            str = "COMPRESSED";
         else
             str = "RAM";
 
@@ -164,6 +203,6 @@ public class DAType {
     }
 
     public enum MemRef {
-        HEAP, MMAP
+        HEAP, MMAP, OFF_HEAP, COMPRESSED
     }
 }
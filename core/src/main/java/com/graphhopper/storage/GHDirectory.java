@@ -30,11 +30,16 @@ import static com.graphhopper.util.Helper.*;
  * @author Peter Karich
  */
 public class GHDirectory implements Directory {
+    private static final int COMPRESSED_CACHE_SEGMENTS_DEFAULT = 128;
+    // the DataAccess objects that are accessed most at query time come first, geometry and key values last
+    private static final List<String> PRELOAD_ORDER = Arrays.asList("nodes_ch_.*", "shortcuts_.*", "nodes", "edges",
+            "turn_costs", "location_index", "landmarks_.*", "geometry", ".*kv_.*");
     protected final String location;
     private final DAType typeFallback;
     // first rule matches => LinkedHashMap
     private final Map<String, DAType> defaultTypes = new LinkedHashMap<>();
     private final Map<String, Integer> mmapPreloads = new LinkedHashMap<>();
+    private final Map<String, Integer> compressedCacheSegments = new LinkedHashMap<>();
     private final Map<String, DataAccess> map = Collections.synchronizedMap(new HashMap<>());
 
     public GHDirectory(String _location, DAType defaultType) {
@@ -54,7 +59,8 @@ public class GHDirectory implements Directory {
     /**
      * Configure the DAType (specified by the value) of a single DataAccess object (specified by the key). For "MMAP" you
      * can prepend "preload." to the name and specify a percentage which preloads the DataAccess into physical memory of
-     * the specified percentage (only applied for load, not for import).
+     * the specified percentage (only applied for load, not for import). For "COMPRESSED" you can prepend "cache." to the
+     * name and specify the maximum number of decompressed segments that are kept in memory.
      * As keys can be patterns the order is important and the LinkedHashMap is forced as type.
      */
     public Directory configure(LinkedHashMap<String, String> config) {
@@ -67,6 +73,13 @@ public class GHDirectory implements Directory {
                 } catch (NumberFormatException ex) {
                     throw new IllegalArgumentException("DataAccess " + kv.getKey() + " has an incorrect preload value: " + value);
                 }
+            else if (kv.getKey().startsWith("cache."))
+                try {
+                    String pattern = kv.getKey().substring("cache.".length());
+                    compressedCacheSegments.put(pattern, Integer.parseInt(value));
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("DataAccess " + kv.getKey() + " has an incorrect cache value: " + value);
+                }
             else {
                 String pattern = kv.getKey();
                 defaultTypes.put(pattern, DAType.fromString(value));
@@ -85,14 +98,54 @@ public class GHDirectory implements Directory {
         return 0;
     }
 
-    public void loadMMap() {
-        for (DataAccess da : map.values()) {
-            if (!(da instanceof MMapDataAccess))
-                continue;
-            int preload = getPreload(da.getName());
-            if (preload > 0)
-                ((MMapDataAccess) da).load(preload);
+    /**
+     * Returns the number of cached segments for a compressed DataAccess or a default if no patterns match.
+     * See {@link #configure(LinkedHashMap)}
+     */
+    int getCompressedCacheSegments(String name) {
+        for (Map.Entry<String, Integer> entry : compressedCacheSegments.entrySet())
+            if (name.matches(entry.getKey())) return entry.getValue();
+        return COMPRESSED_CACHE_SEGMENTS_DEFAULT;
+    }
+
+    /**
+     * Loads the memory mapped DataAccess objects into physical memory according to their preload values. They are loaded
+     * in the order of the preload patterns, i.e. patterns for the DataAccess objects that are needed first should be
+     * configured first. DataAccess objects that match the same pattern are loaded in a fixed order that starts with
+     * the CH graph and the nodes and ends with the geometry.
+     *
+     * @return false if the loading was interrupted before it was finished
+     */
+    public boolean loadMMap() {
+        List<MMapDataAccess> preloads = new ArrayList<>();
+        synchronized (map) {
+            for (DataAccess da : map.values())
+                if (da instanceof MMapDataAccess && getPreload(da.getName()) > 0)
+                    preloads.add((MMapDataAccess) da);
         }
+        preloads.sort(Comparator.<MMapDataAccess>comparingInt(da -> getPreloadPatternIndex(da.getName()))
+                .thenComparingInt(da -> getPreloadOrder(da.getName()))
+                .thenComparing(DataAccess::getName));
+        for (MMapDataAccess da : preloads) {
+            if (!da.load(getPreload(da.getName())))
+                return false;
+        }
+        return true;
+    }
+
+    private int getPreloadPatternIndex(String name) {
+        int index = 0;
+        for (String pattern : mmapPreloads.keySet()) {
+            if (name.matches(pattern)) return index;
+            index++;
+        }
+        return index;
+    }
+
+    static int getPreloadOrder(String name) {
+        for (int i = 0; i < PRELOAD_ORDER.size(); i++)
+            if (name.matches(PRELOAD_ORDER.get(i))) return i;
+        return PRELOAD_ORDER.size();
     }
 
     @Override
@@ -139,6 +192,10 @@ public class GHDirectory implements Directory {
                 da = new RAMDataAccess(name, location, false, segmentSize);
         } else if (type.isMMap()) {
             da = new MMapDataAccess(name, location, type.isAllowWrites(), segmentSize);
+        } else if (type.isOffHeap()) {
+            da = new OffHeapDataAccess(name, location, type.isStoring(), segmentSize);
+        } else if (type.isCompressed()) {
+            da = new CompressedDataAccess(name, location, getCompressedCacheSegments(name), segmentSize);
         } else {
             throw new IllegalArgumentException("DAType not supported " + type);
         }
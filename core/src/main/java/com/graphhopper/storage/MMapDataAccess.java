@@ -27,8 +27,7 @@ import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * A DataAccess implementation using a memory-mapped file, i.e. a facility of the
@@ -42,15 +41,25 @@ import java.util.List;
  * implementations are.
  * <p>
  * The exact behavior of memory-mapping is reported to be wildly platform-dependent.
+ * <p>
+ * A read-only DataAccess is not mapped segment by segment but in chunks of up to {@link #MAX_MAPPING_SIZE} bytes,
+ * i.e. files up to this size are a single mapping. This is possible because the file content does not depend on the
+ * segment size and it avoids the segment lookup and the slow path for values spanning two segments for nearly all
+ * accesses. It also keeps the number of mappings low, which is limited by the OS (vm.max_map_count).
  *
  * @author Peter Karich
  * @author Michael Zilske
  */
 public final class MMapDataAccess extends AbstractDataAccess {
-
+    /**
+     * The maximum size of one mapping for read-only access. Must be a power of two.
+     */
+    static final int MAX_MAPPING_SIZE = 1 << 30;
+    // load() works in steps of this size so that it can be stopped in between
+    private static final int LOAD_STEP_SIZE = 1 << 24;
     private final boolean allowWrites;
     private RandomAccessFile raFile;
-    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
 
     MMapDataAccess(String name, String location, boolean allowWrites, int segmentSize) {
         super(name, location, segmentSize);
@@ -91,7 +100,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
 
     @Override
     public MMapDataAccess create(long bytes) {
-        if (!segments.isEmpty()) {
+        if (segments.length > 0) {
             throw new IllegalThreadStateException("already created");
         }
         initRandomAccessFile();
@@ -133,14 +142,16 @@ public final class MMapDataAccess extends AbstractDataAccess {
             // This approach is probably problematic but a bit faster if done often.
             // Here we rely on the OS+file system that increasing the file
             // size has no effect on the old mappings!
-            bufferStart += segments.size() * longSegmentSize;
-            newSegments = segmentsToMap - segments.size();
+            bufferStart += segments.length * longSegmentSize;
+            newSegments = segmentsToMap - segments.length;
             // rely on automatically increasing when mapping
             // raFile.setLength(newFileLength);
+            MappedByteBuffer[] newSegs = Arrays.copyOf(segments, segmentsToMap);
             for (; i < newSegments; i++) {
-                segments.add(newByteBuffer(bufferStart, longSegmentSize));
+                newSegs[segments.length + i] = newByteBuffer(bufferStart, longSegmentSize);
                 bufferStart += longSegmentSize;
             }
+            segments = newSegs;
             return true;
         } catch (IOException ex) {
             // we could get an exception here if buffer is too small and area too large
@@ -185,9 +196,23 @@ public final class MMapDataAccess extends AbstractDataAccess {
         return buf;
     }
 
+    /**
+     * Maps the existing and read-only file in as few chunks as possible. The last chunk is only as big as the remaining
+     * file as read-only mappings cannot increase the file size.
+     */
+    private void mapReadOnly(long offset, long byteCount) throws IOException {
+        setSegmentSize(MAX_MAPPING_SIZE);
+        int chunks = (int) ((byteCount + MAX_MAPPING_SIZE - 1) / MAX_MAPPING_SIZE);
+        segments = new MappedByteBuffer[chunks];
+        for (int i = 0; i < chunks; i++) {
+            long start = (long) i * MAX_MAPPING_SIZE;
+            segments[i] = newByteBuffer(offset + start, Math.min(MAX_MAPPING_SIZE, byteCount - start));
+        }
+    }
+
     @Override
     public boolean loadExisting() {
-        if (segments.size() > 0)
+        if (segments.length > 0)
             throw new IllegalStateException("already initialized");
 
         if (isClosed())
@@ -203,7 +228,11 @@ public final class MMapDataAccess extends AbstractDataAccess {
             if (byteCount < 0)
                 return false;
 
-            mapIt(HEADER_OFFSET, byteCount - HEADER_OFFSET);
+            if (allowWrites)
+                mapIt(HEADER_OFFSET, byteCount - HEADER_OFFSET);
+            else
+                // the stored byte count is not reliable as RAMDataAccess does not include the header, so use the file length
+                mapReadOnly(HEADER_OFFSET, raFile.length() - HEADER_OFFSET);
             return true;
         } catch (IOException ex) {
             throw new RuntimeException("Problem while loading " + getFullName(), ex);
@@ -231,22 +260,34 @@ public final class MMapDataAccess extends AbstractDataAccess {
     }
 
     /**
-     * Load memory mapped files into physical memory.
+     * Load memory mapped files into physical memory. This advises the OS that the pages will be needed and then touches
+     * them, see MappedByteBuffer.load. The first percentage of bytes is loaded in steps of at most 16MB and the loading
+     * stops early if the current thread is interrupted.
+     *
+     * @return true if the loading was not interrupted
      */
-    public void load(int percentage) {
+    public boolean load(int percentage) {
         if (percentage < 0 || percentage > 100)
             throw new IllegalArgumentException("Percentage for MMapDataAccess.load for " + getName() + " must be in [0,100] but was " + percentage);
-        int max = Math.round(segments.size() * percentage / 100f);
-        for (int i = 0; i < max; i++) {
-            segments.get(i).load();
+        long remaining = Math.round(getCapacity() * (percentage / 100d));
+        for (int i = 0; i < segments.length && remaining > 0; i++) {
+            MappedByteBuffer segment = segments[i];
+            for (int index = 0; index < segment.capacity() && remaining > 0; index += LOAD_STEP_SIZE) {
+                if (Thread.currentThread().isInterrupted())
+                    return false;
+                int length = (int) Math.min(Math.min(LOAD_STEP_SIZE, segment.capacity() - index), remaining);
+                segment.slice(index, length).load();
+                remaining -= length;
+            }
         }
+        return true;
     }
 
     @Override
     public void close() {
         super.close();
-        clean(0, segments.size());
-        segments.clear();
+        clean(0, segments.length);
+        segments = new MappedByteBuffer[0];
         Helper.close(raFile);
     }
 
@@ -254,10 +295,10 @@ public final class MMapDataAccess extends AbstractDataAccess {
     public void setInt(long bytePos, int value) {
         int bufferIndex = (int) (bytePos >> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
-        ByteBuffer b1 = segments.get(bufferIndex);
+        ByteBuffer b1 = segments[bufferIndex];
         if (index + 3 >= segmentSizeInBytes) {
             // seldom and special case if int has to be written into two separate segments
-            ByteBuffer b2 = segments.get(bufferIndex + 1);
+            ByteBuffer b2 = segments[bufferIndex + 1];
             if (index + 1 >= segmentSizeInBytes) {
                 b2.putShort(1, (short) (value >>> 16));
                 b2.put(0, (byte) (value >>> 8));
@@ -280,9 +321,9 @@ public final class MMapDataAccess extends AbstractDataAccess {
     public int getInt(long bytePos) {
         int bufferIndex = (int) (bytePos >> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
-        ByteBuffer b1 = segments.get(bufferIndex);
+        ByteBuffer b1 = segments[bufferIndex];
         if (index + 3 >= segmentSizeInBytes) {
-            ByteBuffer b2 = segments.get(bufferIndex + 1);
+            ByteBuffer b2 = segments[bufferIndex + 1];
             if (index + 1 >= segmentSizeInBytes)
                 return (b2.getShort(1) & 0xFFFF) << 16 | (b2.get(0) & 0xFF) << 8 | (b1.get(index) & 0xFF);
             if (index + 2 >= segmentSizeInBytes)
@@ -297,9 +338,9 @@ public final class MMapDataAccess extends AbstractDataAccess {
     public void setShort(long bytePos, short value) {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
-        ByteBuffer byteBuffer = segments.get(bufferIndex);
+        ByteBuffer byteBuffer = segments[bufferIndex];
         if (index + 1 >= segmentSizeInBytes) {
-            ByteBuffer byteBufferNext = segments.get(bufferIndex + 1);
+            ByteBuffer byteBufferNext = segments[bufferIndex + 1];
             // seldom and special case if short has to be written into two separate segments
             byteBuffer.put(index, (byte) value);
             byteBufferNext.put(0, (byte) (value >>> 8));
@@ -312,9 +353,9 @@ public final class MMapDataAccess extends AbstractDataAccess {
     public short getShort(long bytePos) {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
-        ByteBuffer byteBuffer = segments.get(bufferIndex);
+        ByteBuffer byteBuffer = segments[bufferIndex];
         if (index + 1 >= segmentSizeInBytes) {
-            ByteBuffer byteBufferNext = segments.get(bufferIndex + 1);
+            ByteBuffer byteBufferNext = segments[bufferIndex + 1];
             return (short) ((byteBufferNext.get(0) & 0xFF) << 8 | byteBuffer.get(index) & 0xFF);
         }
         return byteBuffer.getShort(index);
@@ -326,7 +367,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
         final int bufferIndex = (int) (bytePos >>> segmentSizePower);
         final int index = (int) (bytePos & indexDivisor);
         final int delta = index + length - segmentSizeInBytes;
-        final ByteBuffer bb1 = segments.get(bufferIndex);
+        final ByteBuffer bb1 = segments[bufferIndex];
         if (delta > 0) {
             length -= delta;
             bb1.put(index, values, 0, length);
@@ -334,7 +375,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
             bb1.put(index, values, 0, length);
         }
         if (delta > 0) {
-            final ByteBuffer bb2 = segments.get(bufferIndex + 1);
+            final ByteBuffer bb2 = segments[bufferIndex + 1];
             bb2.put(0, values, length, delta);
         }
     }
@@ -345,12 +386,12 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
         int delta = index + length - segmentSizeInBytes;
-        final ByteBuffer bb1 = segments.get(bufferIndex);
+        final ByteBuffer bb1 = segments[bufferIndex];
         if (delta > 0) {
             length -= delta;
             bb1.get(index, values, 0, length);
 
-            final ByteBuffer bb2 = segments.get(bufferIndex + 1);
+            final ByteBuffer bb2 = segments[bufferIndex + 1];
             bb2.get(0, values, length, delta);
         } else {
             bb1.get(index, values, 0, length);
@@ -361,7 +402,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
     public void setByte(long bytePos, byte value) {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
-        final ByteBuffer bb1 = segments.get(bufferIndex);
+        final ByteBuffer bb1 = segments[bufferIndex];
         bb1.put(index, value);
     }
 
@@ -369,7 +410,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
     public byte getByte(long bytePos) {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
-        final ByteBuffer bb1 = segments.get(bufferIndex);
+        final ByteBuffer bb1 = segments[bufferIndex];
         return bb1.get(index);
     }
 
@@ -384,7 +425,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
 
     @Override
     public int getSegments() {
-        return segments.size();
+        return segments.length;
     }
 
     /**
@@ -397,9 +438,9 @@ public final class MMapDataAccess extends AbstractDataAccess {
      */
     private void clean(int from, int to) {
         for (int i = from; i < to; i++) {
-            ByteBuffer bb = segments.get(i);
+            ByteBuffer bb = segments[i];
             cleanMappedByteBuffer(bb);
-            segments.set(i, null);
+            segments[i] = null;
         }
     }
 
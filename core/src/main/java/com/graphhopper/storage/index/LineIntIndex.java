@@ -30,6 +30,7 @@ import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.BBox;
 
 import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
 
 public class LineIntIndex {
     // do not start with 0 as a positive value means leaf and a negative means "entry with subentries"
@@ -132,7 +133,7 @@ public class LineIntIndex {
         return intPointer;
     }
 
-    private void fillIDs(long keyPart, IntConsumer consumer) {
+    void fillIDs(long keyPart, IntConsumer consumer) {
         int intPointer = START_POINTER;
         for (int depth = 0; depth < entries.length; depth++) {
             int offset = (int) (keyPart >>> (64 - shifts[depth]));
@@ -240,6 +241,14 @@ public class LineIntIndex {
      * <p>
      */
     public void findEdgeIdsInNeighborhood(double queryLat, double queryLon, int iteration, IntConsumer foundEntries) {
+        findTilesInNeighborhood(queryLat, queryLon, iteration, keyPart -> fillIDs(keyPart, foundEntries));
+    }
+
+    /**
+     * Like {@link #findEdgeIdsInNeighborhood} but only returns the keys of the tiles (in the same order), which can be
+     * passed to {@link #fillIDs} to get the edge ids of each tile.
+     */
+    void findTilesInNeighborhood(double queryLat, double queryLon, int iteration, LongConsumer foundTiles) {
         int x = keyAlgo.x(queryLon);
         int y = keyAlgo.y(queryLat);
         for (int yreg = -iteration; yreg <= iteration; yreg++) {
@@ -248,11 +257,11 @@ public class LineIntIndex {
             int subqueryXB = x + iteration;
             if (subqueryXA >= 0 && subqueryY >= 0 && subqueryXA < indexStructureInfo.getParts() && subqueryY < indexStructureInfo.getParts()) {
                 long keyPart = keyAlgo.encode(subqueryXA, subqueryY) << (64 - keyAlgo.getBits());
-                fillIDs(keyPart, foundEntries);
+                foundTiles.accept(keyPart);
             }
             if (iteration > 0 && subqueryXB >= 0 && subqueryY >= 0 && subqueryXB < indexStructureInfo.getParts() && subqueryY < indexStructureInfo.getParts()) {
                 long keyPart = keyAlgo.encode(subqueryXB, subqueryY) << (64 - keyAlgo.getBits());
-                fillIDs(keyPart, foundEntries);
+                foundTiles.accept(keyPart);
             }
         }
 
@@ -262,11 +271,11 @@ public class LineIntIndex {
             int subqueryYB = y + iteration;
             if (subqueryX >= 0 && subqueryYA >= 0 && subqueryX < indexStructureInfo.getParts() && subqueryYA < indexStructureInfo.getParts()) {
                 long keyPart = keyAlgo.encode(subqueryX, subqueryYA) << (64 - keyAlgo.getBits());
-                fillIDs(keyPart, foundEntries);
+                foundTiles.accept(keyPart);
             }
             if (subqueryX >= 0 && subqueryYB >= 0 && subqueryX < indexStructureInfo.getParts() && subqueryYB < indexStructureInfo.getParts()) {
                 long keyPart = keyAlgo.encode(subqueryX, subqueryYB) << (64 - keyAlgo.getBits());
-                fillIDs(keyPart, foundEntries);
+                foundTiles.accept(keyPart);
             }
         }
     }
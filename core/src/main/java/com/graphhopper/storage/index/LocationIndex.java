@@ -20,6 +20,8 @@ package com.graphhopper.storage.index;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.util.shapes.BBox;
 
+import java.util.List;
+
 /**
  * Provides a way to map real world data "lat,lon" to internal ids/indices of a memory efficient graph
  * - often just implemented as an array.
@@ -46,6 +48,17 @@ public interface LocationIndex {
      */
     Snap findClosest(double lat, double lon, EdgeFilter edgeFilter);
 
+    /**
+     * This method returns the closest Snap of up to k different edges that are accepted by the filter and that are
+     * not further away from the specified location than maxDistance. For every edge we only consider the closest
+     * point of this edge, and if this is a tower node that was already returned for another edge the edge is skipped.
+     *
+     * @param maxDistance the maximum distance in meters. If this is infinite only the same region as for
+     *                    {@link #findClosest} is searched.
+     * @return the snaps ordered by their distance to the location, the closest first
+     */
+    List<Snap> findKNearest(double lat, double lon, int k, double maxDistance, EdgeFilter edgeFilter);
+
     /**
      * This method explores the LocationIndex with the specified Visitor. It visits only the stored edges (and only once)
      * and limited by the queryBBox. Also (a few) more edges slightly outside of queryBBox could be
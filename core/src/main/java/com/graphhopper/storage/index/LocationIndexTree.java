@@ -17,7 +17,11 @@
  */
 package com.graphhopper.storage.index;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.sorting.IndirectSort;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.Directory;
@@ -28,7 +32,12 @@ import com.graphhopper.util.shapes.BBox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
 
 import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
 
@@ -52,6 +61,8 @@ import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
  * @author Peter Karich
  */
 public class LocationIndexTree implements LocationIndex {
+    // the number of queries of a batch that share the same cache of tiles and edges, see findClosestBatch
+    private static final int BATCH_SIZE = 1024;
     private final Directory directory;
     private final Graph graph;
     private final Logger logger = LoggerFactory.getLogger(getClass());
@@ -280,30 +291,150 @@ public class LocationIndexTree implements LocationIndex {
             lineIntIndex.findEdgeIdsInNeighborhood(queryLat, queryLon, iteration, edgeId -> {
                 EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(edgeId * 2);
                 if (seenEdges.add(edgeId) && edgeFilter.accept(edgeIteratorState)) { // TODO: or reverse?
-                    traverseEdge(queryLat, queryLon, edgeIteratorState, (node, normedDist, wayIndex, pos) -> {
-                        if (normedDist < closestMatch.getQueryDistance()) {
-                            closestMatch.setQueryDistance(normedDist);
-                            closestMatch.setClosestNode(node);
-                            closestMatch.setClosestEdge(edgeIteratorState.detach(false));
-                            closestMatch.setWayIndex(wayIndex);
-                            closestMatch.setSnappedPosition(pos);
-                        }
-                    });
+                    traverseEdge(queryLat, queryLon, edgeIteratorState, (node, normedDist, wayIndex, pos) ->
+                            updateClosestMatch(closestMatch, edgeIteratorState, node, normedDist, wayIndex, pos));
                 }
             });
-            if (closestMatch.isValid()) {
-                // Check if we can stop...
-                double rMin = calculateRMin(queryLat, queryLon, iteration);
-                double minDistance = DIST_PLANE.calcDenormalizedDist(closestMatch.getQueryDistance());
-                if (minDistance < rMin) {
-                    break; // We can (approximately?) guarantee that no closer edges are anywhere else
+            if (canStop(closestMatch, iteration))
+                break;
+        }
+        return finishClosestMatch(closestMatch);
+    }
+
+    @Override
+    public List<Snap> findKNearest(double queryLat, double queryLon, int k, double maxDistance, EdgeFilter edgeFilter) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (k < 1)
+            throw new IllegalArgumentException("k must be positive, but was: " + k);
+
+        final double maxNormedDist = Double.isInfinite(maxDistance) ? Double.MAX_VALUE : DIST_PLANE.calcNormalizedDist(maxDistance);
+        // the k best snaps found so far with the worst snap at the head of the queue
+        final PriorityQueue<Snap> best = new PriorityQueue<>(Comparator.comparingDouble(Snap::getQueryDistance).reversed());
+        IntHashSet seenEdges = new IntHashSet();
+        IntHashSet towerNodes = new IntHashSet();
+        int maxIteration = Double.isInfinite(maxDistance) ? maxRegionSearch : indexStructureInfo.getParts();
+        for (int iteration = 0; iteration < maxIteration; iteration++) {
+            lineIntIndex.findEdgeIdsInNeighborhood(queryLat, queryLon, iteration, edgeId -> {
+                if (!seenEdges.add(edgeId))
+                    return;
+                EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(edgeId * 2);
+                if (!edgeFilter.accept(edgeIteratorState))
+                    return;
+                Snap snap = new Snap(queryLat, queryLon);
+                traverseEdge(queryLat, queryLon, edgeIteratorState, (node, normedDist, wayIndex, pos) ->
+                        updateClosestMatch(snap, edgeIteratorState, node, normedDist, wayIndex, pos));
+                if (!snap.isValid() || snap.getQueryDistance() > maxNormedDist
+                        || best.size() == k && snap.getQueryDistance() >= best.peek().getQueryDistance())
+                    return;
+                if (snap.getSnappedPosition() == Snap.Position.TOWER && !towerNodes.add(snap.getClosestNode()))
+                    return;
+                best.add(snap);
+                if (best.size() > k)
+                    best.poll();
+            });
+            // all edges we did not find yet are at least rMin away
+            double rMin = calculateRMin(queryLat, queryLon, iteration);
+            if (rMin > maxDistance || best.size() == k && DIST_PLANE.calcDenormalizedDist(best.peek().getQueryDistance()) < rMin)
+                break;
+        }
+
+        List<Snap> snaps = new ArrayList<>(best);
+        snaps.sort(Comparator.comparingDouble(Snap::getQueryDistance));
+        snaps.forEach(LocationIndexTree::finishClosestMatch);
+        return snaps;
+    }
+
+    /**
+     * Finds the closest Snap for each of the given coordinates, with the same results as calling {@link #findClosest}
+     * for every coordinate. The queries are sorted along a Hilbert curve, so nearby queries are processed one after
+     * another and can share the edge ids of the tiles and the geometries of the edges they need to look at. This is
+     * much faster for many queries within a small area, e.g. the points of a GPS track or the locations of a matrix.
+     *
+     * @return the snaps in the order of the given coordinates
+     */
+    public Snap[] findClosestBatch(double[] lats, double[] lons, EdgeFilter edgeFilter) {
+        return findClosestBatch(lats, lons, edgeFilter, 1);
+    }
+
+    /**
+     * @param threads the number of threads used to snap the coordinates. The edge filter needs to be thread-safe if
+     *                this is larger than one.
+     * @see #findClosestBatch(double[], double[], EdgeFilter)
+     */
+    public Snap[] findClosestBatch(double[] lats, double[] lons, EdgeFilter edgeFilter, int threads) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("lats and lons must have the same length, but was: " + lats.length + " vs. " + lons.length);
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive, but was: " + threads);
+
+        long[] hilbertIndices = new long[lats.length];
+        for (int i = 0; i < lats.length; i++)
+            hilbertIndices[i] = GHUtility.latLonToHilbertIndex(lats[i], lons[i], 31);
+        int[] order = IndirectSort.mergesort(0, lats.length, (a, b) -> Long.compare(hilbertIndices[a], hilbertIndices[b]));
+        Snap[] snaps = new Snap[lats.length];
+        int batches = (lats.length + BATCH_SIZE - 1) / BATCH_SIZE;
+        Runnable[] runnables = IntStream.range(0, batches).mapToObj(batch -> (Runnable) () -> {
+            BatchCache cache = new BatchCache(edgeFilter);
+            for (int i = batch * BATCH_SIZE; i < Math.min(lats.length, (batch + 1) * BATCH_SIZE); i++)
+                snaps[order[i]] = findClosest(lats[order[i]], lons[order[i]], cache);
+        }).toArray(Runnable[]::new);
+        if (threads == 1)
+            Arrays.stream(runnables).forEach(Runnable::run);
+        else
+            GHUtility.runConcurrently(Arrays.stream(runnables), threads);
+        return snaps;
+    }
+
+    private Snap findClosest(double queryLat, double queryLon, BatchCache cache) {
+        final Snap closestMatch = new Snap(queryLat, queryLon);
+        IntHashSet seenEdges = new IntHashSet();
+        for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
+            lineIntIndex.findTilesInNeighborhood(queryLat, queryLon, iteration, tile -> {
+                for (int edgeId : cache.getEdgeIds(tile)) {
+                    if (!seenEdges.add(edgeId))
+                        continue;
+                    CandidateEdge candidate = cache.getCandidate(edgeId);
+                    // the edge cannot improve the closest match if its bounding box is further away
+                    if (candidate == null || candidate.calcNormedDistLowerBound(queryLat, queryLon) >= closestMatch.getQueryDistance())
+                        continue;
+                    traverseEdge(queryLat, queryLon, candidate.edge.getBaseNode(), candidate.baseLat, candidate.baseLon,
+                            candidate.edge.getAdjNode(), candidate.adjLat, candidate.adjLon, candidate.pointList,
+                            (node, normedDist, wayIndex, pos) -> updateClosestMatch(closestMatch, candidate.edge, node, normedDist, wayIndex, pos));
                 }
-            }
+            });
+            if (canStop(closestMatch, iteration))
+                break;
         }
+        return finishClosestMatch(closestMatch);
+    }
+
+    private static void updateClosestMatch(Snap closestMatch, EdgeIteratorState edge, int node, double normedDist, int wayIndex, Snap.Position pos) {
+        if (normedDist < closestMatch.getQueryDistance()) {
+            closestMatch.setQueryDistance(normedDist);
+            closestMatch.setClosestNode(node);
+            closestMatch.setClosestEdge(edge.detach(false));
+            closestMatch.setWayIndex(wayIndex);
+            closestMatch.setSnappedPosition(pos);
+        }
+    }
 
+    private boolean canStop(Snap closestMatch, int iteration) {
+        if (!closestMatch.isValid())
+            return false;
+        double rMin = calculateRMin(closestMatch.getQueryPoint().lat, closestMatch.getQueryPoint().lon, iteration);
+        double minDistance = DIST_PLANE.calcDenormalizedDist(closestMatch.getQueryDistance());
+        // We can (approximately?) guarantee that no closer edges are anywhere else
+        return minDistance < rMin;
+    }
+
+    private static Snap finishClosestMatch(Snap closestMatch) {
         if (closestMatch.isValid()) {
             closestMatch.calcSnappedPoint(DIST_PLANE);
-            closestMatch.setQueryDistance(DIST_PLANE.calcDist(closestMatch.getSnappedPoint().lat, closestMatch.getSnappedPoint().lon, queryLat, queryLon));
+            closestMatch.setQueryDistance(DIST_PLANE.calcDist(closestMatch.getSnappedPoint().lat, closestMatch.getSnappedPoint().lon,
+                    closestMatch.getQueryPoint().lat, closestMatch.getQueryPoint().lon));
         }
         return closestMatch;
     }
@@ -319,16 +450,18 @@ public class LocationIndexTree implements LocationIndex {
 
     public void traverseEdge(double queryLat, double queryLon, EdgeIteratorState currEdge, EdgeCheck edgeCheck) {
         int baseNode = currEdge.getBaseNode();
-        double baseLat = nodeAccess.getLat(baseNode);
-        double baseLon = nodeAccess.getLon(baseNode);
-        double baseDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, baseLat, baseLon);
-
         int adjNode = currEdge.getAdjNode();
-        double adjLat = nodeAccess.getLat(adjNode);
-        double adjLon = nodeAccess.getLon(adjNode);
-        double adjDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, adjLat, adjLon);
+        traverseEdge(queryLat, queryLon, baseNode, nodeAccess.getLat(baseNode), nodeAccess.getLon(baseNode),
+                adjNode, nodeAccess.getLat(adjNode), nodeAccess.getLon(adjNode), currEdge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ), edgeCheck);
+    }
 
-        PointList pointList = currEdge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
+    /**
+     * @param pointList the pillar nodes and the adjacent node of the edge
+     */
+    private void traverseEdge(double queryLat, double queryLon, int baseNode, double baseLat, double baseLon,
+                              int adjNode, double adjLat, double adjLon, PointList pointList, EdgeCheck edgeCheck) {
+        double baseDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, baseLat, baseLon);
+        double adjDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, adjLat, adjLon);
         final int len = pointList.size();
 
         int closestTowerNode;
@@ -375,4 +508,77 @@ public class LocationIndexTree implements LocationIndex {
         }
     }
 
+    /**
+     * Caches the edge ids of the tiles and the edges accepted by the edge filter for the queries of a batch
+     */
+    private class BatchCache {
+        private final EdgeFilter edgeFilter;
+        private final LongObjectHashMap<int[]> edgeIdsByTile = new LongObjectHashMap<>();
+        private final IntObjectHashMap<CandidateEdge> candidates = new IntObjectHashMap<>();
+
+        BatchCache(EdgeFilter edgeFilter) {
+            this.edgeFilter = edgeFilter;
+        }
+
+        int[] getEdgeIds(long tile) {
+            int[] edgeIds = edgeIdsByTile.get(tile);
+            if (edgeIds == null) {
+                IntArrayList list = new IntArrayList();
+                lineIntIndex.fillIDs(tile, list::add);
+                edgeIds = list.toArray();
+                edgeIdsByTile.put(tile, edgeIds);
+            }
+            return edgeIds;
+        }
+
+        /**
+         * @return the edge with its geometry or null if it is not accepted by the edge filter
+         */
+        CandidateEdge getCandidate(int edgeId) {
+            int index = candidates.indexOf(edgeId);
+            if (candidates.indexExists(index))
+                return candidates.indexGet(index);
+            EdgeIteratorState edge = graph.getEdgeIteratorStateForKey(edgeId * 2);
+            CandidateEdge candidate = edgeFilter.accept(edge) ? new CandidateEdge(edge) : null;
+            candidates.indexInsert(index, edgeId, candidate);
+            return candidate;
+        }
+    }
+
+    private class CandidateEdge {
+        final EdgeIteratorState edge;
+        final double baseLat, baseLon, adjLat, adjLon;
+        final PointList pointList;
+        // the bounding box of the edge or null if it crosses the boundary
+        final BBox bbox;
+
+        CandidateEdge(EdgeIteratorState edge) {
+            this.edge = edge;
+            baseLat = nodeAccess.getLat(edge.getBaseNode());
+            baseLon = nodeAccess.getLon(edge.getBaseNode());
+            adjLat = nodeAccess.getLat(edge.getAdjNode());
+            adjLon = nodeAccess.getLon(edge.getAdjNode());
+            pointList = edge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
+            BBox tmp = new BBox(baseLon, baseLon, baseLat, baseLat);
+            for (int i = 0; i < pointList.size(); i++)
+                tmp.update(pointList.getLat(i), pointList.getLon(i));
+            bbox = tmp.maxLon - tmp.minLon > 180 ? null : tmp;
+        }
+
+        /**
+         * @return a value that is not larger than the normalized distance of the given point to any point of this
+         * edge. We use the smallest cosine of all latitudes involved, because the distances are calculated with the
+         * cosine of the mean latitude of the query point and the points on the edge.
+         */
+        double calcNormedDistLowerBound(double queryLat, double queryLon) {
+            if (bbox == null)
+                return 0;
+            double dLat = Math.toRadians(Math.max(0, Math.max(bbox.minLat - queryLat, queryLat - bbox.maxLat)));
+            double dLon = Math.toRadians(Math.max(0, Math.max(bbox.minLon - queryLon, queryLon - bbox.maxLon)));
+            double cos = Math.min(Math.cos(Math.toRadians(Math.min(queryLat, bbox.minLat))), Math.cos(Math.toRadians(Math.max(queryLat, bbox.maxLat))));
+            double left = cos * dLon;
+            // allow for rounding errors
+            return (dLat * dLat + left * left) * (1 - 1e-6);
+        }
+    }
 }
@@ -141,6 +141,108 @@ public class GraphHopperTest {
         assertTrue(rsp.getErrors().toString().contains("ConnectionNotFoundException"), rsp.getErrors().toString());
     }
 
+    @Test
+    public void testMonacoWithWorkspacePool() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("profile", "car")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler()
+                .setCHProfiles(new CHProfile("profile"));
+        hopper.getRouterConfig().setWorkspacePoolSize(1);
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+        // the same workspace is reused by all requests and must not change the results
+        for (int i = 0; i < 2; i++) {
+            for (String algo : Arrays.asList(DIJKSTRA, ASTAR, DIJKSTRA_BI, ASTAR_BI)) {
+                for (boolean withCH : new boolean[]{false, true}) {
+                    if (withCH && (algo.equals(DIJKSTRA) || algo.equals(ASTAR)))
+                        continue;
+                    GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566)
+                            .setAlgorithm(algo)
+                            .setProfile("profile");
+                    req.putHint(CH.DISABLE, !withCH);
+                    GHResponse rsp = hopper.route(req);
+                    assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+                    assertEquals(3587.6, rsp.getBest().getDistance(), .1, algo);
+                    assertEquals(105, rsp.getBest().getPoints().size(), algo);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMonacoWithLegThreads() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("profile", "car")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler()
+                .setCHProfiles(new CHProfile("profile"));
+        hopper.getRouterConfig().setLegThreads(3);
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+        List<GHPoint> points = Arrays.asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                new GHPoint(43.729584, 7.410965), new GHPoint(43.732499, 7.426758), new GHPoint(43.74958, 7.436566));
+        for (boolean withCH : new boolean[]{false, true}) {
+            // the legs are calculated concurrently, but must still be merged in the right order
+            double expectedDistance = 0;
+            List<Double> legDistances = new ArrayList<>();
+            for (int i = 0; i < points.size() - 1; i++) {
+                GHRequest req = new GHRequest(points.get(i), points.get(i + 1)).setProfile("profile");
+                req.putHint(CH.DISABLE, !withCH);
+                GHResponse rsp = hopper.route(req);
+                assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+                expectedDistance += rsp.getBest().getDistance();
+                legDistances.add(rsp.getBest().getDistance());
+            }
+            GHRequest req = new GHRequest(points).setProfile("profile").setPathDetails(List.of("leg_distance"));
+            req.putHint(CH.DISABLE, !withCH);
+            GHResponse rsp = hopper.route(req);
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            assertEquals(expectedDistance, rsp.getBest().getDistance(), .1);
+            List<PathDetail> details = rsp.getBest().getPathDetails().get("leg_distance");
+            assertEquals(legDistances.size(), details.size());
+            for (int i = 0; i < details.size(); i++)
+                assertEquals(legDistances.get(i), (double) details.get(i).getValue(), .1);
+        }
+        hopper.close();
+    }
+
+    @Test
+    public void testMonacoWithSnapCache() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("profile", "car")).
+                setStoreOnFlush(true);
+        hopper.getRouterConfig().setSnapCacheSize(100);
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+        for (int i = 0; i < 3; i++) {
+            // the second point differs only by the rounding of the cache
+            GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566 + i * 1.e-8)
+                    .setProfile("profile");
+            if (i == 2)
+                req.setHeadings(Arrays.asList(Double.NaN, 90.0));
+            GHResponse rsp = hopper.route(req);
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            if (i < 2) {
+                assertEquals(3587.6, rsp.getBest().getDistance(), .1);
+                assertEquals(105, rsp.getBest().getPoints().size());
+            }
+        }
+        // the heading of the last request requires a new lookup for the second point
+        assertEquals(3, hopper.getSnapCache().getHits());
+        assertEquals(3, hopper.getSnapCache().getMisses());
+        assertEquals(3, hopper.getSnapCache().getSize());
+    }
+
     @Test
     public void testMonacoWithInstructions() {
         final String profile = "profile";
@@ -0,0 +1,197 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.LongLongHashMap;
+import com.carrotsearch.hppc.cursors.LongLongCursor;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GHLongLongSortedMapTest {
+
+    @TempDir
+    File dir;
+
+    private static GHLongLongSortedMap create(int bytesPerValue, long emptyValue) {
+        return new GHLongLongSortedMap(new RAMDirectory(), "test_map", DAType.RAM_STORE, bytesPerValue, emptyValue);
+    }
+
+    @Test
+    public void testThrowException_IfPutting_NoNumber() {
+        GHLongLongSortedMap instance = create(4, -1);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> instance.put(1, -1));
+        assertTrue(ex.getMessage().contains("Value cannot be the 'empty value' -1"));
+        assertThrows(IllegalArgumentException.class, () -> instance.put(1, 1L << 31));
+    }
+
+    @Test
+    public void testEmptyValueIfMissing() {
+        GHLongLongSortedMap instance = create(4, -1);
+        long key = 9485854858458484L;
+        assertEquals(-1, instance.put(key, 21));
+        assertEquals(21, instance.get(key));
+        assertEquals(-1, instance.get(404));
+        assertEquals(21, instance.put(key, 22));
+        assertEquals(22, instance.get(key));
+        assertEquals(1, instance.getSize());
+    }
+
+    @Test
+    public void testDenseAndSparseChunks() {
+        GHLongLongSortedMap instance = create(5, -1);
+        // consecutive keys with a few gaps, followed by keys that are far apart
+        for (long key = 0; key < 5000; key++)
+            if (key % 7 != 0)
+                instance.put(key, 2 * key);
+        for (long key = 5000; key < 1_000_000; key += 97)
+            instance.put(key, -key);
+        assertTrue(instance.toString().contains("dense: 4"), instance.toString());
+
+        for (long key = 0; key < 5000; key++)
+            assertEquals(key % 7 == 0 ? -1 : 2 * key, instance.get(key));
+        assertEquals(-5000, instance.get(5000));
+        assertEquals(-1, instance.get(5001));
+
+        // fill the gaps of the dense chunks in place
+        long size = instance.getSize();
+        assertEquals(-1, instance.put(7, 3));
+        assertEquals(3, instance.get(7));
+        assertEquals(size + 1, instance.getSize());
+        assertTrue(instance.toString().contains("buffered: 0"), instance.toString());
+    }
+
+    @Test
+    public void testUnsortedKeysWithinDenseChunk() {
+        GHLongLongSortedMap instance = create(4, -1);
+        instance.put(0, 10);
+        instance.put(1, 11);
+        instance.put(2, 12);
+        instance.put(4, 14);
+        // this key is smaller than the last key, but falls into the range of the open chunk
+        assertEquals(-1, instance.put(3, 13));
+        for (long key = 5; key <= 1030; key++)
+            instance.put(key, key + 10);
+        assertTrue(instance.toString().contains("dense: 1"), instance.toString());
+        assertEquals(1031, instance.getSize());
+        assertEquals(13, instance.get(3));
+        assertEquals(13, instance.put(3, 99));
+        assertEquals(1031, instance.getSize());
+        instance.optimize();
+        assertEquals(99, instance.get(3));
+
+        // keys that are buffered before the open chunk and fall into a gap of a dense chunk later
+        instance = create(4, -1);
+        for (long key = 0; key < 2000; key++)
+            if (key % 3 != 0)
+                instance.put(key, key);
+        for (long key = 0; key < 2000; key += 3)
+            assertEquals(-1, instance.put(key, -2 - key));
+        assertEquals(2000, instance.getSize());
+        for (long key = 0; key < 2000; key++)
+            assertEquals(key % 3 == 0 ? -2 - key : key, instance.get(key), "key: " + key);
+        assertEquals(1, instance.put(1, -3));
+        assertEquals(-2, instance.put(0, 7));
+        assertEquals(2000, instance.getSize());
+        instance.optimize();
+        assertEquals(7, instance.get(0));
+        assertEquals(-3, instance.get(1));
+        for (long key = 2; key < 2000; key++)
+            assertEquals(key % 3 == 0 ? -2 - key : key, instance.get(key), "key: " + key);
+    }
+
+    @Test
+    public void testNegativeValuesAndKeys() {
+        GHLongLongSortedMap instance = create(5, -1);
+        instance.put(0, -3);
+        instance.put(4, -2);
+        instance.put(3, Integer.MIN_VALUE);
+        instance.put(2, 2L * Integer.MIN_VALUE);
+        instance.put(1, 4L * Integer.MIN_VALUE);
+        instance.put(-Long.MAX_VALUE, 5);
+        instance.put(4L * Integer.MIN_VALUE, 6);
+        instance.optimize();
+
+        assertEquals(-3, instance.get(0));
+        assertEquals(-2, instance.get(4));
+        assertEquals(4L * Integer.MIN_VALUE, instance.get(1));
+        assertEquals(2L * Integer.MIN_VALUE, instance.get(2));
+        assertEquals(Integer.MIN_VALUE, instance.get(3));
+        assertEquals(5, instance.get(-Long.MAX_VALUE));
+        assertEquals(6, instance.get(4L * Integer.MIN_VALUE));
+        assertEquals(-1, instance.get(-Long.MAX_VALUE + 1));
+        assertEquals(7, instance.getSize());
+    }
+
+    @Test
+    public void testDifferentEmptyValue() {
+        GHLongLongSortedMap instance = create(3, -2);
+        instance.put(123, -1);
+        instance.put(12, 2);
+        assertEquals(-1, instance.get(123));
+        assertEquals(2, instance.get(12));
+        assertEquals(-2, instance.get(13));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"RAM_STORE", "MMAP"})
+    public void testRandom(String daTypeString) {
+        DAType daType = DAType.fromString(daTypeString);
+        Random rand = new Random(123);
+        for (int bytesPerValue = 2; bytesPerValue <= 8; bytesPerValue += 3) {
+            GHLongLongSortedMap instance = new GHLongLongSortedMap(new GHDirectory(dir.getAbsolutePath() + "/", daType), "test_map", daType, bytesPerValue, -1);
+            LongLongHashMap expected = new LongLongHashMap();
+            long key = 0;
+            for (int i = 0; i < 300_000; i++) {
+                // mostly increasing keys, but also some that are out of order or already exist
+                int r = rand.nextInt(10);
+                // in every second phase the keys are almost consecutive, so there are dense chunks and out of
+                // order keys that fall into them
+                boolean densePhase = i / 50_000 % 2 == 1;
+                if (r < 6)
+                    key += 1 + rand.nextInt(r < 3 || densePhase ? 2 : 1000);
+                long k = r < 8 ? key : densePhase ? Math.max(0, key - rand.nextInt(3000)) : rand.nextLong() % (key + 1);
+                long value = rand.nextLong() % instance.getMaxValue();
+                if (value == -1)
+                    continue;
+                assertEquals(expected.getOrDefault(k, -1), instance.put(k, value), "key: " + k);
+                expected.put(k, value);
+                assertEquals(value, instance.get(k), "key: " + k);
+            }
+            assertEquals(expected.size(), instance.getSize());
+            for (LongLongCursor c : expected)
+                assertEquals(c.value, instance.get(c.key));
+            for (int i = 0; i < 10_000; i++) {
+                long k = rand.nextLong() % (key + 10);
+                assertEquals(expected.getOrDefault(k, -1), instance.get(k), "key: " + k);
+            }
+            instance.clear();
+            assertEquals(0, instance.getSize());
+            assertEquals(-1, instance.get(key));
+        }
+    }
+}
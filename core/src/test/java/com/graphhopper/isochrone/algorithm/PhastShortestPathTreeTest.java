@@ -0,0 +1,155 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ch.RankOrderedCHGraph;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.DistanceCalcEuclidean;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhastShortestPathTreeTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final EncodingManager em = EncodingManager.start().add(speedEnc).build();
+    private final BaseGraph graph = new BaseGraph.Builder(em).create();
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void randomGraph(boolean reverseFlow) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.2, true, speedEnc, null, 0.8, 0.8);
+        graph.freeze();
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        RankOrderedCHGraph rankOrderedCHGraph = new RankOrderedCHGraph(prepareCH(weighting));
+        for (int run = 0; run < 5; run++) {
+            // the source is a virtual node in the middle of a random edge
+            EdgeIteratorState edge = graph.getEdgeIteratorState(rnd.nextInt(graph.getEdges()), Integer.MIN_VALUE);
+            QueryGraph queryGraph = QueryGraph.create(graph, snapToEdge(edge));
+            int source = queryGraph.getNodes() - 1;
+
+            Map<Integer, ShortestPathTree.IsoLabel> expected = new HashMap<>();
+            ShortestPathTree dijkstra = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, TraversalMode.NODE_BASED);
+            dijkstra.setWeightLimit(Double.POSITIVE_INFINITY);
+            dijkstra.search(source, l -> expected.put(l.node, l));
+            Map<Integer, ShortestPathTree.IsoLabel> actual = new HashMap<>();
+            PhastShortestPathTree phast = new PhastShortestPathTree(queryGraph, rankOrderedCHGraph, reverseFlow);
+            phast.setWeightLimit(Double.POSITIVE_INFINITY);
+            phast.search(source, l -> assertNull(actual.put(l.node, l)));
+
+            String msg = "seed: " + seed + ", source edge: " + edge;
+            assertEquals(expected.keySet(), actual.keySet(), msg);
+            int violations = 0;
+            for (ShortestPathTree.IsoLabel label : actual.values()) {
+                ShortestPathTree.IsoLabel expectedLabel = expected.get(label.node);
+                assertEquals(expectedLabel.weight, label.weight, 1.e-2, msg + ", node: " + label.node);
+                // there can be multiple shortest paths with different times and distances
+                if (Math.abs(expectedLabel.distance - label.distance) > 1.e-2 || expectedLabel.time != label.time)
+                    violations++;
+                if (label.node == source) {
+                    assertNull(label.parent, msg);
+                    continue;
+                }
+                // the labels form a tree of the query graph
+                assertNotNull(label.parent, msg);
+                assertSame(actual.get(label.parent.node), label.parent, msg);
+                EdgeIteratorState labelEdge = queryGraph.getEdgeIteratorState(label.edge, label.node);
+                assertEquals(label.parent.node, labelEdge.getBaseNode(), msg);
+                double edgeWeight = reverseFlow ? weighting.calcEdgeWeight(labelEdge, true) : weighting.calcEdgeWeight(labelEdge, false);
+                assertEquals(label.parent.weight + edgeWeight, label.weight, 1.e-2, msg + ", node: " + label.node);
+            }
+            assertTrue(violations <= 0.05 * actual.size(), "too many violations: " + violations + ", " + msg);
+        }
+    }
+
+    @Test
+    public void limit() {
+        // 0-1-2-3
+        //     |
+        //     4
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(2, 3).setDistance(200).set(speedEnc, 10, 10);
+        graph.edge(2, 4).setDistance(50).set(speedEnc, 10, 0);
+        graph.freeze();
+        RankOrderedCHGraph rankOrderedCHGraph = new RankOrderedCHGraph(prepareCH(new SpeedWeighting(speedEnc)));
+        QueryGraph queryGraph = QueryGraph.create(graph, List.of());
+
+        Map<Integer, ShortestPathTree.IsoLabel> labels = new HashMap<>();
+        PhastShortestPathTree phast = new PhastShortestPathTree(queryGraph, rankOrderedCHGraph, false);
+        phast.setDistanceLimit(250);
+        phast.search(0, l -> labels.put(l.node, l));
+        assertEquals(Map.of(0, 0.0, 1, 100.0, 2, 200.0, 4, 250.0), toDistances(labels));
+        assertEquals(20_000, labels.get(2).time);
+        assertEquals(1, labels.get(2).parent.node);
+        // the edge 2-3 crosses the limit
+        assertEquals(1, phast.getIsochroneEdges(250).size());
+        assertEquals(3, phast.getIsochroneEdges(250).get(0).node);
+
+        labels.clear();
+        phast = new PhastShortestPathTree(queryGraph, rankOrderedCHGraph, true);
+        phast.setDistanceLimit(1000);
+        phast.search(4, l -> labels.put(l.node, l));
+        // 4 can be reached from everywhere, but nothing can be reached from 4
+        assertEquals(Map.of(4, 0.0, 2, 50.0, 1, 150.0, 3, 250.0, 0, 250.0), toDistances(labels));
+    }
+
+    private static Map<Integer, Double> toDistances(Map<Integer, ShortestPathTree.IsoLabel> labels) {
+        Map<Integer, Double> result = new HashMap<>();
+        labels.forEach((node, label) -> result.put(node, label.distance));
+        return result;
+    }
+
+    private RoutingCHGraphImpl prepareCH(Weighting weighting) {
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, CHConfig.nodeBased("p", weighting)).doWork();
+        return new RoutingCHGraphImpl(graph, res.getCHStorage(), res.getCHConfig().getWeighting());
+    }
+
+    private Snap snapToEdge(EdgeIteratorState edge) {
+        NodeAccess na = graph.getNodeAccess();
+        Snap snap = new Snap((na.getLat(edge.getBaseNode()) + na.getLat(edge.getAdjNode())) / 2,
+                (na.getLon(edge.getBaseNode()) + na.getLon(edge.getAdjNode())) / 2);
+        snap.setClosestEdge(edge);
+        snap.setWayIndex(0);
+        snap.setSnappedPosition(Snap.Position.EDGE);
+        snap.calcSnappedPoint(new DistanceCalcEuclidean());
+        return snap;
+    }
+}
@@ -423,6 +423,52 @@ public class GraphHopperOSMTest {
         assertEquals(3, rsp.getPoints().size());
     }
 
+    @Test
+    public void testLoadWithCompressedGeometry() {
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("datareader.file", testOsm).
+                putObject("graph.location", ghLoc).
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.dataaccess.type.geometry", "COMPRESSED_STORE").
+                putObject("graph.dataaccess.compressed.cache.geometry", 1).
+                setProfiles(List.of(TestProfiles.constantSpeed("car")));
+        instance = new GraphHopper().init(config).importOrLoad();
+        GHResponse rsp = instance.route(new GHRequest(51.2492152, 9.4317166, 51.2, 9.4).setProfile("car"));
+        assertFalse(rsp.hasErrors());
+        PointList points = rsp.getBest().getPoints();
+        instance.close();
+
+        instance = new GraphHopper().init(config);
+        assertTrue(instance.load());
+        assertTrue(instance.getBaseGraph().getDirectory().getDAs().get("geometry") instanceof CompressedDataAccess);
+        rsp = instance.route(new GHRequest(51.2492152, 9.4317166, 51.2, 9.4).setProfile("car"));
+        assertFalse(rsp.hasErrors());
+        assertEquals(points, rsp.getBest().getPoints());
+    }
+
+    @Test
+    public void testPreloadInBackground() throws InterruptedException {
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("datareader.file", testOsm).
+                putObject("graph.location", ghLoc).
+                putObject("import.osm.ignored_highways", "").
+                setProfiles(List.of(TestProfiles.constantSpeed("car")));
+        new GraphHopper().init(config).importAndClose();
+
+        config.putObject("graph.dataaccess.default_type", "MMAP").
+                putObject("graph.dataaccess.mmap.preload.nodes", 100).
+                putObject("graph.dataaccess.mmap.preload.edges", 100).
+                putObject("graph.dataaccess.mmap.preload_in_background", true);
+        instance = new GraphHopper().init(config);
+        assertTrue(instance.load());
+        // queries are possible while preloading
+        GHResponse rsp = instance.route(new GHRequest(51.2492152, 9.4317166, 51.2, 9.4).setProfile("car"));
+        assertFalse(rsp.hasErrors());
+        for (int i = 0; i < 100 && instance.isPreloading(); i++)
+            Thread.sleep(50);
+        assertFalse(instance.isPreloading());
+    }
+
     @Test
     public void testNothingHappensWhenProfilesAreChangedForLoad() {
         instance = new GraphHopper().init(
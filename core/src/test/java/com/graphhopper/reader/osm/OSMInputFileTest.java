@@ -0,0 +1,182 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.ReaderRelation;
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.reader.osm.pbf.PbfFieldDecoder;
+import com.graphhopper.reader.osm.pbf.PbfRawBlob;
+import com.graphhopper.reader.osm.pbf.PbfStreamSplitter;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+import org.openstreetmap.osmosis.osmbinary.Osmformat;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OSMInputFileTest {
+
+    @Test
+    public void pbfEqualsGeneratedParser() throws Exception {
+        List<ReaderElement> expected = readAllWithGeneratedParser("../core/files/andorra.osm.pbf");
+        List<ReaderElement> actual = readAll("../core/files/andorra.osm.pbf", id -> true);
+        assertTrue(expected.size() > 70_000, "elements: " + expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+            assertTrue(isEqual(expected.get(i), actual.get(i), 0), expected.get(i) + " vs. " + actual.get(i));
+    }
+
+    @Test
+    public void nodeFilter() throws Exception {
+        for (String file : new String[]{"../core/files/andorra.osm.pbf", "../core/files/andorra.osm.gz"}) {
+            List<ReaderElement> all = readAll(file, id -> true);
+            List<ReaderElement> filtered = readAll(file, id -> id % 3 == 0);
+            List<ReaderElement> expected = new ArrayList<>();
+            for (ReaderElement element : all)
+                if (element.getType() != ReaderElement.Type.NODE || element.getId() % 3 == 0)
+                    expected.add(element);
+            assertTrue(expected.size() < all.size());
+            assertEquals(expected.size(), filtered.size());
+            for (int i = 0; i < expected.size(); i++)
+                assertTrue(isEqual(expected.get(i), filtered.get(i), 0), expected.get(i) + " vs. " + filtered.get(i));
+        }
+    }
+
+    private static boolean isEqual(ReaderElement a, ReaderElement b, double maxCoordDiff) {
+        if (a.getType() != b.getType() || a.getId() != b.getId() || !a.getTags().equals(b.getTags()))
+            return false;
+        if (a instanceof ReaderNode nodeA) {
+            ReaderNode nodeB = (ReaderNode) b;
+            return Math.abs(nodeA.getLat() - nodeB.getLat()) <= maxCoordDiff && Math.abs(nodeA.getLon() - nodeB.getLon()) <= maxCoordDiff;
+        } else if (a instanceof ReaderWay wayA) {
+            return wayA.getNodes().equals(((ReaderWay) b).getNodes());
+        } else if (a instanceof ReaderRelation relationA) {
+            List<ReaderRelation.Member> membersA = relationA.getMembers();
+            List<ReaderRelation.Member> membersB = ((ReaderRelation) b).getMembers();
+            if (membersA.size() != membersB.size())
+                return false;
+            for (int i = 0; i < membersA.size(); i++)
+                if (membersA.get(i).getType() != membersB.get(i).getType() || membersA.get(i).getRef() != membersB.get(i).getRef()
+                        || !membersA.get(i).getRole().equals(membersB.get(i).getRole()))
+                    return false;
+        }
+        return true;
+    }
+
+    private static List<ReaderElement> readAll(String file, LongPredicate nodeFilter) throws Exception {
+        List<ReaderElement> result = new ArrayList<>();
+        try (OSMInputFile in = new OSMInputFile(new File(file)).setWorkerThreads(2).setNodeFilter(nodeFilter).open()) {
+            ReaderElement element;
+            while ((element = in.getNext()) != null)
+                if (element.getType() != ReaderElement.Type.FILEHEADER)
+                    result.add(element);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the elements of the given PBF file with the generated protobuf classes, like the PBF reader did before it
+     * decoded the blocks itself.
+     */
+    private static List<ReaderElement> readAllWithGeneratedParser(String file) throws Exception {
+        List<ReaderElement> result = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            PbfStreamSplitter splitter = new PbfStreamSplitter(in);
+            while (splitter.hasNext()) {
+                PbfRawBlob rawBlob = splitter.next();
+                if (!"OSMData".equals(rawBlob.getType()))
+                    continue;
+                Osmformat.PrimitiveBlock block = Osmformat.PrimitiveBlock.parseFrom(inflate(rawBlob.getData()));
+                String[] strings = new String[block.getStringtable().getSCount()];
+                for (int i = 0; i < strings.length; i++)
+                    strings[i] = block.getStringtable().getS(i).toStringUtf8();
+                PbfFieldDecoder decoder = new PbfFieldDecoder(strings, block.getGranularity(), block.getLatOffset(),
+                        block.getLonOffset(), block.getDateGranularity());
+                for (Osmformat.PrimitiveGroup group : block.getPrimitivegroupList()) {
+                    Osmformat.DenseNodes dense = group.getDense();
+                    long id = 0, lat = 0, lon = 0;
+                    int keyValIndex = 0;
+                    for (int i = 0; i < dense.getIdCount(); i++) {
+                        id += dense.getId(i);
+                        lat += dense.getLat(i);
+                        lon += dense.getLon(i);
+                        ReaderNode node = new ReaderNode(id, decoder.decodeLatitude(lat), decoder.decodeLongitude(lon));
+                        while (keyValIndex < dense.getKeysValsCount() && dense.getKeysVals(keyValIndex) != 0) {
+                            node.setTag(strings[dense.getKeysVals(keyValIndex)], strings[dense.getKeysVals(keyValIndex + 1)]);
+                            keyValIndex += 2;
+                        }
+                        keyValIndex++;
+                        result.add(node);
+                    }
+                    for (Osmformat.Node n : group.getNodesList()) {
+                        ReaderNode node = new ReaderNode(n.getId(), decoder.decodeLatitude(n.getLat()), decoder.decodeLongitude(n.getLon()));
+                        for (int i = 0; i < n.getKeysCount(); i++)
+                            node.setTag(strings[n.getKeys(i)], strings[n.getVals(i)]);
+                        result.add(node);
+                    }
+                    for (Osmformat.Way w : group.getWaysList()) {
+                        ReaderWay way = new ReaderWay(w.getId());
+                        for (int i = 0; i < w.getKeysCount(); i++)
+                            way.setTag(strings[w.getKeys(i)], strings[w.getVals(i)]);
+                        long ref = 0;
+                        for (int i = 0; i < w.getRefsCount(); i++)
+                            way.getNodes().add(ref += w.getRefs(i));
+                        result.add(way);
+                    }
+                    for (Osmformat.Relation r : group.getRelationsList()) {
+                        ReaderRelation relation = new ReaderRelation(r.getId());
+                        for (int i = 0; i < r.getKeysCount(); i++)
+                            relation.setTag(strings[r.getKeys(i)], strings[r.getVals(i)]);
+                        long ref = 0;
+                        for (int i = 0; i < r.getMemidsCount(); i++) {
+                            ref += r.getMemids(i);
+                            ReaderElement.Type type = r.getTypes(i) == Osmformat.Relation.MemberType.WAY ? ReaderElement.Type.WAY
+                                    : r.getTypes(i) == Osmformat.Relation.MemberType.RELATION ? ReaderElement.Type.RELATION
+                                    : ReaderElement.Type.NODE;
+                            relation.add(new ReaderRelation.Member(type, ref, strings[r.getRolesSid(i)]));
+                        }
+                        result.add(relation);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static byte[] inflate(byte[] rawBlob) throws Exception {
+        Fileformat.Blob blob = Fileformat.Blob.parseFrom(rawBlob);
+        if (blob.hasRaw())
+            return blob.getRaw().toByteArray();
+        Inflater inflater = new Inflater();
+        inflater.setInput(blob.getZlibData().toByteArray());
+        byte[] data = new byte[blob.getRawSize()];
+        inflater.inflate(data);
+        inflater.end();
+        return data;
+    }
+}
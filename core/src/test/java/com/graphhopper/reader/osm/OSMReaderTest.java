@@ -50,6 +50,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static com.graphhopper.routing.util.TransportationMode.CAR;
 import static com.graphhopper.util.GHUtility.readCountries;
@@ -407,6 +408,53 @@ public class OSMReaderTest {
         assertEquals(3, notBlocked);
     }
 
+    @Test
+    public void testParseThreads() {
+        GraphHopper single = importAndorra("single", config -> config.setParseThreads(1));
+        GraphHopper parallel = importAndorra("parallel", config -> config.setParseThreads(3));
+        assertSameEdges(single.getBaseGraph(), parallel.getBaseGraph());
+        single.close();
+        parallel.close();
+    }
+
+    @Test
+    public void testNodeMapDataAccess() {
+        GraphHopper heap = importAndorra("heap", config -> config.setNodeMapDAType(null));
+        GraphHopper mmap = importAndorra("mmap", config -> config.setNodeMapDAType(DAType.MMAP));
+        assertSameEdges(heap.getBaseGraph(), mmap.getBaseGraph());
+        heap.close();
+        mmap.close();
+    }
+
+    private static void assertSameEdges(BaseGraph expected, BaseGraph actual) {
+        assertEquals(expected.getNodes(), actual.getNodes());
+        assertEquals(expected.getEdges(), actual.getEdges());
+        for (int edge = 0; edge < expected.getEdges(); edge++) {
+            EdgeIteratorState expectedEdge = expected.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            EdgeIteratorState actualEdge = actual.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            assertEquals(expectedEdge.getBaseNode(), actualEdge.getBaseNode());
+            assertEquals(expectedEdge.getAdjNode(), actualEdge.getAdjNode());
+            assertEquals(expectedEdge.getDistance(), actualEdge.getDistance());
+            assertEquals(expectedEdge.getFlags(), actualEdge.getFlags(), "different flags for edge " + edge);
+            assertEquals(expectedEdge.getName(), actualEdge.getName());
+            assertEquals(expectedEdge.fetchWayGeometry(FetchMode.ALL), actualEdge.fetchWayGeometry(FetchMode.ALL));
+        }
+    }
+
+    private GraphHopper importAndorra(String name, Consumer<OSMReaderConfig> readerConfig) {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setEncodedValuesString("car_access, car_average_speed, foot_access, foot_average_speed, foot_priority, " +
+                "bike_access, bike_average_speed, bike_priority, road_class, road_environment, max_speed, surface, country, toll");
+        readerConfig.accept(hopper.getReaderConfig());
+        hopper.setOSMFile("../core/files/andorra.osm.pbf").
+                setGraphHopperLocation(dir + "/" + name).
+                setStoreOnFlush(false).
+                setProfiles(TestProfiles.accessAndSpeed("car")).
+                setMinNetworkSize(0).
+                importOrLoad();
+        return hopper;
+    }
+
     @Test
     public void avoidsLoopEdges_1525() {
         // loops in OSM should be avoided by adding additional tower node (see #1525, #1531)
@@ -0,0 +1,122 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.TurnCost;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManyToManyCHTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final DecimalEncodedValue turnCostEnc = TurnCost.create("car", 10);
+    private final EncodingManager em = EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+    private final BaseGraph graph = new BaseGraph.Builder(em).withTurnCosts(true).create();
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void randomGraph(boolean edgeBased) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, true, speedEnc, null, 0.8, 0.8);
+        GHUtility.addRandomTurnCosts(graph, seed, null, turnCostEnc, 10, graph.getTurnCostStorage());
+        graph.freeze();
+        Weighting weighting = edgeBased
+                ? new SpeedWeighting(speedEnc, turnCostEnc, graph.getTurnCostStorage(), 40)
+                : new SpeedWeighting(speedEnc);
+        RoutingCHGraph chGraph = prepareCH(weighting, edgeBased);
+
+        int[] sources = new int[15];
+        int[] targets = new int[20];
+        for (int i = 0; i < sources.length; i++)
+            sources[i] = rnd.nextInt(graph.getNodes());
+        for (int i = 0; i < targets.length; i++)
+            targets[i] = rnd.nextInt(graph.getNodes());
+        sources[3] = -1;
+        targets[0] = sources[0];
+        ManyToManyCH.Result result = new ManyToManyCH(chGraph).calcMatrix(sources, targets, true);
+        int violations = 0;
+        for (int s = 0; s < sources.length; s++) {
+            for (int t = 0; t < targets.length; t++) {
+                String msg = "seed: " + seed + ", " + sources[s] + "->" + targets[t];
+                if (sources[s] < 0) {
+                    assertEquals(Double.POSITIVE_INFINITY, result.weights[s][t], msg);
+                    assertEquals(Long.MAX_VALUE, result.times[s][t], msg);
+                    continue;
+                }
+                Path refPath = new Dijkstra(graph, weighting, edgeBased ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED)
+                        .calcPath(sources[s], targets[t]);
+                if (!refPath.isFound()) {
+                    assertEquals(Double.POSITIVE_INFINITY, result.weights[s][t], msg);
+                    assertEquals(Double.POSITIVE_INFINITY, result.distances[s][t], msg);
+                    continue;
+                }
+                assertEquals(refPath.getWeight(), result.weights[s][t], 1.e-2, msg);
+                // there can be multiple shortest paths with different times and distances
+                if (Math.abs(refPath.getDistance() - result.distances[s][t]) > 1.e-2 || refPath.getTime() != result.times[s][t])
+                    violations++;
+            }
+        }
+        assertEquals(0, result.weights[0][0], "seed: " + seed);
+        assertTrue(violations <= 0.05 * sources.length * targets.length, "too many violations: " + violations + ", seed: " + seed);
+    }
+
+    @Test
+    public void disconnected() {
+        // 0-1-2  3-4
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(200).set(speedEnc, 10, 0);
+        graph.edge(3, 4).setDistance(300).set(speedEnc, 10, 10);
+        graph.freeze();
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        RoutingCHGraph chGraph = prepareCH(weighting, false);
+        ManyToManyCH.Result result = new ManyToManyCH(chGraph).calcMatrix(new int[]{0, 2, 4}, new int[]{2, 0, 3}, false);
+        assertNull(result.times);
+        assertNull(result.distances);
+        assertEquals(30, result.weights[0][0], 1.e-6);
+        assertEquals(0, result.weights[0][1], 1.e-6);
+        assertEquals(Double.POSITIVE_INFINITY, result.weights[0][2]);
+        // one-way
+        assertEquals(Double.POSITIVE_INFINITY, result.weights[1][1]);
+        assertEquals(0, result.weights[1][0], 1.e-6);
+        assertEquals(30, result.weights[2][2], 1.e-6);
+        assertEquals(Double.POSITIVE_INFINITY, result.weights[2][0]);
+    }
+
+    private RoutingCHGraph prepareCH(Weighting weighting, boolean edgeBased) {
+        CHConfig chConfig = edgeBased ? CHConfig.edgeBased("p", weighting) : CHConfig.nodeBased("p", weighting);
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        return RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+    }
+}
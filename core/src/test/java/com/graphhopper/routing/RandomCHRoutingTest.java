@@ -1,5 +1,6 @@
 package com.graphhopper.routing;
 
+import com.graphhopper.routing.ch.CHParameters;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
@@ -44,6 +45,7 @@ public class RandomCHRoutingTest {
         private final TraversalMode traversalMode;
         private final int maxTurnCosts;
         private final double uTurnCosts;
+        private final int contractionThreads;
         private final DecimalEncodedValue speedEnc;
         private final DecimalEncodedValue turnCostEnc;
         private Weighting weighting;
@@ -51,9 +53,14 @@ public class RandomCHRoutingTest {
         private CHConfig chConfig;
 
         Fixture(TraversalMode traversalMode, double uTurnCosts) {
+            this(traversalMode, uTurnCosts, 1);
+        }
+
+        Fixture(TraversalMode traversalMode, double uTurnCosts, int contractionThreads) {
             this.traversalMode = traversalMode;
             this.maxTurnCosts = 10;
             this.uTurnCosts = uTurnCosts;
+            this.contractionThreads = contractionThreads;
             speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
             turnCostEnc = TurnCost.create("car", maxTurnCosts);
             EncodingManager encodingManager = EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
@@ -70,7 +77,7 @@ public class RandomCHRoutingTest {
 
         @Override
         public String toString() {
-            return traversalMode + ", u-turn-costs=" + uTurnCosts;
+            return traversalMode + ", u-turn-costs=" + uTurnCosts + ", contraction-threads=" + contractionThreads;
         }
     }
 
@@ -80,7 +87,9 @@ public class RandomCHRoutingTest {
             return Stream.of(
                             new Fixture(TraversalMode.NODE_BASED, Double.POSITIVE_INFINITY),
                             new Fixture(TraversalMode.EDGE_BASED, 40),
-                            new Fixture(TraversalMode.EDGE_BASED, Double.POSITIVE_INFINITY)
+                            new Fixture(TraversalMode.EDGE_BASED, Double.POSITIVE_INFINITY),
+                            new Fixture(TraversalMode.NODE_BASED, Double.POSITIVE_INFINITY, 4),
+                            new Fixture(TraversalMode.EDGE_BASED, 40, 4)
                     )
                     .map(Arguments::of);
         }
@@ -114,7 +123,8 @@ public class RandomCHRoutingTest {
         locationIndex.prepareIndex();
 
         f.freeze();
-        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(f.graph, f.chConfig);
+        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(f.graph, f.chConfig)
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, f.contractionThreads));
         PrepareContractionHierarchies.Result res = pch.doWork();
         RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(f.graph, res.getCHStorage(), res.getCHConfig());
 
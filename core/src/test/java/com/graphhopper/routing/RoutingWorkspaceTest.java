@@ -0,0 +1,92 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.TurnCost;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Random;
+
+import static com.graphhopper.util.Parameters.Algorithms.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingWorkspaceTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            DIJKSTRA + ",NODE_BASED", DIJKSTRA + ",EDGE_BASED",
+            ASTAR + ",NODE_BASED", ASTAR + ",EDGE_BASED",
+            DIJKSTRA_BI + ",NODE_BASED", DIJKSTRA_BI + ",EDGE_BASED",
+            ASTAR_BI + ",NODE_BASED", ASTAR_BI + ",EDGE_BASED"
+    })
+    public void sameResultsWithReusedWorkspace(String algo, TraversalMode traversalMode) {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        DecimalEncodedValue turnCostEnc = TurnCost.create("car", 3);
+        EncodingManager em = EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).withTurnCosts(true).create();
+        Random rnd = new Random(42);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, true, speedEnc, null, 0.8, 0.8);
+        GHUtility.addRandomTurnCosts(graph, 42, null, turnCostEnc, 3, graph.getTurnCostStorage());
+        Weighting weighting = traversalMode.isEdgeBased()
+                ? new SpeedWeighting(speedEnc, turnCostEnc, graph.getTurnCostStorage(), 40)
+                : new SpeedWeighting(speedEnc);
+        AlgorithmOptions opts = new AlgorithmOptions().setAlgorithm(algo).setTraversalMode(traversalMode);
+        RoutingWorkspace workspace = new RoutingWorkspace(graph.getNodes(), graph.getEdges());
+        for (int i = 0; i < 200; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path expected = new RoutingAlgorithmFactorySimple().createAlgo(graph, weighting, opts).calcPath(from, to);
+            RoutingAlgorithm withWorkspace = new RoutingAlgorithmFactorySimple().createAlgo(graph, weighting, opts);
+            withWorkspace.setWorkspace(workspace);
+            Path path = withWorkspace.calcPath(from, to);
+            assertEquals(expected.isFound(), path.isFound(), from + "->" + to);
+            assertEquals(expected.getWeight(), path.getWeight(), 1.e-6, from + "->" + to);
+            assertEquals(expected.calcNodes(), path.calcNodes(), from + "->" + to);
+        }
+    }
+
+    @Test
+    public void pool() {
+        BaseGraph graph = new BaseGraph.Builder(EncodingManager.start().add(new DecimalEncodedValueImpl("speed", 5, 5, true)).build()).create();
+        RoutingWorkspacePool pool = new RoutingWorkspacePool(graph, 2);
+        RoutingWorkspace a = pool.lease();
+        RoutingWorkspace b = pool.lease();
+        RoutingWorkspace c = pool.lease();
+        assertNotSame(a, b);
+        assertNotSame(b, c);
+        pool.release(a);
+        pool.release(b);
+        // the pool is full, so this one is dropped
+        pool.release(c);
+        assertEquals(2, pool.getIdleCount());
+        assertSame(a, pool.lease());
+        assertSame(b, pool.lease());
+        assertEquals(0, pool.getIdleCount());
+        assertThrows(IllegalArgumentException.class, () -> new RoutingWorkspacePool(graph, 0));
+    }
+}
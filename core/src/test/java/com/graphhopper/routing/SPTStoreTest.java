@@ -0,0 +1,124 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SPTStoreTest {
+
+    @Test
+    public void pollOrderLikePriorityQueue() {
+        Random rnd = new Random(123);
+        SPTStore store = new SPTStore(4);
+        PriorityQueue<SPTEntry> queue = new PriorityQueue<>();
+        for (int i = 0; i < 10_000; i++) {
+            if (queue.isEmpty() || rnd.nextDouble() < 0.6) {
+                // few distinct weights to get many ties
+                double weight = rnd.nextInt(50);
+                int slot = store.add(i, i, weight, weight, SPTStore.NO_SLOT);
+                store.push(slot);
+                queue.add(new SPTEntry(i, i, weight, null));
+            } else {
+                // ties must be resolved in the same way
+                assertEquals(queue.poll().edge, store.getEdge(store.poll()));
+            }
+        }
+        while (!queue.isEmpty())
+            assertEquals(queue.poll().edge, store.getEdge(store.poll()));
+        assertTrue(store.isHeapEmpty());
+    }
+
+    @Test
+    public void updateHeapWeights() {
+        Random rnd = new Random(123);
+        SPTStore store = new SPTStore(4);
+        for (int i = 0; i < 1000; i++) {
+            double weight = rnd.nextInt(100);
+            int slot = store.add(i, i, weight, weight, SPTStore.NO_SLOT);
+            store.push(slot);
+            if (i % 10 == 0)
+                store.setDeleted(slot);
+        }
+        store.poll();
+        // the remaining weight decreases with the node ID, so the order changes completely
+        store.updateHeapWeights(node -> 2000 - 2 * node);
+        double lastWeight = -1;
+        int polled = 0;
+        while (!store.isHeapEmpty()) {
+            int slot = store.poll();
+            assertFalse(store.isDeleted(slot));
+            assertEquals(store.getWeightOfVisitedPath(slot) + 2000 - 2 * store.getAdjNode(slot), store.getWeight(slot));
+            assertTrue(store.getWeight(slot) >= lastWeight);
+            lastWeight = store.getWeight(slot);
+            polled++;
+        }
+        // the deleted entries were removed and one entry was polled before
+        assertEquals(899, polled);
+    }
+
+    @Test
+    public void slotsAndParents() {
+        SPTStore store = new SPTStore(2);
+        int root = store.add(-1, 5, 0, 0, SPTStore.NO_SLOT);
+        int child = store.add(3, 7, 12.5, 10, root);
+        store.putSlot(7, child);
+        assertEquals(child, store.getSlot(7));
+        assertEquals(SPTStore.NO_SLOT, store.getSlot(5));
+        assertEquals(root, store.getParent(child));
+        assertEquals(3, store.getEdge(child));
+        assertEquals(7, store.getAdjNode(child));
+        assertEquals(12.5, store.getWeight(child));
+        assertEquals(10, store.getWeightOfVisitedPath(child));
+        assertFalse(store.isDeleted(child));
+        store.setDeleted(child);
+        assertTrue(store.isDeleted(child));
+        assertEquals(SPTStore.NO_SLOT, store.getParent(root));
+    }
+
+    @Test
+    public void denseTraversalIds() {
+        SPTStore store = new SPTStore(2);
+        store.setDenseTraversalIds(10);
+        store.putSlot(3, store.add(-1, 3, 0, 0, SPTStore.NO_SLOT));
+        // ids outside of the dense range, e.g. of virtual nodes, still work
+        store.putSlot(12, store.add(-1, 12, 0, 0, SPTStore.NO_SLOT));
+        assertEquals(0, store.getSlot(3));
+        assertEquals(1, store.getSlot(12));
+        assertEquals(SPTStore.NO_SLOT, store.getSlot(4));
+
+        store.clear();
+        assertEquals(SPTStore.NO_SLOT, store.getSlot(3));
+        assertEquals(SPTStore.NO_SLOT, store.getSlot(12));
+        store.putSlot(4, store.add(-1, 4, 0, 0, SPTStore.NO_SLOT));
+        assertEquals(0, store.getSlot(4));
+
+        store.clear();
+        store.setDenseTraversalIds(2);
+        store.putSlot(4, store.add(-1, 4, 0, 0, SPTStore.NO_SLOT));
+        store.clear();
+        store.setDenseTraversalIds(10);
+        assertEquals(SPTStore.NO_SLOT, store.getSlot(4));
+        store.putSlot(1, store.add(-1, 1, 0, 0, SPTStore.NO_SLOT));
+        assertThrows(IllegalStateException.class, () -> store.setDenseTraversalIds(20));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.shapes.GHPoint;
+import com.graphhopper.util.shapes.GHPoint3D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapCacheTest {
+
+    private static Snap createSnap(double lat, double lon, int node) {
+        Snap snap = new Snap(lat, lon);
+        snap.setClosestNode(node);
+        snap.setWayIndex(0);
+        snap.setSnappedPosition(Snap.Position.TOWER);
+        snap.setSnappedPoint(new GHPoint3D(lat + 0.001, lon, 0));
+        snap.setQueryDistance(111.2);
+        return snap;
+    }
+
+    @Test
+    public void getAndPut() {
+        SnapCache cache = new SnapCache(10);
+        GHPoint point = new GHPoint(49.9, 11.5);
+        List<String> snapPreventions = Collections.emptyList();
+        assertNull(cache.get("car", point, Double.NaN, "", snapPreventions));
+        Snap snap = createSnap(point.lat, point.lon, 3);
+        cache.put("car", point, Double.NaN, "", snapPreventions, snap);
+        // creating a query graph changes the closest node of the snap, but not the cached one
+        snap.setClosestNode(100);
+
+        Snap cached = cache.get("car", point, Double.NaN, "", snapPreventions);
+        assertNotSame(snap, cached);
+        assertEquals(3, cached.getClosestNode());
+        assertEquals(111.2, cached.getQueryDistance());
+        assertEquals(snap.getSnappedPoint(), cached.getSnappedPoint());
+
+        // a point that is the same after rounding gets the same snap, but its own query point and distance
+        cached = cache.get("car", new GHPoint(49.9 + 1.e-8, 11.5), Double.NaN, "", snapPreventions);
+        assertEquals(3, cached.getClosestNode());
+        assertEquals(49.9 + 1.e-8, cached.getQueryPoint().lat);
+        assertEquals(111.2, cached.getQueryDistance(), 0.1);
+
+        assertNull(cache.get("car", new GHPoint(49.9 + 1.e-6, 11.5), Double.NaN, "", snapPreventions));
+        assertNull(cache.get("bike", point, Double.NaN, "", snapPreventions));
+        assertNull(cache.get("car", point, 90, "", snapPreventions));
+        assertNull(cache.get("car", point, Double.NaN, "main street", snapPreventions));
+        assertNull(cache.get("car", point, Double.NaN, "", List.of("ferry")));
+        assertEquals(2, cache.getHits());
+        assertEquals(6, cache.getMisses());
+        assertEquals(0.25, cache.getHitRate());
+
+        cache.clear();
+        assertNull(cache.get("car", point, Double.NaN, "", snapPreventions));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void snapPreventionsAreCopied() {
+        SnapCache cache = new SnapCache(10);
+        GHPoint point = new GHPoint(49.9, 11.5);
+        List<String> snapPreventions = new ArrayList<>(List.of("ferry"));
+        cache.put("car", point, Double.NaN, "", snapPreventions, createSnap(point.lat, point.lon, 3));
+        snapPreventions.add("tunnel");
+        assertNull(cache.get("car", point, Double.NaN, "", snapPreventions));
+        assertNotNull(cache.get("car", point, Double.NaN, "", List.of("ferry")));
+    }
+
+    @Test
+    public void frequentlyUsedSnapsAreKept() {
+        SnapCache cache = new SnapCache(10);
+        GHPoint hotPoint = new GHPoint(49.9, 11.5);
+        cache.put("car", hotPoint, Double.NaN, "", List.of(), createSnap(hotPoint.lat, hotPoint.lon, 0));
+        for (int i = 1; i < 100; i++) {
+            GHPoint point = new GHPoint(50 + i * 0.01, 11.5);
+            cache.put("car", point, Double.NaN, "", List.of(), createSnap(point.lat, point.lon, i));
+            assertTrue(cache.getSize() <= 10, "size: " + cache.getSize());
+            assertNotNull(cache.get("car", hotPoint, Double.NaN, "", List.of()));
+        }
+        // the old entries that were not requested again were removed
+        assertNull(cache.get("car", new GHPoint(50.01, 11.5), Double.NaN, "", List.of()));
+    }
+
+    @Test
+    public void invalidSnapsAreNotCached() {
+        SnapCache cache = new SnapCache(10);
+        GHPoint point = new GHPoint(49.9, 11.5);
+        assertThrows(IllegalArgumentException.class, () -> cache.put("car", point, Double.NaN, "", List.of(), new Snap(point.lat, point.lon)));
+        assertThrows(IllegalArgumentException.class, () -> new SnapCache(1));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.CHStorage;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CCHCustomizerTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final DecimalEncodedValue otherSpeedEnc = new DecimalEncodedValueImpl("other_speed", 5, 5, true);
+    private final EncodingManager em = EncodingManager.start().add(speedEnc).add(otherSpeedEnc).build();
+    private final BaseGraph graph = new BaseGraph.Builder(em).create();
+
+    @Test
+    void simpleGraph() {
+        // 0-1-2
+        //  \ /
+        //   3
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(0, 3).setDistance(1000).set(speedEnc, 10, 10);
+        graph.edge(3, 2).setDistance(500).set(speedEnc, 10, 0);
+        graph.freeze();
+        // contracting node 1 and then node 0 creates the arcs 0-2 and 2-3, so there are shortcuts for both
+        // directions of both arcs, independent of the weighting
+        CCHTopology topology = CCHTopology.fromNodeOrdering(graph, NodeOrderingProvider.fromArray(1, 0, 2, 3));
+        assertEquals(5, topology.getArcs());
+        assertEquals(4, topology.getShortcuts());
+        CHConfig chConfig = CHConfig.nodeBased("p", new SpeedWeighting(speedEnc));
+        PrepareContractionHierarchies.Result res = new CCHCustomizer(topology).prepare(chConfig);
+        CHStorage chStorage = res.getCHStorage();
+        assertEquals(4, chStorage.getShortcuts());
+        // 0->1->2 and 2->1->0
+        assertEquals(20, chStorage.getWeight(chStorage.toShortcutPointer(0)), 1.e-6);
+        assertEquals(20, chStorage.getWeight(chStorage.toShortcutPointer(1)), 1.e-6);
+        // 2->1->0->3, but 3->2 is shorter than 3->0->1->2, so this shortcut is not needed
+        assertEquals(120, chStorage.getWeight(chStorage.toShortcutPointer(2)), 1.e-6);
+        assertEquals(Double.POSITIVE_INFINITY, chStorage.getWeight(chStorage.toShortcutPointer(3)));
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, chStorage, chConfig);
+        Path path = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(3, 0);
+        assertEquals(GHUtility.asSet(3, 2, 1, 0), GHUtility.asSet(path.calcNodes().toArray()));
+        assertEquals(70, path.getWeight(), 1.e-6);
+    }
+
+    @RepeatedTest(10)
+    void randomGraph() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.2, true, speedEnc, null, 0.8, 0.8);
+        // a second, independent metric on the same graph
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            EdgeIteratorState state = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            state.set(otherSpeedEnc, 10 + rnd.nextInt(100), rnd.nextDouble() < 0.8 ? 10 + rnd.nextInt(100) : 0);
+        }
+        graph.freeze();
+        CCHTopology topology = CCHTopology.fromGraph(graph);
+        CCHCustomizer customizer = new CCHCustomizer(topology);
+        CHConfig chConfig = CHConfig.nodeBased("p", new SpeedWeighting(speedEnc));
+        CHStorage chStorage = customizer.prepare(chConfig).getCHStorage();
+        assertEquals(topology.getShortcuts(), chStorage.getShortcuts());
+        checkRoutes(rnd, seed, chStorage, chConfig.getWeighting());
+
+        // the levels are stored in the CH, so we get the same topology again
+        CCHTopology loaded = CCHTopology.fromCHStorage(graph, chStorage);
+        assertEquals(topology.getArcs(), loaded.getArcs());
+        assertEquals(topology.getShortcuts(), loaded.getShortcuts());
+
+        // ... and we can update the CH for another weighting without changing its topology
+        Weighting otherWeighting = new SpeedWeighting(otherSpeedEnc);
+        new CCHCustomizer(loaded).customize(chStorage, otherWeighting);
+        checkRoutes(rnd, seed, chStorage, otherWeighting);
+    }
+
+    private void checkRoutes(Random rnd, long seed, CHStorage chStorage, Weighting weighting) {
+        RoutingCHGraph chGraph = new RoutingCHGraphImpl(graph, chStorage, weighting);
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path refPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            RoutingAlgorithm algo = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap().putObject("stall_on_demand", rnd.nextBoolean()));
+            Path path = algo.calcPath(from, to);
+            String msg = "seed: " + seed + ", " + from + "->" + to;
+            assertEquals(refPath.isFound(), path.isFound(), msg);
+            if (!path.isFound())
+                continue;
+            assertEquals(refPath.getWeight(), path.getWeight(), 1.e-2, msg);
+            // the unpacked path must consist of the base graph edges with the same weight
+            double unpackedWeight = 0;
+            int node = from;
+            for (EdgeIteratorState edge : path.calcEdges()) {
+                assertEquals(node, edge.getBaseNode(), msg);
+                unpackedWeight += weighting.calcEdgeWeight(edge, false);
+                node = edge.getAdjNode();
+            }
+            assertEquals(to, node, msg);
+            assertEquals(path.getWeight(), unpackedWeight, 1.e-2, msg);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import com.graphhopper.util.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.util.Random;
 
 import static com.graphhopper.util.GHUtility.updateDistancesFor;
@@ -576,6 +577,79 @@ public class PrepareContractionHierarchiesTest {
         }
     }
 
+    @Test
+    public void testParallelContraction() {
+        BaseGraph graph = createGraph();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        int numNodes = 3_000;
+        GHUtility.buildRandomGraph(graph, rnd, numNodes, 2.5, true, speedEnc, null, 0.8, 0.8);
+        graph.freeze();
+
+        // the result of the parallel contraction does not depend on the number of threads
+        PrepareContractionHierarchies.Result res2 = PrepareContractionHierarchies.fromGraph(graph, CHConfig.nodeBased("c2", weighting))
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 2)).doWork();
+        PrepareContractionHierarchies.Result res4 = PrepareContractionHierarchies.fromGraph(graph, CHConfig.nodeBased("c4", weighting))
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 4)).doWork();
+        assertTrue(res2.getShortcuts() > 0);
+        assertEquals(res2.getShortcuts(), res4.getShortcuts(), "seed: " + seed);
+        CHStorage store2 = res2.getCHStorage();
+        CHStorage store4 = res4.getCHStorage();
+        for (int node = 0; node < numNodes; node++)
+            assertEquals(store2.getLevel(store2.toNodePointer(node)), store4.getLevel(store4.toNodePointer(node)), "seed: " + seed);
+
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, store4, res4.getCHConfig());
+        for (int i = 0; i < 100; ++i) {
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            double dijkstraWeight = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to).getWeight();
+            double chWeight = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to).getWeight();
+            assertEquals(dijkstraWeight, chWeight, 1.e-1, "seed: " + seed + ", " + from + "->" + to);
+        }
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() {
+        String location = "./target/tmp-ch-checkpoint";
+        Helper.removeDir(new File(location));
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(location, true)).create();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        int numNodes = 500;
+        GHUtility.buildRandomGraph(graph, rnd, numNodes, 2.5, true, speedEnc, null, 0.8, 0.8);
+        graph.freeze();
+
+        // simulate an interrupted preparation that contracted some nodes already
+        int[] contracted = {17, 4, 230, 99, 0, 412, 51};
+        Directory dir = new RAMDirectory(location, true);
+        ContractionCheckpoint checkpoint = new ContractionCheckpoint(dir, "c", 0, graph.getNodes(), graph.getEdges());
+        assertEquals(0, checkpoint.loadExisting().length);
+        for (int node : contracted)
+            checkpoint.add(node);
+        checkpoint.flushIfDue(3);
+        dir.close();
+        assertTrue(new File(location, "ch_checkpoint_c").exists());
+
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig)
+                .setParams(new PMap().putObject(CHParameters.CHECKPOINT_INTERVAL, 60_000)).doWork();
+        CHStorage store = res.getCHStorage();
+        for (int i = 0; i < contracted.length; i++)
+            assertEquals(i, store.getLevel(store.toNodePointer(contracted[i])), "seed: " + seed);
+        // the checkpoint is removed once the preparation is finished
+        assertFalse(new File(location, "ch_checkpoint_c").exists());
+
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, store, res.getCHConfig());
+        for (int i = 0; i < 100; ++i) {
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            double dijkstraWeight = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to).getWeight();
+            double chWeight = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to).getWeight();
+            assertEquals(dijkstraWeight, chWeight, 1.e-1, "seed: " + seed + ", " + from + "->" + to);
+        }
+        graph.close();
+        Helper.removeDir(new File(location));
+    }
+
     private void checkPath(BaseGraph g, CHConfig c, int expShortcuts, double expDistance, IntIndexedContainer expNodes, int[] nodeOrdering) {
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, c);
         useNodeOrdering(prepare, nodeOrdering);
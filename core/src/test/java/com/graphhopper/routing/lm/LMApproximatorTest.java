@@ -43,10 +43,16 @@ public class LMApproximatorTest {
     @RepeatedTest(value = 10)
     public void randomGraph() {
         final long seed = System.nanoTime();
-        run(seed);
+        run(seed, 16);
     }
 
-    private void run(long seed) {
+    @RepeatedTest(value = 10)
+    public void randomGraphWithByteWeights() {
+        final long seed = System.nanoTime();
+        run(seed, 8);
+    }
+
+    private void run(long seed, int weightBits) {
         Directory dir = new RAMDirectory();
         DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
         DecimalEncodedValue turnCostEnc = TurnCost.create("car", 1);
@@ -60,6 +66,7 @@ public class LMApproximatorTest {
 
         PrepareLandmarks lm = new PrepareLandmarks(dir, graph, encodingManager, new LMConfig("car", weighting), 16);
         lm.setMaximumWeight(10000);
+        lm.setWeightBits(weightBits);
         lm.doWork();
         LandmarkStorage landmarkStorage = lm.getLandmarkStorage();
 
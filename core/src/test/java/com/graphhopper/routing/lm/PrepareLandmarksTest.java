@@ -29,6 +29,7 @@ import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.SpeedWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.storage.index.LocationIndexTree;
@@ -49,6 +50,7 @@ import static com.graphhopper.util.GHUtility.updateDistancesFor;
 import static com.graphhopper.util.Parameters.Algorithms.ASTAR;
 import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -212,4 +214,243 @@ public class PrepareLandmarksTest {
 
         Helper.removeDir(new File(fileStr));
     }
+
+    @Test
+    public void testLandmarkThreads() {
+        // two separate grids, i.e. two subnetworks
+        Random rand = new Random(0);
+        int width = 12, height = 12;
+        for (int grid = 0; grid < 2; grid++) {
+            for (int hIndex = 0; hIndex < height; hIndex++) {
+                for (int wIndex = 0; wIndex < width; wIndex++) {
+                    int node = grid * width * height + wIndex + hIndex * width;
+                    double speed = 20 + rand.nextDouble() * 30;
+                    if (wIndex + 1 < width)
+                        graph.edge(node, node + 1).set(speedEnc, speed);
+                    if (hIndex + 1 < height)
+                        graph.edge(node, node + width).set(speedEnc, speed);
+                    updateDistancesFor(graph, node, -hIndex / 50.0, grid + wIndex / 50.0);
+                }
+            }
+        }
+        int lm = 6;
+        LMConfig lmConfig = new LMConfig("car", new SpeedWeighting(speedEnc));
+        LandmarkStorage reference = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), lmConfig, lm);
+        reference.setMinimumNodes(2);
+        reference.createLandmarks();
+        assertEquals(3, reference.getSubnetworksWithLandmarks());
+
+        // the landmarks and their weights do not depend on the number of threads
+        LandmarkStorage store = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), lmConfig, lm);
+        store.setMinimumNodes(2);
+        store.setLandmarkThreads(3);
+        store.createLandmarks();
+        assertEquals(reference.getSubnetworksWithLandmarks(), store.getSubnetworksWithLandmarks());
+        assertEquals(reference.getFactor(), store.getFactor(), 1e-6);
+        for (int subnetwork = 1; subnetwork < reference.getSubnetworksWithLandmarks(); subnetwork++)
+            assertEquals(Arrays.toString(reference.getLandmarks(subnetwork)), Arrays.toString(store.getLandmarks(subnetwork)));
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < lm; lmIdx++) {
+                assertEquals(reference.getFromWeight(lmIdx, node), store.getFromWeight(lmIdx, node));
+                assertEquals(reference.getToWeight(lmIdx, node), store.getToWeight(lmIdx, node));
+            }
+        }
+    }
+
+    @Test
+    public void testSplitRowsAndReselectActiveLandmarks() {
+        Random rand = new Random(0);
+        int width = 30, height = 30;
+        for (int hIndex = 0; hIndex < height; hIndex++) {
+            for (int wIndex = 0; wIndex < width; wIndex++) {
+                int node = wIndex + hIndex * width;
+                double speed = 20 + rand.nextDouble() * 30;
+                if (wIndex + 1 < width)
+                    graph.edge(node, node + 1).set(speedEnc, speed);
+                if (hIndex + 1 < height)
+                    graph.edge(node, node + width).set(speedEnc, speed);
+                updateDistancesFor(graph, node, -hIndex / 50.0, wIndex / 50.0);
+            }
+        }
+        int lm = 8;
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        LMConfig lmConfig = new LMConfig("car", weighting);
+        LandmarkStorage reference = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), lmConfig, lm);
+        reference.setMinimumNodes(2);
+        reference.createLandmarks();
+
+        String fileStr = "./target/tmp-lm-split";
+        Helper.removeDir(new File(fileStr));
+        PrepareLandmarks plm = new PrepareLandmarks(new RAMDirectory(fileStr, true).create(), graph, encodingManager, lmConfig, lm);
+        plm.setMinimumNodes(2);
+        plm.setSplitRows(true);
+        plm.doWork();
+        // the row layout is stored, so we get the same layout when loading the landmarks without setting it
+        plm = new PrepareLandmarks(new RAMDirectory(fileStr, true), graph, encodingManager, lmConfig, lm);
+        assertTrue(plm.loadExisting());
+        LandmarkStorage store = plm.getLandmarkStorage();
+        assertTrue(store.hasSplitRows());
+        assertFalse(reference.hasSplitRows());
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < lm; lmIdx++) {
+                assertEquals(reference.getFromWeight(lmIdx, node), store.getFromWeight(lmIdx, node));
+                assertEquals(reference.getToWeight(lmIdx, node), store.getToWeight(lmIdx, node));
+            }
+        }
+
+        // choosing the active landmarks again during the search must not change the routes
+        PMap hints = new PMap().putObject(Parameters.Landmark.ACTIVE_COUNT, 2).putObject(Parameters.Landmark.RESELECT_ACTIVE, true);
+        for (LandmarkStorage lms : Arrays.asList(reference, store)) {
+            for (int i = 0; i < 50; i++) {
+                int from = rand.nextInt(graph.getNodes());
+                int to = rand.nextInt(graph.getNodes());
+                Path expectedPath = new AStar(graph, weighting, tm).calcPath(from, to);
+                for (String algo : Arrays.asList(ASTAR, ASTAR_BI)) {
+                    RoutingAlgorithm algoWithLandmarks = new LMRoutingAlgorithmFactory(lms).createAlgo(graph, weighting,
+                            new AlgorithmOptions().setAlgorithm(algo).setTraversalMode(tm).setHints(hints));
+                    Path path = algoWithLandmarks.calcPath(from, to);
+                    assertEquals(expectedPath.getWeight(), path.getWeight(), 1.e-6, algo + ", " + from + "->" + to);
+                }
+            }
+        }
+        Helper.removeDir(new File(fileStr));
+    }
+
+    @Test
+    public void testByteWeights() {
+        Random rand = new Random(0);
+        int width = 20, height = 20;
+        for (int hIndex = 0; hIndex < height; hIndex++) {
+            for (int wIndex = 0; wIndex < width; wIndex++) {
+                int node = wIndex + hIndex * width;
+                double speed = 20 + rand.nextDouble() * 30;
+                if (wIndex + 1 < width)
+                    graph.edge(node, node + 1).set(speedEnc, speed);
+                if (hIndex + 1 < height)
+                    graph.edge(node, node + width).set(speedEnc, speed);
+                updateDistancesFor(graph, node, -hIndex / 50.0, wIndex / 50.0);
+            }
+        }
+        int lm = 7;
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        LMConfig lmConfig = new LMConfig("car", weighting);
+        LandmarkStorage reference = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), lmConfig, lm);
+        reference.setMinimumNodes(2);
+        reference.createLandmarks();
+
+        for (boolean splitRows : Arrays.asList(false, true)) {
+            String fileStr = "./target/tmp-lm-bytes";
+            Helper.removeDir(new File(fileStr));
+            PrepareLandmarks plm = new PrepareLandmarks(new RAMDirectory(fileStr, true).create(), graph, encodingManager, lmConfig, lm);
+            plm.setMinimumNodes(2);
+            plm.setSplitRows(splitRows);
+            plm.setWeightBits(8);
+            plm.doWork();
+            plm = new PrepareLandmarks(new RAMDirectory(fileStr, true), graph, encodingManager, lmConfig, lm);
+            assertTrue(plm.loadExisting());
+            LandmarkStorage store = plm.getLandmarkStorage();
+            assertEquals(8, store.getWeightBits());
+            assertEquals(splitRows, store.hasSplitRows());
+            assertEquals(Arrays.toString(reference.getLandmarks(1)), Arrays.toString(store.getLandmarks(1)));
+            // the weights are rounded down, so they are (roughly) the same as before, but never bigger
+            for (int node = 0; node < graph.getNodes(); node++) {
+                for (int lmIdx = 0; lmIdx < lm; lmIdx++) {
+                    double weight = reference.getFromWeight(lmIdx, node) * reference.getFactor();
+                    int byteWeight = store.getFromWeight(lmIdx, node);
+                    assertTrue(byteWeight * store.getFactor() <= weight + reference.getFactor());
+                    // ... unless they were maxed out
+                    if (byteWeight < LandmarkStorage.BYTE_MAX)
+                        assertEquals(weight, byteWeight * store.getFactor(), store.getFactor() + reference.getFactor());
+                }
+            }
+
+            // the routes stay optimal
+            PMap hints = new PMap().putObject(Parameters.Landmark.ACTIVE_COUNT, 4);
+            for (int i = 0; i < 50; i++) {
+                int from = rand.nextInt(graph.getNodes());
+                int to = rand.nextInt(graph.getNodes());
+                Path expectedPath = new AStar(graph, weighting, tm).calcPath(from, to);
+                for (String algo : Arrays.asList(ASTAR, ASTAR_BI)) {
+                    RoutingAlgorithm algoWithLandmarks = new LMRoutingAlgorithmFactory(store).createAlgo(graph, weighting,
+                            new AlgorithmOptions().setAlgorithm(algo).setTraversalMode(tm).setHints(hints));
+                    Path path = algoWithLandmarks.calcPath(from, to);
+                    assertEquals(expectedPath.getWeight(), path.getWeight(), 1.e-6, algo + ", " + from + "->" + to);
+                }
+            }
+            store.close();
+            Helper.removeDir(new File(fileStr));
+        }
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() {
+        Random rand = new Random(0);
+        int width = 10, height = 10;
+        for (int hIndex = 0; hIndex < height; hIndex++) {
+            for (int wIndex = 0; wIndex < width; wIndex++) {
+                int node = wIndex + hIndex * width;
+                double speed = 20 + rand.nextDouble() * 30;
+                if (wIndex + 1 < width)
+                    graph.edge(node, node + 1).set(speedEnc, speed);
+                if (hIndex + 1 < height)
+                    graph.edge(node, node + width).set(speedEnc, speed);
+                updateDistancesFor(graph, node, -hIndex / 50.0, wIndex / 50.0);
+            }
+        }
+        String fileStr = "./target/tmp-lm-checkpoint";
+        Helper.removeDir(new File(fileStr));
+        Helper.removeDir(new File(fileStr + "-reference"));
+        int lm = 4;
+        LMConfig lmConfig = new LMConfig("car", new SpeedWeighting(speedEnc));
+        LandmarkStorage reference = new LandmarkStorage(graph, encodingManager, new RAMDirectory(fileStr + "-reference", true).create(), lmConfig, lm);
+        reference.setMinimumNodes(2);
+        reference.setCheckpointInterval(60_000);
+        reference.createLandmarks();
+        int[] landmarks = reference.getLandmarks(1);
+
+        // simulate a preparation that was interrupted after the first two landmarks of the first subnetwork. we
+        // modify the stored weights a bit to make sure they are used instead of being calculated again.
+        Directory checkpointDir = new RAMDirectory(fileStr, true).create();
+        LandmarkCheckpoint checkpoint = new LandmarkCheckpoint(checkpointDir, "car", 0, graph.getNodes(), lm * 4L, lm, 0);
+        assertFalse(checkpoint.loadExisting());
+        DataAccess weights = new RAMDirectory().create("weights");
+        weights.create(1000);
+        weights.ensureCapacity((long) graph.getNodes() * lm * 4);
+        byte[] subnetworks = new byte[graph.getNodes()];
+        Arrays.fill(subnetworks, (byte) 1);
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < 2; lmIdx++) {
+                weights.setShort((long) node * lm * 4 + lmIdx * 4, (short) Math.max(0, reference.getFromWeight(lmIdx, node) - 1));
+                weights.setShort((long) node * lm * 4 + lmIdx * 4 + 2, (short) Math.max(0, reference.getToWeight(lmIdx, node) - 1));
+            }
+        }
+        int[] empty = new int[lm];
+        Arrays.fill(empty, -1);
+        checkpoint.setChanged(1);
+        checkpoint.write(weights, subnetworks, (int) Math.round(reference.getFactor() * 1e6), 0,
+                List.of(empty), landmarks, 2);
+        checkpointDir.close();
+        assertTrue(new File(fileStr, "landmarks_checkpoint_car").exists());
+
+        LandmarkStorage store = new LandmarkStorage(graph, encodingManager, new RAMDirectory(fileStr, true), lmConfig, lm);
+        store.setMinimumNodes(2);
+        store.setCheckpointInterval(60_000);
+        store.createLandmarks();
+        assertEquals(Arrays.toString(landmarks), Arrays.toString(store.getLandmarks(1)));
+        assertEquals(reference.getFactor(), store.getFactor(), 1e-6);
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < 2; lmIdx++) {
+                assertEquals(Math.max(0, reference.getFromWeight(lmIdx, node) - 1), store.getFromWeight(lmIdx, node));
+                assertEquals(Math.max(0, reference.getToWeight(lmIdx, node) - 1), store.getToWeight(lmIdx, node));
+            }
+            for (int lmIdx = 2; lmIdx < lm; lmIdx++) {
+                assertEquals(reference.getFromWeight(lmIdx, node), store.getFromWeight(lmIdx, node));
+                assertEquals(reference.getToWeight(lmIdx, node), store.getToWeight(lmIdx, node));
+            }
+        }
+        // the checkpoint is removed once the preparation is finished
+        assertFalse(new File(fileStr, "landmarks_checkpoint_car").exists());
+        Helper.removeDir(new File(fileStr));
+        Helper.removeDir(new File(fileStr + "-reference"));
+    }
 }
@@ -19,10 +19,13 @@ package com.graphhopper.routing.querygraph;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.routing.Dijkstra;
 import com.graphhopper.routing.HeadingResolver;
+import com.graphhopper.routing.Path;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.SpeedWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.search.KVStorage;
@@ -30,6 +33,7 @@ import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -1112,6 +1116,116 @@ public class QueryGraphTest {
         assertEquals(0, snap.getWayIndex());
     }
 
+    @Test
+    public void testIncrementalSnaps() {
+        Random rnd = new Random(42);
+        GHUtility.buildRandomGraph(g, rnd, 50, 2.2, true, speedEnc, null, 0.8, 0.8);
+        LocationIndexTree index = new LocationIndexTree(g, new RAMDirectory());
+        index.prepareIndex();
+        BBox bounds = g.getBounds();
+        List<GHPoint> points = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            GHPoint point = new GHPoint(bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat),
+                    bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon));
+            points.add(point);
+            // make sure there are several snaps on the same edges
+            points.add(new GHPoint(point.lat + 1.e-4, point.lon - 1.e-4));
+        }
+        List<GHPoint> expectedPoints = new ArrayList<>(points.subList(0, 40));
+        expectedPoints.addAll(points.subList(60, 80));
+        List<Snap> expectedSnaps = findSnaps(index, expectedPoints);
+        QueryGraph expectedGraph = QueryGraph.create(g, expectedSnaps);
+
+        List<Snap> snaps = findSnaps(index, points);
+        QueryGraph queryGraph = QueryGraph.createIncremental(g, snaps.subList(0, 20));
+        queryGraph.addSnaps(snaps.subList(20, 40));
+        queryGraph.addSnaps(snaps.subList(40, 60));
+        queryGraph.removeSnaps(snaps.subList(40, 60));
+        queryGraph.addSnaps(snaps.subList(60, 80));
+        List<Snap> actualSnaps = new ArrayList<>(snaps.subList(0, 40));
+        actualSnaps.addAll(snaps.subList(60, 80));
+
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        for (int i = 0; i < expectedSnaps.size(); i++) {
+            assertEquals(expectedSnaps.get(i).getSnappedPoint(), actualSnaps.get(i).getSnappedPoint());
+            for (int j = i + 1; j < expectedSnaps.size(); j += 7) {
+                Path expected = new Dijkstra(expectedGraph, expectedGraph.wrapWeighting(weighting), TraversalMode.NODE_BASED)
+                        .calcPath(expectedSnaps.get(i).getClosestNode(), expectedSnaps.get(j).getClosestNode());
+                Path actual = new Dijkstra(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.NODE_BASED)
+                        .calcPath(actualSnaps.get(i).getClosestNode(), actualSnaps.get(j).getClosestNode());
+                assertEquals(expected.isFound(), actual.isFound(), i + "->" + j);
+                assertEquals(expected.getWeight(), actual.getWeight(), 1.e-6, i + "->" + j);
+                assertEquals(expected.getDistance(), actual.getDistance(), 1.e-6, i + "->" + j);
+            }
+        }
+    }
+
+    private static List<Snap> findSnaps(LocationIndexTree index, List<GHPoint> points) {
+        return points.stream().map(p -> index.findClosest(p.lat, p.lon, EdgeFilter.ALL_EDGES)).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testRemoveSnaps() {
+        initGraph(g);
+        EdgeIteratorState edge = GHUtility.getEdge(g, 0, 1);
+        Snap snap = fakeEdgeSnap(edge, 1.5, 1.2, 1);
+        Snap otherSnap = fakeEdgeSnap(edge, 1.5, 1.7, 2);
+        // a snap on another edge keeps its virtual node until the graph is compacted
+        Snap farSnap = fakeEdgeSnap(GHUtility.getEdge(g, 0, 2), 0.5, 0, 0);
+        QueryGraph queryGraph = QueryGraph.createIncremental(g, Arrays.asList(farSnap, snap, otherSnap));
+        int farNode = farSnap.getClosestNode();
+        assertEquals(6, queryGraph.getNodes());
+        assertTrue(queryGraph.isVirtualNode(snap.getClosestNode()));
+        assertEquals(1, GHUtility.count(queryGraph.createEdgeExplorer().setBaseNode(1)));
+        assertThrows(IllegalArgumentException.class, () -> queryGraph.addSnaps(Collections.singletonList(snap)));
+
+        queryGraph.removeSnaps(Collections.singletonList(snap));
+        assertEquals(farNode, farSnap.getClosestNode());
+        // the snap is reset to the state it had before it was added
+        assertEquals(-1, snap.getClosestNode());
+        assertEquals(edge.getEdge(), snap.getClosestEdge().getEdge());
+        assertEquals(1, snap.getWayIndex());
+        assertEquals(EDGE, snap.getSnappedPosition());
+        assertTrue(queryGraph.isVirtualNode(otherSnap.getClosestNode()));
+        EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(0);
+        Set<Integer> adjNodes = new HashSet<>();
+        while (iter.next())
+            adjNodes.add(iter.getAdjNode());
+        assertEquals(new HashSet<>(Arrays.asList(farNode, otherSnap.getClosestNode())), adjNodes);
+
+        queryGraph.removeSnaps(Collections.singletonList(otherSnap));
+        assertEquals(2, GHUtility.count(queryGraph.createEdgeExplorer().setBaseNode(0)));
+        assertEquals(1, GHUtility.count(queryGraph.createEdgeExplorer().setBaseNode(1)));
+        assertEquals(edge.getEdge(), GHUtility.getEdge(queryGraph, 0, 1).getEdge());
+
+        // the unused virtual nodes are only removed when the graph is compacted
+        for (int i = 0; i < 10; i++) {
+            queryGraph.addSnaps(Arrays.asList(snap, otherSnap));
+            queryGraph.removeSnaps(Collections.singletonList(snap));
+            queryGraph.addSnaps(Collections.singletonList(snap));
+            queryGraph.removeSnaps(Arrays.asList(snap, otherSnap));
+        }
+        assertEquals(farNode, farSnap.getClosestNode());
+        assertEquals(3 + 1 + queryGraph.getUnusedVirtualNodes(), queryGraph.getNodes());
+        assertTrue(queryGraph.getUnusedVirtualNodes() > 0);
+
+        queryGraph.addSnaps(Collections.singletonList(snap));
+        queryGraph.compact();
+        assertEquals(0, queryGraph.getUnusedVirtualNodes());
+        assertEquals(5, queryGraph.getNodes());
+        // compacting renumbers the virtual nodes of all snaps
+        assertEquals(new HashSet<>(Arrays.asList(3, 4)), new HashSet<>(Arrays.asList(farSnap.getClosestNode(), snap.getClosestNode())));
+        assertEquals(0.5, queryGraph.getNodeAccess().getLat(farSnap.getClosestNode()), 1e-6);
+        assertEquals(1.2, queryGraph.getNodeAccess().getLon(snap.getClosestNode()), 1e-6);
+        adjNodes.clear();
+        iter = queryGraph.createEdgeExplorer().setBaseNode(0);
+        while (iter.next())
+            adjNodes.add(iter.getAdjNode());
+        assertEquals(new HashSet<>(Arrays.asList(farSnap.getClosestNode(), snap.getClosestNode())), adjNodes);
+
+        assertThrows(IllegalStateException.class, () -> lookup(snap).addSnaps(Collections.singletonList(otherSnap)));
+    }
+
     private QueryGraph lookup(Snap res) {
         return lookup(Collections.singletonList(res));
     }
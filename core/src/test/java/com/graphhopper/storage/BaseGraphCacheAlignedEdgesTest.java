@@ -0,0 +1,64 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.search.KVStorage.KValue;
+import com.graphhopper.util.EdgeIteratorState;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static com.graphhopper.util.Parameters.Details.STREET_NAME;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs all BaseGraph tests with the cache-aligned edge layout.
+ */
+public class BaseGraphCacheAlignedEdgesTest extends BaseGraphTest {
+    @Override
+    protected BaseGraph newGHStorage(Directory dir, boolean enabled3D, int segmentSize) {
+        return new BaseGraph.Builder(encodingManager).setDir(dir).set3D(enabled3D).setSegmentSize(segmentSize)
+                .setCacheAlignedEdges(true).build();
+    }
+
+    @Test
+    public void testAlignToCacheLine() {
+        assertEquals(32, BaseGraphNodesAndEdges.alignToCacheLine(29));
+        assertEquals(32, BaseGraphNodesAndEdges.alignToCacheLine(32));
+        assertEquals(64, BaseGraphNodesAndEdges.alignToCacheLine(33));
+        assertEquals(128, BaseGraphNodesAndEdges.alignToCacheLine(65));
+    }
+
+    @Test
+    public void testLayoutIsLoaded() {
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false).create(defaultSize);
+        EdgeIteratorState edge = graph.edge(0, 1).setDistance(12.3).setKeyValues(Map.of(STREET_NAME, new KValue("main")));
+        graph.getNodeAccess().setNode(0, 10, 10);
+        graph.getNodeAccess().setNode(1, 11, 11);
+        graph.flush();
+        graph.close();
+
+        // the layout is read from the file, not from the configuration
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true)).build();
+        assertTrue(graph.loadExisting());
+        assertTrue(graph.getStore().isCacheAlignedEdges());
+        EdgeIteratorState loaded = graph.getEdgeIteratorState(edge.getEdge(), 1);
+        assertEquals(12.3, loaded.getDistance(), 1e-3);
+        assertEquals("main", loaded.getName());
+    }
+}
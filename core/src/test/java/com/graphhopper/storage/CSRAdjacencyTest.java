@@ -0,0 +1,115 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CSRAdjacencyTest {
+    private final String location = "./target/graphstorage/csr";
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final EncodingManager em = EncodingManager.start().add(speedEnc).build();
+
+    @BeforeEach
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void testSameEdgesAsLinkedLists() {
+        BaseGraph graph = new BaseGraph.Builder(em).setCSRAdjacency(true).create();
+        GHUtility.buildRandomGraph(graph, new Random(42), 200, 2.5, true, speedEnc, null, 0.8, 0.8);
+        List<String> expected = collectEdges(graph, graph.createEdgeExplorer());
+        assertFalse(graph.hasCSRAdjacency());
+
+        graph.freeze();
+        assertTrue(graph.hasCSRAdjacency());
+        assertTrue(graph.createEdgeExplorer() instanceof BaseGraph.CSREdgeIteratorImpl);
+        assertEquals(expected, collectEdges(graph, graph.createEdgeExplorer()));
+    }
+
+    @Test
+    public void testFilterAndDetach() {
+        BaseGraph graph = new BaseGraph.Builder(em).setCSRAdjacency(true).create();
+        graph.edge(0, 1).setDistance(10);
+        graph.edge(2, 0).setDistance(20);
+        graph.edge(0, 3).setDistance(30);
+        graph.freeze();
+
+        EdgeExplorer explorer = graph.createEdgeExplorer(edge -> edge.getDistance() > 15);
+        EdgeIterator iter = explorer.setBaseNode(0);
+        assertThrows(IllegalStateException.class, () -> iter.detach(false));
+        assertTrue(iter.next());
+        assertEquals(2, iter.getEdge());
+        assertEquals(3, iter.getAdjNode());
+        assertTrue(iter.next());
+        assertEquals(1, iter.getEdge());
+        assertEquals(2, iter.getAdjNode());
+        assertEquals(GHUtility.createEdgeKey(1, true), iter.getEdgeKey());
+        EdgeIteratorState detached = iter.detach(false);
+        assertFalse(iter.next());
+        assertEquals(0, detached.getBaseNode());
+        assertEquals(2, detached.getAdjNode());
+        assertEquals(20, detached.getDistance(), 1.e-6);
+    }
+
+    @Test
+    public void testBuiltOnLoad() {
+        BaseGraph graph = new BaseGraph.Builder(em).setDir(new GHDirectory(location, DAType.RAM_STORE)).create();
+        GHUtility.buildRandomGraph(graph, new Random(7), 100, 2.2, true, speedEnc, null, 0.8, 0.8);
+        List<String> expected = collectEdges(graph, graph.createEdgeExplorer());
+        graph.freeze();
+        assertFalse(graph.hasCSRAdjacency());
+        graph.flush();
+        graph.close();
+
+        graph = new BaseGraph.Builder(em).setDir(new GHDirectory(location, DAType.RAM_STORE)).setCSRAdjacency(true).build();
+        assertTrue(graph.loadExisting());
+        assertTrue(graph.hasCSRAdjacency());
+        assertEquals(expected, collectEdges(graph, graph.createEdgeExplorer()));
+        assertEquals(expected.size(), collectEdges(graph, graph.createEdgeExplorer(EdgeFilter.ALL_EDGES)).size());
+        graph.close();
+        assertFalse(graph.hasCSRAdjacency());
+    }
+
+    private static List<String> collectEdges(BaseGraph graph, EdgeExplorer explorer) {
+        List<String> result = new ArrayList<>();
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                result.add(iter.getEdgeKey() + ":" + iter.getBaseNode() + "-" + iter.getAdjNode() + "," + iter.getDistance()
+                        + "," + iter.fetchWayGeometry(FetchMode.ALL).size() + "," + iter.getFlags().ints[0]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedDataAccessTest extends DataAccessTest {
+    @Override
+    public DataAccess createDataAccess(String name, int segmentSize) {
+        return createDataAccess(name, 2, segmentSize);
+    }
+
+    private CompressedDataAccess createDataAccess(String name, int cacheSegments, int segmentSize) {
+        return new CompressedDataAccess(name, directory, cacheSegments, segmentSize);
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        CompressedDataAccess da = createDataAccess(name, 3, 128);
+        da.create(100 * 128);
+        for (int i = 0; i < 100 * 32; i++) {
+            da.setInt(i * 4L, i);
+        }
+        // everything stays in memory until it is flushed
+        assertEquals(100, da.getResidentSegments());
+        da.flush();
+        da.close();
+
+        // all zero or repeating data is compressed a lot
+        assertTrue(new File(directory + name).length() < 100 * 128);
+
+        da = createDataAccess(name, 3, 128);
+        assertTrue(da.loadExisting());
+        assertEquals(0, da.getResidentSegments());
+        for (int i = 100 * 32 - 1; i >= 0; i--) {
+            assertEquals(i, da.getInt(i * 4L));
+            assertTrue(da.getResidentSegments() <= 3);
+        }
+        da.close();
+    }
+
+    @Test
+    public void testModifyAfterLoad() {
+        CompressedDataAccess da = createDataAccess(name, 1, 128);
+        da.create(10 * 128);
+        da.setInt(0, 11);
+        da.setInt(5 * 128, 55);
+        da.setInt(9 * 128, 99);
+        da.flush();
+        da.close();
+
+        da = createDataAccess(name, 1, 128);
+        assertTrue(da.loadExisting());
+        da.setInt(5 * 128, 56);
+        // modified segments are not evicted even if the cache is full
+        assertEquals(11, da.getInt(0));
+        assertEquals(99, da.getInt(9 * 128));
+        assertEquals(56, da.getInt(5 * 128));
+        da.ensureCapacity(12 * 128);
+        da.setInt(11 * 128, 1111);
+        da.flush();
+        da.close();
+
+        da = createDataAccess(name, 1, 128);
+        assertTrue(da.loadExisting());
+        assertEquals(12, da.getSegments());
+        assertEquals(11, da.getInt(0));
+        assertEquals(56, da.getInt(5 * 128));
+        assertEquals(99, da.getInt(9 * 128));
+        assertEquals(1111, da.getInt(11 * 128));
+        da.close();
+    }
+
+    @Test
+    public void testOtherFormatIsRejected() {
+        DataAccess da = new RAMDataAccess(name, directory, true, 128);
+        da.create(300);
+        da.flush();
+        da.close();
+
+        DataAccess compressed = createDataAccess(name);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, compressed::loadExisting);
+        assertTrue(ex.getMessage().contains("Expected 'GHZ' as file marker"), ex.getMessage());
+        compressed.close();
+    }
+
+    @Test
+    public void testConfigure() {
+        GHDirectory dir = new GHDirectory(directory, DAType.RAM_STORE);
+        LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        map.put("geometry", "COMPRESSED_STORE");
+        map.put("cache.geometry", "7");
+        dir.configure(map);
+        assertEquals(DAType.COMPRESSED_STORE, dir.getDefaultType("geometry", false));
+        assertEquals(7, dir.getCompressedCacheSegments("geometry"));
+        assertTrue(dir.create("geometry") instanceof CompressedDataAccess);
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import java.util.LinkedHashMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class GHDirectoryTest {
 
@@ -23,6 +24,14 @@ class GHDirectoryTest {
         assertEquals(10, dir.getPreload("nodes"));
     }
 
+    @Test
+    public void testPreloadOrder() {
+        assertTrue(GHDirectory.getPreloadOrder("nodes_ch_car") < GHDirectory.getPreloadOrder("nodes"));
+        assertTrue(GHDirectory.getPreloadOrder("shortcuts_car") < GHDirectory.getPreloadOrder("edges"));
+        assertTrue(GHDirectory.getPreloadOrder("edges") < GHDirectory.getPreloadOrder("geometry"));
+        assertTrue(GHDirectory.getPreloadOrder("geometry") < GHDirectory.getPreloadOrder("properties"));
+    }
+
     @Test
     public void testPatternMatching() {
         GHDirectory dir = new GHDirectory("", DAType.RAM_STORE);
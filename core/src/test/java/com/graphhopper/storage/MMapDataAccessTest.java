@@ -59,4 +59,59 @@ public class MMapDataAccessTest extends DataAccessTest {
         assertEquals(123, da.getInt(7 * 4));
         da.close();
     }
+
+    @Test
+    public void testReadOnlyUsesSingleMapping() {
+        DataAccess da = createDataAccess(name, 128);
+        da.create(1000);
+        assertTrue(da.getSegments() > 1);
+        // spans two segments of the writable mapping
+        da.setInt(126, 123456789);
+        da.setShort(511, (short) -4321);
+        da.setInt(996, 42);
+        long capacity = da.getCapacity();
+        da.flush();
+        da.close();
+
+        da = new MMapDataAccess(name, directory, false, 128);
+        assertTrue(da.loadExisting());
+        assertEquals(1, da.getSegments());
+        assertEquals(capacity, da.getCapacity());
+        assertEquals(123456789, da.getInt(126));
+        assertEquals(-4321, da.getShort(511));
+        assertEquals(42, da.getInt(996));
+        da.close();
+    }
+
+    @Test
+    public void testReadOnlyAfterRAM() {
+        DataAccess da = new RAMDataAccess(name, directory, true, 128);
+        da.create(1000);
+        da.setInt(1020, 123);
+        long capacity = da.getCapacity();
+        da.flush();
+        da.close();
+
+        da = new MMapDataAccess(name, directory, false, 128);
+        assertTrue(da.loadExisting());
+        assertEquals(capacity, da.getCapacity());
+        assertEquals(123, da.getInt(1020));
+        da.close();
+    }
+
+    @Test
+    public void testLoad() {
+        MMapDataAccess da = (MMapDataAccess) createDataAccess(name, 128);
+        da.create(1000);
+        assertTrue(da.load(50));
+        assertThrows(IllegalArgumentException.class, () -> da.load(101));
+
+        Thread.currentThread().interrupt();
+        try {
+            assertFalse(da.load(100));
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+        da.close();
+    }
 }
@@ -679,4 +679,92 @@ public class LocationIndexTreeTest {
                     "1, 78, 1, PILLAR"), output);
         }
     }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3})
+    public void testFindClosestBatch(int threads) {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        Random rand = new Random(42);
+        GHUtility.buildRandomGraph(graph, rand, 500, 2.2, false, speedEnc, 60d, 0.8, 0.8);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next())
+            if (iter.getEdge() % 3 == 0)
+                iter.setWayGeometry(Helper.createPointList(49.4 + rand.nextDouble() * 0.01, 9.7 + rand.nextDouble() * 0.01));
+        LocationIndexTree index = createIndexNoPrepare(graph, 100);
+        index.prepareIndex();
+        EdgeFilter filter = edge -> edge.getEdge() % 5 != 0;
+
+        double[] lats = new double[3000];
+        double[] lons = new double[lats.length];
+        for (int i = 0; i < lats.length; i++) {
+            // some of the points are outside the graph bounds
+            lats[i] = 49.398 + rand.nextDouble() * 0.014;
+            lons[i] = 9.698 + rand.nextDouble() * 0.014;
+        }
+        Snap[] snaps = index.findClosestBatch(lats, lons, filter, threads);
+        assertEquals(lats.length, snaps.length);
+        for (int i = 0; i < lats.length; i++) {
+            Snap expected = index.findClosest(lats[i], lons[i], filter);
+            assertTrue(snaps[i].isValid());
+            assertEquals(expected.getClosestNode(), snaps[i].getClosestNode());
+            assertEquals(expected.getClosestEdge().getEdge(), snaps[i].getClosestEdge().getEdge());
+            assertEquals(expected.getWayIndex(), snaps[i].getWayIndex());
+            assertEquals(expected.getSnappedPosition(), snaps[i].getSnappedPosition());
+            assertEquals(expected.getSnappedPoint(), snaps[i].getSnappedPoint());
+            assertEquals(expected.getQueryDistance(), snaps[i].getQueryDistance());
+        }
+    }
+
+    @Test
+    public void testFindKNearest() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        Random rand = new Random(7);
+        GHUtility.buildRandomGraph(graph, rand, 300, 2.2, false, speedEnc, 60d, 0.8, 0.8);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next())
+            if (iter.getEdge() % 3 == 0)
+                iter.setWayGeometry(Helper.createPointList(49.4 + rand.nextDouble() * 0.01, 9.7 + rand.nextDouble() * 0.01));
+        LocationIndexTree index = createIndexNoPrepare(graph, 100);
+        index.prepareIndex();
+        EdgeFilter filter = edge -> edge.getEdge() % 4 != 0;
+
+        for (int i = 0; i < 200; i++) {
+            double lat = 49.4 + rand.nextDouble() * 0.01;
+            double lon = 9.7 + rand.nextDouble() * 0.01;
+            int k = 1 + rand.nextInt(10);
+            double maxDistance = 50 + rand.nextDouble() * 300;
+            List<Snap> snaps = index.findKNearest(lat, lon, k, maxDistance, filter);
+
+            // the distances of the closest snap of every edge, but only once for every tower node
+            List<Double> expected = new ArrayList<>();
+            Set<Integer> towerNodes = new HashSet<>();
+            AllEdgesIterator edges = graph.getAllEdges();
+            while (edges.next()) {
+                if (!filter.accept(edges))
+                    continue;
+                Snap snap = new Snap(lat, lon);
+                EdgeIteratorState edge = edges.detach(false);
+                index.traverseEdge(lat, lon, edge, (node, normedDist, wayIndex, pos) -> {
+                    if (normedDist < snap.getQueryDistance()) {
+                        snap.setQueryDistance(normedDist);
+                        snap.setClosestNode(node);
+                        snap.setSnappedPosition(pos);
+                    }
+                });
+                if (snap.getSnappedPosition() == Snap.Position.TOWER && !towerNodes.add(snap.getClosestNode()))
+                    continue;
+                double dist = DistancePlaneProjection.DIST_PLANE.calcDenormalizedDist(snap.getQueryDistance());
+                if (dist <= maxDistance)
+                    expected.add(dist);
+            }
+            Collections.sort(expected);
+            expected = expected.subList(0, Math.min(k, expected.size()));
+
+            assertEquals(expected.size(), snaps.size());
+            for (int j = 0; j < snaps.size(); j++)
+                assertEquals(expected.get(j), snaps.get(j).getQueryDistance(), 1.e-6);
+            if (!snaps.isEmpty())
+                assertEquals(index.findClosest(lat, lon, filter).getQueryDistance(), snaps.get(0).getQueryDistance(), 1.e-6);
+        }
+    }
 }
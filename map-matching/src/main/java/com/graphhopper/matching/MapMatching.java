@@ -17,7 +17,6 @@
  */
 package com.graphhopper.matching;
 
-import com.carrotsearch.hppc.IntHashSet;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
 import com.graphhopper.routing.AStarBidirection;
@@ -45,8 +44,6 @@ import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
-
 /**
  * This class matches real world GPX entries to the digital road network stored
  * in GraphHopper. The Viterbi algorithm is used to compute the most likely
@@ -142,24 +139,14 @@ public class MapMatching {
             private Path calcOnePath(QueryGraph queryGraph, int fromNode, int toNode, int fromOutEdge, int toInEdge) {
                 Weighting queryGraphWeighting = queryGraph.wrapWeighting(weighting);
                 if (landmarks != null) {
-                    AStarBidirection aStarBidirection = new AStarBidirection(queryGraph, queryGraphWeighting, TraversalMode.EDGE_BASED) {
-                        @Override
-                        protected void initCollections(int size) {
-                            super.initCollections(50);
-                        }
-                    };
+                    AStarBidirection aStarBidirection = new AStarBidirection(queryGraph, queryGraphWeighting, TraversalMode.EDGE_BASED);
                     int activeLM = Math.min(8, landmarks.getLandmarkCount());
                     LMApproximator lmApproximator = LMApproximator.forLandmarks(queryGraph, queryGraphWeighting, landmarks, activeLM);
                     aStarBidirection.setApproximation(lmApproximator);
                     aStarBidirection.setMaxVisitedNodes(maxVisitedNodes);
                     return aStarBidirection.calcPath(fromNode, toNode, fromOutEdge, toInEdge);
                 } else {
-                    DijkstraBidirectionRef dijkstraBidirectionRef = new DijkstraBidirectionRef(queryGraph, queryGraphWeighting, TraversalMode.EDGE_BASED) {
-                        @Override
-                        protected void initCollections(int size) {
-                            super.initCollections(50);
-                        }
-                    };
+                    DijkstraBidirectionRef dijkstraBidirectionRef = new DijkstraBidirectionRef(queryGraph, queryGraphWeighting, TraversalMode.EDGE_BASED);
                     dijkstraBidirectionRef.setMaxVisitedNodes(maxVisitedNodes);
                     return dijkstraBidirectionRef.calcPath(fromNode, toNode, fromOutEdge, toInEdge);
                 }
@@ -281,7 +268,11 @@ public class MapMatching {
         Envelope envelope = new Envelope(queryLon, queryLon, queryLat, queryLat);
         for (int i = 0; i < 50; i++) {
             envelope.expandBy(rLon, rLat);
-            List<Snap> snaps = findCandidateSnapsInBBox(queryLat, queryLon, BBox.fromEnvelope(envelope));
+            BBox queryShape = BBox.fromEnvelope(envelope);
+            // the candidates are the snaps within the box, so we search within the circle around the box
+            double radius = (i + 1) * measurementErrorSigma * Math.sqrt(2) * 1.01;
+            List<Snap> snaps = locationIndex.findKNearest(queryLat, queryLon, Integer.MAX_VALUE, radius, router.getSnapFilter());
+            snaps.removeIf(snap -> !queryShape.contains(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon));
             if (!snaps.isEmpty()) {
                 return snaps;
             }
@@ -289,38 +280,6 @@ public class MapMatching {
         return Collections.emptyList();
     }
 
-    private List<Snap> findCandidateSnapsInBBox(double queryLat, double queryLon, BBox queryShape) {
-        EdgeFilter edgeFilter = router.getSnapFilter();
-        List<Snap> snaps = new ArrayList<>();
-        IntHashSet seenEdges = new IntHashSet();
-        IntHashSet seenNodes = new IntHashSet();
-        locationIndex.query(queryShape, edgeId -> {
-            EdgeIteratorState edge = graph.getEdgeIteratorStateForKey(edgeId * 2);
-            if (seenEdges.add(edgeId) && edgeFilter.accept(edge)) {
-                Snap snap = new Snap(queryLat, queryLon);
-                locationIndex.traverseEdge(queryLat, queryLon, edge, (node, normedDist, wayIndex, pos) -> {
-                    if (normedDist < snap.getQueryDistance()) {
-                        snap.setQueryDistance(normedDist);
-                        snap.setClosestNode(node);
-                        snap.setWayIndex(wayIndex);
-                        snap.setSnappedPosition(pos);
-                    }
-                });
-                double dist = DIST_PLANE.calcDenormalizedDist(snap.getQueryDistance());
-                snap.setClosestEdge(edge);
-                snap.setQueryDistance(dist);
-                if (snap.isValid() && (snap.getSnappedPosition() != Snap.Position.TOWER || seenNodes.add(snap.getClosestNode()))) {
-                    snap.calcSnappedPoint(DistanceCalcEarth.DIST_EARTH);
-                    if (queryShape.contains(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon)) {
-                        snaps.add(snap);
-                    }
-                }
-            }
-        });
-        snaps.sort(Comparator.comparingDouble(Snap::getQueryDistance));
-        return snaps;
-    }
-
     /**
      * Creates TimeSteps with candidates for the GPX entries but does not create emission or
      * transition probabilities. Creates directed candidates for virtual nodes and undirected
@@ -0,0 +1,192 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.tools;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.TurnCost;
+import com.graphhopper.routing.ch.CCHCustomizer;
+import com.graphhopper.routing.ch.CCHTopology;
+import com.graphhopper.routing.ch.CHPreparationGraph;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.TurnCostsConfig;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the heap that is used by the CHPreparationGraph and the time and peak heap usage of the CH preparation for
+ * a given map, e.g. map=core/files/andorra.osm.pbf turncosts=true, or a synthetic grid road network with the given
+ * number of rows and columns, e.g. grid=500. With customizable=true the CHs are created by customizing a single
+ * {@link CCHTopology} instead. On Linux the peak RSS of the whole process is printed as well.
+ */
+public class CHPreparationMeasurement {
+
+    public static void main(String[] strs) {
+        PMap args = PMap.read(strs);
+        boolean turnCosts = args.getBool("turncosts", false);
+        BaseGraph graph;
+        Weighting weighting;
+        GraphHopper hopper = null;
+        if (args.has("grid")) {
+            // the bundled maps are rather small, so we also allow measuring on a synthetic grid with random speeds
+            DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 7, 1, true);
+            DecimalEncodedValue turnCostEnc = TurnCost.create("car", 3);
+            EncodingManager em = EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+            graph = new BaseGraph.Builder(em).withTurnCosts(turnCosts).create();
+            buildGrid(graph, args.getInt("grid", 500), speedEnc, new Random(args.getLong("seed", 123)));
+            weighting = turnCosts
+                    ? new SpeedWeighting(speedEnc, turnCostEnc, graph.getTurnCostStorage(), 40)
+                    : new SpeedWeighting(speedEnc);
+        } else {
+            String profile = "car";
+            GraphHopperConfig ghConfig = new GraphHopperConfig()
+                    .putObject("datareader.file", args.getString("map", "map-matching/files/leipzig_germany.osm.pbf"))
+                    .putObject("graph.location", args.getString("location", "ch-preparation-measurement-gh"))
+                    .putObject("import.osm.ignored_highways", "")
+                    .putObject("graph.encoded_values", "car_access, car_average_speed")
+                    .setProfiles(List.of(turnCosts
+                            ? TestProfiles.accessAndSpeed(profile, "car").setTurnCostsConfig(TurnCostsConfig.car())
+                            : TestProfiles.accessAndSpeed(profile, "car")));
+            hopper = new GraphHopper().init(ghConfig).importOrLoad();
+            graph = hopper.getBaseGraph();
+            weighting = hopper.createWeighting(hopper.getProfile(profile), new PMap());
+        }
+        if (!graph.isFrozen())
+            graph.freeze();
+        System.out.println("nodes: " + graph.getNodes() + ", edges: " + graph.getEdges() + ", turn costs: " + turnCosts);
+        List<String> result = new ArrayList<>();
+
+        int iterations = args.getInt("iters", 3);
+        boolean contract = args.getBool("contract", true);
+        CCHCustomizer customizer = null;
+        if (args.getBool("customizable", false)) {
+            long start = System.nanoTime();
+            CCHTopology topology = CCHTopology.fromGraph(graph);
+            result.add(String.format("customizable CH topology: %.1fms, arcs: %d, shortcuts: %d",
+                    (System.nanoTime() - start) * 1.e-6, topology.getArcs(), topology.getShortcuts()));
+            System.out.println(result.get(result.size() - 1));
+            customizer = new CCHCustomizer(topology);
+        }
+        for (int i = 0; i < iterations; i++) {
+            long heapBefore = usedHeapAfterGC();
+            CHPreparationGraph prepareGraph = turnCosts
+                    ? CHPreparationGraph.edgeBased(graph.getNodes(), graph.getEdges(), CHPreparationGraph.buildTurnCostFunctionFromTurnCostStorage(graph, weighting))
+                    : CHPreparationGraph.nodeBased(graph.getNodes(), graph.getEdges());
+            long start = System.nanoTime();
+            CHPreparationGraph.buildFromGraph(prepareGraph, graph, weighting);
+            double buildMillis = (System.nanoTime() - start) * 1.e-6;
+            long prepareGraphBytes = usedHeapAfterGC() - heapBefore;
+            Reference.reachabilityFence(prepareGraph);
+            result.add(String.format("run: %d, prepare graph heap: %.2fMB (%.1f bytes per edge), build: %.1fms",
+                    i, prepareGraphBytes / 1024.0 / 1024.0, prepareGraphBytes / (double) graph.getEdges(), buildMillis));
+            System.out.println(result.get(result.size() - 1));
+            if (!contract)
+                continue;
+
+            heapBefore = usedHeapAfterGC();
+            resetPeakHeap();
+            CHConfig chConfig = turnCosts ? CHConfig.edgeBased("ch_" + i, weighting) : CHConfig.nodeBased("ch_" + i, weighting);
+            PrepareContractionHierarchies.Result res = customizer != null
+                    ? customizer.prepare(chConfig)
+                    : PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+            result.add(String.format("run: %d, preparation: %dms, shortcuts: %d, peak heap increase: %.2fMB",
+                    i, res.getTotalPrepareTime(), res.getShortcuts(), (getPeakHeap() - heapBefore) / 1024.0 / 1024.0));
+            System.out.println(result.get(result.size() - 1));
+            res.getCHStorage().close();
+        }
+        if (hopper != null)
+            hopper.close();
+        System.out.println();
+        System.out.println("### RESULT ###");
+        for (String res : result)
+            System.out.println(res);
+        System.out.println("peak RSS: " + getPeakRSS());
+    }
+
+    private static String getPeakRSS() {
+        // only available on Linux
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status")))
+                if (line.startsWith("VmHWM:"))
+                    return line.substring("VmHWM:".length()).trim();
+        } catch (IOException e) {
+            // ignore
+        }
+        return "unknown";
+    }
+
+    static void buildGrid(BaseGraph graph, int size, DecimalEncodedValue speedEnc, Random rnd) {
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++)
+                graph.getNodeAccess().setNode(row * size + col, 49.4 + row * 0.001, 9.7 + col * 0.001);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int node = row * size + col;
+                if (col + 1 < size && rnd.nextDouble() < 0.9)
+                    addEdge(graph, node, node + 1, speedEnc, rnd);
+                if (row + 1 < size && rnd.nextDouble() < 0.9)
+                    addEdge(graph, node, node + size, speedEnc, rnd);
+            }
+        }
+    }
+
+    private static void addEdge(BaseGraph graph, int from, int to, DecimalEncodedValue speedEnc, Random rnd) {
+        double speed = 10 + 10 * rnd.nextInt(11);
+        // some edges are one-ways
+        graph.edge(from, to).setDistance(100).set(speedEnc, speed, rnd.nextDouble() < 0.9 ? speed : 0);
+    }
+
+    private static long usedHeapAfterGC() {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+    }
+
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        return peak;
+    }
+}
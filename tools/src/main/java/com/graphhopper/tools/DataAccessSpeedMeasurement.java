@@ -0,0 +1,96 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.tools;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.MiniPerfTest;
+import com.graphhopper.util.PMap;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the read speed of the different DataAccess implementations for one file that was written once with the
+ * default segment size. MMAP maps this file segment by segment while MMAP_RO uses as few mappings as possible.
+ * The random reads roughly mimic the access pattern of a CH query, the sequential reads that of a full graph scan.
+ * <p>
+ * Usage: java -cp tools/target/graphhopper-tools-*-jar-with-dependencies.jar com.graphhopper.tools.DataAccessSpeedMeasurement size_mb=1024
+ */
+public class DataAccessSpeedMeasurement {
+
+    public static void main(String[] strs) {
+        PMap args = PMap.read(strs);
+        String location = args.getString("location", "da-speed-measurement");
+        long bytes = args.getLong("size_mb", 512) * (1 << 20);
+        int iterations = args.getInt("iters", 100);
+        int readsPerIteration = args.getInt("reads", 1_000_000);
+        String[] types = args.getString("types", "RAM_STORE,OFF_HEAP_STORE,MMAP,MMAP_RO").split(",");
+
+        Helper.removeDir(new File(location));
+        GHDirectory writeDir = new GHDirectory(location, DAType.RAM_STORE);
+        writeDir.create();
+        DataAccess writeDA = writeDir.create("values");
+        writeDA.create(bytes);
+        Random rnd = new Random(123);
+        for (long pointer = 0; pointer + 4 <= bytes; pointer += 4)
+            writeDA.setInt(pointer, rnd.nextInt());
+        writeDA.flush();
+        writeDir.close();
+
+        List<String> result = new ArrayList<>();
+        for (String type : types) {
+            System.out.println("Running measurement for " + type);
+            GHDirectory dir = new GHDirectory(location, DAType.fromString(type.trim()));
+            DataAccess da = dir.create("values");
+            if (!da.loadExisting())
+                throw new IllegalStateException("Could not load " + da.getName() + " with " + type);
+            // values are int-aligned most of the time, but not always, so use arbitrary positions
+            final long maxPointer = da.getCapacity() - 4;
+            final Random random = new Random(456);
+            MiniPerfTest randomReads = new MiniPerfTest().setIterations(iterations)
+                    .start((warmup, run) -> {
+                        int sum = 0;
+                        for (int i = 0; i < readsPerIteration; i++)
+                            sum += da.getInt((random.nextLong() & Long.MAX_VALUE) % maxPointer);
+                        return sum;
+                    });
+            MiniPerfTest sequentialReads = new MiniPerfTest().setIterations(Math.max(1, iterations / 10))
+                    .start((warmup, run) -> {
+                        int sum = 0;
+                        for (long pointer = 0; pointer <= maxPointer; pointer += 4)
+                            sum += da.getInt(pointer);
+                        return sum;
+                    });
+            result.add(String.format("type: %s, segments: %d, random reads took: %.2fms, sequential reads took: %.2fms, checksum: %d",
+                    type, da.getSegments(), randomReads.getMean(), sequentialReads.getMean(),
+                    randomReads.getDummySum() + sequentialReads.getDummySum()));
+            System.out.println(result.get(result.size() - 1));
+            dir.close();
+        }
+        Helper.removeDir(new File(location));
+        System.out.println();
+        System.out.println("### RESULT ###");
+        for (String res : result)
+            System.out.println(res);
+    }
+}
@@ -20,9 +20,12 @@ package com.graphhopper.tools;
 
 import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.routing.Dijkstra;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.util.EdgeExplorer;
 import com.graphhopper.util.EdgeIterator;
@@ -34,17 +37,24 @@ import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
 
+/**
+ * Measures how fast the edges of the BaseGraph can be read. Use cache_aligned_edges=true to measure the cache-aligned
+ * edge layout, see graph.cache_aligned_edges.
+ */
 public class GraphSpeedMeasurement {
 
     public static void main(String[] strs) {
         PMap args = PMap.read(strs);
         List<String> result = new ArrayList<>();
+        boolean cacheAlignedEdges = args.getBool("cache_aligned_edges", false);
         for (int speedBits = 7; speedBits <= 31; speedBits += 3) {
-            System.out.println("Running measurement for speedBits=" + speedBits);
+            System.out.println("Running measurement for speedBits=" + speedBits + ", cache_aligned_edges=" + cacheAlignedEdges);
             GraphHopperConfig ghConfig = new GraphHopperConfig()
                     .putObject("datareader.file", args.getString("map", "map-matching/files/leipzig_germany.osm.pbf"))
-                    .putObject("graph.location", args.getString("location", "graph-speed-measurement") + "-" + speedBits + "-gh")
+                    .putObject("graph.location", args.getString("location", "graph-speed-measurement") + "-" + speedBits
+                            + (cacheAlignedEdges ? "-aligned" : "") + "-gh")
                     .putObject("graph.dataaccess", args.getString("da", "RAM_STORE"))
+                    .putObject("graph.cache_aligned_edges", cacheAlignedEdges)
                     .putObject("import.osm.ignored_highways", "")
                     .putObject("graph.encoded_values", String.format("car_average_speed|speed_bits=%d,bike_average_speed|speed_bits=%d,foot_average_speed|speed_bits=%d", speedBits, speedBits, speedBits))
                     .setProfiles(List.of(
@@ -92,6 +102,43 @@ public class GraphSpeedMeasurement {
                     });
             result.add(String.format("bits: %d, bytes: %d, took: %.2fms, checksum: %d", speedBits, em.getBytesForFlags(), t.getSum(), t.getDummySum()));
             System.out.println(result.get(result.size() - 1));
+
+            // a full scan over all nodes and their edges, like it is done for e.g. the subnetwork removal
+            DecimalEncodedValue speedEnc = em.getDecimalEncodedValue(VehicleSpeed.key("car"));
+            final int[] scannedEdges = new int[1];
+            MiniPerfTest scan = new MiniPerfTest().setIterations(args.getInt("scan_iters", 10))
+                    .start((warmup, run) -> {
+                        double sum = 0;
+                        int edges = 0;
+                        for (int node = 0; node < baseGraph.getNodes(); node++) {
+                            EdgeIterator iter = explorer.setBaseNode(node);
+                            while (iter.next()) {
+                                sum += iter.getDistance() + iter.get(speedEnc) + iter.getAdjNode();
+                                edges++;
+                            }
+                        }
+                        scannedEdges[0] = edges;
+                        return (int) sum;
+                    });
+            result.add(String.format("bits: %d, full scan: %.2fms, edges per second: %.0f, checksum: %d", speedBits,
+                    scan.getMean(), scannedEdges[0] / scan.getMean() * 1000, scan.getDummySum()));
+            System.out.println(result.get(result.size() - 1));
+
+            Weighting weighting = hopper.createWeighting(hopper.getProfile("car"), new PMap());
+            final long[] visitedNodes = new long[1];
+            MiniPerfTest dijkstra = new MiniPerfTest().setIterations(args.getInt("dijkstra_iters", 100))
+                    .start((warmup, run) -> {
+                        Dijkstra algo = new Dijkstra(baseGraph, weighting, TraversalMode.NODE_BASED);
+                        int from = rnd.nextInt(baseGraph.getNodes());
+                        int to = rnd.nextInt(baseGraph.getNodes());
+                        double distance = algo.calcPath(from, to).getDistance();
+                        if (!warmup)
+                            visitedNodes[0] += algo.getVisitedNodes();
+                        return (int) distance;
+                    });
+            result.add(String.format("bits: %d, dijkstra: %.2fms, visited nodes per second: %.0f, checksum: %d", speedBits,
+                    dijkstra.getMean(), visitedNodes[0] / dijkstra.getSum() * 1000, dijkstra.getDummySum()));
+            System.out.println(result.get(result.size() - 1));
         }
         System.out.println();
         System.out.println("### RESULT ###");
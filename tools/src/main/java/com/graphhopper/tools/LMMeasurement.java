@@ -0,0 +1,180 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.tools;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.EncodedValueLookup;
+import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.lm.LMApproximator;
+import com.graphhopper.routing.lm.LMConfig;
+import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
+import com.graphhopper.routing.lm.LandmarkStorage;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR;
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+
+/**
+ * Measures the throughput of {@link LMApproximator#approximate(int)} and the time and visited nodes of A* and
+ * bidirectional A* queries with landmarks for the different landmark weight bits, row layouts and active landmark
+ * strategies.
+ * Like {@link CHPreparationMeasurement} this runs either on a given map, e.g. map=core/files/andorra.osm.pbf, or on a
+ * synthetic grid road network, e.g. grid=300. Further options: landmarks=16 active_landmarks=8 queries=1000.
+ */
+public class LMMeasurement {
+
+    public static void main(String[] strs) {
+        PMap args = PMap.read(strs);
+        BaseGraph graph;
+        Weighting weighting;
+        EncodedValueLookup lookup;
+        GraphHopper hopper = null;
+        String profile = "car";
+        if (args.has("grid")) {
+            DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 7, 1, true);
+            EncodingManager em = EncodingManager.start().add(speedEnc).add(Subnetwork.create(profile)).build();
+            graph = new BaseGraph.Builder(em).create();
+            CHPreparationMeasurement.buildGrid(graph, args.getInt("grid", 300), speedEnc, new Random(args.getLong("seed", 123)));
+            weighting = new SpeedWeighting(speedEnc);
+            lookup = em;
+        } else {
+            GraphHopperConfig ghConfig = new GraphHopperConfig()
+                    .putObject("datareader.file", args.getString("map", "map-matching/files/leipzig_germany.osm.pbf"))
+                    .putObject("graph.location", args.getString("location", "lm-measurement-gh"))
+                    .putObject("import.osm.ignored_highways", "")
+                    .putObject("graph.encoded_values", "car_access, car_average_speed")
+                    .setProfiles(List.of(TestProfiles.accessAndSpeed(profile, "car")));
+            hopper = new GraphHopper().init(ghConfig).importOrLoad();
+            graph = hopper.getBaseGraph();
+            weighting = hopper.createWeighting(hopper.getProfile(profile), new PMap());
+            lookup = hopper.getEncodingManager();
+        }
+        if (!graph.isFrozen())
+            graph.freeze();
+        int landmarks = args.getInt("landmarks", 16);
+        int activeLandmarks = args.getInt("active_landmarks", 8);
+        int queries = args.getInt("queries", 1000);
+        long seed = args.getLong("seed", 123);
+        System.out.println("nodes: " + graph.getNodes() + ", edges: " + graph.getEdges() + ", landmarks: " + landmarks
+                + ", active landmarks: " + activeLandmarks);
+
+        List<String> result = new ArrayList<>();
+        for (int weightBits : new int[]{16, 8}) {
+            for (boolean splitRows : new boolean[]{false, true}) {
+                LandmarkStorage lms = new LandmarkStorage(graph, lookup, new RAMDirectory(), new LMConfig(profile, weighting), landmarks);
+                lms.setSplitRows(splitRows);
+                lms.setWeightBits(weightBits);
+                long start = System.nanoTime();
+                lms.createLandmarks();
+                String name = "bits: " + weightBits + ", split rows: " + splitRows;
+                result.add(String.format("%s, preparation: %.1fms, memory: %.2fMB", name, (System.nanoTime() - start) * 1.e-6,
+                        lms.getCapacity() / 1024.0 / 1024.0));
+                System.out.println(result.get(result.size() - 1));
+                measureApproximate(result, name, graph, weighting, lms, activeLandmarks, queries, new Random(seed));
+                for (boolean reselect : new boolean[]{false, true})
+                    for (String algo : new String[]{ASTAR, ASTAR_BI})
+                        measureQueries(result, name, graph, weighting, lms, algo, activeLandmarks, reselect, queries, new Random(seed));
+                lms.close();
+            }
+        }
+        if (hopper != null)
+            hopper.close();
+        System.out.println();
+        System.out.println("### RESULT ###");
+        for (String res : result)
+            System.out.println(res);
+    }
+
+    private static void measureApproximate(List<String> result, String name, BaseGraph graph, Weighting weighting, LandmarkStorage lms,
+                                           int activeLandmarks, int queries, Random rnd) {
+        int callsPerTarget = 10_000;
+        double sum = 0;
+        long calls = 0;
+        long time = 0;
+        // the first half of the targets is only used to warm up
+        for (int i = 0; i < 2 * queries; i++) {
+            LMApproximator approximator = LMApproximator.forLandmarks(graph, weighting, lms, activeLandmarks);
+            approximator.setTo(rnd.nextInt(graph.getNodes()));
+            // the first call chooses the active landmarks
+            approximator.approximate(rnd.nextInt(graph.getNodes()));
+            long start = System.nanoTime();
+            for (int j = 0; j < callsPerTarget; j++)
+                sum += approximator.approximate(rnd.nextInt(graph.getNodes()));
+            if (i >= queries) {
+                time += System.nanoTime() - start;
+                calls += callsPerTarget;
+            }
+        }
+        result.add(String.format("%s, approximate: %.1fns per call, checksum: %.0f", name, time / (double) calls, sum));
+        System.out.println(result.get(result.size() - 1));
+    }
+
+    private static void measureQueries(List<String> result, String name, BaseGraph graph, Weighting weighting, LandmarkStorage lms,
+                                       String algo, int activeLandmarks, boolean reselect, int queries, Random rnd) {
+        LMRoutingAlgorithmFactory factory = new LMRoutingAlgorithmFactory(lms);
+        PMap hints = new PMap()
+                .putObject(Parameters.Landmark.ACTIVE_COUNT, activeLandmarks)
+                .putObject(Parameters.Landmark.RESELECT_ACTIVE, reselect);
+        AlgorithmOptions opts = new AlgorithmOptions().setAlgorithm(algo).setTraversalMode(TraversalMode.NODE_BASED).setHints(hints);
+        long time = 0;
+        long visitedNodes = 0;
+        int found = 0;
+        for (int i = 0; i < 2 * queries; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            RoutingAlgorithm algorithm = factory.createAlgo(graph, weighting, opts);
+            long start = System.nanoTime();
+            Path path = algorithm.calcPath(from, to);
+            if (i < queries)
+                continue;
+            time += System.nanoTime() - start;
+            visitedNodes += algorithm.getVisitedNodes();
+            if (!path.isFound())
+                continue;
+            found++;
+            // compare some of the routes to make sure the landmarks are still correct
+            if (i % 10 == 0) {
+                Path expected = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+                if (Math.abs(expected.getWeight() - path.getWeight()) > 1.e-2)
+                    throw new IllegalStateException("wrong weight for " + from + "->" + to + ": " + path.getWeight() + " vs. " + expected.getWeight());
+            }
+        }
+        result.add(String.format("%s, reselect: %s, %s: %.3fms per query, visited nodes: %d, found: %d/%d",
+                name, reselect, algo, time * 1.e-6 / queries, visitedNodes / queries, found, queries));
+        System.out.println(result.get(result.size() - 1));
+    }
+}
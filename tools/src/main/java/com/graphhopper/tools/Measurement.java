@@ -36,6 +36,8 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.Algorithms;
 import com.graphhopper.util.Parameters.CH;
@@ -184,6 +186,7 @@ public class Measurement {
             printGraphDetails(g, vehicle);
             measureGraphTraversal(g, accessEnc, count * 100);
             measureLocationIndex(g, hopper.getLocationIndex(), count);
+            measureLocationIndexBatch(g, (LocationIndexTree) hopper.getLocationIndex(), count);
 
             if (runSlow) {
                 boolean isCH = false;
@@ -426,6 +429,31 @@ public class Measurement {
         print("location_index", miniPerf);
     }
 
+    private void measureLocationIndexBatch(Graph g, final LocationIndexTree idx, int count) {
+        final BBox bbox = g.getBounds();
+        final double latDelta = bbox.maxLat - bbox.minLat;
+        final double lonDelta = bbox.maxLon - bbox.minLon;
+        final Random rand = new Random(seed);
+        // every batch is a random walk of 100 points with a distance of roughly 100m like a GPS track
+        final int points = 100;
+        MiniPerfTest miniPerf = new MiniPerfTest().setIterations(count / points + 1).start((warmup, run) -> {
+            double[] lats = new double[points];
+            double[] lons = new double[points];
+            lats[0] = rand.nextDouble() * latDelta + bbox.minLat;
+            lons[0] = rand.nextDouble() * lonDelta + bbox.minLon;
+            for (int i = 1; i < points; i++) {
+                lats[i] = lats[i - 1] + (rand.nextDouble() - 0.5) * 0.002;
+                lons[i] = lons[i - 1] + (rand.nextDouble() - 0.5) * 0.002;
+            }
+            int sum = 0;
+            for (Snap snap : idx.findClosestBatch(lats, lons, EdgeFilter.ALL_EDGES))
+                sum += snap.getClosestNode();
+            return sum;
+        });
+
+        print("location_index_batch", miniPerf);
+    }
+
     private void measureGraphTraversal(final Graph graph, BooleanEncodedValue accessEnc, int count) {
         final Random rand = new Random(seed);
 
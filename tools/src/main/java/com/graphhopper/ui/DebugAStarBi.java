@@ -21,7 +21,6 @@ import com.graphhopper.routing.AStarBidirection;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
-import com.graphhopper.routing.SPTEntry;
 
 import java.awt.*;
 
@@ -43,11 +42,11 @@ public class DebugAStarBi extends AStarBidirection implements DebugAlgo {
     }
 
     @Override
-    public void updateBestPath(double edgeWeight, SPTEntry entry, int origEdgeId, int traversalId, boolean reverse) {
+    public void updateBestPath(double edgeWeight, int slot, int traversalId, boolean reverse) {
         if (g2 != null) {
-            mg.plotNode(g2, entry.adjNode, Color.YELLOW);
+            mg.plotNode(g2, (reverse ? sptTo : sptFrom).getAdjNode(slot), Color.YELLOW);
         }
-        super.updateBestPath(edgeWeight, entry, origEdgeId, traversalId, reverse);
+        super.updateBestPath(edgeWeight, slot, traversalId, reverse);
     }
 
     @Override
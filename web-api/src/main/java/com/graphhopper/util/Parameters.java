@@ -168,6 +168,14 @@ public class Parameters {
          * Default for active count
          */
         public static final String ACTIVE_COUNT_DEFAULT = ROUTING_INIT_PREFIX + ACTIVE_COUNT;
+        /**
+         * Specifies if better active landmarks should be added while the search is running
+         */
+        public static final String RESELECT_ACTIVE = "lm.reselect_active_landmarks";
+        /**
+         * Default for reselecting the active landmarks
+         */
+        public static final String RESELECT_ACTIVE_DEFAULT = ROUTING_INIT_PREFIX + RESELECT_ACTIVE;
         /**
          * Specifies how many landmarks should be created
          */
@@ -18,6 +18,7 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Gauge;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
@@ -298,6 +299,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(MVTResource.class);
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
+        environment.jersey().register(MatrixResource.class);
         environment.jersey().register(IsochroneResource.class);
         environment.jersey().register(MapMatchingResource.class);
 
@@ -328,6 +330,13 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(SPTResource.class);
         environment.jersey().register(I18NResource.class);
         environment.jersey().register(InfoResource.class);
+        if (graphHopper.getRouterConfig().getSnapCacheSize() > 0) {
+            // the cache is only created when the graph is loaded
+            environment.metrics().register("snap_cache.hits", (Gauge<Long>) () -> graphHopper.getSnapCache() == null ? 0 : graphHopper.getSnapCache().getHits());
+            environment.metrics().register("snap_cache.misses", (Gauge<Long>) () -> graphHopper.getSnapCache() == null ? 0 : graphHopper.getSnapCache().getMisses());
+            environment.metrics().register("snap_cache.hit_rate", (Gauge<Double>) () -> graphHopper.getSnapCache() == null ? 0 : graphHopper.getSnapCache().getHitRate());
+            environment.metrics().register("snap_cache.size", (Gauge<Integer>) () -> graphHopper.getSnapCache() == null ? 0 : graphHopper.getSnapCache().getSize());
+        }
         environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopper));
         environment.jersey().register(environment.healthChecks());
         environment.jersey().register(HealthCheckResource.class);
@@ -37,6 +37,9 @@ public class GraphHopperHealthCheck extends HealthCheck {
         if (!graphHopper.getFullyLoaded()) {
             return Result.unhealthy("GraphHopper is not fully loaded.");
         }
+        if (graphHopper.isPreloading()) {
+            return Result.unhealthy("GraphHopper is still preloading memory mapped files.");
+        }
         return Result.healthy();
     }
 }
@@ -8,8 +8,10 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.ProfileResolver;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.PhastShortestPathTree;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.isochrone.algorithm.Triangulator;
+import com.graphhopper.routing.ch.RankOrderedCHGraph;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.querygraph.QueryGraph;
@@ -82,6 +84,7 @@ public class IsochroneResource {
         StopWatch sw = new StopWatch().start();
         PMap hintsMap = new PMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
+        boolean disableCH = hintsMap.getBool(Parameters.CH.DISABLE, false);
         hintsMap.putObject(Parameters.CH.DISABLE, true);
         hintsMap.putObject(Parameters.Landmark.DISABLE, true);
 
@@ -95,14 +98,18 @@ public class IsochroneResource {
             throw new IllegalArgumentException("The requested profile '" + profileName + "' does not exist");
         LocationIndex locationIndex = graphHopper.getLocationIndex();
         BaseGraph graph = graphHopper.getBaseGraph();
-        Weighting weighting = graphHopper.createWeighting(profile, hintsMap);
+        // use PHAST if the rank ordered CH graph is available and the hints do not change its weighting, otherwise Dijkstra
+        RankOrderedCHGraph rankOrderedCHGraph = disableCH || hintsChangeWeighting(hintsMap) ? null : graphHopper.getRankOrderedCHGraphs().get(profileName);
+        Weighting weighting = rankOrderedCHGraph == null ? graphHopper.createWeighting(profile, hintsMap) : rankOrderedCHGraph.getCHGraph().getWeighting();
         BooleanEncodedValue inSubnetworkEnc = graphHopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profileName));
         Snap snap = locationIndex.findClosest(point.get().lat, point.get().lon, new DefaultSnapFilter(weighting, inSubnetworkEnc));
         if (!snap.isValid())
             throw new IllegalArgumentException("Point not found:" + point);
         QueryGraph queryGraph = QueryGraph.create(graph, snap);
         TraversalMode traversalMode = profile.hasTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+        ShortestPathTree shortestPathTree = rankOrderedCHGraph == null
+                ? new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode)
+                : new PhastShortestPathTree(queryGraph, rankOrderedCHGraph, reverseFlow);
 
         double limit;
         ToDoubleFunction<ShortestPathTree.IsoLabel> fz;
@@ -173,6 +180,15 @@ public class IsochroneResource {
                 build();
     }
 
+    /**
+     * The rank ordered CH graph uses the weighting of the CH preparation, so it can only be used if none of the
+     * request hints is considered by {@link GraphHopper#createWeighting}.
+     */
+    static boolean hintsChangeWeighting(PMap hints) {
+        return hints.has(CustomModel.KEY) || hints.has("cm_version")
+                || hints.has(Parameters.Routing.U_TURN_COSTS) || hints.has(Parameters.Routing.HEADING_PENALTY);
+    }
+
     private Polygon heuristicallyFindMainConnectedComponent(MultiPolygon multiPolygon, Point point) {
         int maxPoints = 0;
         Polygon maxPolygon = null;
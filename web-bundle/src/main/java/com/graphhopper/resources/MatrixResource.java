@@ -0,0 +1,260 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.api.GHMRequest;
+import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.jackson.MultiException;
+import com.graphhopper.routing.ManyToManyCH;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.NameSimilarityEdgeFilter;
+import com.graphhopper.routing.util.SnapPreventionEdgeFilter;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
+import com.graphhopper.util.exceptions.PointNotFoundException;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.inject.Inject;
+import jakarta.validation.constraints.NotNull;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.util.*;
+
+import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
+
+/**
+ * Calculates the weights, times and distances between many points in one request, see
+ * {@link com.graphhopper.api.GHMRequest} for the request format. The matrix is calculated with {@link ManyToManyCH}, so
+ * the requested profile needs a CH preparation. The response contains the arrays requested via out_arrays (weights by
+ * default): times in seconds and distances in meters. If fail_fast is false, entries of disconnected points are null
+ * and the problems are listed in the hints instead of returning an error.
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+
+    private final GraphHopper graphHopper;
+    private final ProfileResolver profileResolver;
+    private final List<String> snapPreventionsDefault;
+    private final int maxPoints;
+
+    @Inject
+    public MatrixResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver) {
+        this.graphHopper = graphHopper;
+        this.profileResolver = profileResolver;
+        this.snapPreventionsDefault = Arrays.stream(config.getString("routing.snap_preventions_default", "")
+                .split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+        this.maxPoints = config.getInt("routing.matrix.max_points", 1000);
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull GHMRequest request) {
+        StopWatch sw = new StopWatch().start();
+        List<GHPoint> fromPoints, toPoints;
+        List<String> fromPointHints, toPointHints;
+        if (request.getPoints() != null) {
+            if (request.getFromPoints() != null || request.getToPoints() != null)
+                throw new IllegalArgumentException("Do not use from_points or to_points together with points");
+            fromPoints = toPoints = request.getPoints();
+            fromPointHints = toPointHints = request.getPointHints();
+        } else {
+            if (request.getFromPoints() == null || request.getToPoints() == null)
+                throw new IllegalArgumentException("Either points or from_points and to_points have to be specified");
+            fromPoints = request.getFromPoints();
+            toPoints = request.getToPoints();
+            fromPointHints = request.getFromPointHints();
+            toPointHints = request.getToPointHints();
+        }
+        if (fromPoints.isEmpty() || toPoints.isEmpty())
+            throw new IllegalArgumentException("At least one from and one to point have to be specified");
+        if (fromPoints.size() > maxPoints || toPoints.size() > maxPoints)
+            throw new IllegalArgumentException("Too many points, the maximum is " + maxPoints + " but was "
+                    + fromPoints.size() + " from and " + toPoints.size() + " to points");
+        if (!isEmpty(request.getCurbsides()) || !isEmpty(request.getFromCurbsides()) || !isEmpty(request.getToCurbsides()))
+            throw new IllegalArgumentException("The matrix does not support curbsides yet");
+
+        List<String> outArrays = isEmpty(request.getOutArrays()) ? List.of("weights") : request.getOutArrays();
+        for (String outArray : outArrays)
+            if (!outArray.equals("weights") && !outArray.equals("times") && !outArray.equals("distances"))
+                throw new IllegalArgumentException("Unknown out_arrays value: '" + outArray + "', only weights, times and distances are supported");
+
+        PMap hints = new PMap(request.getHints());
+        hints.putObject("profile", request.getProfile());
+        String profileName = profileResolver.resolveProfile(hints);
+        removeLegacyParameters(hints);
+        RoutingCHGraph chGraph = graphHopper.getCHGraphs().get(profileName);
+        if (chGraph == null)
+            throw new IllegalArgumentException("Cannot find CH preparation for the requested profile: '" + profileName + "'" +
+                    "\nThe matrix can only be calculated for CH profiles: " + graphHopper.getCHGraphs().keySet());
+
+        List<String> snapPreventions = request.getSnapPreventions() == null ? snapPreventionsDefault : request.getSnapPreventions();
+        PointSnapper snapper = new PointSnapper(chGraph, profileName, snapPreventions);
+        List<Snap> fromSnaps = snapper.lookup(fromPoints, fromPointHints);
+        List<Snap> toSnaps = fromPoints == toPoints ? fromSnaps : snapper.lookup(toPoints, toPointHints);
+        List<Integer> invalidFromPoints = invalidIndices(fromSnaps);
+        List<Integer> invalidToPoints = invalidIndices(toSnaps);
+        if (request.getFailFast() && (!invalidFromPoints.isEmpty() || !invalidToPoints.isEmpty())) {
+            List<Throwable> errors = new ArrayList<>();
+            for (int i : invalidFromPoints)
+                errors.add(new PointNotFoundException("Cannot find from_point " + i + ": " + fromPoints.get(i), i));
+            for (int i : invalidToPoints)
+                errors.add(new PointNotFoundException("Cannot find to_point " + i + ": " + toPoints.get(i), i));
+            throw new MultiException(errors);
+        }
+
+        List<Snap> validSnaps = new ArrayList<>();
+        fromSnaps.stream().filter(Objects::nonNull).forEach(validSnaps::add);
+        if (toSnaps != fromSnaps)
+            toSnaps.stream().filter(Objects::nonNull).forEach(validSnaps::add);
+        QueryGraph queryGraph = QueryGraph.create(graphHopper.getBaseGraph(), validSnaps);
+        boolean withTimes = outArrays.contains("times");
+        boolean withDistances = outArrays.contains("distances");
+        ManyToManyCH algo = new ManyToManyCH(new QueryRoutingCHGraph(chGraph, queryGraph));
+        ManyToManyCH.Result result = algo.calcMatrix(toNodes(fromSnaps), toNodes(toSnaps), withTimes || withDistances);
+
+        List<int[]> disconnectedPairs = new ArrayList<>();
+        for (int from = 0; from < fromSnaps.size(); from++)
+            for (int to = 0; to < toSnaps.size(); to++)
+                if (fromSnaps.get(from) != null && toSnaps.get(to) != null && Double.isInfinite(result.weights[from][to]))
+                    disconnectedPairs.add(new int[]{from, to});
+        if (request.getFailFast() && !disconnectedPairs.isEmpty()) {
+            int[] pair = disconnectedPairs.get(0);
+            throw new ConnectionNotFoundException("Connection between locations not found: from_point " + pair[0]
+                    + " to to_point " + pair[1] + (disconnectedPairs.size() > 1 ? " and " + (disconnectedPairs.size() - 1) + " more" : ""),
+                    Map.of("from", pair[0], "to", pair[1]));
+        }
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        if (outArrays.contains("weights"))
+            putRows(json.putArray("weights"), result, (row, from, to) -> row.add(Helper.round(result.weights[from][to], 3)));
+        if (withTimes)
+            putRows(json.putArray("times"), result, (row, from, to) -> row.add(Math.round(result.times[from][to] / 1000.0)));
+        if (withDistances)
+            putRows(json.putArray("distances"), result, (row, from, to) -> row.add(Math.round(result.distances[from][to])));
+        if (!request.getFailFast() && (!disconnectedPairs.isEmpty() || !invalidFromPoints.isEmpty() || !invalidToPoints.isEmpty())) {
+            ArrayNode problems = json.putArray("hints");
+            if (!disconnectedPairs.isEmpty()) {
+                ObjectNode problem = problems.addObject();
+                problem.put("message", "There are disconnected points");
+                ArrayNode pairs = problem.putArray("point_pairs");
+                disconnectedPairs.forEach(pair -> pairs.addArray().add(pair[0]).add(pair[1]));
+            }
+            if (!invalidFromPoints.isEmpty() || !invalidToPoints.isEmpty()) {
+                ObjectNode problem = problems.addObject();
+                problem.put("message", "Cannot find some of the points");
+                invalidFromPoints.forEach(problem.putArray("invalid_from_points")::add);
+                invalidToPoints.forEach(problem.putArray("invalid_to_points")::add);
+            }
+        }
+        long took = Math.round(sw.stop().getMillisDouble());
+        json.putObject("info").put("took", took);
+        logger.info(fromPoints.size() + "x" + toPoints.size() + ", took: " + took + " ms, profile: " + profileName
+                + ", out_arrays: " + outArrays + ", visited nodes: " + algo.getVisitedNodes());
+        return Response.ok(json).header("X-GH-Took", "" + took).type(MediaType.APPLICATION_JSON).build();
+    }
+
+    private interface CellWriter {
+        void write(ArrayNode row, int from, int to);
+    }
+
+    private static void putRows(ArrayNode rows, ManyToManyCH.Result result, CellWriter writer) {
+        for (int from = 0; from < result.weights.length; from++) {
+            ArrayNode row = rows.addArray();
+            for (int to = 0; to < result.weights[from].length; to++) {
+                if (Double.isInfinite(result.weights[from][to]))
+                    row.addNull();
+                else
+                    writer.write(row, from, to);
+            }
+        }
+    }
+
+    private static boolean isEmpty(List<String> list) {
+        return list == null || list.isEmpty();
+    }
+
+    private static List<Integer> invalidIndices(List<Snap> snaps) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < snaps.size(); i++)
+            if (snaps.get(i) == null)
+                result.add(i);
+        return result;
+    }
+
+    private static int[] toNodes(List<Snap> snaps) {
+        // the closest nodes are only final after the QueryGraph was created
+        return snaps.stream().mapToInt(snap -> snap == null ? -1 : snap.getClosestNode()).toArray();
+    }
+
+    private class PointSnapper {
+        private final EdgeFilter snapFilter;
+        private final EdgeFilter strictSnapFilter;
+        private final LocationIndex locationIndex = graphHopper.getLocationIndex();
+
+        PointSnapper(RoutingCHGraph chGraph, String profileName, List<String> snapPreventions) {
+            EncodedValueLookup lookup = graphHopper.getEncodingManager();
+            BooleanEncodedValue inSubnetworkEnc = lookup.getBooleanEncodedValue(Subnetwork.key(profileName));
+            snapFilter = new DefaultSnapFilter(chGraph.getWeighting(), inSubnetworkEnc);
+            strictSnapFilter = snapPreventions.isEmpty() ? snapFilter : new SnapPreventionEdgeFilter(snapFilter,
+                    lookup.getEnumEncodedValue(RoadClass.KEY, RoadClass.class),
+                    lookup.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class), snapPreventions);
+        }
+
+        /**
+         * @return the snaps of the given points, null for points that could not be snapped
+         */
+        List<Snap> lookup(List<GHPoint> points, List<String> pointHints) {
+            if (!isEmpty(pointHints) && pointHints.size() != points.size())
+                throw new IllegalArgumentException("If you pass point hints, you need to pass exactly one hint for every point, empty hints will be ignored");
+            List<Snap> snaps = new ArrayList<>(points.size());
+            for (int i = 0; i < points.size(); i++) {
+                GHPoint point = points.get(i);
+                Snap snap = null;
+                if (!isEmpty(pointHints) && !Helper.isEmpty(pointHints.get(i)))
+                    snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictSnapFilter, pointHints.get(i), point, 170));
+                else if (strictSnapFilter != snapFilter)
+                    snap = locationIndex.findClosest(point.lat, point.lon, strictSnapFilter);
+                if (snap == null || !snap.isValid())
+                    snap = locationIndex.findClosest(point.lat, point.lon, snapFilter);
+                snaps.add(snap.isValid() ? snap : null);
+            }
+            return snaps;
+        }
+    }
+}
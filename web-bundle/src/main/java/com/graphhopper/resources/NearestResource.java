@@ -34,6 +34,7 @@ import jakarta.inject.Named;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @author svantulden
@@ -42,6 +43,7 @@ import java.util.List;
 @Path("nearest")
 @Produces(MediaType.APPLICATION_JSON)
 public class NearestResource {
+    private static final int MAX_K = 100;
 
     private final DistanceCalc calc = DistanceCalcEarth.DIST_EARTH;
     private final LocationIndex index;
@@ -65,16 +67,36 @@ public class NearestResource {
         }
     }
 
+    /**
+     * @param k the number of nearest edges. Without it the response is the closest point. With it the response is
+     *          always a list, even for k=1, of the closest points of up to k different edges ordered by their distance.
+     */
     @GET
-    public Response doGet(@QueryParam("point") GHPoint point, @QueryParam("elevation") @DefaultValue("false") boolean elevation) {
-        Snap snap = index.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
-        if (snap.isValid()) {
-            GHPoint3D snappedPoint = snap.getSnappedPoint();
-            double[] coordinates = hasElevation && elevation ? new double[]{snappedPoint.lon, snappedPoint.lat, snappedPoint.ele} : new double[]{snappedPoint.lon, snappedPoint.lat};
-            return new Response(coordinates, calc.calcDist(point.lat, point.lon, snappedPoint.lat, snappedPoint.lon));
-        } else {
-            throw new MultiException(List.of(new PointNotFoundException("Point " + point + " is either out of bounds or cannot be found", 0)));
+    public jakarta.ws.rs.core.Response doGet(@QueryParam("point") GHPoint point, @QueryParam("elevation") @DefaultValue("false") boolean elevation,
+                                             @QueryParam("k") Integer k) {
+        if (k == null) {
+            Snap snap = index.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
+            if (!snap.isValid())
+                throw createPointNotFoundException(point);
+            return jakarta.ws.rs.core.Response.ok(createResponse(point, snap, elevation)).build();
         }
+        if (k < 1 || k > MAX_K)
+            throw new IllegalArgumentException("k must be between 1 and " + MAX_K + ", but was: " + k);
+        List<Snap> snaps = index.findKNearest(point.lat, point.lon, k, Double.POSITIVE_INFINITY, EdgeFilter.ALL_EDGES);
+        if (snaps.isEmpty())
+            throw createPointNotFoundException(point);
+        List<Response> responses = snaps.stream().map(snap -> createResponse(point, snap, elevation)).collect(Collectors.toList());
+        return jakarta.ws.rs.core.Response.ok(responses).build();
+    }
+
+    private Response createResponse(GHPoint point, Snap snap, boolean elevation) {
+        GHPoint3D snappedPoint = snap.getSnappedPoint();
+        double[] coordinates = hasElevation && elevation ? new double[]{snappedPoint.lon, snappedPoint.lat, snappedPoint.ele} : new double[]{snappedPoint.lon, snappedPoint.lat};
+        return new Response(coordinates, calc.calcDist(point.lat, point.lon, snappedPoint.lat, snappedPoint.lon));
+    }
+
+    private static MultiException createPointNotFoundException(GHPoint point) {
+        return new MultiException(List.of(new PointNotFoundException("Point " + point + " is either out of bounds or cannot be found", 0)));
     }
 
 }
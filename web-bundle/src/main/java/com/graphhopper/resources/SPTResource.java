@@ -4,7 +4,9 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.isochrone.algorithm.PhastShortestPathTree;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.routing.ch.RankOrderedCHGraph;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.DefaultSnapFilter;
@@ -33,6 +35,7 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.*;
 
+import static com.graphhopper.resources.IsochroneResource.hintsChangeWeighting;
 import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
 import static com.graphhopper.routing.util.TraversalMode.EDGE_BASED;
 import static com.graphhopper.routing.util.TraversalMode.NODE_BASED;
@@ -80,6 +83,7 @@ public class SPTResource {
         StopWatch sw = new StopWatch().start();
         PMap hintsMap = new PMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
+        boolean disableCH = hintsMap.getBool(Parameters.CH.DISABLE, false);
         hintsMap.putObject(Parameters.CH.DISABLE, true);
         hintsMap.putObject(Parameters.Landmark.DISABLE, true);
 
@@ -93,7 +97,9 @@ public class SPTResource {
             throw new IllegalArgumentException("The requested profile '" + profileName + "' does not exist");
         LocationIndex locationIndex = graphHopper.getLocationIndex();
         BaseGraph graph = graphHopper.getBaseGraph();
-        Weighting weighting = graphHopper.createWeighting(profile, hintsMap);
+        // use PHAST if the rank ordered CH graph is available and the hints do not change its weighting, otherwise Dijkstra
+        RankOrderedCHGraph rankOrderedCHGraph = disableCH || hintsChangeWeighting(hintsMap) ? null : graphHopper.getRankOrderedCHGraphs().get(profileName);
+        Weighting weighting = rankOrderedCHGraph == null ? graphHopper.createWeighting(profile, hintsMap) : rankOrderedCHGraph.getCHGraph().getWeighting();
         BooleanEncodedValue inSubnetworkEnc = graphHopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profileName));
         Snap snap = locationIndex.findClosest(point.get().lat, point.get().lon, new DefaultSnapFilter(weighting, inSubnetworkEnc));
         if (!snap.isValid())
@@ -101,7 +107,9 @@ public class SPTResource {
         QueryGraph queryGraph = QueryGraph.create(graph, snap);
         NodeAccess nodeAccess = queryGraph.getNodeAccess();
         TraversalMode traversalMode = profile.hasTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+        ShortestPathTree shortestPathTree = rankOrderedCHGraph == null
+                ? new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode)
+                : new PhastShortestPathTree(queryGraph, rankOrderedCHGraph, reverseFlow);
 
         if (distanceInMeter.orElseThrow(() -> new IllegalArgumentException("query param distance_limit is not a number.")) > 0) {
             shortestPathTree.setDistanceLimit(distanceInMeter.getAsLong());
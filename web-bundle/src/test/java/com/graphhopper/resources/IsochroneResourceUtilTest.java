@@ -18,11 +18,16 @@
 
 package com.graphhopper.resources;
 
+import com.graphhopper.util.CustomModel;
 import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 import org.junit.jupiter.api.Test;
 import org.locationtech.jts.geom.Coordinate;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class IsochroneResourceUtilTest {
 
@@ -50,4 +55,15 @@ public class IsochroneResourceUtilTest {
         assertEquals(sanFranciscoToLosAngelesInDegrees, sanFranciscoToLosAngelesInDegreesAccordingToTestee, sanFranciscoToLosAngelesInDegrees * 0.5);
     }
 
+    @Test
+    public void testHintsChangeWeighting() {
+        PMap hints = new PMap().putObject("profile", "car").putObject("time_limit", 600)
+                .putObject(Parameters.CH.DISABLE, true).putObject(Parameters.Landmark.DISABLE, true);
+        assertFalse(IsochroneResource.hintsChangeWeighting(hints));
+        assertTrue(IsochroneResource.hintsChangeWeighting(new PMap(hints).putObject(Parameters.Routing.U_TURN_COSTS, 40)));
+        assertTrue(IsochroneResource.hintsChangeWeighting(new PMap(hints).putObject(Parameters.Routing.HEADING_PENALTY, 100)));
+        assertTrue(IsochroneResource.hintsChangeWeighting(new PMap(hints).putObject(CustomModel.KEY, new CustomModel())));
+        assertTrue(IsochroneResource.hintsChangeWeighting(new PMap(hints).putObject("cm_version", "2")));
+    }
+
 }
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.application;
 
+import com.carrotsearch.hppc.IntHashSet;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.LMProfile;
@@ -25,18 +26,23 @@ import com.graphhopper.jackson.Gpx;
 import com.graphhopper.matching.EdgeMatch;
 import com.graphhopper.matching.MapMatching;
 import com.graphhopper.matching.MatchResult;
+import com.graphhopper.matching.Observation;
 import com.graphhopper.matching.State;
 import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
-import com.graphhopper.util.Helper;
-import com.graphhopper.util.PMap;
+import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+import org.locationtech.jts.geom.Envelope;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.*;
 
 import static com.graphhopper.application.MapMatchingTest.fetchStreets;
 import static org.junit.jupiter.api.Assertions.*;
@@ -127,6 +133,87 @@ public class MapMatching2Test {
         assertEquals(0, mr.getMatchMillis(), 50);
     }
 
+    @Test
+    public void testCandidateSnapsMatchAllEdgesInBBox() throws IOException {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setEncodedValuesString("car_access, car_average_speed");
+        hopper.setProfiles(TestProfiles.accessAndSpeed("my_profile", "car"));
+        hopper.importOrLoad();
+
+        PMap hints = new PMap().putObject("profile", "my_profile");
+        MapMatching mapMatching = MapMatching.fromGraphHopper(hopper, hints);
+        mapMatching.setMeasurementErrorSigma(20);
+        EdgeFilter snapFilter = MapMatching.routerFromGraphHopper(hopper, hints).getSnapFilter();
+        Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        for (Observation observation : GpxConversions.getEntries(gpx.trk.get(0))) {
+            GHPoint p = observation.getPoint();
+            List<Snap> snaps = mapMatching.findCandidateSnaps(p.lat, p.lon);
+            List<Snap> expected = findCandidateSnapsInBBox(hopper, p.lat, p.lon, 20, snapFilter);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected.size(), snaps.size(), "candidates for " + p);
+            for (int i = 0; i < expected.size(); i++) {
+                Snap e = expected.get(i);
+                Snap s = snaps.get(i);
+                assertEquals(e.getSnappedPosition(), s.getSnappedPosition(), "candidate " + i + " for " + p);
+                assertEquals(e.getClosestNode(), s.getClosestNode(), "candidate " + i + " for " + p);
+                if (e.getSnappedPosition() != Snap.Position.TOWER)
+                    assertEquals(e.getClosestEdge().getEdge(), s.getClosestEdge().getEdge(), "candidate " + i + " for " + p);
+                // the index snaps with DIST_PLANE, which computes the same crossing point as DIST_EARTH, so the
+                // snapped points must be identical and not just within GHPoint's epsilon
+                assertEquals(e.getSnappedPoint().lat, s.getSnappedPoint().lat, "candidate " + i + " for " + p);
+                assertEquals(e.getSnappedPoint().lon, s.getSnappedPoint().lon, "candidate " + i + " for " + p);
+                // the index measures the distance to the snapped point instead of denormalizing the edge distance
+                assertEquals(e.getQueryDistance(), s.getQueryDistance(), 1.e-2, "candidate " + i + " for " + p);
+            }
+        }
+    }
+
+    /**
+     * Collects the candidates by projecting the point onto every edge within the expanding box, which is
+     * how map matching used to do it before it used {@link LocationIndexTree#findKNearest}.
+     */
+    private static List<Snap> findCandidateSnapsInBBox(GraphHopper hopper, double queryLat, double queryLon, double measurementErrorSigma, EdgeFilter edgeFilter) {
+        LocationIndexTree locationIndex = (LocationIndexTree) hopper.getLocationIndex();
+        double rLon = (measurementErrorSigma * 360.0 / DistanceCalcEarth.DIST_EARTH.calcCircumference(queryLat));
+        double rLat = measurementErrorSigma / DistanceCalcEarth.METERS_PER_DEGREE;
+        Envelope envelope = new Envelope(queryLon, queryLon, queryLat, queryLat);
+        for (int i = 0; i < 50; i++) {
+            envelope.expandBy(rLon, rLat);
+            BBox queryShape = BBox.fromEnvelope(envelope);
+            List<Snap> snaps = new ArrayList<>();
+            IntHashSet seenEdges = new IntHashSet();
+            IntHashSet seenNodes = new IntHashSet();
+            locationIndex.query(queryShape, edgeId -> {
+                EdgeIteratorState edge = hopper.getBaseGraph().getEdgeIteratorStateForKey(edgeId * 2);
+                if (seenEdges.add(edgeId) && edgeFilter.accept(edge)) {
+                    Snap snap = new Snap(queryLat, queryLon);
+                    locationIndex.traverseEdge(queryLat, queryLon, edge, (node, normedDist, wayIndex, pos) -> {
+                        if (normedDist < snap.getQueryDistance()) {
+                            snap.setQueryDistance(normedDist);
+                            snap.setClosestNode(node);
+                            snap.setWayIndex(wayIndex);
+                            snap.setSnappedPosition(pos);
+                        }
+                    });
+                    snap.setClosestEdge(edge);
+                    snap.setQueryDistance(DistancePlaneProjection.DIST_PLANE.calcDenormalizedDist(snap.getQueryDistance()));
+                    if (snap.isValid() && (snap.getSnappedPosition() != Snap.Position.TOWER || seenNodes.add(snap.getClosestNode()))) {
+                        snap.calcSnappedPoint(DistanceCalcEarth.DIST_EARTH);
+                        if (queryShape.contains(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon))
+                            snaps.add(snap);
+                    }
+                }
+            });
+            if (!snaps.isEmpty()) {
+                snaps.sort(Comparator.comparingDouble(Snap::getQueryDistance));
+                return snaps;
+            }
+        }
+        return Collections.emptyList();
+    }
+
     private void validateEdgeMatch(EdgeMatch edgeMatch) {
         for (State state : edgeMatch.getStates()) {
             if (state.getSnap().getSnappedPosition() == Snap.Position.TOWER) {
@@ -0,0 +1,155 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.api.GHMRequest;
+import com.graphhopper.api.GHMatrixSyncRequester;
+import com.graphhopper.api.GraphHopperMatrixWeb;
+import com.graphhopper.api.GraphHopperWeb;
+import com.graphhopper.api.MatrixResponse;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static com.graphhopper.application.util.TestUtils.clientUrl;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MatrixResourceTest {
+    private static final String DIR = "./target/andorra-matrix-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("import.osm.ignored_highways", "").
+                putObject("routing.matrix.max_points", 5).
+                putObject("graph.encoded_values", "car_access, car_average_speed").
+                setProfiles(List.of(TestProfiles.accessAndSpeed("car"), TestProfiles.constantSpeed("foot"))).
+                setCHProfiles(List.of(new CHProfile("car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    private static final List<GHPoint> POINTS = Arrays.asList(
+            new GHPoint(42.506942, 1.521196),
+            new GHPoint(42.542919, 1.5144),
+            new GHPoint(42.510071, 1.548128));
+
+    @Test
+    public void testSameAsRoutes() {
+        GraphHopperMatrixWeb matrixWeb = new GraphHopperMatrixWeb(new GHMatrixSyncRequester(clientUrl(app, "/matrix")));
+        GHMRequest request = new GHMRequest().setProfile("car").setPoints(POINTS).
+                setOutArrays(List.of("weights", "times", "distances"));
+        MatrixResponse matrix = matrixWeb.route(request);
+        assertFalse(matrix.hasErrors(), matrix.getErrors().toString());
+
+        GraphHopperWeb routeWeb = new GraphHopperWeb(clientUrl(app, "/route"));
+        for (int from = 0; from < POINTS.size(); from++) {
+            for (int to = 0; to < POINTS.size(); to++) {
+                GHResponse rsp = routeWeb.route(new GHRequest(POINTS.get(from), POINTS.get(to)).setProfile("car"));
+                assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+                ResponsePath path = rsp.getBest();
+                assertTrue(matrix.isConnected(from, to));
+                assertEquals(path.getRouteWeight(), matrix.getWeight(from, to), 1.e-2, from + "->" + to);
+                // the matrix only contains full seconds
+                assertEquals(path.getTime(), matrix.getTime(from, to), 1000, from + "->" + to);
+                assertEquals(path.getDistance(), matrix.getDistance(from, to), 1, from + "->" + to);
+            }
+        }
+        assertEquals(0, matrix.getWeight(1, 1));
+    }
+
+    @Test
+    public void testFromAndToPoints() {
+        String body = "{\"profile\": \"car\", \"from_points\": [[1.521196, 42.506942]], " +
+                "\"to_points\": [[1.5144, 42.542919], [1.548128, 42.510071]]}";
+        JsonNode json = clientTarget(app, "/matrix").request().post(Entity.json(body), JsonNode.class);
+        assertEquals(1, json.get("weights").size());
+        assertEquals(2, json.get("weights").get(0).size());
+        assertFalse(json.has("times"));
+        assertFalse(json.has("distances"));
+        assertTrue(json.get("info").has("took"));
+    }
+
+    @Test
+    public void testInvalidPoints() {
+        // the second point is far away from any road
+        String body = "{\"profile\": \"car\", \"points\": [[1.521196, 42.506942], [1.0, 42.0]], \"fail_fast\": false}";
+        JsonNode json = clientTarget(app, "/matrix").request().post(Entity.json(body), JsonNode.class);
+        JsonNode weights = json.get("weights");
+        assertEquals(0, weights.get(0).get(0).asDouble());
+        assertTrue(weights.get(0).get(1).isNull());
+        assertTrue(weights.get(1).get(0).isNull());
+        JsonNode hint = json.get("hints").get(0);
+        assertEquals("[1]", hint.get("invalid_from_points").toString());
+        assertEquals("[1]", hint.get("invalid_to_points").toString());
+
+        body = "{\"profile\": \"car\", \"points\": [[1.521196, 42.506942], [1.0, 42.0]]}";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(body));
+        assertEquals(400, response.getStatus());
+        json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("Cannot find from_point 1"), json.toString());
+    }
+
+    @Test
+    public void testErrors() {
+        String body = "{\"profile\": \"foot\", \"points\": [[1.521196, 42.506942], [1.5144, 42.542919]]}";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(body));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Cannot find CH preparation"));
+
+        body = "{\"profile\": \"car\", \"points\": [[1.52, 42.50], [1.52, 42.50], [1.52, 42.50], [1.52, 42.50], [1.52, 42.50], [1.52, 42.50]]}";
+        response = clientTarget(app, "/matrix").request().post(Entity.json(body));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Too many points"));
+
+        body = "{\"profile\": \"car\", \"points\": [[1.521196, 42.506942], [1.5144, 42.542919]], \"curbsides\": [\"right\", \"any\"]}";
+        response = clientTarget(app, "/matrix").request().post(Entity.json(body));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("curbsides"));
+    }
+}
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.application.resources;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.application.GraphHopperApplication;
 import com.graphhopper.application.GraphHopperServerConfiguration;
 import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
@@ -34,7 +35,7 @@ import java.io.File;
 import java.util.List;
 
 import static com.graphhopper.application.util.TestUtils.clientTarget;
-import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author svantulden
@@ -65,4 +66,22 @@ public class NearestResourceTest {
         NearestResource.Response json = clientTarget(app, "/nearest?point=42.554851,1.536198").request().get(NearestResource.Response.class);
         assertArrayEquals(new double[]{1.5363743623376815, 42.554839049600155}, json.coordinates, "nearest point");
     }
+
+    @Test
+    public void testKNearestQuery() {
+        JsonNode json = clientTarget(app, "/nearest?point=42.554851,1.536198&k=3").request().get(JsonNode.class);
+        assertEquals(3, json.size());
+        assertEquals(1.5363743623376815, json.get(0).get("coordinates").get(0).asDouble(), 1.e-8);
+        assertEquals(42.554839049600155, json.get(0).get("coordinates").get(1).asDouble(), 1.e-8);
+        for (int i = 1; i < json.size(); i++)
+            assertTrue(json.get(i).get("distance").asDouble() >= json.get(i - 1).get("distance").asDouble());
+
+        // with k the response is always a list
+        json = clientTarget(app, "/nearest?point=42.554851,1.536198&k=1").request().get(JsonNode.class);
+        assertTrue(json.isArray());
+        assertEquals(1, json.size());
+        assertEquals(1.5363743623376815, json.get(0).get("coordinates").get(0).asDouble(), 1.e-8);
+
+        assertEquals(400, clientTarget(app, "/nearest?point=42.554851,1.536198&k=0").request().get().getStatus());
+    }
 }